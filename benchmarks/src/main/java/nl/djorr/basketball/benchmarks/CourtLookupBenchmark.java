@@ -0,0 +1,69 @@
+package nl.djorr.basketball.benchmarks;
+
+import nl.djorr.basketball.utils.RegionBounds;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Finding the court that contains a player position, the scan done on every
+ * region change check
+ *
+ * @author Djorr
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CourtLookupBenchmark {
+
+    private static final int POSITIONS = 1024; // Power of two
+
+    @Param({"1", "10", "100"})
+    public int courts;
+
+    private int[][] bounds;
+    private int[] positions; // x, y, z triples
+    private int next;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(42);
+
+        // Courts of 30x30 in a row, 50 blocks apart
+        bounds = new int[courts][];
+        for (int i = 0; i < courts; i++) {
+            int minX = i * 50;
+            bounds[i] = new int[] {minX, minX + 29, 60, 75, 0, 29};
+        }
+
+        // Half of the positions are on a court, half are next to one
+        positions = new int[POSITIONS * 3];
+        for (int i = 0; i < POSITIONS; i++) {
+            int court = random.nextInt(courts);
+            positions[i * 3] = court * 50 + random.nextInt(i % 2 == 0 ? 30 : 50);
+            positions[i * 3 + 1] = 64;
+            positions[i * 3 + 2] = random.nextInt(30);
+        }
+    }
+
+    @Benchmark
+    public int find() {
+        int i = next;
+        next = (next + 1) & (POSITIONS - 1);
+        return RegionBounds.find(bounds, positions[i * 3], positions[i * 3 + 1], positions[i * 3 + 2]);
+    }
+}
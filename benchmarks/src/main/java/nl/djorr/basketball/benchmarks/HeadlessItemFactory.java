@@ -0,0 +1,242 @@
+package nl.djorr.basketball.benchmarks;
+
+import org.bukkit.Material;
+import org.bukkit.inventory.ItemFactory;
+import org.bukkit.inventory.ItemFlag;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.inventory.meta.ItemMeta;
+import org.bukkit.inventory.meta.LeatherArmorMeta;
+import org.bukkit.inventory.meta.SkullMeta;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * {@link ItemFactory} of the headless server. Item meta is a bag of the
+ * values set on it, compared by value like CraftBukkit's meta, so
+ * {@link ItemStack#isSimilar} and stacking behave as on a server. Skulls get
+ * {@link SkullMeta} and leather armor {@link LeatherArmorMeta}.
+ *
+ * @author Djorr
+ */
+final class HeadlessItemFactory extends HeadlessProxy {
+
+    private final ItemFactory factory;
+
+    HeadlessItemFactory() {
+        this.factory = create(ItemFactory.class);
+    }
+
+    ItemFactory getItemFactory() {
+        return factory;
+    }
+
+    @Override
+    protected Object call(Object proxy, Method method, Object[] args) {
+        switch (method.getName()) {
+            case "getItemMeta":
+                return newMeta((Material) args[0]);
+            case "isApplicable":
+                return args[0] == null || materialOf(args[1]) != Material.AIR;
+            case "asMetaFor": {
+                Material material = materialOf(args[1]);
+                Meta meta = handlerOf(args[0], Meta.class);
+                if (meta == null || material == Material.AIR) {
+                    return null;
+                }
+                return meta.kind == kindOf(material) ? args[0] : meta.copy(kindOf(material));
+            }
+            case "equals": {
+                Meta first = handlerOf(args[0], Meta.class);
+                Meta second = handlerOf(args[1], Meta.class);
+                if (first == null || second == null) {
+                    return first == second || (first != null ? first : second).isEmpty();
+                }
+                return first.sameValues(second);
+            }
+            default:
+                return UNHANDLED;
+        }
+    }
+
+    private static Material materialOf(Object target) {
+        return target instanceof ItemStack ? ((ItemStack) target).getType() : (Material) target;
+    }
+
+    private static Class<? extends ItemMeta> kindOf(Material material) {
+        switch (material) {
+            case SKULL_ITEM:
+                return SkullMeta.class;
+            case LEATHER_HELMET:
+            case LEATHER_CHESTPLATE:
+            case LEATHER_LEGGINGS:
+            case LEATHER_BOOTS:
+                return LeatherArmorMeta.class;
+            default:
+                return ItemMeta.class;
+        }
+    }
+
+    private static ItemMeta newMeta(Material material) {
+        return material == Material.AIR ? null : new Meta(kindOf(material), new LinkedHashMap<>()).meta;
+    }
+
+    /**
+     * Item meta: every setter stores its value under the property name,
+     * getters and has-checks read it back
+     */
+    private static final class Meta extends HeadlessProxy {
+        private final Class<? extends ItemMeta> kind;
+        private final Map<String, Object> values;
+        private final ItemMeta meta;
+
+        private Meta(Class<? extends ItemMeta> kind, Map<String, Object> values) {
+            this.kind = kind;
+            this.values = values;
+            this.meta = create(kind);
+        }
+
+        @Override
+        protected Object call(Object proxy, Method method, Object[] args) {
+            String name = method.getName();
+            switch (name) {
+                case "clone":
+                    return copy(kind);
+                case "hasEnchants":
+                    return !enchants().isEmpty();
+                case "hasEnchant":
+                    return enchants().containsKey(args[0]);
+                case "getEnchants":
+                    return new LinkedHashMap<>(enchants());
+                case "getEnchantLevel": {
+                    Integer level = enchants().get(args[0]);
+                    return level != null ? level : 0;
+                }
+                case "addEnchant": {
+                    Map<Object, Integer> enchants = new LinkedHashMap<>(enchants());
+                    enchants.put(args[0], (Integer) args[1]);
+                    values.put("enchants", enchants);
+                    return true;
+                }
+                case "removeEnchant": {
+                    Map<Object, Integer> enchants = new LinkedHashMap<>(enchants());
+                    boolean removed = enchants.remove(args[0]) != null;
+                    if (enchants.isEmpty()) {
+                        values.remove("enchants");
+                    } else {
+                        values.put("enchants", enchants);
+                    }
+                    return removed;
+                }
+                case "addItemFlags": {
+                    Set<ItemFlag> flags = EnumSet.noneOf(ItemFlag.class);
+                    flags.addAll(getItemFlags());
+                    Collections.addAll(flags, (ItemFlag[]) args[0]);
+                    values.put("itemFlags", flags);
+                    return null;
+                }
+                case "removeItemFlags": {
+                    Set<ItemFlag> flags = EnumSet.noneOf(ItemFlag.class);
+                    flags.addAll(getItemFlags());
+                    for (ItemFlag flag : (ItemFlag[]) args[0]) {
+                        flags.remove(flag);
+                    }
+                    values.put("itemFlags", flags);
+                    return null;
+                }
+                case "getItemFlags":
+                    return getItemFlags().isEmpty() ? EnumSet.noneOf(ItemFlag.class) : EnumSet.copyOf(getItemFlags());
+                case "hasItemFlag":
+                    return getItemFlags().contains(args[0]);
+                default:
+                    break;
+            }
+
+            if (name.startsWith("set") && args.length == 1) {
+                String property = name.substring(3);
+                if (args[0] == null) {
+                    values.remove(property);
+                } else {
+                    values.put(property, args[0] instanceof List ? new ArrayList<>((List<?>) args[0]) : args[0]);
+                }
+                return method.getReturnType() == boolean.class ? Boolean.TRUE : null;
+            }
+            if (name.startsWith("has") && args.length == 0) {
+                return values.containsKey(name.substring(3));
+            }
+            if (name.startsWith("get") && args.length == 0) {
+                Object value = values.get(name.substring(3));
+                if (value instanceof List) {
+                    return new ArrayList<>((List<?>) value);
+                }
+                if (value != null) {
+                    return value;
+                }
+                // Unset values read as null, like CraftBukkit's meta, not as empty lists
+                return method.getReturnType().isPrimitive() ? UNHANDLED : null;
+            }
+            if (name.startsWith("is") && args.length == 0) {
+                return Boolean.TRUE.equals(values.get(name.substring(2)));
+            }
+            return UNHANDLED;
+        }
+
+        @SuppressWarnings("unchecked")
+        private Map<Object, Integer> enchants() {
+            Map<Object, Integer> enchants = (Map<Object, Integer>) values.get("enchants");
+            return enchants != null ? enchants : Collections.emptyMap();
+        }
+
+        @SuppressWarnings("unchecked")
+        private Set<ItemFlag> getItemFlags() {
+            Set<ItemFlag> flags = (Set<ItemFlag>) values.get("itemFlags");
+            return flags != null ? flags : Collections.emptySet();
+        }
+
+        private boolean isEmpty() {
+            return values.isEmpty();
+        }
+
+        private boolean sameValues(Meta other) {
+            return values.equals(other.values);
+        }
+
+        private ItemMeta copy(Class<? extends ItemMeta> kind) {
+            Map<String, Object> copy = new LinkedHashMap<>();
+            for (Map.Entry<String, Object> entry : values.entrySet()) {
+                Object value = entry.getValue();
+                if (value instanceof List) {
+                    value = new ArrayList<>((List<?>) value);
+                } else if (value instanceof Map) {
+                    value = new LinkedHashMap<>((Map<?, ?>) value);
+                } else if (value instanceof Set) {
+                    value = EnumSet.copyOf(getItemFlags());
+                }
+                copy.put(entry.getKey(), value);
+            }
+            return new Meta(kind, copy).meta;
+        }
+
+        @Override
+        protected boolean isEqual(Object proxy, Object other) {
+            Meta meta = handlerOf(other, Meta.class);
+            return meta != null && meta.kind == kind && sameValues(meta);
+        }
+
+        @Override
+        protected int hash(Object proxy) {
+            return values.hashCode();
+        }
+
+        @Override
+        protected String describe() {
+            return kind.getSimpleName() + values;
+        }
+    }
+}
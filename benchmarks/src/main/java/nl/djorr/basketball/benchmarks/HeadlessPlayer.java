@@ -0,0 +1,464 @@
+package nl.djorr.basketball.benchmarks;
+
+import org.bukkit.GameMode;
+import org.bukkit.Location;
+import org.bukkit.Material;
+import org.bukkit.block.Block;
+import org.bukkit.block.BlockFace;
+import org.bukkit.entity.EntityType;
+import org.bukkit.entity.Item;
+import org.bukkit.entity.Player;
+import org.bukkit.event.block.Action;
+import org.bukkit.event.inventory.InventoryType;
+import org.bukkit.event.player.PlayerDropItemEvent;
+import org.bukkit.event.player.PlayerInteractEvent;
+import org.bukkit.event.player.PlayerMoveEvent;
+import org.bukkit.event.player.PlayerTeleportEvent;
+import org.bukkit.inventory.EquipmentSlot;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.inventory.PlayerInventory;
+import org.bukkit.util.Vector;
+
+import java.lang.reflect.Method;
+import java.net.InetSocketAddress;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * A player of the headless server and the client that plays it. Every join
+ * is a new {@link Player} object with a new entity id, equal to the old one
+ * only by UUID and entity id like a CraftPlayer, while the inventory is
+ * kept between joins. The client side sends what a real client sends: moves,
+ * left clicks and drops, each firing the event the server would fire.
+ *
+ * @author Djorr
+ */
+final class HeadlessPlayer {
+
+    private static final double EYE_HEIGHT = 1.62;
+    private static final int SIZE = 41; // 36 storage slots, 4 armor slots and the off hand
+    private static final int STORAGE_SIZE = 36;
+
+    private final HeadlessServer server;
+    private final HeadlessWorld world;
+    private final String name;
+    private final UUID uuid;
+    private final ItemStack[] contents = new ItemStack[SIZE];
+    private final PlayerInventory inventory;
+    private Session session;
+    private double x;
+    private double y;
+    private double z;
+    private float yaw;
+    private float pitch;
+
+    HeadlessPlayer(HeadlessServer server, HeadlessWorld world, String name, UUID uuid, Location spawn) {
+        this.server = server;
+        this.world = world;
+        this.name = name;
+        this.uuid = uuid;
+        this.inventory = new Inventory().create(PlayerInventory.class);
+        this.x = spawn.getX();
+        this.y = spawn.getY();
+        this.z = spawn.getZ();
+    }
+
+    String getName() {
+        return name;
+    }
+
+    UUID getUniqueId() {
+        return uuid;
+    }
+
+    /**
+     * Get the player object of the current session
+     *
+     * @return The player, or null while offline
+     */
+    Player getPlayer() {
+        return session != null ? session.player : null;
+    }
+
+    boolean isOnline() {
+        return session != null && session.online;
+    }
+
+    double getX() {
+        return x;
+    }
+
+    double getY() {
+        return y;
+    }
+
+    double getZ() {
+        return z;
+    }
+
+    /**
+     * Start a new session; called by the server once the login completed
+     *
+     * @return The new player object
+     */
+    Player join() {
+        session = new Session(world.nextEntityId());
+        return session.player;
+    }
+
+    /**
+     * End the session; the player object reports offline from here on
+     */
+    void leave() {
+        if (session != null) {
+            session.online = false;
+            session = null;
+        }
+    }
+
+    // Client actions
+
+    /**
+     * Move and look, firing a move event like a position packet does
+     *
+     * @param toX The new X coordinate
+     * @param toZ The new Z coordinate
+     * @param toYaw The new yaw
+     * @param toPitch The new pitch
+     */
+    void move(double toX, double toZ, float toYaw, float toPitch) {
+        Player player = getPlayer();
+        Location from = new Location(world.getWorld(), x, y, z, yaw, pitch);
+        Location to = new Location(world.getWorld(), toX, y, toZ, toYaw, toPitch);
+        PlayerMoveEvent event = server.callEvent(new PlayerMoveEvent(player, from, to));
+        if (event.isCancelled()) {
+            return; // The server sends the player back
+        }
+        if (!to.equals(event.getTo())) {
+            player.teleport(event.getTo(), PlayerTeleportEvent.TeleportCause.PLUGIN);
+            return;
+        }
+        setLocation(to);
+    }
+
+    /**
+     * Swing at the air, as a left click that hits nothing
+     */
+    void leftClickAir() {
+        server.callEvent(new PlayerInteractEvent(getPlayer(), Action.LEFT_CLICK_AIR, itemInHand(), null, BlockFace.SELF, EquipmentSlot.HAND));
+    }
+
+    /**
+     * Left click a block, the start of breaking it
+     *
+     * @param block The block
+     */
+    void leftClickBlock(Block block) {
+        server.callEvent(new PlayerInteractEvent(getPlayer(), Action.LEFT_CLICK_BLOCK, itemInHand(), block, BlockFace.UP, EquipmentSlot.HAND));
+    }
+
+    /**
+     * Press Q: one item is split off the held stack and dropped. When the drop
+     * event is cancelled the item goes back into the inventory, as on
+     * CraftBukkit.
+     *
+     * @return True if there was an item to drop
+     */
+    boolean dropItem() {
+        Player player = getPlayer();
+        ItemStack held = contents[0];
+        if (held == null) {
+            return false;
+        }
+        ItemStack dropped = held.clone();
+        dropped.setAmount(1);
+        if (held.getAmount() > 1) {
+            held.setAmount(held.getAmount() - 1);
+        } else {
+            contents[0] = null;
+        }
+
+        Item item = world.createItem(new Location(world.getWorld(), x, y + EYE_HEIGHT - 0.3, z), dropped);
+        PlayerDropItemEvent event = server.callEvent(new PlayerDropItemEvent(player, item));
+        if (!event.isCancelled()) {
+            world.addItem(item);
+            return true;
+        }
+
+        ItemStack restored = item.getItemStack();
+        ItemStack current = contents[0];
+        if (current == null) {
+            contents[0] = restored.clone();
+        } else if (current.isSimilar(restored) && restored.getAmount() == 1) {
+            current.setAmount(current.getAmount() + 1);
+        } else {
+            player.getInventory().addItem(restored);
+        }
+        return true;
+    }
+
+    /**
+     * Count the items in the inventory that match a check
+     *
+     * @param type The item type
+     * @param data The data value
+     * @return The number of items
+     */
+    int countItems(Material type, short data) {
+        int count = 0;
+        for (ItemStack item : contents) {
+            if (item != null && item.getType() == type && item.getDurability() == data) {
+                count += item.getAmount();
+            }
+        }
+        return count;
+    }
+
+    private ItemStack itemInHand() {
+        return contents[0]; // Null for an empty hand, as in the event
+    }
+
+    private void setLocation(Location location) {
+        x = location.getX();
+        y = location.getY();
+        z = location.getZ();
+        yaw = location.getYaw();
+        pitch = location.getPitch();
+    }
+
+    private static ItemStack copy(ItemStack item) {
+        return item == null || item.getType() == Material.AIR || item.getAmount() <= 0 ? null : item.clone();
+    }
+
+    /**
+     * One session of the player, the object plugins hold on to
+     */
+    private final class Session extends HeadlessProxy {
+        private final int entityId;
+        private final Player player;
+        private volatile boolean online = true;
+
+        private Session(int entityId) {
+            this.entityId = entityId;
+            this.player = create(Player.class);
+        }
+
+        @Override
+        protected Object call(Object proxy, Method method, Object[] args) {
+            switch (method.getName()) {
+                case "getName":
+                case "getDisplayName":
+                case "getPlayerListName":
+                    return name;
+                case "getUniqueId":
+                    return uuid;
+                case "getEntityId":
+                    return entityId;
+                case "getType":
+                    return EntityType.PLAYER;
+                case "getServer":
+                    return server.getServer();
+                case "getWorld":
+                    return world.getWorld();
+                case "getLocation":
+                    if (args.length == 1 && args[0] != null) {
+                        Location target = (Location) args[0];
+                        target.setWorld(world.getWorld());
+                        target.setX(x);
+                        target.setY(y);
+                        target.setZ(z);
+                        target.setYaw(yaw);
+                        target.setPitch(pitch);
+                        return target;
+                    }
+                    return new Location(world.getWorld(), x, y, z, yaw, pitch);
+                case "getEyeLocation":
+                    return new Location(world.getWorld(), x, y + EYE_HEIGHT, z, yaw, pitch);
+                case "getEyeHeight":
+                    return EYE_HEIGHT;
+                case "getVelocity":
+                    return new Vector();
+                case "isOnGround":
+                    return true;
+                case "teleport": {
+                    Location to = args[0] instanceof Player ? ((Player) args[0]).getLocation() : (Location) args[0];
+                    PlayerTeleportEvent.TeleportCause cause = args.length == 2
+                        ? (PlayerTeleportEvent.TeleportCause) args[1] : PlayerTeleportEvent.TeleportCause.PLUGIN;
+                    PlayerTeleportEvent event = server.callEvent(new PlayerTeleportEvent(player,
+                        new Location(world.getWorld(), x, y, z, yaw, pitch), to.clone(), cause));
+                    if (event.isCancelled()) {
+                        return false;
+                    }
+                    setLocation(event.getTo());
+                    return true;
+                }
+                case "getInventory":
+                    return inventory;
+                case "getItemInHand":
+                    return inventory.getItemInMainHand();
+                case "updateInventory":
+                    return null;
+                case "isOnline":
+                case "isValid":
+                    return online;
+                case "getGameMode":
+                    return GameMode.SURVIVAL;
+                case "getHealth":
+                case "getMaxHealth":
+                    return 20.0;
+                case "getAddress":
+                    return new InetSocketAddress("127.0.0.1", 25565);
+                case "sendMessage":
+                    server.countMessages(args[0] instanceof String[] ? ((String[]) args[0]).length : 1);
+                    return null;
+                case "sendTitle":
+                case "sendActionBar":
+                    server.countMessages(1);
+                    return null;
+                case "spawnParticle":
+                    server.countParticle();
+                    return null;
+                case "playSound":
+                    server.countSound();
+                    return null;
+                default:
+                    return UNHANDLED;
+            }
+        }
+
+        @Override
+        protected boolean isEqual(Object proxy, Object other) {
+            Session session = handlerOf(other, Session.class);
+            return session != null && session.player.getUniqueId().equals(uuid) && session.entityId == entityId;
+        }
+
+        @Override
+        protected int hash(Object proxy) {
+            return 97 * 5 + uuid.hashCode();
+        }
+
+        @Override
+        protected String describe() {
+            return "CraftPlayer{name=" + name + "}";
+        }
+    }
+
+    /**
+     * The inventory, kept between sessions. Items are copied in and handed
+     * out live, and added items fill similar stacks before empty slots.
+     */
+    private final class Inventory extends HeadlessProxy {
+
+        @Override
+        protected Object call(Object proxy, Method method, Object[] args) {
+            switch (method.getName()) {
+                case "getSize":
+                    return SIZE;
+                case "getMaxStackSize":
+                    return 64;
+                case "getType":
+                    return InventoryType.PLAYER;
+                case "getName":
+                case "getTitle":
+                    return "container.inventory";
+                case "getHolder":
+                    return getPlayer();
+                case "getItem":
+                    return contents[(Integer) args[0]];
+                case "setItem":
+                    contents[(Integer) args[0]] = copy((ItemStack) args[1]);
+                    return null;
+                case "getContents":
+                    return contents.clone();
+                case "getStorageContents": {
+                    ItemStack[] storage = new ItemStack[STORAGE_SIZE];
+                    System.arraycopy(contents, 0, storage, 0, STORAGE_SIZE);
+                    return storage;
+                }
+                case "getHeldItemSlot":
+                    return 0;
+                case "getItemInMainHand":
+                case "getItemInHand":
+                    return contents[0] != null ? contents[0] : new ItemStack(Material.AIR);
+                case "setItemInMainHand":
+                case "setItemInHand":
+                    contents[0] = copy((ItemStack) args[0]);
+                    return null;
+                case "getItemInOffHand":
+                    return contents[40] != null ? contents[40] : new ItemStack(Material.AIR);
+                case "addItem":
+                    return addItem((ItemStack[]) args[0]);
+                case "clear":
+                    for (int i = 0; i < SIZE; i++) {
+                        contents[i] = null;
+                    }
+                    return null;
+                default:
+                    return UNHANDLED;
+            }
+        }
+
+        private Map<Integer, ItemStack> addItem(ItemStack[] items) {
+            Map<Integer, ItemStack> leftover = new HashMap<>();
+            for (int i = 0; i < items.length; i++) {
+                ItemStack item = items[i];
+                while (true) {
+                    int partial = firstPartial(item);
+                    if (partial == -1) {
+                        int free = firstEmpty();
+                        if (free == -1) {
+                            leftover.put(i, item);
+                            break;
+                        }
+                        int max = item.getMaxStackSize();
+                        if (item.getAmount() > max) {
+                            ItemStack stack = item.clone();
+                            stack.setAmount(max);
+                            contents[free] = stack;
+                            item.setAmount(item.getAmount() - max);
+                        } else {
+                            contents[free] = item.clone();
+                            break;
+                        }
+                    } else {
+                        ItemStack stack = contents[partial];
+                        int amount = item.getAmount() + stack.getAmount();
+                        int max = stack.getMaxStackSize();
+                        if (amount <= max) {
+                            stack.setAmount(amount);
+                            break;
+                        }
+                        stack.setAmount(max);
+                        item.setAmount(amount - max);
+                    }
+                }
+            }
+            return leftover;
+        }
+
+        private int firstPartial(ItemStack item) {
+            for (int i = 0; i < STORAGE_SIZE; i++) {
+                ItemStack stack = contents[i];
+                if (stack != null && stack.getAmount() < stack.getMaxStackSize() && stack.isSimilar(item)) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        private int firstEmpty() {
+            for (int i = 0; i < STORAGE_SIZE; i++) {
+                if (contents[i] == null) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        @Override
+        protected String describe() {
+            return "CraftInventoryPlayer{" + name + "}";
+        }
+    }
+}
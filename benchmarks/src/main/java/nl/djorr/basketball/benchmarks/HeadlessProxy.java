@@ -0,0 +1,146 @@
+package nl.djorr.basketball.benchmarks;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Base for the dynamic proxies that stand in for Bukkit interfaces on the
+ * headless server. A subclass implements the methods the plugin calls and
+ * leaves the rest to return an empty value of their type. Proxies are equal
+ * by identity unless the subclass says otherwise.
+ *
+ * @author Djorr
+ */
+abstract class HeadlessProxy implements InvocationHandler {
+
+    /** Returned by {@link #call} for a method this proxy does not implement */
+    static final Object UNHANDLED = new Object();
+
+    private static final Object[] NO_ARGS = new Object[0];
+
+    /**
+     * Create a proxy that is handled by this object
+     *
+     * @param type The interface
+     * @param extra More interfaces, such as Skull for a block state
+     * @return The proxy
+     */
+    @SuppressWarnings("unchecked")
+    final <T> T create(Class<T> type, Class<?>... extra) {
+        Class<?>[] interfaces = new Class<?>[extra.length + 1];
+        interfaces[0] = type;
+        System.arraycopy(extra, 0, interfaces, 1, extra.length);
+        return (T) Proxy.newProxyInstance(HeadlessProxy.class.getClassLoader(), interfaces, this);
+    }
+
+    @Override
+    public final Object invoke(Object proxy, Method method, Object[] args) {
+        Object[] arguments = args != null ? args : NO_ARGS;
+        if (method.getDeclaringClass() == Object.class) {
+            switch (method.getName()) {
+                case "equals":
+                    return isEqual(proxy, arguments[0]);
+                case "hashCode":
+                    return hash(proxy);
+                default:
+                    return describe();
+            }
+        }
+
+        Object result = call(proxy, method, arguments);
+        return result != UNHANDLED ? result : emptyValue(method.getReturnType());
+    }
+
+    /**
+     * Handle a method call
+     *
+     * @param proxy The proxy the method was called on
+     * @param method The method
+     * @param args The arguments, never null
+     * @return The result, or {@link #UNHANDLED} for an empty value
+     */
+    protected abstract Object call(Object proxy, Method method, Object[] args);
+
+    protected boolean isEqual(Object proxy, Object other) {
+        return proxy == other;
+    }
+
+    protected int hash(Object proxy) {
+        return System.identityHashCode(proxy);
+    }
+
+    protected String describe() {
+        return getClass().getSimpleName();
+    }
+
+    /**
+     * Get the handler behind a proxy
+     *
+     * @param proxy The proxy, or any other object
+     * @param type The handler class
+     * @return The handler, or null if the object is not a proxy of that handler
+     */
+    static <H extends HeadlessProxy> H handlerOf(Object proxy, Class<H> type) {
+        if (proxy == null || !Proxy.isProxyClass(proxy.getClass())) {
+            return null;
+        }
+        InvocationHandler handler = Proxy.getInvocationHandler(proxy);
+        return type.isInstance(handler) ? type.cast(handler) : null;
+    }
+
+    /**
+     * Get the value a method without an implementation returns: false, zero,
+     * null or a new empty collection or array
+     */
+    static Object emptyValue(Class<?> type) {
+        if (!type.isPrimitive()) {
+            if (type == List.class || type == Collection.class) {
+                return new ArrayList<>();
+            }
+            if (type == Set.class) {
+                return new HashSet<>();
+            }
+            if (type == Map.class) {
+                return new HashMap<>();
+            }
+            if (type.isArray()) {
+                return Array.newInstance(type.getComponentType(), 0);
+            }
+            return null;
+        }
+        if (type == void.class) {
+            return null;
+        }
+        if (type == boolean.class) {
+            return false;
+        }
+        if (type == double.class) {
+            return 0.0;
+        }
+        if (type == float.class) {
+            return 0.0f;
+        }
+        if (type == long.class) {
+            return 0L;
+        }
+        if (type == short.class) {
+            return (short) 0;
+        }
+        if (type == byte.class) {
+            return (byte) 0;
+        }
+        if (type == char.class) {
+            return (char) 0;
+        }
+        return 0;
+    }
+}
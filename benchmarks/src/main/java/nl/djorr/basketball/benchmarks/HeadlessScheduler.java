@@ -0,0 +1,265 @@
+package nl.djorr.basketball.benchmarks;
+
+import org.bukkit.plugin.IllegalPluginAccessException;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.scheduler.BukkitScheduler;
+import org.bukkit.scheduler.BukkitTask;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+
+/**
+ * {@link BukkitScheduler} of the headless server, advanced one tick at a
+ * time by {@link #heartbeat()}. It follows the CraftBukkit scheduler: a task
+ * runs once its tick has come, in the order of that tick and then of
+ * scheduling, sync tasks on the calling thread and async tasks on a worker
+ * pool. A sync task scheduled by another sync task can run in the same tick.
+ * A task that throws is logged and counted as an error.
+ *
+ * @author Djorr
+ */
+final class HeadlessScheduler extends HeadlessProxy {
+
+    private static final long CANCELLED = -2;
+    private static final long NO_REPEAT = -1;
+
+    private final BukkitScheduler scheduler;
+    private final PriorityQueue<Task> queue = new PriorityQueue<>((a, b) -> a.nextRun != b.nextRun
+        ? Long.compare(a.nextRun, b.nextRun) : Integer.compare(a.id, b.id)); // Main thread only
+    private final List<Task> repeating = new ArrayList<>(); // Main thread only
+    private final Queue<Task> scheduled = new ConcurrentLinkedQueue<>();
+    private final Map<Integer, Task> pending = new ConcurrentHashMap<>();
+    private final AtomicInteger ids = new AtomicInteger();
+    private final AtomicLong errors = new AtomicLong();
+    private final ExecutorService workers = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "Headless Scheduler Worker");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private volatile long currentTick = -1;
+    private volatile Task currentTask;
+
+    HeadlessScheduler() {
+        this.scheduler = create(BukkitScheduler.class);
+    }
+
+    BukkitScheduler getScheduler() {
+        return scheduler;
+    }
+
+    @Override
+    protected Object call(Object proxy, Method method, Object[] args) {
+        switch (method.getName()) {
+            case "runTask":
+                return schedule((Plugin) args[0], (Runnable) args[1], 0, NO_REPEAT, true);
+            case "runTaskLater":
+                return schedule((Plugin) args[0], (Runnable) args[1], (Long) args[2], NO_REPEAT, true);
+            case "runTaskTimer":
+                return schedule((Plugin) args[0], (Runnable) args[1], (Long) args[2], (Long) args[3], true);
+            case "runTaskAsynchronously":
+                return schedule((Plugin) args[0], (Runnable) args[1], 0, NO_REPEAT, false);
+            case "runTaskLaterAsynchronously":
+                return schedule((Plugin) args[0], (Runnable) args[1], (Long) args[2], NO_REPEAT, false);
+            case "runTaskTimerAsynchronously":
+                return schedule((Plugin) args[0], (Runnable) args[1], (Long) args[2], (Long) args[3], false);
+            case "cancelTask":
+                cancel((Integer) args[0]);
+                return null;
+            case "cancelTasks":
+                for (Task task : pending.values()) {
+                    if (task.owner == args[0]) {
+                        cancel(task.id);
+                    }
+                }
+                return null;
+            case "isQueued":
+                return pending.containsKey((Integer) args[0]);
+            case "isCurrentlyRunning": {
+                Task task = pending.get((Integer) args[0]);
+                return task != null && (task.sync ? currentTask == task : task.running);
+            }
+            case "getPendingTasks": {
+                List<BukkitTask> tasks = new ArrayList<>(pending.size());
+                for (Task task : pending.values()) {
+                    tasks.add(task.handle);
+                }
+                return tasks;
+            }
+            case "getActiveWorkers":
+                return new ArrayList<>();
+            default:
+                // A task the plugin schedules some other way would silently never run
+                throw new UnsupportedOperationException("Not supported by the headless scheduler: " + method);
+        }
+    }
+
+    private BukkitTask schedule(Plugin owner, Runnable runnable, long delay, long period, boolean sync) {
+        if (!owner.isEnabled()) {
+            throw new IllegalPluginAccessException("Plugin attempted to register task while disabled");
+        }
+        Task task = new Task(ids.incrementAndGet(), owner, runnable, sync, period == 0 ? 1 : Math.max(NO_REPEAT, period));
+        task.nextRun = currentTick + Math.max(0, delay);
+        pending.put(task.id, task);
+        scheduled.add(task);
+        return task.handle;
+    }
+
+    private void cancel(int id) {
+        Task task = pending.remove(id);
+        if (task != null) {
+            task.period = CANCELLED;
+        }
+    }
+
+    /**
+     * Run the tasks of the next tick
+     */
+    void heartbeat() {
+        long tick = ++currentTick;
+        parseScheduled();
+        while (!queue.isEmpty() && queue.peek().nextRun <= tick) {
+            Task task = queue.poll();
+            if (task.period == CANCELLED) {
+                parseScheduled();
+                continue;
+            }
+
+            if (task.sync) {
+                currentTask = task;
+                try {
+                    task.runnable.run();
+                } catch (Throwable e) {
+                    fail(task, e);
+                } finally {
+                    currentTask = null;
+                }
+                parseScheduled();
+            } else {
+                workers.execute(() -> runAsync(task));
+            }
+
+            long period = task.period;
+            if (period > 0) {
+                task.nextRun = tick + period;
+                repeating.add(task);
+            } else if (task.sync) {
+                pending.remove(task.id, task);
+            }
+        }
+        queue.addAll(repeating);
+        repeating.clear();
+    }
+
+    private void parseScheduled() {
+        for (Task task; (task = scheduled.poll()) != null; ) {
+            if (task.period != CANCELLED) {
+                queue.add(task);
+            }
+        }
+    }
+
+    private void runAsync(Task task) {
+        task.running = true;
+        try {
+            task.runnable.run();
+        } catch (Throwable e) {
+            fail(task, e);
+        } finally {
+            task.running = false;
+            if (task.period <= 0) {
+                pending.remove(task.id, task);
+            }
+        }
+    }
+
+    private void fail(Task task, Throwable e) {
+        errors.incrementAndGet();
+        task.owner.getLogger().log(Level.WARNING, "Task #" + task.id + " for "
+            + task.owner.getDescription().getFullName() + " generated an exception", e);
+    }
+
+    /**
+     * Get the number of tasks that threw
+     *
+     * @return The number of failed task runs
+     */
+    long getErrors() {
+        return errors.get();
+    }
+
+    /**
+     * Get the number of scheduled tasks that have not finished
+     *
+     * @return The number of pending tasks
+     */
+    int getPendingCount() {
+        return pending.size();
+    }
+
+    /**
+     * Stop the worker pool, waiting a few seconds for running async tasks
+     */
+    void shutdown() throws InterruptedException {
+        workers.shutdown();
+        workers.awaitTermination(5, TimeUnit.SECONDS);
+    }
+
+    /**
+     * A scheduled task and its {@link BukkitTask} handle
+     */
+    private final class Task extends HeadlessProxy {
+        private final int id;
+        private final Plugin owner;
+        private final Runnable runnable;
+        private final boolean sync;
+        private final BukkitTask handle;
+        private volatile long period;
+        private volatile boolean running;
+        private long nextRun;
+
+        private Task(int id, Plugin owner, Runnable runnable, boolean sync, long period) {
+            this.id = id;
+            this.owner = owner;
+            this.runnable = runnable;
+            this.sync = sync;
+            this.period = period;
+            this.handle = create(BukkitTask.class);
+        }
+
+        @Override
+        protected Object call(Object proxy, Method method, Object[] args) {
+            switch (method.getName()) {
+                case "getTaskId":
+                    return id;
+                case "getOwner":
+                    return owner;
+                case "isSync":
+                    return sync;
+                case "isCancelled":
+                    return period == CANCELLED;
+                case "cancel":
+                    HeadlessScheduler.this.cancel(id);
+                    return null;
+                default:
+                    return UNHANDLED;
+            }
+        }
+
+        @Override
+        protected String describe() {
+            return "Task #" + id;
+        }
+    }
+}
@@ -0,0 +1,656 @@
+package nl.djorr.basketball.benchmarks;
+
+import org.bukkit.Bukkit;
+import org.bukkit.OfflinePlayer;
+import org.bukkit.Server;
+import org.bukkit.World;
+import org.bukkit.command.PluginCommand;
+import org.bukkit.entity.Player;
+import org.bukkit.event.Cancellable;
+import org.bukkit.event.Event;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.HandlerList;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.AsyncPlayerPreLoginEvent;
+import org.bukkit.event.player.PlayerJoinEvent;
+import org.bukkit.event.player.PlayerQuitEvent;
+import org.bukkit.plugin.IllegalPluginAccessException;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.plugin.PluginManager;
+import org.bukkit.plugin.java.JavaPlugin;
+
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.net.InetAddress;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.ConsoleHandler;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.logging.SimpleFormatter;
+
+/**
+ * A Bukkit server without Minecraft: one flat world, players driven by
+ * {@link HeadlessPlayer} and a plugin manager that dispatches events the way
+ * Bukkit's does, by priority, skipping cancelled events for handlers that
+ * ignore them and logging handlers that throw. {@link #tick()} runs one
+ * server tick in the order of the real one: scheduler, world, then the
+ * logins that completed.
+ * <p>
+ * The main thread's time and allocations in ticks and in events are summed
+ * up, so a caller measures what the server spends on its plugins and not
+ * what its simulated clients spend deciding what to do.
+ *
+ * @author Djorr
+ */
+final class HeadlessServer extends HeadlessProxy {
+
+    private static final int CHUNK_INTERVAL = 20; // Ticks between chunk loading passes
+
+    private final Server server;
+    private final Logger logger = Logger.getLogger("Headless");
+    private final Thread mainThread = Thread.currentThread();
+    private final com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    private final HeadlessScheduler scheduler = new HeadlessScheduler();
+    private final HeadlessItemFactory itemFactory = new HeadlessItemFactory();
+    private final PluginManagerHandler pluginManager = new PluginManagerHandler();
+    private final HeadlessWorld world;
+    private final Map<UUID, Player> online = new LinkedHashMap<>(); // Main thread only, in join order
+    private final Collection<Player> onlineView = Collections.unmodifiableCollection(online.values());
+    private final Map<UUID, HeadlessPlayer> known = new ConcurrentHashMap<>();
+    private final Map<UUID, OfflinePlayer> offlinePlayers = new ConcurrentHashMap<>();
+    private final Queue<HeadlessPlayer> completedLogins = new ConcurrentLinkedQueue<>();
+    private final ExecutorService loginThreads = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "User Authenticator");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final AtomicLong eventErrors = new AtomicLong();
+    private final LongAdder messages = new LongAdder();
+    private final LongAdder particles = new LongAdder();
+    private final LongAdder sounds = new LongAdder();
+    private final Map<String, PluginCommand> commands = new HashMap<>();
+    private JavaPlugin plugin;
+    private long ticks;
+    private int workDepth;
+    private long workStart;
+    private long workBytesStart;
+    private long busyNanos;
+    private long busyBytes;
+
+    HeadlessServer() {
+        ConsoleHandler console = new ConsoleHandler();
+        console.setFormatter(new SimpleFormatter());
+        logger.setUseParentHandlers(false);
+        logger.addHandler(console);
+        this.server = create(Server.class);
+        this.world = new HeadlessWorld(this, 0.5, -15.5);
+        Bukkit.setServer(server);
+    }
+
+    Server getServer() {
+        return server;
+    }
+
+    HeadlessWorld getWorld() {
+        return world;
+    }
+
+    HeadlessScheduler getScheduler() {
+        return scheduler;
+    }
+
+    Collection<Player> getOnlinePlayers() {
+        return onlineView;
+    }
+
+    @Override
+    protected Object call(Object proxy, Method method, Object[] args) {
+        switch (method.getName()) {
+            case "getName":
+                return "Headless";
+            case "getVersion":
+                return "headless (MC: 1.12.2)";
+            case "getBukkitVersion":
+                return "1.12.2-R0.1-SNAPSHOT";
+            case "getLogger":
+                return logger;
+            case "getPluginManager":
+                return pluginManager.manager;
+            case "getScheduler":
+                return scheduler.getScheduler();
+            case "getItemFactory":
+                return itemFactory.getItemFactory();
+            case "getOnlinePlayers":
+                return onlineView;
+            case "getPlayer":
+                if (args[0] instanceof UUID) {
+                    return online.get(args[0]);
+                }
+                return findPlayer((String) args[0], false);
+            case "getPlayerExact":
+                return findPlayer((String) args[0], true);
+            case "getOfflinePlayer":
+                return getOfflinePlayer(args[0] instanceof UUID ? (UUID) args[0] : uuidOf((String) args[0]));
+            case "getWorld":
+                return "world".equals(args[0]) || world.getWorld().getUID().equals(args[0]) ? world.getWorld() : null;
+            case "getWorlds": {
+                List<World> worlds = new ArrayList<>(1);
+                worlds.add(world.getWorld());
+                return worlds;
+            }
+            case "getPluginCommand":
+                return getPluginCommand((String) args[0]);
+            case "isPrimaryThread":
+                return Thread.currentThread() == mainThread;
+            case "getPort":
+                return 25565;
+            case "getIp":
+                return "";
+            case "getMaxPlayers":
+                return 1000;
+            case "getViewDistance":
+                return HeadlessWorld.VIEW_DISTANCE;
+            case "getOnlineMode":
+                return true;
+            case "broadcastMessage":
+                messages.add(online.size());
+                return online.size();
+            default:
+                return UNHANDLED;
+        }
+    }
+
+    @Override
+    protected String describe() {
+        return "HeadlessServer";
+    }
+
+    private Player findPlayer(String name, boolean exact) {
+        Player found = null;
+        for (Player player : online.values()) {
+            if (player.getName().equalsIgnoreCase(name)) {
+                return player;
+            }
+            if (!exact && found == null && player.getName().toLowerCase().startsWith(name.toLowerCase())) {
+                found = player;
+            }
+        }
+        return found;
+    }
+
+    private UUID uuidOf(String name) {
+        for (HeadlessPlayer player : known.values()) {
+            if (player.getName().equalsIgnoreCase(name)) {
+                return player.getUniqueId();
+            }
+        }
+        return UUID.nameUUIDFromBytes(("OfflinePlayer:" + name).getBytes());
+    }
+
+    private OfflinePlayer getOfflinePlayer(UUID uuid) {
+        Player player = Thread.currentThread() == mainThread ? online.get(uuid) : null;
+        if (player != null) {
+            return player;
+        }
+        return offlinePlayers.computeIfAbsent(uuid, id -> new OfflinePlayerHandler(id).offlinePlayer);
+    }
+
+    private PluginCommand getPluginCommand(String name) {
+        if (plugin == null || plugin.getDescription().getCommands() == null || !plugin.getDescription().getCommands().containsKey(name)) {
+            return null;
+        }
+        return commands.computeIfAbsent(name, command -> {
+            try {
+                Constructor<PluginCommand> constructor = PluginCommand.class.getDeclaredConstructor(String.class, Plugin.class);
+                constructor.setAccessible(true);
+                return constructor.newInstance(command, plugin);
+            } catch (ReflectiveOperationException e) {
+                throw new IllegalStateException("Could not create command " + command, e);
+            }
+        });
+    }
+
+    // Plugins
+
+    /**
+     * Enable a plugin the way the plugin loader does, through
+     * JavaPlugin.setEnabled, which calls onEnable
+     *
+     * @param plugin The plugin
+     */
+    void enable(JavaPlugin plugin) throws ReflectiveOperationException {
+        this.plugin = plugin;
+        setEnabled(plugin, true);
+    }
+
+    /**
+     * Disable a plugin, then cancel its tasks and unregister its listeners
+     * as the plugin manager does
+     *
+     * @param plugin The plugin
+     */
+    void disable(JavaPlugin plugin) throws ReflectiveOperationException {
+        setEnabled(plugin, false);
+        scheduler.getScheduler().cancelTasks(plugin);
+        pluginManager.unregisterAll(plugin);
+    }
+
+    private static void setEnabled(JavaPlugin plugin, boolean enabled) throws ReflectiveOperationException {
+        Method setEnabled = JavaPlugin.class.getDeclaredMethod("setEnabled", boolean.class);
+        setEnabled.setAccessible(true);
+        try {
+            setEnabled.invoke(plugin, enabled);
+        } catch (InvocationTargetException e) {
+            throw new IllegalStateException("Error occurred while " + (enabled ? "enabling " : "disabling ")
+                + plugin.getDescription().getFullName(), e.getCause());
+        }
+    }
+
+    // Players
+
+    /**
+     * Create a player that is not online yet
+     *
+     * @param name The player name
+     * @param uuid The player UUID
+     * @return The player
+     */
+    HeadlessPlayer createPlayer(String name, UUID uuid) {
+        HeadlessPlayer player = new HeadlessPlayer(this, world, name, uuid, world.getSpawn());
+        known.put(uuid, player);
+        return player;
+    }
+
+    /**
+     * Log a player in: the pre-login event fires on a login thread, the join
+     * completes in a later tick on the main thread
+     *
+     * @param player The player
+     */
+    void connect(HeadlessPlayer player) {
+        loginThreads.execute(() -> {
+            AsyncPlayerPreLoginEvent event = callEvent(new AsyncPlayerPreLoginEvent(player.getName(),
+                InetAddress.getLoopbackAddress(), player.getUniqueId()));
+            if (event.getLoginResult() == AsyncPlayerPreLoginEvent.Result.ALLOWED) {
+                completedLogins.add(player);
+            }
+        });
+    }
+
+    /**
+     * Disconnect a player; the quit event fires while the player is still
+     * online
+     *
+     * @param player The player
+     */
+    void quit(HeadlessPlayer player) {
+        Player session = player.getPlayer();
+        if (session == null) {
+            return;
+        }
+        callEvent(new PlayerQuitEvent(session, "§e" + player.getName() + " left the game"));
+        online.remove(player.getUniqueId());
+        player.leave();
+    }
+
+    private void completeLogins() {
+        for (HeadlessPlayer player; (player = completedLogins.poll()) != null; ) {
+            Player session = player.join();
+            online.put(player.getUniqueId(), session);
+            callEvent(new PlayerJoinEvent(session, "§e" + player.getName() + " joined the game"));
+        }
+    }
+
+    /**
+     * Wait until the logins that were started have run their pre-login event
+     */
+    void awaitLogins() throws InterruptedException, ExecutionException, TimeoutException {
+        loginThreads.submit(() -> { }).get(5, TimeUnit.SECONDS);
+    }
+
+    // Ticking
+
+    /**
+     * Run one server tick: the scheduler, the world and chunk loading, then
+     * the logins that completed
+     */
+    void tick() {
+        beginWork();
+        try {
+            scheduler.heartbeat();
+            world.tick();
+            if (ticks % CHUNK_INTERVAL == 0) {
+                world.updateChunks();
+            }
+            completeLogins();
+            ticks++;
+        } finally {
+            endWork();
+        }
+    }
+
+    /**
+     * Fire an event, as the plugin manager does
+     *
+     * @param event The event
+     * @return The event, to read the outcome from
+     */
+    <T extends Event> T callEvent(T event) {
+        pluginManager.manager.callEvent(event);
+        return event;
+    }
+
+    private void beginWork() {
+        if (Thread.currentThread() == mainThread && workDepth++ == 0) {
+            workBytesStart = threads.getThreadAllocatedBytes(mainThread.getId());
+            workStart = System.nanoTime();
+        }
+    }
+
+    private void endWork() {
+        if (Thread.currentThread() == mainThread && --workDepth == 0) {
+            busyNanos += System.nanoTime() - workStart;
+            busyBytes += threads.getThreadAllocatedBytes(mainThread.getId()) - workBytesStart;
+        }
+    }
+
+    /**
+     * Get and reset the main thread time spent in ticks and events
+     *
+     * @return The time in nanoseconds
+     */
+    long takeBusyNanos() {
+        long nanos = busyNanos;
+        busyNanos = 0;
+        return nanos;
+    }
+
+    /**
+     * Get and reset the bytes the main thread allocated in ticks and events
+     *
+     * @return The allocated bytes
+     */
+    long takeBusyBytes() {
+        long bytes = busyBytes;
+        busyBytes = 0;
+        return bytes;
+    }
+
+    // Counters
+
+    void countMessages(int count) {
+        messages.add(count);
+    }
+
+    void countParticle() {
+        particles.increment();
+    }
+
+    void countSound() {
+        sounds.increment();
+    }
+
+    long getMessages() {
+        return messages.sum();
+    }
+
+    long getParticles() {
+        return particles.sum();
+    }
+
+    long getSounds() {
+        return sounds.sum();
+    }
+
+    /**
+     * Get the number of event handlers and tasks that threw
+     *
+     * @return The number of errors
+     */
+    long getErrors() {
+        return eventErrors.get() + scheduler.getErrors();
+    }
+
+    /**
+     * Stop the login thread and the scheduler's workers
+     */
+    void shutdown() throws InterruptedException {
+        loginThreads.shutdown();
+        loginThreads.awaitTermination(5, TimeUnit.SECONDS);
+        scheduler.shutdown();
+    }
+
+    /**
+     * The plugin manager: registers listeners and fires events
+     */
+    private final class PluginManagerHandler extends HeadlessProxy {
+        private final PluginManager manager = create(PluginManager.class);
+        private final List<Registration> registrations = new ArrayList<>();
+        private final Map<HandlerList, Registration[]> byHandlerList = new ConcurrentHashMap<>();
+
+        @Override
+        protected Object call(Object proxy, Method method, Object[] args) {
+            switch (method.getName()) {
+                case "registerEvents":
+                    registerEvents((Listener) args[0], (Plugin) args[1]);
+                    return null;
+                case "callEvent":
+                    callEvent((Event) args[0]);
+                    return null;
+                case "getPlugin":
+                    return plugin != null && plugin.getName().equals(args[0]) ? plugin : null;
+                case "getPlugins":
+                    return plugin != null ? new Plugin[] {plugin} : new Plugin[0];
+                case "isPluginEnabled":
+                    if (args[0] instanceof Plugin) {
+                        return ((Plugin) args[0]).isEnabled();
+                    }
+                    return plugin != null && plugin.getName().equals(args[0]) && plugin.isEnabled();
+                case "disablePlugin":
+                    try {
+                        disable((JavaPlugin) args[0]);
+                    } catch (ReflectiveOperationException e) {
+                        throw new IllegalStateException(e);
+                    }
+                    return null;
+                default:
+                    return UNHANDLED;
+            }
+        }
+
+        private synchronized void registerEvents(Listener listener, Plugin owner) {
+            if (!owner.isEnabled()) {
+                throw new IllegalPluginAccessException("Plugin attempted to register " + listener + " while not enabled");
+            }
+
+            // Public methods, inherited ones included, and the listener's own private ones
+            Set<Method> methods = new LinkedHashSet<>();
+            Collections.addAll(methods, listener.getClass().getMethods());
+            Collections.addAll(methods, listener.getClass().getDeclaredMethods());
+            for (Method method : methods) {
+                EventHandler handler = method.getAnnotation(EventHandler.class);
+                if (handler == null || method.isBridge() || method.isSynthetic() || method.getParameterTypes().length != 1
+                    || !Event.class.isAssignableFrom(method.getParameterTypes()[0])) {
+                    continue;
+                }
+                method.setAccessible(true);
+                Class<? extends Event> eventClass = method.getParameterTypes()[0].asSubclass(Event.class);
+                registrations.add(new Registration(owner, listener, method, handler, handlerListOf(eventClass)));
+            }
+            byHandlerList.clear();
+        }
+
+        private synchronized void unregisterAll(Plugin owner) {
+            registrations.removeIf(registration -> registration.owner == owner);
+            byHandlerList.clear();
+        }
+
+        /**
+         * Find the handler list an event class is registered under: its own,
+         * or that of the nearest superclass that has one
+         */
+        private HandlerList handlerListOf(Class<? extends Event> eventClass) {
+            for (Class<?> type = eventClass; type != null && Event.class.isAssignableFrom(type); type = type.getSuperclass()) {
+                try {
+                    Method getHandlerList = type.getDeclaredMethod("getHandlerList");
+                    getHandlerList.setAccessible(true);
+                    return (HandlerList) getHandlerList.invoke(null);
+                } catch (NoSuchMethodException e) {
+                    // Try the superclass
+                } catch (ReflectiveOperationException e) {
+                    throw new IllegalStateException("Could not get the handler list of " + type.getName(), e);
+                }
+            }
+            throw new IllegalStateException("Unable to find handler list for event " + eventClass.getName());
+        }
+
+        private Registration[] registrationsFor(HandlerList handlers) {
+            Registration[] cached = byHandlerList.get(handlers);
+            if (cached != null) {
+                return cached;
+            }
+            synchronized (this) {
+                List<Registration> matching = new ArrayList<>();
+                for (Registration registration : registrations) {
+                    if (registration.handlers == handlers) {
+                        matching.add(registration);
+                    }
+                }
+                matching.sort((a, b) -> Integer.compare(a.handler.priority().getSlot(), b.handler.priority().getSlot()));
+                Registration[] sorted = matching.toArray(new Registration[0]);
+                byHandlerList.put(handlers, sorted);
+                return sorted;
+            }
+        }
+
+        private void callEvent(Event event) {
+            boolean onMain = Thread.currentThread() == mainThread;
+            if (event.isAsynchronous() && onMain) {
+                throw new IllegalStateException(event.getEventName() + " cannot be triggered asynchronously from primary server thread.");
+            }
+            if (!event.isAsynchronous() && !onMain) {
+                throw new IllegalStateException(event.getEventName() + " may only be triggered synchronously.");
+            }
+
+            beginWork();
+            try {
+                for (Registration registration : registrationsFor(event.getHandlers())) {
+                    if (!registration.owner.isEnabled()) {
+                        continue;
+                    }
+                    if (registration.handler.ignoreCancelled() && event instanceof Cancellable && ((Cancellable) event).isCancelled()) {
+                        continue;
+                    }
+                    try {
+                        registration.method.invoke(registration.listener, event);
+                    } catch (InvocationTargetException e) {
+                        eventErrors.incrementAndGet();
+                        registration.owner.getLogger().log(Level.SEVERE, "Could not pass event " + event.getEventName()
+                            + " to " + registration.owner.getDescription().getFullName(), e.getCause());
+                    } catch (IllegalAccessException e) {
+                        throw new IllegalStateException(e);
+                    }
+                }
+            } finally {
+                endWork();
+            }
+        }
+
+        @Override
+        protected String describe() {
+            return "SimplePluginManager";
+        }
+    }
+
+    /**
+     * One event handler method of a listener
+     */
+    private static final class Registration {
+        private final Plugin owner;
+        private final Listener listener;
+        private final Method method;
+        private final EventHandler handler;
+        private final HandlerList handlers;
+
+        private Registration(Plugin owner, Listener listener, Method method, EventHandler handler, HandlerList handlers) {
+            this.owner = owner;
+            this.listener = listener;
+            this.method = method;
+            this.handler = handler;
+            this.handlers = handlers;
+        }
+    }
+
+    /**
+     * A player looked up by UUID while not online
+     */
+    private final class OfflinePlayerHandler extends HeadlessProxy {
+        private final UUID uuid;
+        private final OfflinePlayer offlinePlayer;
+
+        private OfflinePlayerHandler(UUID uuid) {
+            this.uuid = uuid;
+            this.offlinePlayer = create(OfflinePlayer.class);
+        }
+
+        @Override
+        protected Object call(Object proxy, Method method, Object[] args) {
+            switch (method.getName()) {
+                case "getUniqueId":
+                    return uuid;
+                case "getName": {
+                    HeadlessPlayer player = known.get(uuid);
+                    return player != null ? player.getName() : null;
+                }
+                case "isOnline": {
+                    HeadlessPlayer player = known.get(uuid);
+                    return player != null && player.isOnline();
+                }
+                case "getPlayer": {
+                    HeadlessPlayer player = known.get(uuid);
+                    return player != null ? player.getPlayer() : null;
+                }
+                case "hasPlayedBefore":
+                    return known.containsKey(uuid);
+                default:
+                    return UNHANDLED;
+            }
+        }
+
+        @Override
+        protected boolean isEqual(Object proxy, Object other) {
+            return other instanceof OfflinePlayer && uuid.equals(((OfflinePlayer) other).getUniqueId());
+        }
+
+        @Override
+        protected int hash(Object proxy) {
+            return 97 * 7 + uuid.hashCode();
+        }
+
+        @Override
+        protected String describe() {
+            return "CraftOfflinePlayer[UUID=" + uuid + "]";
+        }
+    }
+}
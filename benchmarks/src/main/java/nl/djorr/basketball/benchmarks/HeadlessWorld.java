@@ -0,0 +1,1001 @@
+package nl.djorr.basketball.benchmarks;
+
+import org.bukkit.Chunk;
+import org.bukkit.Location;
+import org.bukkit.Material;
+import org.bukkit.SkullType;
+import org.bukkit.World;
+import org.bukkit.block.Block;
+import org.bukkit.block.BlockFace;
+import org.bukkit.block.BlockState;
+import org.bukkit.block.Hopper;
+import org.bukkit.block.Skull;
+import org.bukkit.entity.ArmorStand;
+import org.bukkit.entity.Entity;
+import org.bukkit.entity.EntityType;
+import org.bukkit.entity.Item;
+import org.bukkit.entity.LivingEntity;
+import org.bukkit.entity.Player;
+import org.bukkit.event.entity.CreatureSpawnEvent;
+import org.bukkit.event.world.ChunkLoadEvent;
+import org.bukkit.event.world.ChunkUnloadEvent;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.material.MaterialData;
+import org.bukkit.util.Vector;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * The one world of the headless server: a flat stone floor with the blocks
+ * that were placed on it, chunks that load around the players and fire
+ * their events, and entities that fall and slide like living entities. A
+ * block is only stored once it differs from the floor, so a world with many
+ * courts costs no more than the courts themselves.
+ *
+ * @author Djorr
+ */
+final class HeadlessWorld extends HeadlessProxy {
+
+    static final int FLOOR_Y = 64; // Players stand on y 64, below is stone
+    static final int VIEW_DISTANCE = 4; // Chunks loaded around every player
+
+    private static final Material[] MATERIALS = Material.values();
+    private static final double GRAVITY = 0.08;
+    private static final double ITEM_GRAVITY = 0.04;
+    private static final double DRAG = 0.98;
+    private static final double AIR_FRICTION = 0.91;
+    private static final double GROUND_FRICTION = 0.6 * 0.91;
+    private static final double MIN_MOTION = 0.003;
+
+    private final HeadlessServer server;
+    private final World world;
+    private final UUID uid = new UUID(0, 1);
+    private final Location spawn;
+    private final Map<Long, Integer> blocks = new HashMap<>(); // Blocks that differ from the floor, type << 8 | data
+    private final Map<Long, Map<Long, Tile>> tiles = new HashMap<>(); // Chunk to block to skull or hopper
+    private final Map<Long, Chunk> chunks = new HashMap<>();
+    private final Set<Long> loadedChunks = new HashSet<>();
+    private final List<EntityRef> entities = new ArrayList<>();
+    private int nextEntityId = 1;
+
+    HeadlessWorld(HeadlessServer server, double spawnX, double spawnZ) {
+        this.server = server;
+        this.world = create(World.class);
+        this.spawn = new Location(world, spawnX, FLOOR_Y, spawnZ);
+    }
+
+    World getWorld() {
+        return world;
+    }
+
+    Location getSpawn() {
+        return spawn.clone();
+    }
+
+    int nextEntityId() {
+        return nextEntityId++;
+    }
+
+    @Override
+    protected Object call(Object proxy, Method method, Object[] args) {
+        switch (method.getName()) {
+            case "getName":
+                return "world";
+            case "getUID":
+                return uid;
+            case "getSpawnLocation":
+                return getSpawn();
+            case "getEnvironment":
+                return World.Environment.NORMAL;
+            case "getMaxHeight":
+                return 256;
+            case "getSeaLevel":
+                return 63;
+            case "getBlockAt":
+                if (args.length == 1) {
+                    Location location = (Location) args[0];
+                    return blockAt(location.getBlockX(), location.getBlockY(), location.getBlockZ());
+                }
+                return blockAt((Integer) args[0], (Integer) args[1], (Integer) args[2]);
+            case "getHighestBlockYAt":
+                if (args.length == 1) {
+                    return highestY(((Location) args[0]).getBlockX(), ((Location) args[0]).getBlockZ());
+                }
+                return highestY((Integer) args[0], (Integer) args[1]);
+            case "getChunkAt":
+                if (args[0] instanceof Location) {
+                    return chunkAt(((Location) args[0]).getBlockX() >> 4, ((Location) args[0]).getBlockZ() >> 4);
+                }
+                if (args[0] instanceof Block) {
+                    return chunkAt(((Block) args[0]).getX() >> 4, ((Block) args[0]).getZ() >> 4);
+                }
+                return chunkAt((Integer) args[0], (Integer) args[1]);
+            case "isChunkLoaded":
+                if (args[0] instanceof Chunk) {
+                    return isChunkLoaded(((Chunk) args[0]).getX(), ((Chunk) args[0]).getZ());
+                }
+                return isChunkLoaded((Integer) args[0], (Integer) args[1]);
+            case "getLoadedChunks": {
+                List<Chunk> loaded = new ArrayList<>(loadedChunks.size());
+                for (long key : loadedChunks) {
+                    loaded.add(chunkAt((int) (key >> 32), (int) key));
+                }
+                return loaded.toArray(new Chunk[0]);
+            }
+            case "spawn":
+                return spawn((Location) args[0], (Class<?>) args[1]);
+            case "dropItem":
+            case "dropItemNaturally": {
+                EntityRef item = new EntityRef(EntityType.DROPPED_ITEM, (Location) args[0]);
+                item.item = ((ItemStack) args[1]).clone();
+                entities.add(item);
+                return item.entity;
+            }
+            case "getEntities":
+            case "getLivingEntities": {
+                List<Entity> all = new ArrayList<>(entities.size());
+                for (EntityRef entity : entities) {
+                    if (!entity.dead && (method.getName().equals("getEntities") || entity.entity instanceof LivingEntity)) {
+                        all.add(entity.entity);
+                    }
+                }
+                all.addAll(getPlayers());
+                return all;
+            }
+            case "getEntitiesByClass": {
+                List<Entity> matching = new ArrayList<>();
+                for (EntityRef entity : entities) {
+                    if (!entity.dead && ((Class<?>) args[0]).isInstance(entity.entity)) {
+                        matching.add(entity.entity);
+                    }
+                }
+                return matching;
+            }
+            case "getNearbyEntities":
+                return getNearbyEntities(null, (Location) args[0], (Double) args[1], (Double) args[2], (Double) args[3]);
+            case "getPlayers":
+                return getPlayers();
+            case "spawnParticle":
+                server.countParticle();
+                return null;
+            case "playSound":
+                server.countSound();
+                return null;
+            default:
+                return UNHANDLED;
+        }
+    }
+
+    @Override
+    protected String describe() {
+        return "CraftWorld{name=world}";
+    }
+
+    private List<Player> getPlayers() {
+        return new ArrayList<>(server.getOnlinePlayers());
+    }
+
+    private List<Entity> getNearbyEntities(Entity self, Location location, double x, double y, double z) {
+        List<Entity> nearby = new ArrayList<>();
+        for (EntityRef entity : entities) {
+            if (!entity.dead && entity.entity != self && Math.abs(entity.x - location.getX()) <= x
+                && Math.abs(entity.y - location.getY()) <= y && Math.abs(entity.z - location.getZ()) <= z) {
+                nearby.add(entity.entity);
+            }
+        }
+        for (Player player : server.getOnlinePlayers()) {
+            Location at = player.getLocation();
+            if (player != self && Math.abs(at.getX() - location.getX()) <= x
+                && Math.abs(at.getY() - location.getY()) <= y && Math.abs(at.getZ() - location.getZ()) <= z) {
+                nearby.add(player);
+            }
+        }
+        return nearby;
+    }
+
+    // Blocks
+
+    private static long blockKey(int x, int y, int z) {
+        return ((long) x & 0x3FFFFFF) << 38 | ((long) z & 0x3FFFFFF) << 12 | (y & 0xFFF);
+    }
+
+    private static long chunkKey(int chunkX, int chunkZ) {
+        return (long) chunkX << 32 | chunkZ & 0xFFFFFFFFL;
+    }
+
+    private static Material floor(int y) {
+        return y >= 0 && y < FLOOR_Y ? Material.STONE : Material.AIR;
+    }
+
+    Material getType(int x, int y, int z) {
+        Integer block = blocks.get(blockKey(x, y, z));
+        return block != null ? MATERIALS[block >>> 8] : floor(y);
+    }
+
+    byte getData(int x, int y, int z) {
+        Integer block = blocks.get(blockKey(x, y, z));
+        return block != null ? (byte) (int) block : 0;
+    }
+
+    boolean isSolid(int x, int y, int z) {
+        return getType(x, y, z).isSolid();
+    }
+
+    /**
+     * Set a block, as the map maker or the server would
+     *
+     * @param x The block X coordinate
+     * @param y The block Y coordinate
+     * @param z The block Z coordinate
+     * @param type The block type
+     * @param data The data value
+     */
+    void setBlock(int x, int y, int z, Material type, byte data) {
+        long key = blockKey(x, y, z);
+        Material previous = getType(x, y, z);
+        if (type == floor(y) && data == 0) {
+            blocks.remove(key);
+        } else {
+            blocks.put(key, type.ordinal() << 8 | data & 0xFF);
+        }
+
+        // A new skull or hopper gets a new tile entity, like on a server
+        if (previous != type) {
+            long chunk = chunkKey(x >> 4, z >> 4);
+            Map<Long, Tile> chunkTiles = tiles.get(chunk);
+            if (chunkTiles != null && chunkTiles.remove(key) != null && chunkTiles.isEmpty()) {
+                tiles.remove(chunk);
+            }
+            if (type == Material.SKULL || type == Material.HOPPER) {
+                tiles.computeIfAbsent(chunk, k -> new LinkedHashMap<>()).put(key, new Tile(x, y, z));
+            }
+        }
+    }
+
+    private Tile getTile(int x, int y, int z) {
+        Map<Long, Tile> chunkTiles = tiles.get(chunkKey(x >> 4, z >> 4));
+        return chunkTiles != null ? chunkTiles.get(blockKey(x, y, z)) : null;
+    }
+
+    private int highestY(int x, int z) {
+        for (int y = 255; y > 0; y--) {
+            if (getType(x, y, z) != Material.AIR) {
+                return y;
+            }
+        }
+        return 0;
+    }
+
+    Block blockAt(int x, int y, int z) {
+        return new BlockRef(x, y, z).block;
+    }
+
+    /**
+     * Find the skull block nearest to a position within a box
+     *
+     * @param bounds The box {minX, maxX, minY, maxY, minZ, maxZ}
+     * @param x The X coordinate to measure from
+     * @param z The Z coordinate to measure from
+     * @return The skull block, or null if there is none in the box
+     */
+    Block findNearestSkull(int[] bounds, double x, double z) {
+        Tile nearest = null;
+        double nearestDistance = Double.MAX_VALUE;
+        for (int chunkX = bounds[0] >> 4; chunkX <= bounds[1] >> 4; chunkX++) {
+            for (int chunkZ = bounds[4] >> 4; chunkZ <= bounds[5] >> 4; chunkZ++) {
+                Map<Long, Tile> chunkTiles = tiles.get(chunkKey(chunkX, chunkZ));
+                if (chunkTiles == null) {
+                    continue;
+                }
+                for (Tile tile : chunkTiles.values()) {
+                    double dx = tile.x + 0.5 - x;
+                    double dz = tile.z + 0.5 - z;
+                    double distance = dx * dx + dz * dz;
+                    if (distance < nearestDistance && getType(tile.x, tile.y, tile.z) == Material.SKULL
+                        && tile.x >= bounds[0] && tile.x <= bounds[1] && tile.z >= bounds[4] && tile.z <= bounds[5]) {
+                        nearest = tile;
+                        nearestDistance = distance;
+                    }
+                }
+            }
+        }
+        return nearest != null ? blockAt(nearest.x, nearest.y, nearest.z) : null;
+    }
+
+    /**
+     * Count the skull blocks in the world
+     *
+     * @return The number of skulls
+     */
+    int countSkulls() {
+        int count = 0;
+        for (Map<Long, Tile> chunkTiles : tiles.values()) {
+            for (Tile tile : chunkTiles.values()) {
+                if (getType(tile.x, tile.y, tile.z) == Material.SKULL) {
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    // Chunks
+
+    Chunk chunkAt(int chunkX, int chunkZ) {
+        return chunks.computeIfAbsent(chunkKey(chunkX, chunkZ), key -> new ChunkRef(chunkX, chunkZ).chunk);
+    }
+
+    boolean isChunkLoaded(int chunkX, int chunkZ) {
+        return loadedChunks.contains(chunkKey(chunkX, chunkZ));
+    }
+
+    /**
+     * Load the chunks within view distance of a player and unload the chunks
+     * no player can see, firing the chunk events
+     */
+    void updateChunks() {
+        Set<Long> wanted = new HashSet<>();
+        for (Player player : server.getOnlinePlayers()) {
+            Location location = player.getLocation();
+            int centerX = location.getBlockX() >> 4;
+            int centerZ = location.getBlockZ() >> 4;
+            for (int chunkX = centerX - VIEW_DISTANCE; chunkX <= centerX + VIEW_DISTANCE; chunkX++) {
+                for (int chunkZ = centerZ - VIEW_DISTANCE; chunkZ <= centerZ + VIEW_DISTANCE; chunkZ++) {
+                    wanted.add(chunkKey(chunkX, chunkZ));
+                }
+            }
+        }
+
+        for (Iterator<Long> iterator = loadedChunks.iterator(); iterator.hasNext(); ) {
+            long key = iterator.next();
+            if (!wanted.contains(key)) {
+                Chunk chunk = chunkAt((int) (key >> 32), (int) key);
+                if (!server.callEvent(new ChunkUnloadEvent(chunk)).isCancelled()) {
+                    iterator.remove();
+                }
+            }
+        }
+        for (long key : wanted) {
+            if (loadedChunks.add(key)) {
+                server.callEvent(new ChunkLoadEvent(chunkAt((int) (key >> 32), (int) key), false));
+            }
+        }
+    }
+
+    // Entities
+
+    private Object spawn(Location location, Class<?> type) {
+        if (type != ArmorStand.class) {
+            throw new UnsupportedOperationException("The headless world only spawns armor stands, not " + type.getSimpleName());
+        }
+        EntityRef stand = new EntityRef(EntityType.ARMOR_STAND, location);
+        entities.add(stand);
+        if (server.callEvent(new CreatureSpawnEvent((LivingEntity) stand.entity, CreatureSpawnEvent.SpawnReason.CUSTOM)).isCancelled()) {
+            stand.dead = true;
+        }
+        return stand.entity;
+    }
+
+    /**
+     * Create a dropped item that is not in the world yet, for a drop event
+     *
+     * @param location Where the item is dropped
+     * @param item The item
+     * @return The item entity
+     */
+    Item createItem(Location location, ItemStack item) {
+        EntityRef entity = new EntityRef(EntityType.DROPPED_ITEM, location);
+        entity.item = item;
+        return (Item) entity.entity;
+    }
+
+    /**
+     * Add an item that was created for a drop event to the world
+     *
+     * @param item The item entity
+     */
+    void addItem(Item item) {
+        entities.add(handlerOf(item, EntityRef.class));
+    }
+
+    /**
+     * Get the armor stands in the world that wear a helmet, the way players
+     * see a basketball
+     *
+     * @return The armor stands
+     */
+    List<ArmorStand> getBalls() {
+        List<ArmorStand> balls = new ArrayList<>();
+        for (EntityRef entity : entities) {
+            if (!entity.dead && entity.type == EntityType.ARMOR_STAND && entity.values.get("Helmet") != null) {
+                balls.add((ArmorStand) entity.entity);
+            }
+        }
+        return balls;
+    }
+
+    int getEntityCount() {
+        return entities.size();
+    }
+
+    /**
+     * Move every entity in a loaded chunk by its velocity, then apply gravity,
+     * drag and friction the way living entities and items do
+     */
+    void tick() {
+        for (Iterator<EntityRef> iterator = entities.iterator(); iterator.hasNext(); ) {
+            EntityRef entity = iterator.next();
+            if (entity.dead) {
+                iterator.remove();
+                continue;
+            }
+            if (!entity.gravity || !isChunkLoaded((int) Math.floor(entity.x) >> 4, (int) Math.floor(entity.z) >> 4)) {
+                continue;
+            }
+
+            if (Math.abs(entity.motionX) < MIN_MOTION) {
+                entity.motionX = 0;
+            }
+            if (Math.abs(entity.motionY) < MIN_MOTION) {
+                entity.motionY = 0;
+            }
+            if (Math.abs(entity.motionZ) < MIN_MOTION) {
+                entity.motionZ = 0;
+            }
+            move(entity);
+
+            double friction = entity.onGround ? GROUND_FRICTION : AIR_FRICTION;
+            entity.motionY = (entity.motionY - (entity.type == EntityType.DROPPED_ITEM ? ITEM_GRAVITY : GRAVITY)) * DRAG;
+            entity.motionX *= friction;
+            entity.motionZ *= friction;
+        }
+    }
+
+    /**
+     * Move an entity by its motion, stopping at solid blocks one axis at a
+     * time: Y first, then X and Z, as Minecraft does
+     */
+    private void move(EntityRef entity) {
+        double halfWidth = entity.width / 2;
+        double dy = clipY(entity, halfWidth, entity.motionY);
+        entity.onGround = entity.motionY < 0 && dy != entity.motionY;
+        if (dy != entity.motionY) {
+            entity.motionY = 0;
+        }
+        entity.y += dy;
+
+        double dx = clipX(entity, halfWidth, entity.motionX);
+        if (dx != entity.motionX) {
+            entity.motionX = 0;
+        }
+        entity.x += dx;
+
+        double dz = clipZ(entity, halfWidth, entity.motionZ);
+        if (dz != entity.motionZ) {
+            entity.motionZ = 0;
+        }
+        entity.z += dz;
+    }
+
+    private double clipY(EntityRef entity, double halfWidth, double dy) {
+        int minX = floorInt(entity.x - halfWidth);
+        int maxX = floorInt(entity.x + halfWidth);
+        int minZ = floorInt(entity.z - halfWidth);
+        int maxZ = floorInt(entity.z + halfWidth);
+        if (dy < 0) {
+            for (int y = floorInt(entity.y) - 1; y >= floorInt(entity.y + dy); y--) {
+                if (anySolid(minX, maxX, y, y, minZ, maxZ)) {
+                    return y + 1 - entity.y;
+                }
+            }
+        } else if (dy > 0) {
+            double top = entity.y + entity.height;
+            for (int y = (int) Math.ceil(top); y <= (int) Math.ceil(top + dy) - 1; y++) {
+                if (anySolid(minX, maxX, y, y, minZ, maxZ)) {
+                    return y - top;
+                }
+            }
+        }
+        return dy;
+    }
+
+    private double clipX(EntityRef entity, double halfWidth, double dx) {
+        int minY = floorInt(entity.y);
+        int maxY = floorInt(entity.y + entity.height);
+        int minZ = floorInt(entity.z - halfWidth);
+        int maxZ = floorInt(entity.z + halfWidth);
+        if (dx < 0) {
+            double back = entity.x - halfWidth;
+            for (int x = floorInt(back) - 1; x >= floorInt(back + dx); x--) {
+                if (anySolid(x, x, minY, maxY, minZ, maxZ)) {
+                    return x + 1 - back;
+                }
+            }
+        } else if (dx > 0) {
+            double front = entity.x + halfWidth;
+            for (int x = (int) Math.ceil(front); x <= (int) Math.ceil(front + dx) - 1; x++) {
+                if (anySolid(x, x, minY, maxY, minZ, maxZ)) {
+                    return x - front;
+                }
+            }
+        }
+        return dx;
+    }
+
+    private double clipZ(EntityRef entity, double halfWidth, double dz) {
+        int minX = floorInt(entity.x - halfWidth);
+        int maxX = floorInt(entity.x + halfWidth);
+        int minY = floorInt(entity.y);
+        int maxY = floorInt(entity.y + entity.height);
+        if (dz < 0) {
+            double back = entity.z - halfWidth;
+            for (int z = floorInt(back) - 1; z >= floorInt(back + dz); z--) {
+                if (anySolid(minX, maxX, minY, maxY, z, z)) {
+                    return z + 1 - back;
+                }
+            }
+        } else if (dz > 0) {
+            double front = entity.z + halfWidth;
+            for (int z = (int) Math.ceil(front); z <= (int) Math.ceil(front + dz) - 1; z++) {
+                if (anySolid(minX, maxX, minY, maxY, z, z)) {
+                    return z - front;
+                }
+            }
+        }
+        return dz;
+    }
+
+    private boolean anySolid(int minX, int maxX, int minY, int maxY, int minZ, int maxZ) {
+        for (int x = minX; x <= maxX; x++) {
+            for (int y = minY; y <= maxY; y++) {
+                for (int z = minZ; z <= maxZ; z++) {
+                    if (isSolid(x, y, z)) {
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    private static int floorInt(double value) {
+        return (int) Math.floor(value);
+    }
+
+    private Location locate(Location target, double x, double y, double z, float yaw, float pitch) {
+        if (target == null) {
+            return new Location(world, x, y, z, yaw, pitch);
+        }
+        target.setWorld(world);
+        target.setX(x);
+        target.setY(y);
+        target.setZ(z);
+        target.setYaw(yaw);
+        target.setPitch(pitch);
+        return target;
+    }
+
+    /**
+     * A block position; a new one is handed out for every lookup, like a
+     * CraftBlock, and positions are equal by coordinates
+     */
+    private final class BlockRef extends HeadlessProxy {
+        private final int x;
+        private final int y;
+        private final int z;
+        private final Block block;
+
+        private BlockRef(int x, int y, int z) {
+            this.x = x;
+            this.y = y;
+            this.z = z;
+            this.block = create(Block.class);
+        }
+
+        @Override
+        protected Object call(Object proxy, Method method, Object[] args) {
+            switch (method.getName()) {
+                case "getType":
+                    return getType(x, y, z);
+                case "getTypeId":
+                    return getType(x, y, z).getId();
+                case "getData":
+                    return getData(x, y, z);
+                case "setType":
+                    setBlock(x, y, z, (Material) args[0], (byte) 0);
+                    return null;
+                case "setTypeId":
+                    setBlock(x, y, z, Material.getMaterial((Integer) args[0]), (byte) 0);
+                    return true;
+                case "setTypeIdAndData":
+                    setBlock(x, y, z, Material.getMaterial((Integer) args[0]), (Byte) args[1]);
+                    return true;
+                case "setData":
+                    setBlock(x, y, z, getType(x, y, z), (Byte) args[0]);
+                    return null;
+                case "getState":
+                    return new StateRef(x, y, z).state;
+                case "getLocation":
+                    return locate(args.length == 1 ? (Location) args[0] : null, x, y, z, 0, 0);
+                case "getX":
+                    return x;
+                case "getY":
+                    return y;
+                case "getZ":
+                    return z;
+                case "getWorld":
+                    return world;
+                case "getChunk":
+                    return chunkAt(x >> 4, z >> 4);
+                case "getRelative":
+                    if (args.length == 3) {
+                        return blockAt(x + (Integer) args[0], y + (Integer) args[1], z + (Integer) args[2]);
+                    }
+                    BlockFace face = (BlockFace) args[0];
+                    int distance = args.length == 2 ? (Integer) args[1] : 1;
+                    return blockAt(x + face.getModX() * distance, y + face.getModY() * distance, z + face.getModZ() * distance);
+                case "isEmpty":
+                    return getType(x, y, z) == Material.AIR;
+                case "isLiquid": {
+                    Material type = getType(x, y, z);
+                    return type == Material.WATER || type == Material.STATIONARY_WATER
+                        || type == Material.LAVA || type == Material.STATIONARY_LAVA;
+                }
+                default:
+                    return UNHANDLED;
+            }
+        }
+
+        @Override
+        protected boolean isEqual(Object proxy, Object other) {
+            BlockRef block = handlerOf(other, BlockRef.class);
+            return block != null && block.x == x && block.y == y && block.z == z;
+        }
+
+        @Override
+        protected int hash(Object proxy) {
+            return y << 24 ^ x ^ z << 12;
+        }
+
+        @Override
+        protected String describe() {
+            return "CraftBlock{x=" + x + ",y=" + y + ",z=" + z + ",type=" + getType(x, y, z) + "}";
+        }
+    }
+
+    /**
+     * The extra state of a skull or hopper block
+     */
+    private static final class Tile {
+        private final int x;
+        private final int y;
+        private final int z;
+        private SkullType skullType = SkullType.SKELETON;
+        private String owner;
+        private BlockFace rotation = BlockFace.SELF;
+
+        private Tile(int x, int y, int z) {
+            this.x = x;
+            this.y = y;
+            this.z = z;
+        }
+    }
+
+    /**
+     * A snapshot of a block, written back by update(); a {@link Skull} for
+     * skull blocks
+     */
+    private final class StateRef extends HeadlessProxy {
+        private final int x;
+        private final int y;
+        private final int z;
+        private final BlockState state;
+        private Material type;
+        private byte data;
+        private SkullType skullType;
+        private String owner;
+        private BlockFace rotation;
+
+        private StateRef(int x, int y, int z) {
+            this.x = x;
+            this.y = y;
+            this.z = z;
+            this.type = getType(x, y, z);
+            this.data = getData(x, y, z);
+            Tile tile = getTile(x, y, z);
+            if (tile != null) {
+                skullType = tile.skullType;
+                owner = tile.owner;
+                rotation = tile.rotation;
+            }
+            if (type == Material.SKULL) {
+                this.state = create(Skull.class);
+            } else if (type == Material.HOPPER) {
+                this.state = create(Hopper.class);
+            } else {
+                this.state = create(BlockState.class);
+            }
+        }
+
+        @Override
+        protected Object call(Object proxy, Method method, Object[] args) {
+            switch (method.getName()) {
+                case "getType":
+                    return type;
+                case "getTypeId":
+                    return type.getId();
+                case "setType":
+                    type = (Material) args[0];
+                    data = 0;
+                    return null;
+                case "getData":
+                    return type.getNewData(data);
+                case "setData":
+                    data = ((MaterialData) args[0]).getData();
+                    return null;
+                case "getRawData":
+                    return data;
+                case "setRawData":
+                    data = (Byte) args[0];
+                    return null;
+                case "update": {
+                    boolean force = args.length > 0 && (Boolean) args[0];
+                    if (getType(x, y, z) != type && !force) {
+                        return false;
+                    }
+                    setBlock(x, y, z, type, data);
+                    Tile tile = getTile(x, y, z);
+                    if (tile != null && skullType != null) {
+                        tile.skullType = skullType;
+                        tile.owner = owner;
+                        tile.rotation = rotation;
+                    }
+                    return true;
+                }
+                case "isPlaced":
+                    return true;
+                case "getBlock":
+                    return blockAt(x, y, z);
+                case "getLocation":
+                    return locate(args.length == 1 ? (Location) args[0] : null, x, y, z, 0, 0);
+                case "getX":
+                    return x;
+                case "getY":
+                    return y;
+                case "getZ":
+                    return z;
+                case "getWorld":
+                    return world;
+                case "getChunk":
+                    return chunkAt(x >> 4, z >> 4);
+                case "getSkullType":
+                    return skullType;
+                case "setSkullType":
+                    skullType = (SkullType) args[0];
+                    return null;
+                case "hasOwner":
+                    return owner != null;
+                case "getOwner":
+                    return owner;
+                case "setOwner":
+                    owner = (String) args[0];
+                    return true;
+                case "getRotation":
+                    return rotation;
+                case "setRotation":
+                    rotation = (BlockFace) args[0];
+                    return null;
+                default:
+                    return UNHANDLED;
+            }
+        }
+
+        @Override
+        protected String describe() {
+            return "CraftBlockState{x=" + x + ",y=" + y + ",z=" + z + ",type=" + type + "}";
+        }
+    }
+
+    /**
+     * A chunk; one per chunk position, loaded or not
+     */
+    private final class ChunkRef extends HeadlessProxy {
+        private final int chunkX;
+        private final int chunkZ;
+        private final Chunk chunk;
+
+        private ChunkRef(int chunkX, int chunkZ) {
+            this.chunkX = chunkX;
+            this.chunkZ = chunkZ;
+            this.chunk = create(Chunk.class);
+        }
+
+        @Override
+        protected Object call(Object proxy, Method method, Object[] args) {
+            switch (method.getName()) {
+                case "getX":
+                    return chunkX;
+                case "getZ":
+                    return chunkZ;
+                case "getWorld":
+                    return world;
+                case "isLoaded":
+                    return isChunkLoaded(chunkX, chunkZ);
+                case "getBlock":
+                    return blockAt(chunkX << 4 | (Integer) args[0], (Integer) args[1], chunkZ << 4 | (Integer) args[2]);
+                case "getTileEntities": {
+                    Map<Long, Tile> chunkTiles = tiles.get(chunkKey(chunkX, chunkZ));
+                    if (chunkTiles == null) {
+                        return new BlockState[0];
+                    }
+                    BlockState[] states = new BlockState[chunkTiles.size()];
+                    int i = 0;
+                    for (Tile tile : chunkTiles.values()) {
+                        states[i++] = new StateRef(tile.x, tile.y, tile.z).state;
+                    }
+                    return states;
+                }
+                case "getEntities": {
+                    List<Entity> inChunk = new ArrayList<>();
+                    for (EntityRef entity : entities) {
+                        if (!entity.dead && floorInt(entity.x) >> 4 == chunkX && floorInt(entity.z) >> 4 == chunkZ) {
+                            inChunk.add(entity.entity);
+                        }
+                    }
+                    return inChunk.toArray(new Entity[0]);
+                }
+                default:
+                    return UNHANDLED;
+            }
+        }
+
+        @Override
+        protected String describe() {
+            return "CraftChunk{x=" + chunkX + "z=" + chunkZ + "}";
+        }
+    }
+
+    /**
+     * An armor stand or a dropped item. Properties without their own case,
+     * such as visible or small, are stored and read back by name.
+     */
+    private final class EntityRef extends HeadlessProxy {
+        private final int id = nextEntityId();
+        private final UUID uuid = UUID.randomUUID();
+        private final EntityType type;
+        private final Entity entity;
+        private final Map<String, Object> values = new HashMap<>();
+        private double width;
+        private double height;
+        private double x;
+        private double y;
+        private double z;
+        private float yaw;
+        private float pitch;
+        private double motionX;
+        private double motionY;
+        private double motionZ;
+        private boolean onGround;
+        private boolean gravity = true;
+        private boolean dead;
+        private ItemStack item;
+
+        private EntityRef(EntityType type, Location location) {
+            this.type = type;
+            this.entity = type == EntityType.ARMOR_STAND ? create(ArmorStand.class) : create(Item.class);
+            this.width = type == EntityType.ARMOR_STAND ? 0.5 : 0.25;
+            this.height = type == EntityType.ARMOR_STAND ? 1.975 : 0.25;
+            this.x = location.getX();
+            this.y = location.getY();
+            this.z = location.getZ();
+            this.yaw = location.getYaw();
+            this.pitch = location.getPitch();
+        }
+
+        @Override
+        protected Object call(Object proxy, Method method, Object[] args) {
+            String name = method.getName();
+            switch (name) {
+                case "getUniqueId":
+                    return uuid;
+                case "getEntityId":
+                    return id;
+                case "getType":
+                    return type;
+                case "getWorld":
+                    return world;
+                case "getLocation":
+                    return locate(args.length == 1 ? (Location) args[0] : null, x, y, z, yaw, pitch);
+                case "getVelocity":
+                    return new Vector(motionX, motionY, motionZ);
+                case "setVelocity": {
+                    Vector velocity = (Vector) args[0];
+                    motionX = velocity.getX();
+                    motionY = velocity.getY();
+                    motionZ = velocity.getZ();
+                    return null;
+                }
+                case "teleport": {
+                    if (dead) {
+                        return false;
+                    }
+                    Location target = args[0] instanceof Entity ? ((Entity) args[0]).getLocation() : (Location) args[0];
+                    x = target.getX();
+                    y = target.getY();
+                    z = target.getZ();
+                    yaw = target.getYaw();
+                    pitch = target.getPitch();
+                    return true;
+                }
+                case "remove":
+                    dead = true;
+                    return null;
+                case "isDead":
+                    return dead;
+                case "isValid":
+                    return !dead;
+                case "isOnGround":
+                    return onGround;
+                case "hasGravity":
+                    return gravity;
+                case "setGravity":
+                    gravity = (Boolean) args[0];
+                    return null;
+                case "getNearbyEntities":
+                    return getNearbyEntities(entity, new Location(world, x, y, z), (Double) args[0], (Double) args[1], (Double) args[2]);
+                case "getItemStack":
+                    return item;
+                case "setItemStack":
+                    item = ((ItemStack) args[0]).clone();
+                    return null;
+                case "setSmall": {
+                    // Small armor stands have half the size
+                    boolean small = (Boolean) args[0];
+                    width = small ? 0.25 : 0.5;
+                    height = small ? 0.9875 : 1.975;
+                    values.put("Small", small);
+                    return null;
+                }
+                default:
+                    break;
+            }
+
+            if (name.startsWith("set") && args.length == 1) {
+                values.put(name.substring(3), args[0] instanceof ItemStack ? ((ItemStack) args[0]).clone() : args[0]);
+                return null;
+            }
+            if ((name.startsWith("is") || name.startsWith("has")) && args.length == 0) {
+                String property = name.substring(name.startsWith("is") ? 2 : 3);
+                Object value = values.get(property);
+                return value != null ? value : defaultFlag(property);
+            }
+            if (name.startsWith("get") && args.length == 0) {
+                Object value = values.get(name.substring(3));
+                if (value instanceof ItemStack) {
+                    return ((ItemStack) value).clone();
+                }
+                return value != null ? value : UNHANDLED;
+            }
+            return UNHANDLED;
+        }
+
+        private boolean defaultFlag(String property) {
+            // Armor stands are visible, collidable and have a base plate until told otherwise
+            return property.equals("Visible") || property.equals("Collidable") || property.equals("BasePlate");
+        }
+
+        @Override
+        protected String describe() {
+            return (type == EntityType.ARMOR_STAND ? "CraftArmorStand" : "CraftItem") + "{id=" + id + "}";
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package nl.djorr.basketball.benchmarks;
+
+import nl.djorr.basketball.utils.ItemUtil;
+import org.bukkit.Material;
+import org.bukkit.inventory.ItemStack;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Recognising a basketball among the items of a hotbar by material and data
+ * value. The NBT lookup that comes first in {@code isBasketballItem} needs
+ * CraftBukkit item internals and is not covered here.
+ *
+ * @author Djorr
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ItemRecognitionBenchmark {
+
+    private static final Material BASKETBALL_MATERIAL = Material.SKULL_ITEM;
+    private static final byte BASKETBALL_DATA = 3;
+
+    private ItemStack[] hotbar;
+
+    @Setup
+    @SuppressWarnings("deprecation")
+    public void setup() {
+        hotbar = new ItemStack[] {
+            new ItemStack(Material.DIAMOND_SWORD),
+            new ItemStack(Material.SKULL_ITEM, 1, (short) 1),
+            new ItemStack(Material.BREAD, 16),
+            new ItemStack(BASKETBALL_MATERIAL, 1, BASKETBALL_DATA),
+            new ItemStack(Material.STONE, 64),
+            new ItemStack(Material.BOW),
+            new ItemStack(Material.ARROW, 32),
+            new ItemStack(Material.TORCH, 64),
+            new ItemStack(Material.COMPASS)
+        };
+    }
+
+    @Benchmark
+    public void scanHotbar(Blackhole blackhole) {
+        for (ItemStack item : hotbar) {
+            blackhole.consume(ItemUtil.matchesBasketballMaterial(item, BASKETBALL_MATERIAL, BASKETBALL_DATA));
+        }
+    }
+}
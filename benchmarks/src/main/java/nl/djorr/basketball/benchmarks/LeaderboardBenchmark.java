@@ -0,0 +1,67 @@
+package nl.djorr.basketball.benchmarks;
+
+import nl.djorr.basketball.objects.WinsLeaderboard;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Top-N queries and win updates on a court's wins leaderboard
+ *
+ * @author Djorr
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LeaderboardBenchmark {
+
+    @Param({"100", "10000", "100000"})
+    public int players;
+
+    private WinsLeaderboard leaderboard;
+    private UUID[] uuids;
+    private Random random;
+
+    @Setup
+    public void setup() {
+        random = new Random(42);
+        leaderboard = new WinsLeaderboard();
+        uuids = new UUID[players];
+        for (int i = 0; i < players; i++) {
+            uuids[i] = new UUID(random.nextLong(), random.nextLong());
+            leaderboard.setWins(uuids[i], random.nextInt(500));
+        }
+    }
+
+    @Benchmark
+    public List<Map.Entry<UUID, Integer>> top10() {
+        return leaderboard.getTop(10);
+    }
+
+    @Benchmark
+    public int increment() {
+        return leaderboard.increment(uuids[random.nextInt(players)]);
+    }
+
+    @Benchmark
+    public int rank() {
+        return leaderboard.getRank(uuids[random.nextInt(players)]);
+    }
+}
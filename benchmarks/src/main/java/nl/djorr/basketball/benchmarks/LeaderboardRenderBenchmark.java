@@ -0,0 +1,63 @@
+package nl.djorr.basketball.benchmarks;
+
+import nl.djorr.basketball.utils.LeaderboardRenderer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rendering the hologram lines of a leaderboard, as done for every dirty
+ * court on a refresh
+ *
+ * @author Djorr
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LeaderboardRenderBenchmark {
+
+    @Param({"2", "10", "20"})
+    public int entries;
+
+    private List<Map.Entry<String, Integer>> scores;
+    private List<Map.Entry<String, Integer>> wins;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(42);
+        scores = new ArrayList<>(entries);
+        wins = new ArrayList<>(entries);
+        for (int i = 0; i < entries; i++) {
+            scores.add(new AbstractMap.SimpleImmutableEntry<>("Player" + i, random.nextInt(10)));
+            wins.add(new AbstractMap.SimpleImmutableEntry<>("Player" + i, 1000 - i * 7));
+        }
+    }
+
+    @Benchmark
+    public List<String> liveScores() {
+        return LeaderboardRenderer.render(true, scores);
+    }
+
+    @Benchmark
+    public List<String> topWinners() {
+        return LeaderboardRenderer.render(false, wins);
+    }
+}
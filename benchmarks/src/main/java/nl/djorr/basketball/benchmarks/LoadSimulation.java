@@ -0,0 +1,622 @@
+package nl.djorr.basketball.benchmarks;
+
+import nl.djorr.basketball.BasketballPlugin;
+import nl.djorr.basketball.utils.BasketballTextureUtil;
+import nl.djorr.basketball.utils.LatencyHistogram;
+import org.bukkit.Location;
+import org.bukkit.Material;
+import org.bukkit.block.Block;
+import org.bukkit.block.Skull;
+import org.bukkit.configuration.file.YamlConfiguration;
+import org.bukkit.entity.ArmorStand;
+import org.bukkit.event.player.PlayerTeleportEvent;
+import org.bukkit.plugin.PluginDescriptionFile;
+import org.bukkit.plugin.java.JavaPluginLoader;
+import org.yaml.snakeyaml.DumperOptions;
+import org.yaml.snakeyaml.Yaml;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.lang.reflect.Constructor;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Random;
+import java.util.UUID;
+
+/**
+ * Headless event-night load: the plugin is loaded and enabled on a
+ * {@link HeadlessServer} with N courts, and M simulated players log in, walk
+ * onto courts, pick up balls, throw and score through the same events a
+ * server fires for real clients. The server's main-thread time per tick and
+ * the bytes it allocates per tick are recorded after a warmup, and the run
+ * fails when the allocation regresses beyond the tolerance against the
+ * committed baseline, or when the players stop playing (no pickups, throws
+ * or scores, or a listener or task that throws). The tick time depends on
+ * the machine, so its p99 is only reported unless {@code load.gateLatency}
+ * is set.
+ * <p>
+ * Anything the plugin times by the wall clock, such as the click rate limit,
+ * runs faster than in game time here, so the players retry rejected clicks.
+ * <p>
+ * Run by {@code mvn verify} in this module. Settings are system properties:
+ * {@code load.courts}, {@code load.players}, {@code load.ticks},
+ * {@code load.warmup}, {@code load.seed}, {@code load.baseline},
+ * {@code load.tolerance}, {@code load.gateLatency} ({@code -Pload-latency}
+ * from the plugin folder), {@code load.updateBaseline} and
+ * {@code load.recordThrows}, which records every throw to
+ * {@code target/load-simulation/replays/} for {@link ReplayCheck}. The
+ * baseline is committed and only compared when the courts and players match
+ * it; write a new one with {@code -Dload.updateBaseline=true} after an
+ * intended change.
+ *
+ * @author Djorr
+ */
+public class LoadSimulation {
+
+    private static final int COURT_SPACING = 64;
+    private static final int COURT_Z = 32;
+    private static final int COURT_REACH = 17; // Players stay this far from the center, inside the court bounds
+    private static final int HOOP_OFFSET = 10; // The default court layout from config.yml
+    private static final int HOOP_HEIGHT = 3;
+    private static final int ENTRANCE_OFFSET = 24;
+    private static final double WALK_SPEED = 0.2; // Blocks per tick
+    private static final double BLOCK_REACH_SQUARED = 4.0 * 4.0;
+    private static final double ENTITY_REACH_SQUARED = 3.0 * 3.0;
+    private static final int CLICK_INTERVAL = 4; // Ticks between the clicks of a player
+    private static final int ADMIN_INTERVAL = 20; // Ticks between checks for a court without a ball
+    private static final int EMPTY_COURT_TICKS = 100; // A court without a ball gets a new one after this long
+    private static final int QUIT_CHANCE = 6000; // 1 in N per tick
+    private static final double SHOT_DISTANCE = 4.0;
+    private static final float SHOT_PITCH = 10;
+    private static final float SHOT_SPREAD = 8; // Degrees of aim error either way
+
+    private final Random random;
+    private final HeadlessServer server;
+    private final HeadlessWorld world;
+    private final BasketballPlugin plugin;
+    private final Court[] courts;
+    private final Bot[] bots;
+    private long tick;
+    private long pickups;
+    private long throwCount;
+    private long ballsPlaced;
+    private long rejoins;
+
+    private LoadSimulation(HeadlessServer server, BasketballPlugin plugin, Court[] courts, int playerCount, long seed) {
+        this.random = new Random(seed);
+        this.server = server;
+        this.world = server.getWorld();
+        this.plugin = plugin;
+        this.courts = courts;
+        this.bots = new Bot[playerCount];
+        for (int i = 0; i < playerCount; i++) {
+            bots[i] = new Bot(server.createPlayer("Player" + i, new UUID(random.nextLong(), random.nextLong())));
+        }
+    }
+
+    /**
+     * Run one server tick, then let the clients act on what they see
+     */
+    private void tick() throws Exception {
+        server.tick();
+
+        boolean connected = false;
+        for (Bot bot : bots) {
+            connected |= bot.act();
+        }
+        if (connected) {
+            // Logins complete in the next tick, whichever thread was faster
+            server.awaitLogins();
+        }
+
+        if (tick % ADMIN_INTERVAL == 0) {
+            for (Court court : courts) {
+                court.checkBall(this);
+            }
+        }
+        tick++;
+    }
+
+    public static void main(String[] args) throws Exception {
+        int courtCount = Integer.getInteger("load.courts", 20);
+        int playerCount = Integer.getInteger("load.players", 200);
+        int ticks = Integer.getInteger("load.ticks", 12000);
+        int warmup = Integer.getInteger("load.warmup", 6000);
+        long seed = Long.getLong("load.seed", 42);
+        File baselineFile = new File(System.getProperty("load.baseline", "load-baseline.properties"));
+        double tolerance = Double.parseDouble(System.getProperty("load.tolerance", "0.5"));
+        boolean gateLatency = Boolean.getBoolean("load.gateLatency");
+        boolean updateBaseline = Boolean.getBoolean("load.updateBaseline");
+        boolean recordThrows = Boolean.getBoolean("load.recordThrows");
+
+        File dataFolder = new File("target", "load-simulation");
+        deleteRecursively(dataFolder);
+        dataFolder.mkdirs();
+
+        Court[] courts = new Court[courtCount];
+        for (int i = 0; i < courtCount; i++) {
+            courts[i] = new Court("court" + i, 32 + i * COURT_SPACING, COURT_Z);
+        }
+        writeConfig(dataFolder, recordThrows);
+        writeRegions(dataFolder, courts);
+
+        HeadlessServer server = new HeadlessServer();
+        for (Court court : courts) {
+            court.build(server.getWorld());
+        }
+        BasketballPlugin plugin = loadPlugin(server, dataFolder);
+        server.enable(plugin);
+
+        LoadSimulation simulation = new LoadSimulation(server, plugin, courts, playerCount, seed);
+        LatencyHistogram tickTimes = new LatencyHistogram();
+        long allocated = 0;
+        server.takeBusyNanos();
+        server.takeBusyBytes();
+        for (int tick = 0; tick < warmup + ticks; tick++) {
+            simulation.tick();
+            long nanos = server.takeBusyNanos();
+            long bytes = server.takeBusyBytes();
+            if (tick >= warmup) {
+                tickTimes.record(nanos);
+                allocated += bytes;
+            }
+        }
+
+        long scores = simulation.countScores();
+        for (Bot bot : simulation.bots) {
+            server.quit(bot.player);
+        }
+        server.disable(plugin);
+        server.shutdown();
+
+        long p50 = tickTimes.getValueAt(0.5) / 1000;
+        long p99 = tickTimes.getValueAt(0.99) / 1000;
+        long max = tickTimes.getMax() / 1000;
+        long bytesPerTick = allocated / ticks;
+
+        System.out.println("Load simulation: " + courtCount + " courts, " + playerCount + " players, " + ticks + " ticks");
+        System.out.println("  tick p50 " + p50 + " us, p99 " + p99 + " us, max " + max + " us");
+        System.out.println("  allocated " + bytesPerTick + " bytes/tick");
+        System.out.println("  " + simulation.pickups + " pickups, " + simulation.throwCount + " throws, " + scores + " scores, "
+            + simulation.ballsPlaced + " balls placed, " + simulation.rejoins + " rejoins");
+        System.out.println("  " + server.getMessages() + " messages, " + server.getParticles() + " particles, "
+            + server.getSounds() + " sounds, " + server.getErrors() + " errors");
+
+        Properties result = new Properties();
+        result.setProperty("courts", String.valueOf(courtCount));
+        result.setProperty("players", String.valueOf(playerCount));
+        result.setProperty("p99Micros", String.valueOf(p99));
+        result.setProperty("bytesPerTick", String.valueOf(bytesPerTick));
+        try (FileOutputStream out = new FileOutputStream(new File("target", "load-report.properties"))) {
+            result.store(out, "Basketball load simulation");
+        }
+
+        List<String> failures = new ArrayList<>();
+        if (simulation.pickups == 0 || simulation.throwCount == 0 || scores == 0) {
+            failures.add("the players did not play: " + simulation.pickups + " pickups, "
+                + simulation.throwCount + " throws, " + scores + " scores");
+        }
+        if (server.getErrors() > 0) {
+            failures.add(server.getErrors() + " event handlers or tasks threw, see the log above");
+        }
+
+        if (updateBaseline) {
+            try (FileOutputStream out = new FileOutputStream(baselineFile)) {
+                result.store(out, "Basketball load simulation baseline");
+            }
+            System.out.println("  baseline written to " + baselineFile);
+        } else if (!baselineFile.exists()) {
+            failures.add("no baseline at " + baselineFile + ", write one with -Dload.updateBaseline=true");
+        } else {
+            Properties baseline = new Properties();
+            try (FileInputStream in = new FileInputStream(baselineFile)) {
+                baseline.load(in);
+            }
+            if (!result.getProperty("courts").equals(baseline.getProperty("courts"))
+                || !result.getProperty("players").equals(baseline.getProperty("players"))) {
+                // Another event size only reports, the baseline is for its own
+                System.out.println("  baseline is for " + baseline.getProperty("courts") + " courts and "
+                    + baseline.getProperty("players") + " players, not compared");
+            } else {
+                if (gateLatency) {
+                    checkRegression(failures, "tick p99 (us)", p99, baseline.getProperty("p99Micros"), tolerance);
+                }
+                checkRegression(failures, "bytes/tick", bytesPerTick, baseline.getProperty("bytesPerTick"), tolerance);
+            }
+        }
+
+        if (!failures.isEmpty()) {
+            for (String failure : failures) {
+                System.err.println("FAILED: " + failure);
+            }
+            System.exit(1);
+        }
+    }
+
+    private static void checkRegression(List<String> failures, String name, long value, String baseline, double tolerance) {
+        if (baseline == null) {
+            failures.add("the baseline has no " + name);
+            return;
+        }
+        long limit = (long) (Long.parseLong(baseline) * (1 + tolerance));
+        if (value > limit) {
+            failures.add(name + " regressed to " + value + ", baseline " + baseline + " +" + (int) (tolerance * 100) + "%");
+        }
+    }
+
+    private long countScores() {
+        long points = 0;
+        for (int score : plugin.getScoreManager().getAllScores().values()) {
+            points += score;
+        }
+        return points / Math.max(1, plugin.getConfigManager().getPointsPerBasket());
+    }
+
+    // Setup
+
+    /**
+     * Load the plugin the way the plugin loader does, from its plugin.yml
+     */
+    private static BasketballPlugin loadPlugin(HeadlessServer server, File dataFolder) throws Exception {
+        PluginDescriptionFile description;
+        try (InputStream in = BasketballPlugin.class.getClassLoader().getResourceAsStream("plugin.yml")) {
+            description = new PluginDescriptionFile(in);
+        }
+        File file = new File(BasketballPlugin.class.getProtectionDomain().getCodeSource().getLocation().toURI());
+
+        Constructor<BasketballPlugin> constructor = BasketballPlugin.class.getDeclaredConstructor(
+            JavaPluginLoader.class, PluginDescriptionFile.class, File.class, File.class);
+        constructor.setAccessible(true);
+        return constructor.newInstance(new JavaPluginLoader(server.getServer()), description, dataFolder, file);
+    }
+
+    /**
+     * The bundled config.yml with debug logging off, as on a production server
+     */
+    private static void writeConfig(File dataFolder, boolean recordThrows) throws IOException {
+        YamlConfiguration config;
+        try (InputStream in = BasketballPlugin.class.getClassLoader().getResourceAsStream("config.yml")) {
+            config = YamlConfiguration.loadConfiguration(new InputStreamReader(in, StandardCharsets.UTF_8));
+        }
+        config.set("debug.enabled", false);
+        config.set("debug.record_throws", recordThrows);
+        config.save(new File(dataFolder, "config.yml"));
+    }
+
+    /**
+     * Courts as an admin would have set them up, in the format the plugin
+     * saves them in
+     */
+    private static void writeRegions(File dataFolder, Court[] courts) throws IOException {
+        Map<String, Object> regions = new LinkedHashMap<>();
+        for (Court court : courts) {
+            Map<String, Object> region = new LinkedHashMap<>();
+            region.put("center", location(court.x, HeadlessWorld.FLOOR_Y - 1, court.z));
+            region.put("spawnLocation", location(court.x, HeadlessWorld.FLOOR_Y, court.z));
+            region.put("leftHoop", location(court.x - HOOP_OFFSET, court.hoopY(), court.z));
+            region.put("rightHoop", location(court.x + HOOP_OFFSET, court.hoopY(), court.z));
+            region.put("leftBackboard", location(court.x - HOOP_OFFSET, court.hoopY(), court.z - 1));
+            region.put("rightBackboard", location(court.x + HOOP_OFFSET, court.hoopY(), court.z - 1));
+            regions.put(court.name, region);
+        }
+        Map<String, Object> root = new LinkedHashMap<>();
+        root.put("regions", regions);
+
+        DumperOptions options = new DumperOptions();
+        options.setDefaultFlowStyle(DumperOptions.FlowStyle.BLOCK);
+        try (Writer out = new OutputStreamWriter(new FileOutputStream(new File(dataFolder, "regions.yml")), StandardCharsets.UTF_8)) {
+            new Yaml(options).dump(root, out);
+        }
+    }
+
+    private static Map<String, Object> location(int x, int y, int z) {
+        Map<String, Object> location = new LinkedHashMap<>();
+        location.put("world", "world");
+        location.put("x", (double) x);
+        location.put("y", (double) y);
+        location.put("z", (double) z);
+        location.put("yaw", 0.0);
+        location.put("pitch", 0.0);
+        return location;
+    }
+
+    private static void deleteRecursively(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                deleteRecursively(child);
+            }
+        }
+        file.delete();
+    }
+
+    /**
+     * A court: bedrock center, two hoppers as hoops and their backboards
+     */
+    private static final class Court {
+        private final String name;
+        private final int x;
+        private final int z;
+        private final int[] bounds;
+        private HeadlessWorld world;
+        private int ballLessTicks;
+
+        private Court(String name, int x, int z) {
+            this.name = name;
+            this.x = x;
+            this.z = z;
+            this.bounds = new int[] {x - COURT_REACH, x + COURT_REACH, 0, 255, z - COURT_REACH, z + COURT_REACH};
+        }
+
+        private int hoopY() {
+            return HeadlessWorld.FLOOR_Y - 1 + HOOP_HEIGHT;
+        }
+
+        private void build(HeadlessWorld world) {
+            this.world = world;
+            world.setBlock(x, HeadlessWorld.FLOOR_Y - 1, z, Material.BEDROCK, (byte) 0);
+            for (int side = -1; side <= 1; side += 2) {
+                world.setBlock(x + side * HOOP_OFFSET, hoopY(), z, Material.HOPPER, (byte) 0);
+                world.setBlock(x + side * HOOP_OFFSET, hoopY(), z - 1, Material.STAINED_GLASS, (byte) 11);
+            }
+        }
+
+        private boolean contains(double locationX, double locationZ) {
+            return locationX >= bounds[0] && locationX < bounds[1] + 1 && locationZ >= bounds[4] && locationZ < bounds[5] + 1;
+        }
+
+        private ArmorStand findBall(double fromX, double fromZ) {
+            ArmorStand nearest = null;
+            double nearestDistance = Double.MAX_VALUE;
+            for (ArmorStand ball : world.getBalls()) {
+                Location location = ball.getLocation();
+                double dx = location.getX() - fromX;
+                double dz = location.getZ() - fromZ;
+                if (contains(location.getX(), location.getZ()) && dx * dx + dz * dz < nearestDistance) {
+                    nearest = ball;
+                    nearestDistance = dx * dx + dz * dz;
+                }
+            }
+            return nearest;
+        }
+
+        /**
+         * Staff put a new ball on a court where people are waiting without one
+         */
+        private void checkBall(LoadSimulation simulation) {
+            boolean waiting = false;
+            boolean ball = world.findNearestSkull(bounds, x, z) != null || findBall(x, z) != null;
+            for (Bot bot : simulation.bots) {
+                if (bot.court == this && bot.state == State.PLAYING) {
+                    waiting = true;
+                    ball |= bot.isHolding();
+                }
+            }
+            ballLessTicks = waiting && !ball ? ballLessTicks + ADMIN_INTERVAL : 0;
+            if (ballLessTicks < EMPTY_COURT_TICKS) {
+                return;
+            }
+
+            ballLessTicks = 0;
+            world.setBlock(x, HeadlessWorld.FLOOR_Y, z, Material.SKULL, (byte) 1);
+            Skull skull = (Skull) world.blockAt(x, HeadlessWorld.FLOOR_Y, z).getState();
+            BasketballTextureUtil.applyBasketballTexture(skull);
+            org.bukkit.material.Skull data = (org.bukkit.material.Skull) skull.getData();
+            BasketballTextureUtil.applyBasketballTexture(data);
+            skull.setData(data);
+            skull.update(true);
+            simulation.ballsPlaced++;
+        }
+    }
+
+    private enum State {
+        OFFLINE, LOBBY, WALKING_IN, PLAYING, WALKING_OUT
+    }
+
+    /**
+     * A client: logs in, goes to a court, plays a while, then goes back to
+     * the lobby or logs out
+     */
+    private final class Bot {
+        private final HeadlessPlayer player;
+        private State state = State.OFFLINE;
+        private Court court;
+        private int timer; // Ticks left in the current state
+        private int clickCooldown;
+        private boolean holding;
+        private boolean thrown;
+        private double targetX;
+        private double targetZ;
+
+        private Bot(HeadlessPlayer player) {
+            this.player = player;
+            this.timer = random.nextInt(200); // Players trickle in
+        }
+
+        private boolean isHolding() {
+            return player.countItems(Material.SKULL_ITEM, (short) 3) > 0;
+        }
+
+        /**
+         * Act for one tick
+         *
+         * @return True if the player started logging in
+         */
+        private boolean act() {
+            if (state == State.OFFLINE) {
+                if (--timer > 0) {
+                    return false;
+                }
+                server.connect(player);
+                state = State.LOBBY;
+                timer = 20 + random.nextInt(200);
+                return true;
+            }
+            if (!player.isOnline()) {
+                return false; // Still logging in
+            }
+            if (random.nextInt(QUIT_CHANCE) == 0) {
+                server.quit(player);
+                state = State.OFFLINE;
+                timer = 100 + random.nextInt(300);
+                rejoins++;
+                return false;
+            }
+
+            boolean nowHolding = isHolding();
+            if (nowHolding && !holding) {
+                // Picked up: walk to a spot in front of the nearest hoop
+                pickups++;
+                thrown = false;
+                if (court != null) {
+                    int side = player.getX() < court.x ? -1 : 1;
+                    targetX = court.x + side * (HOOP_OFFSET - SHOT_DISTANCE) + 0.5;
+                    targetZ = court.z + 0.5 + (random.nextDouble() - 0.5) * 2;
+                }
+            }
+            holding = nowHolding;
+            if (clickCooldown > 0) {
+                clickCooldown--;
+            }
+
+            switch (state) {
+                case LOBBY:
+                    if (--timer <= 0) {
+                        // Warp to a court and walk on
+                        court = courts[random.nextInt(courts.length)];
+                        Location entrance = new Location(world.getWorld(), court.x + 0.5, HeadlessWorld.FLOOR_Y, court.z - ENTRANCE_OFFSET + 0.5);
+                        player.getPlayer().teleport(entrance, PlayerTeleportEvent.TeleportCause.COMMAND);
+                        pickSpot();
+                        state = State.WALKING_IN;
+                    }
+                    break;
+                case WALKING_IN:
+                    if (walk()) {
+                        state = State.PLAYING;
+                        timer = 1200 + random.nextInt(3600);
+                    }
+                    break;
+                case PLAYING:
+                    play();
+                    break;
+                case WALKING_OUT:
+                    if (walk()) {
+                        player.getPlayer().teleport(world.getSpawn(), PlayerTeleportEvent.TeleportCause.COMMAND);
+                        state = State.LOBBY;
+                        timer = 100 + random.nextInt(400);
+                    }
+                    break;
+                default:
+                    break;
+            }
+            return false;
+        }
+
+        private void play() {
+            if (--timer <= 0 && !holding) {
+                targetX = court.x + 0.5;
+                targetZ = court.z - ENTRANCE_OFFSET + 0.5;
+                state = State.WALKING_OUT;
+                return;
+            }
+
+            if (holding) {
+                if (thrown) {
+                    return; // Stand still until the ball is dropped, the item stays after a throw
+                }
+                if (walk()) {
+                    shoot();
+                }
+                return;
+            }
+
+            // Chase the nearest ball on the court
+            Block skull = world.findNearestSkull(court.bounds, player.getX(), player.getZ());
+            ArmorStand ball = court.findBall(player.getX(), player.getZ());
+            double skullDistance = skull != null ? distanceSquared(skull.getX() + 0.5, skull.getZ() + 0.5) : Double.MAX_VALUE;
+            double ballDistance = ball != null ? distanceSquared(ball.getLocation().getX(), ball.getLocation().getZ()) : Double.MAX_VALUE;
+            if (skull == null && ball == null) {
+                if (walk()) {
+                    pickSpot();
+                }
+                return;
+            }
+
+            if (skullDistance <= ballDistance) {
+                targetX = skull.getX() + 0.5;
+                targetZ = skull.getZ() + 0.5;
+                if (skullDistance <= BLOCK_REACH_SQUARED && clickCooldown == 0) {
+                    player.leftClickBlock(skull);
+                    clickCooldown = CLICK_INTERVAL;
+                    return;
+                }
+            } else {
+                targetX = ball.getLocation().getX();
+                targetZ = ball.getLocation().getZ();
+                if (ballDistance <= ENTITY_REACH_SQUARED && clickCooldown == 0) {
+                    player.leftClickAir();
+                    clickCooldown = CLICK_INTERVAL;
+                    return;
+                }
+            }
+            if (skullDistance > 1 && ballDistance > 1) {
+                walk();
+            }
+        }
+
+        private void shoot() {
+            int side = player.getX() < court.x ? -1 : 1;
+            double dx = court.x + side * HOOP_OFFSET + 0.5 - player.getX();
+            double dz = court.z + 0.5 - player.getZ();
+            float yaw = (float) Math.toDegrees(Math.atan2(-dx, dz)) + (random.nextFloat() - 0.5f) * 2 * SHOT_SPREAD;
+            float pitch = SHOT_PITCH + (random.nextFloat() - 0.5f) * 2 * SHOT_SPREAD;
+            player.move(player.getX(), player.getZ(), yaw, pitch);
+            if (player.dropItem()) {
+                throwCount++;
+                thrown = true;
+            }
+        }
+
+        /**
+         * A random spot on the court to walk to
+         */
+        private void pickSpot() {
+            targetX = court.x + 0.5 + (random.nextDouble() - 0.5) * 2 * (COURT_REACH - 2);
+            targetZ = court.z + 0.5 + (random.nextDouble() - 0.5) * 2 * (COURT_REACH - 2);
+        }
+
+        /**
+         * Take a step towards the target
+         *
+         * @return True if the player is there
+         */
+        private boolean walk() {
+            double dx = targetX - player.getX();
+            double dz = targetZ - player.getZ();
+            double distance = Math.sqrt(dx * dx + dz * dz);
+            if (distance < 0.1) {
+                return true;
+            }
+            double step = Math.min(WALK_SPEED, distance);
+            float yaw = (float) Math.toDegrees(Math.atan2(-dx, dz));
+            player.move(player.getX() + dx / distance * step, player.getZ() + dz / distance * step, yaw, 0);
+            return step == distance;
+        }
+
+        private double distanceSquared(double x, double z) {
+            double dx = x - player.getX();
+            double dz = z - player.getZ();
+            return dx * dx + dz * dz;
+        }
+    }
+}
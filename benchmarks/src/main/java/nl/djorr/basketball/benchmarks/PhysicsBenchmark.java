@@ -0,0 +1,77 @@
+package nl.djorr.basketball.benchmarks;
+
+import nl.djorr.basketball.utils.BallPhysics;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One physics tick for every ball in flight on a walled court, through the
+ * same {@link BallPhysics#update} that {@code BasketballManager.handlePhysics}
+ * runs on the live entity, including the court bounds check and the boundary
+ * and wall contacts
+ *
+ * @author Djorr
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PhysicsBenchmark {
+
+    private static final int FLOOR_Y = 64;
+    private static final int HALF_WIDTH = 14;
+    private static final int MAX_BOUNCES = 5;
+    private static final int[] BOUNDS = {-HALF_WIDTH, HALF_WIDTH, FLOOR_Y - 5, FLOOR_Y + 10, -HALF_WIDTH, HALF_WIDTH};
+
+    @Param({"1", "8", "64"})
+    public int balls;
+
+    private BallPhysics.State[] states;
+    private BallPhysics.BlockProbe blocks;
+    private BallPhysics.Court court;
+    private Random random;
+
+    @Setup
+    public void setup() {
+        random = new Random(42);
+        // Floor below y=64, walls just outside a 29x29 court
+        blocks = (x, y, z) -> y < FLOOR_Y || Math.abs(x) > HALF_WIDTH || Math.abs(z) > HALF_WIDTH;
+        court = () -> BOUNDS;
+        states = new BallPhysics.State[balls];
+        for (int i = 0; i < balls; i++) {
+            states[i] = new BallPhysics.State(0, 0, 0, 0, 0, 0);
+            rethrow(states[i]);
+        }
+    }
+
+    @Benchmark
+    public void step(Blackhole blackhole) {
+        for (BallPhysics.State state : states) {
+            BallPhysics.StepResult result = BallPhysics.step(state, blocks, court, MAX_BOUNCES);
+            if (result.isFinal()) {
+                rethrow(state);
+            }
+            blackhole.consume(result);
+        }
+    }
+
+    private void rethrow(BallPhysics.State state) {
+        state.set(random.nextDouble() * 10 - 5, FLOOR_Y + 1.5, random.nextDouble() * 10 - 5,
+            random.nextDouble() - 0.5, 0.4 + random.nextDouble() * 0.4, random.nextDouble() - 0.5);
+    }
+}
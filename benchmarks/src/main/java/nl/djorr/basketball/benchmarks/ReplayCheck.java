@@ -0,0 +1,76 @@
+package nl.djorr.basketball.benchmarks;
+
+import nl.djorr.basketball.utils.ThrowRecording;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+/**
+ * Replays every throw recording in {@code replays/} through the physics core
+ * and fails when one no longer gives its golden trajectory, or when there are
+ * none. Recordings come from a server with {@code debug.record_throws}
+ * enabled, or from {@link LoadSimulation} with {@code -Dload.recordThrows=true};
+ * copy the ones that show interesting bounces or scores into
+ * {@code benchmarks/replays/}.
+ * <p>
+ * Run by {@code mvn verify} in this module. A throw whose physics constants
+ * were changed on purpose is re-sealed with {@code -Dreplay.update=true}.
+ *
+ * @author Djorr
+ */
+public class ReplayCheck {
+
+    public static void main(String[] args) throws IOException {
+        File directory = new File(System.getProperty("replay.dir", "replays"));
+        boolean update = Boolean.getBoolean("replay.update");
+
+        File[] files = directory.listFiles((dir, name) -> name.endsWith(".throw"));
+        if (files == null || files.length == 0) {
+            // An empty check passes whatever the physics does, so it is a failure
+            System.err.println("FAILED: no recordings in " + directory);
+            System.exit(1);
+        }
+        Arrays.sort(files);
+
+        int failed = 0;
+        for (File file : files) {
+            ThrowRecording recording;
+            try (InputStream in = new BufferedInputStream(new FileInputStream(file))) {
+                recording = ThrowRecording.read(in);
+            }
+
+            if (!recording.isSnapshotIntact()) {
+                System.err.println("FAILED: " + file.getName() + " has a corrupt block snapshot");
+                failed++;
+                continue;
+            }
+
+            ThrowRecording.Replay replay = recording.replay();
+            if (recording.matchesGolden(replay)) {
+                System.out.println("  " + file.getName() + ": identical, " + replay.getTicks() + " ticks");
+            } else if (update) {
+                try (OutputStream out = new BufferedOutputStream(new FileOutputStream(file))) {
+                    recording.seal().write(out);
+                }
+                System.out.println("  " + file.getName() + ": re-sealed, " + replay.getTicks() + " ticks");
+            } else {
+                System.err.println("FAILED: " + file.getName() + " diverged at tick " + replay.getFirstLiveDifference() + ", "
+                    + replay.getTicks() + " ticks instead of " + recording.getGoldenTicks()
+                    + (recording.isProfileCurrent() ? "" : " (physics constants changed)"));
+                failed++;
+            }
+        }
+
+        System.out.println("Replay check: " + (files.length - failed) + "/" + files.length + " recordings identical");
+        if (failed > 0) {
+            System.exit(1);
+        }
+    }
+}
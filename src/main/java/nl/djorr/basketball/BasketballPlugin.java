@@ -2,13 +2,28 @@ package nl.djorr.basketball;
 
 import nl.djorr.basketball.commands.BasketballCommand;
 import nl.djorr.basketball.listeners.BasketballListener;
+import nl.djorr.basketball.listeners.CourtChunkListener;
+import nl.djorr.basketball.listeners.PlayerStatsListener;
 import nl.djorr.basketball.listeners.RegionListener;
 import nl.djorr.basketball.managers.BasketballManager;
 import nl.djorr.basketball.managers.ConfigManager;
+import nl.djorr.basketball.managers.CourtActivationManager;
 import nl.djorr.basketball.managers.DataManager;
 import nl.djorr.basketball.managers.HologramManager;
+import nl.djorr.basketball.managers.MetricsManager;
+import nl.djorr.basketball.managers.OutboundMessageManager;
+import nl.djorr.basketball.managers.ReplayRecorder;
 import nl.djorr.basketball.managers.ScoreManager;
+import nl.djorr.basketball.managers.TaskManager;
+import nl.djorr.basketball.managers.TimingsManager;
+import nl.djorr.basketball.managers.TraceManager;
+import nl.djorr.basketball.utils.FlightRecorderBridge;
+import nl.djorr.basketball.utils.NMSBridge;
+import org.bukkit.plugin.PluginDescriptionFile;
 import org.bukkit.plugin.java.JavaPlugin;
+import org.bukkit.plugin.java.JavaPluginLoader;
+
+import java.io.File;
 
 /**
  * Main plugin class for the Basketball plugin
@@ -20,10 +35,39 @@ public class BasketballPlugin extends JavaPlugin {
     private static BasketballPlugin instance;
     private ConfigManager configManager;
     private BasketballManager basketballManager;
+    private CourtActivationManager courtActivationManager;
     private ScoreManager scoreManager;
     private DataManager dataManager;
     private HologramManager hologramManager;
     private RegionListener regionListener;
+    private NMSBridge nmsBridge;
+    private FlightRecorderBridge flightRecorder;
+    private OutboundMessageManager outboundMessageManager;
+    private TimingsManager timingsManager;
+    private MetricsManager metricsManager;
+    private ReplayRecorder replayRecorder;
+    private TraceManager traceManager;
+    private TaskManager taskManager;
+    
+    /**
+     * Constructor used by the server's plugin loader
+     */
+    public BasketballPlugin() {
+        super();
+    }
+    
+    /**
+     * Constructor for running the plugin without a server, such as the
+     * headless load simulation in the benchmarks module
+     * 
+     * @param loader The plugin loader
+     * @param description The plugin.yml contents
+     * @param dataFolder The data folder
+     * @param file The plugin jar
+     */
+    protected BasketballPlugin(JavaPluginLoader loader, PluginDescriptionFile description, File dataFolder, File file) {
+        super(loader, description, dataFolder, file);
+    }
     
     @Override
     public void onEnable() {
@@ -31,15 +75,36 @@ public class BasketballPlugin extends JavaPlugin {
         
         // Initialize managers
         this.configManager = new ConfigManager(this);
+        this.timingsManager = new TimingsManager(configManager.isTimingsEnabled());
+        
+        // Track every repeating task from here on, and cancel runaway ones
+        this.taskManager = new TaskManager(this);
+        this.taskManager.start();
+        
+        this.traceManager = new TraceManager(this);
+        this.metricsManager = new MetricsManager(this);
+        this.replayRecorder = new ReplayRecorder(this);
+        
+        // Resolve the NMS packet layer once, before anything sends titles
+        this.nmsBridge = new NMSBridge(this);
+        
+        // Register the JFR event types, if the JVM has Flight Recorder
+        this.flightRecorder = new FlightRecorderBridge(this);
+        this.outboundMessageManager = new OutboundMessageManager(this);
+        
         this.basketballManager = new BasketballManager(this);
+        this.courtActivationManager = new CourtActivationManager(this);
         this.scoreManager = new ScoreManager(this);
         this.dataManager = new DataManager(this);
         this.hologramManager = new HologramManager(this);
         
-        // Load regions and player wins data
+        // Load regions and player wins data (parsed on a worker pool, registered here)
         this.dataManager.loadData();
         
-        // Clean up any existing basketball entities and blocks on startup
+        // Start journaling wins and periodic compaction
+        this.dataManager.start();
+        
+        // Clean up basketball entities now and leftover skull blocks over the next ticks
         this.basketballManager.cleanupBasketballsOnStartup();
         
         // Register listeners
@@ -48,10 +113,21 @@ public class BasketballPlugin extends JavaPlugin {
         
         getServer().getPluginManager().registerEvents(basketballListener, this);
         getServer().getPluginManager().registerEvents(this.regionListener, this);
+        getServer().getPluginManager().registerEvents(new PlayerStatsListener(this), this);
+        getServer().getPluginManager().registerEvents(new CourtChunkListener(this), this);
         
         // Start physics task
         basketballListener.startPhysicsTask();
         
+        // Start debounced leaderboard refresh
+        this.hologramManager.startRefreshTask();
+        
+        // Start the Prometheus exporter, if enabled
+        this.metricsManager.start();
+        
+        // Drain debug trace events to file
+        this.traceManager.start();
+        
         // Register commands
         getCommand("basketball").setExecutor(new BasketballCommand(this));
         
@@ -60,22 +136,46 @@ public class BasketballPlugin extends JavaPlugin {
     
     @Override
     public void onDisable() {
-        // Save regions and player wins data
+        if (metricsManager != null) {
+            metricsManager.stop();
+        }
+        
+        // Send any messages still queued for this tick
+        if (outboundMessageManager != null) {
+            outboundMessageManager.flush();
+        }
+        
+        // Save regions and player wins data and close the journal
         if (dataManager != null) {
-            dataManager.saveData();
+            dataManager.shutdown();
         }
         
         // Remove all holograms
         if (hologramManager != null) {
+            hologramManager.stopRefreshTask();
             hologramManager.removeAllPlayerHolograms();
             hologramManager.removeAllRegionHolograms();
         }
         
+        // Throws still in flight are not recorded
+        if (replayRecorder != null) {
+            replayRecorder.clear();
+        }
+        
         // Clean up basketball entities
         if (basketballManager != null) {
             basketballManager.removeAllBasketballs();
         }
         
+        // Write the last trace events
+        if (traceManager != null) {
+            traceManager.stop();
+        }
+        
+        if (taskManager != null) {
+            taskManager.stop();
+        }
+        
         getLogger().info("Basketball plugin has been disabled!");
     }
     
@@ -106,6 +206,60 @@ public class BasketballPlugin extends JavaPlugin {
         return basketballManager;
     }
     
+    /**
+     * Get the court activation manager
+     * 
+     * @return The court activation manager
+     */
+    public CourtActivationManager getCourtActivationManager() {
+        return courtActivationManager;
+    }
+    
+    /**
+     * Get the tick profiler
+     * 
+     * @return The timings manager
+     */
+    public TimingsManager getTimingsManager() {
+        return timingsManager;
+    }
+    
+    /**
+     * Get the task watchdog
+     * 
+     * @return The task manager
+     */
+    public TaskManager getTaskManager() {
+        return taskManager;
+    }
+    
+    /**
+     * Get the metrics exporter
+     * 
+     * @return The metrics manager
+     */
+    public MetricsManager getMetricsManager() {
+        return metricsManager;
+    }
+    
+    /**
+     * Get the debug tracer
+     * 
+     * @return The trace manager
+     */
+    public TraceManager getTraceManager() {
+        return traceManager;
+    }
+    
+    /**
+     * Get the throw recorder
+     * 
+     * @return The replay recorder
+     */
+    public ReplayRecorder getReplayRecorder() {
+        return replayRecorder;
+    }
+    
     /**
      * Get the score manager
      * 
@@ -133,6 +287,33 @@ public class BasketballPlugin extends JavaPlugin {
         return hologramManager;
     }
 
+    /**
+     * Get the NMS packet bridge
+     * 
+     * @return The NMS bridge
+     */
+    public NMSBridge getNMSBridge() {
+        return nmsBridge;
+    }
+    
+    /**
+     * Get the Java Flight Recorder bridge
+     * 
+     * @return The flight recorder bridge
+     */
+    public FlightRecorderBridge getFlightRecorder() {
+        return flightRecorder;
+    }
+
+    /**
+     * Get the outbound message manager
+     * 
+     * @return The outbound message manager
+     */
+    public OutboundMessageManager getOutboundMessageManager() {
+        return outboundMessageManager;
+    }
+
     /**
      * Get the region listener
      * 
@@ -1,18 +1,29 @@
 package nl.djorr.basketball.commands;
 
 import nl.djorr.basketball.BasketballPlugin;
+import nl.djorr.basketball.managers.TaskManager;
+import nl.djorr.basketball.managers.TimingsManager;
+import nl.djorr.basketball.managers.TraceManager;
 import nl.djorr.basketball.objects.BasketballRegion;
+import nl.djorr.basketball.storage.MatchHistory;
+import nl.djorr.basketball.utils.LatencyHistogram;
+import nl.djorr.basketball.utils.ThrowRecording;
 import org.bukkit.ChatColor;
 import org.bukkit.Location;
+import org.bukkit.OfflinePlayer;
 import org.bukkit.command.Command;
 import org.bukkit.command.CommandExecutor;
 import org.bukkit.command.CommandSender;
 import org.bukkit.entity.Player;
 
+import java.io.IOException;
+import java.text.SimpleDateFormat;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
+import java.util.UUID;
 
 /**
  * Command executor for basketball commands
@@ -56,12 +67,311 @@ public class BasketballCommand implements CommandExecutor {
                 handleLeaderboardCommand(sender, args);
                 return true;
                 
+            case "history":
+                if (args.length < 2) {
+                    sender.sendMessage(ChatColor.RED + "Usage: /basketbal history <region|player <name>> [count]");
+                    return true;
+                }
+                handleHistoryCommand(sender, args);
+                return true;
+                
+            case "timings":
+                handleTimingsCommand(sender, args);
+                return true;
+                
+            case "replay":
+                handleReplayCommand(sender, args);
+                return true;
+                
+            case "trace":
+                handleTraceCommand(sender, args);
+                return true;
+                
+            case "tasks":
+                handleTasksCommand(sender, args);
+                return true;
+                
             default:
                 showHelp(sender);
                 return true;
         }
     }
     
+    /**
+     * Handle history queries. The index is read off the main thread.
+     */
+    @SuppressWarnings("deprecation")
+    private void handleHistoryCommand(CommandSender sender, String[] args) {
+        MatchHistory history = plugin.getDataManager().getMatchHistory();
+        if (history == null) {
+            sender.sendMessage(ChatColor.RED + "Match history is disabled!");
+            return;
+        }
+        
+        boolean byPlayer = args[1].equalsIgnoreCase("player");
+        if (byPlayer && args.length < 3) {
+            sender.sendMessage(ChatColor.RED + "Usage: /basketbal history player <name> [count]");
+            return;
+        }
+        
+        String target = byPlayer ? args[2] : args[1];
+        int countIndex = byPlayer ? 3 : 2;
+        int count = 5;
+        if (args.length > countIndex) {
+            try {
+                count = Math.max(1, Math.min(20, Integer.parseInt(args[countIndex])));
+            } catch (NumberFormatException e) {
+                sender.sendMessage(ChatColor.RED + "Invalid count!");
+                return;
+            }
+        }
+        
+        if (!byPlayer && plugin.getBasketballManager().getRegion(target) == null) {
+            sender.sendMessage(ChatColor.RED + "Region '" + target + "' not found!");
+            return;
+        }
+        
+        int limit = count;
+        plugin.getServer().getScheduler().runTaskAsynchronously(plugin, () -> {
+            // Name lookups of unknown players can block, so they are done here too
+            List<MatchHistory.GameSummary> games;
+            if (byPlayer) {
+                UUID playerUUID = plugin.getServer().getOfflinePlayer(target).getUniqueId();
+                games = history.getPlayerGames(playerUUID, limit);
+            } else {
+                games = history.getRecentGames(target, limit);
+            }
+            
+            plugin.getServer().getScheduler().runTask(plugin, () -> showHistory(sender, target, games));
+        });
+    }
+    
+    /**
+     * Show a list of games
+     */
+    private void showHistory(CommandSender sender, String target, List<MatchHistory.GameSummary> games) {
+        if (games.isEmpty()) {
+            sender.sendMessage(ChatColor.YELLOW + "No games found for " + target + ".");
+            return;
+        }
+        
+        SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd HH:mm");
+        sender.sendMessage(ChatColor.GOLD + "Recent games for " + ChatColor.YELLOW + target + ChatColor.GOLD + ":");
+        for (MatchHistory.GameSummary game : games) {
+            String winner = "-";
+            if (game.getWinner() != null) {
+                OfflinePlayer player = plugin.getServer().getOfflinePlayer(game.getWinner());
+                winner = player.getName() != null ? player.getName() : game.getWinner().toString().substring(0, 8);
+            }
+            long minutes = Math.max(0, game.getEndTime() - game.getStartTime()) / 60000;
+            sender.sendMessage(ChatColor.GRAY + format.format(new Date(game.getStartTime())) + " " +
+                ChatColor.AQUA + game.getCourt() + ChatColor.GRAY + " (" + minutes + " min, " +
+                game.getPlayers().size() + " players) " + ChatColor.WHITE + "Winner: " + ChatColor.GREEN + winner);
+        }
+    }
+    
+    /**
+     * Show or reset the tick profiler
+     */
+    private void handleTimingsCommand(CommandSender sender, String[] args) {
+        TimingsManager timings = plugin.getTimingsManager();
+        if (!timings.isEnabled()) {
+            sender.sendMessage(ChatColor.RED + "Timings are disabled!");
+            return;
+        }
+        
+        if (args.length > 1 && args[1].equalsIgnoreCase("reset")) {
+            timings.reset();
+            sender.sendMessage(ChatColor.GREEN + "Timings reset.");
+            return;
+        }
+        
+        long seconds = (System.currentTimeMillis() - timings.getResetAt()) / 1000;
+        sender.sendMessage(ChatColor.GOLD + "Timings over the last " + seconds + "s (p50 / p99 / max):");
+        boolean any = false;
+        for (Map.Entry<String, TimingsManager.Section> entry : timings.getSections().entrySet()) {
+            LatencyHistogram total = entry.getValue().getTotal();
+            if (total.getCount() == 0) {
+                continue;
+            }
+            any = true;
+            sender.sendMessage(ChatColor.YELLOW + entry.getKey() + ChatColor.GRAY + " x" + total.getCount() + " " + formatLatency(total));
+            for (Map.Entry<String, LatencyHistogram> court : entry.getValue().getCourts().entrySet()) {
+                if (court.getValue().getCount() > 0) {
+                    sender.sendMessage(ChatColor.GRAY + "  " + ChatColor.AQUA + court.getKey() + ChatColor.GRAY +
+                        " x" + court.getValue().getCount() + " " + formatLatency(court.getValue()));
+                }
+            }
+        }
+        
+        if (!any) {
+            sender.sendMessage(ChatColor.YELLOW + "Nothing recorded yet.");
+        }
+    }
+    
+    /**
+     * List the tracked tasks, oldest first, and the runaway tasks cancelled so far
+     */
+    private void handleTasksCommand(CommandSender sender, String[] args) {
+        int count = 10;
+        if (args.length > 1) {
+            try {
+                count = Math.max(1, Math.min(100, Integer.parseInt(args[1])));
+            } catch (NumberFormatException e) {
+                sender.sendMessage(ChatColor.RED + "Invalid count!");
+                return;
+            }
+        }
+        
+        TaskManager tasks = plugin.getTaskManager();
+        List<TaskManager.TrackedTask> tracked = tasks.getTasks();
+        sender.sendMessage(ChatColor.GOLD + "Tasks: " + ChatColor.WHITE + tracked.size() + ChatColor.GRAY + " tracked, " +
+            tasks.countUntracked() + " untracked, " + tasks.getCancelled() + " runaway tasks cancelled");
+        for (Map.Entry<String, Integer> offender : tasks.getOffenders().entrySet()) {
+            sender.sendMessage(ChatColor.GRAY + "  " + ChatColor.RED + offender.getKey() + ChatColor.GRAY + " x" + offender.getValue() + " cancelled");
+        }
+        
+        long now = tasks.getCurrentTick();
+        for (int i = 0; i < tracked.size() && i < count; i++) {
+            TaskManager.TrackedTask task = tracked.get(i);
+            StringBuilder line = new StringBuilder();
+            line.append(ChatColor.YELLOW).append('#').append(task.getTaskId()).append(' ').append(task.getOwner());
+            if (task.getKind() != null) {
+                line.append(ChatColor.GRAY).append('/').append(task.getKind());
+            }
+            if (task.getCourt() != null) {
+                line.append(' ').append(ChatColor.AQUA).append(task.getCourt());
+            }
+            line.append(ChatColor.GRAY).append(" age ").append(now - task.getStartTick()).append('t');
+            if (task.getRuns() >= 0) {
+                line.append(", ").append(task.getRuns()).append(" runs");
+            }
+            line.append(task.getMaxLifetime() > 0 ? ", limit " + task.getMaxLifetime() + "t" : ", no limit");
+            sender.sendMessage(line.toString());
+        }
+        if (tracked.size() > count) {
+            sender.sendMessage(ChatColor.GRAY + "... and " + (tracked.size() - count) + " more, use /basketbal tasks <count>");
+        }
+    }
+    
+    /**
+     * Show the trace status, or the last events of a player or court
+     */
+    private void handleTraceCommand(CommandSender sender, String[] args) {
+        TraceManager trace = plugin.getTraceManager();
+        if (!trace.isEnabled()) {
+            sender.sendMessage(ChatColor.RED + "Tracing is off, enable debug.enabled first!");
+            return;
+        }
+        
+        if (args.length < 3) {
+            sender.sendMessage(ChatColor.GOLD + "Trace: " + ChatColor.WHITE + trace.getRecorded() + ChatColor.GRAY +
+                " events recorded, last " + trace.getCapacity() + " kept, " + trace.getLost() + " lost before the file");
+            StringBuilder rates = new StringBuilder();
+            for (TraceManager.Category category : TraceManager.Category.values()) {
+                int rate = trace.getSampleRate(category);
+                rates.append(ChatColor.YELLOW).append(category.getKey()).append(ChatColor.GRAY)
+                    .append(rate == 0 ? " off  " : " 1/" + rate + "  ");
+            }
+            sender.sendMessage(rates.toString().trim());
+            sender.sendMessage(ChatColor.GRAY + "Usage: /basketbal trace <player|court> <name> [count]");
+            return;
+        }
+        
+        boolean byPlayer = args[1].equalsIgnoreCase("player");
+        if (!byPlayer && !args[1].equalsIgnoreCase("court")) {
+            sender.sendMessage(ChatColor.RED + "Usage: /basketbal trace <player|court> <name> [count]");
+            return;
+        }
+        
+        int count = 10;
+        if (args.length > 3) {
+            try {
+                count = Math.max(1, Math.min(100, Integer.parseInt(args[3])));
+            } catch (NumberFormatException e) {
+                sender.sendMessage(ChatColor.RED + "Invalid count!");
+                return;
+            }
+        }
+        
+        String name = args[2];
+        int limit = count;
+        plugin.getServer().getScheduler().runTaskAsynchronously(plugin, () -> {
+            List<String> events = byPlayer ? trace.dump(name, null, limit) : trace.dump(null, name, limit);
+            plugin.getServer().getScheduler().runTask(plugin, () -> {
+                if (events.isEmpty()) {
+                    sender.sendMessage(ChatColor.YELLOW + "No trace events for " + name + ".");
+                    return;
+                }
+                sender.sendMessage(ChatColor.GOLD + "Last " + events.size() + " trace events for " + name + " (newest first):");
+                for (String event : events) {
+                    sender.sendMessage(ChatColor.GRAY + event);
+                }
+            });
+        });
+    }
+    
+    /**
+     * List the throw recordings, or replay one through the physics core off
+     * the main thread
+     */
+    private void handleReplayCommand(CommandSender sender, String[] args) {
+        if (args.length < 2) {
+            String[] names = plugin.getReplayRecorder().list();
+            if (names.length == 0) {
+                sender.sendMessage(ChatColor.YELLOW + "No throws recorded" +
+                    (plugin.getConfigManager().isReplayEnabled() ? "." : ", enable debug.record_throws first."));
+                return;
+            }
+            sender.sendMessage(ChatColor.GOLD + "Recorded throws (newest first):");
+            for (int i = 0; i < Math.min(10, names.length); i++) {
+                sender.sendMessage(ChatColor.GRAY + "- " + ChatColor.WHITE + names[i]);
+            }
+            return;
+        }
+        
+        String name = args[1];
+        plugin.getServer().getScheduler().runTaskAsynchronously(plugin, () -> {
+            List<String> lines = new ArrayList<>();
+            try {
+                ThrowRecording recording = plugin.getReplayRecorder().load(name);
+                ThrowRecording.Replay replay = recording.replay();
+                lines.add(ChatColor.GOLD + "Replay of " + name + ChatColor.GRAY + " (court " + recording.getCourt() + ")");
+                lines.add(ChatColor.YELLOW + "Ticks: " + ChatColor.WHITE + replay.getTicks() + ChatColor.GRAY +
+                    " (live " + recording.getLiveTicks() + "), ended " + replay.getEnd().name().toLowerCase());
+                lines.add(recording.matchesGolden(replay)
+                    ? ChatColor.GREEN + "Identical to the recorded trajectory."
+                    : ChatColor.RED + "Trajectory differs from the recording!");
+                if (!recording.isProfileCurrent()) {
+                    lines.add(ChatColor.YELLOW + "Physics constants changed since this throw was recorded.");
+                }
+                if (!recording.isSnapshotIntact()) {
+                    lines.add(ChatColor.RED + "Block snapshot is corrupt!");
+                }
+                if (replay.getFirstLiveDifference() > 0) {
+                    lines.add(ChatColor.YELLOW + "First tick that differs from the live ball: " + ChatColor.WHITE +
+                        replay.getFirstLiveDifference());
+                }
+            } catch (IOException e) {
+                lines.add(ChatColor.RED + "Could not read recording '" + name + "': " + e.getMessage());
+            }
+            
+            plugin.getServer().getScheduler().runTask(plugin, () -> {
+                for (String line : lines) {
+                    sender.sendMessage(line);
+                }
+            });
+        });
+    }
+    
+    /**
+     * Format the p50, p99 and max of a histogram in milliseconds
+     */
+    private String formatLatency(LatencyHistogram histogram) {
+        return ChatColor.WHITE + String.format("%.3f / %.3f / %.3f ms",
+            histogram.getValueAt(0.5) / 1e6, histogram.getValueAt(0.99) / 1e6, histogram.getMax() / 1e6);
+    }
+    
     /**
      * Handle region subcommands
      */
@@ -237,7 +547,7 @@ public class BasketballCommand implements CommandExecutor {
             String locationStr = formatLocation(center);
             
             // Count players in region
-            Set<Player> playersInRegion = region.getPlayersInRegion();
+            Collection<Player> playersInRegion = region.getPlayersInRegion();
             int playerCount = playersInRegion.size();
             
             String line = ChatColor.GOLD + "║" + ChatColor.AQUA + " " + regionName + 
@@ -399,6 +709,12 @@ public class BasketballCommand implements CommandExecutor {
         sender.sendMessage(ChatColor.GOLD + "║" + ChatColor.WHITE + " /basketbal leaderboard create <region>" + ChatColor.GOLD + " ║");
         sender.sendMessage(ChatColor.GOLD + "║" + ChatColor.WHITE + " /basketbal leaderboard delete <region>" + ChatColor.GOLD + " ║");
         sender.sendMessage(ChatColor.GOLD + "║" + ChatColor.WHITE + " /basketbal leaderboard list [page]" + ChatColor.GOLD + "   ║");
+        sender.sendMessage(ChatColor.GOLD + "║" + ChatColor.WHITE + " /basketbal history <region> [count]" + ChatColor.GOLD + "  ║");
+        sender.sendMessage(ChatColor.GOLD + "║" + ChatColor.WHITE + " /basketbal history player <name>" + ChatColor.GOLD + "     ║");
+        sender.sendMessage(ChatColor.GOLD + "║" + ChatColor.WHITE + " /basketbal timings [reset]" + ChatColor.GOLD + "           ║");
+        sender.sendMessage(ChatColor.GOLD + "║" + ChatColor.WHITE + " /basketbal replay [name]" + ChatColor.GOLD + "             ║");
+        sender.sendMessage(ChatColor.GOLD + "║" + ChatColor.WHITE + " /basketbal trace <player|court>" + ChatColor.GOLD + "      ║");
+        sender.sendMessage(ChatColor.GOLD + "║" + ChatColor.WHITE + " /basketbal tasks [count]" + ChatColor.GOLD + "             ║");
         sender.sendMessage(ChatColor.GOLD + "╚══════════════════════════════════════╝");
     }
 } 
\ No newline at end of file
@@ -2,10 +2,16 @@ package nl.djorr.basketball.listeners;
 
 import nl.djorr.basketball.BasketballPlugin;
 import nl.djorr.basketball.objects.Basketball;
+import nl.djorr.basketball.managers.MetricsManager;
+import nl.djorr.basketball.managers.TimingsManager;
+import nl.djorr.basketball.managers.TraceManager;
 import nl.djorr.basketball.objects.BasketballRegion;
 import nl.djorr.basketball.utils.ItemUtil;
 import nl.djorr.basketball.utils.BasketballAnimation;
 import nl.djorr.basketball.utils.BasketballTextureUtil;
+import nl.djorr.basketball.utils.FlightRecorderBridge;
+import nl.djorr.basketball.utils.InteractionGate;
+import nl.djorr.basketball.utils.TimedRunnable;
 import org.bukkit.Location;
 import org.bukkit.Material;
 import org.bukkit.entity.Entity;
@@ -20,13 +26,15 @@ import org.bukkit.event.player.PlayerInteractEvent;
 import org.bukkit.event.player.PlayerToggleSneakEvent;
 import org.bukkit.inventory.ItemStack;
 import org.bukkit.scheduler.BukkitRunnable;
+import org.bukkit.scheduler.BukkitTask;
 import org.bukkit.event.player.PlayerQuitEvent;
 import org.bukkit.event.player.PlayerMoveEvent;
 import org.bukkit.Bukkit;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.UUID;
 import org.bukkit.event.entity.PlayerDeathEvent;
-import java.lang.reflect.Field;
 import org.bukkit.ChatColor;
 
 /**
@@ -40,7 +48,10 @@ public class BasketballListener implements Listener {
     public static BasketballListener instance;
     
     // Map om per speler de auto-drop runnable te beheren
-    private final Map<Player, BukkitRunnable> autoDropTasks = new HashMap<>();
+    private final Map<UUID, BukkitRunnable> autoDropTasks = new HashMap<>();
+    
+    // Token bucket per speler, zodat spam-klikken in een court begrensd blijft
+    private final InteractionGate interactionGate;
     
     /**
      * Constructor for BasketballListener
@@ -49,6 +60,8 @@ public class BasketballListener implements Listener {
      */
     public BasketballListener(BasketballPlugin plugin) {
         this.plugin = plugin;
+        this.interactionGate = new InteractionGate(plugin.getConfigManager().getInteractionBurst(),
+            plugin.getConfigManager().getInteractionRate());
         instance = this;
     }
     
@@ -92,10 +105,8 @@ public class BasketballListener implements Listener {
                 
                 // Throw the basketball with animation
                 plugin.getBasketballManager().throwBasketball(player, basketball);
-                
-                if (plugin.getConfigManager().isDebugEnabled()) {
-                    plugin.getLogger().info("Player " + player.getName() + " threw basketball in region: " + regionName);
-                }
+                plugin.getDataManager().recordThrow(regionName, player.getUniqueId());
+                plugin.getTraceManager().trace(TraceManager.Event.INTERACT_THROW, player.getName(), regionName);
             }
         }
     }
@@ -106,7 +117,9 @@ public class BasketballListener implements Listener {
      * Handle basketball physics using a scheduled task
      */
     public void startPhysicsTask() {
-        new org.bukkit.scheduler.BukkitRunnable() {
+        TimingsManager.Section physicsTimings = plugin.getTimingsManager().section(TimingsManager.PHYSICS);
+        TimingsManager.Section scoreTimings = plugin.getTimingsManager().section(TimingsManager.SCORE_CHECK);
+        BukkitTask task = new org.bukkit.scheduler.BukkitRunnable() {
             private int tickCounter = 0;
             
             @Override
@@ -126,19 +139,35 @@ public class BasketballListener implements Listener {
                     return; // Skip processing if no thrown basketballs
                 }
                 
-                for (Basketball basketball : plugin.getBasketballManager().getBasketballs().values()) {
+                TimingsManager timings = plugin.getTimingsManager();
+                MetricsManager metrics = plugin.getMetricsManager();
+                FlightRecorderBridge flightRecorder = plugin.getFlightRecorder();
+                // Physics and scoring remove balls that land or score, so iterate over a copy
+                for (Basketball basketball : new ArrayList<>(plugin.getBasketballManager().getBasketballs().values())) {
                     if (basketball.isThrown()) {
                         // Handle physics
+                        Object jfrEvent = flightRecorder.start(FlightRecorderBridge.Kind.PHYSICS_STEP);
+                        long start = timings.start();
+                        long metricsStart = metrics.startPhysicsStep();
                         plugin.getBasketballManager().handlePhysics(basketball);
+                        metrics.recordPhysicsStep(metricsStart);
+                        physicsTimings.stop(start, basketball.getRegionName());
+                        if (jfrEvent != null) {
+                            flightRecorder.commit(FlightRecorderBridge.Kind.PHYSICS_STEP, jfrEvent, basketball.getRegionName(),
+                                basketball.getEntity() != null ? basketball.getEntity().getUniqueId() : null, basketball.getBounces());
+                        }
                         
                         // Check for scoring (only every 2 ticks to reduce lag)
                         if (tickCounter % 2 == 0) {
+                            start = timings.start();
                             checkForScore(basketball);
+                            scoreTimings.stop(start, basketball.getRegionName());
                         }
                     }
                 }
             }
         }.runTaskTimer(plugin, 1L, 2L); // Run every 2 ticks for better performance but still frequent enough
+        plugin.getTaskManager().track(task, "BasketballListener");
     }
     
     /**
@@ -160,21 +189,47 @@ public class BasketballListener implements Listener {
      */
     @EventHandler
     public void onPlayerInteract(PlayerInteractEvent event) {
+        // Only air clicks and left-clicks on blocks are handled, not steps on pressure plates
+        Action action = event.getAction();
+        if (action == Action.PHYSICAL || action == Action.RIGHT_CLICK_BLOCK) {
+            return;
+        }
+        
         Player player = event.getPlayer();
+        boolean skullClick = action == Action.LEFT_CLICK_BLOCK && event.getClickedBlock() != null
+            && event.getClickedBlock().getType() == Material.SKULL;
+        
+        // Every click below needs a court, so clicks outside one are dropped on the cached
+        // membership. Skull clicks still go through, so basketball skulls stay protected.
+        String regionName = plugin.getRegionListener().getPlayerRegion(player);
+        BasketballRegion cachedRegion = regionName != null ? plugin.getBasketballManager().getRegion(regionName) : null;
+        if (cachedRegion == null && !skullClick) {
+            return;
+        }
+        
+        // Clicks over the player's rate are ignored, a skull is kept as if it were a basketball
+        if (!interactionGate.tryAcquire(player.getUniqueId(), System.nanoTime())) {
+            if (skullClick) {
+                event.setCancelled(true);
+            }
+            plugin.getTraceManager().trace(TraceManager.Event.INTERACT_REJECTED, player.getName(), regionName, "rate limited");
+            return;
+        }
+        
         ItemStack item = event.getItem();
         
         // Handle right-clicking with basketball item (place basketball)
-        if (item != null && ItemUtil.isBasketballItem(item) && event.getAction() == Action.RIGHT_CLICK_AIR) {
+        if (item != null && action == Action.RIGHT_CLICK_AIR && ItemUtil.isBasketballItem(item)) {
             // Place basketball in world
             event.setCancelled(true);
             
             // Remove item from inventory - find and remove the basketball item with NBT tag
             if (removeBasketballFromInventory(player)) {
                 // Find basketball region for player
-                BasketballRegion region = getBasketballRegionForPlayer(player);
+                BasketballRegion region = cachedRegion;
                 if (region != null) {
                     // Create basketball at player location
-                    Basketball basketball = plugin.getBasketballManager().createBasketball(player.getLocation());
+                    Basketball basketball = plugin.getBasketballManager().createBasketball(player.getLocation(), region.getRegionName());
                     region.setCurrentBasketball(basketball);
                     
                     player.sendMessage(plugin.getConfigManager().getMessageWithPrefix("basketball_spawned"));
@@ -185,18 +240,11 @@ public class BasketballListener implements Listener {
         }
         
         // Handle left-click pickup of basketball blocks (PRIORITY)
-        if (event.getAction() == Action.LEFT_CLICK_BLOCK) {
-            if (plugin.getConfigManager().isDebugEnabled()) {
-                plugin.getLogger().info("Player " + player.getName() + " left-clicked block: " + 
-                    (event.getClickedBlock() != null ? event.getClickedBlock().getType() : "null"));
-            }
+        if (action == Action.LEFT_CLICK_BLOCK) {
+            TraceManager trace = plugin.getTraceManager();
             
             // Check if the clicked block is a basketball skull
-            if (event.getClickedBlock() != null && event.getClickedBlock().getType() == Material.SKULL) {
-                if (plugin.getConfigManager().isDebugEnabled()) {
-                    plugin.getLogger().info("Clicked block is a SKULL");
-                }
-                
+            if (skullClick) {
                 org.bukkit.block.BlockState state = event.getClickedBlock().getState();
                 if (state instanceof org.bukkit.block.Skull) {
                     org.bukkit.block.Skull skull = (org.bukkit.block.Skull) state;
@@ -206,26 +254,17 @@ public class BasketballListener implements Listener {
                         // Get the material data from the skull block
                         org.bukkit.material.Skull materialSkull = (org.bukkit.material.Skull) skull.getData();
                         
-                        if (plugin.getConfigManager().isDebugEnabled()) {
-                            plugin.getLogger().info("Checking skull block - Type: " + skull.getSkullType() + 
-                                ", Material: " + materialSkull.getItemType() + ", Data: " + materialSkull.getData());
-                        }
+                        boolean basketballSkull = BasketballTextureUtil.isBasketballSkull(materialSkull);
+                        trace.trace(TraceManager.Event.INTERACT_BLOCK, player.getName(), null,
+                            materialSkull.getData(), basketballSkull ? 1 : 0, 0, Material.SKULL);
                         
-                        if (BasketballTextureUtil.isBasketballSkull(materialSkull)) {
-                            if (plugin.getConfigManager().isDebugEnabled()) {
-                                plugin.getLogger().info("This is a basketball skull block!");
-                            }
-                            
+                        if (basketballSkull) {
                             // This is a basketball block!
                             event.setCancelled(true);
                             
                             // Check if player is in a basketball region
-                            BasketballRegion region = getBasketballRegionForPlayer(player);
+                            BasketballRegion region = cachedRegion;
                             if (region != null) {
-                                if (plugin.getConfigManager().isDebugEnabled()) {
-                                    plugin.getLogger().info("Player is in region, removing block and adding to inventory");
-                                }
-                                
                                 // Remove the basketball block
                                 event.getClickedBlock().setType(Material.AIR);
                                 
@@ -239,77 +278,70 @@ public class BasketballListener implements Listener {
                                 
                                 // Particle effect
                                 Location blockLoc = event.getClickedBlock().getLocation().add(0.5, 0.5, 0.5);
-                                blockLoc.getWorld().spawnParticle(org.bukkit.Particle.CLOUD, blockLoc, 20, 0.3, 0.3, 0.3, 0.05);
-                                blockLoc.getWorld().spawnParticle(org.bukkit.Particle.CRIT, blockLoc, 10, 0.2, 0.2, 0.2, 0.1);
+                                plugin.getMetricsManager().spawnParticle(MetricsManager.Effect.PICKUP, blockLoc.getWorld(), org.bukkit.Particle.CLOUD, blockLoc, 20, 0.3, 0.3, 0.3, 0.05);
+                                plugin.getMetricsManager().spawnParticle(MetricsManager.Effect.PICKUP, blockLoc.getWorld(), org.bukkit.Particle.CRIT, blockLoc, 10, 0.2, 0.2, 0.2, 0.1);
                                 // Geluid
-                                blockLoc.getWorld().playSound(blockLoc, org.bukkit.Sound.ENTITY_SLIME_SQUISH, 0.8f, 1.2f);
+                                plugin.getMetricsManager().playSound(MetricsManager.Effect.PICKUP, blockLoc.getWorld(), blockLoc, org.bukkit.Sound.ENTITY_SLIME_SQUISH, 0.8f, 1.2f);
                                 
-                                if (plugin.getConfigManager().isDebugEnabled()) {
-                                    plugin.getLogger().info("Player " + player.getName() + " picked up basketball block");
-                                }
+                                trace.trace(TraceManager.Event.INTERACT_PICKUP, player.getName(), region.getRegionName(), "block");
                                 
                                 // Return early to prevent legacy entity pickup
                                 return;
                             } else {
-                                if (plugin.getConfigManager().isDebugEnabled()) {
-                                    plugin.getLogger().info("Player is not in a basketball region");
-                                }
-                            }
-                        } else {
-                            if (plugin.getConfigManager().isDebugEnabled()) {
-                                // Get more debug info about the skull
-                                plugin.getLogger().info("Material skull data: " + materialSkull.getData() + " (Expected: 3 for player skull)");
-                                plugin.getLogger().info("Skull is not a basketball skull - Data check failed");
+                                trace.trace(TraceManager.Event.INTERACT_REJECTED, player.getName(), null, "not in a court");
                             }
                         }
                     } catch (Exception e) {
-                        if (plugin.getConfigManager().isDebugEnabled()) {
-                            plugin.getLogger().warning("Error checking basketball block: " + e.getMessage());
-                        }
+                        trace.trace(TraceManager.Event.INTERACT_REJECTED, player.getName(), null, e.getMessage());
                     }
                 } else {
-                    if (plugin.getConfigManager().isDebugEnabled()) {
-                        plugin.getLogger().info("Block state is not a skull");
-                    }
+                    trace.trace(TraceManager.Event.INTERACT_REJECTED, player.getName(), null, "block state is not a skull");
                 }
             } else {
-                if (plugin.getConfigManager().isDebugEnabled()) {
-                    plugin.getLogger().info("Clicked block is not a SKULL");
-                }
+                trace.trace(TraceManager.Event.INTERACT_BLOCK, player.getName(), null, -1, 0, 0,
+                    event.getClickedBlock() != null ? event.getClickedBlock().getType() : null);
             }
         }
         
         // Handle left-click pickup of basketballs (legacy entity pickup) - ONLY if no block was picked up
-        if (event.getAction() == Action.LEFT_CLICK_AIR || event.getAction() == Action.LEFT_CLICK_BLOCK) {
-            handleLegacyEntityPickup(player);
+        if ((action == Action.LEFT_CLICK_AIR || action == Action.LEFT_CLICK_BLOCK) && cachedRegion != null) {
+            handleLegacyEntityPickup(player, cachedRegion);
         }
     }
     
     /**
      * Handle legacy entity pickup (for backward compatibility)
+     * 
+     * @param player The player
+     * @param region The court the player is in
      */
-    private void handleLegacyEntityPickup(Player player) {
-        // Check if there's a basketball nearby that can be picked up
-        for (Basketball basketball : plugin.getBasketballManager().getBasketballs().values()) {
-            if (plugin.getBasketballManager().isInPickupRange(player, basketball)) {
-                // Check if region is not animating
-                BasketballRegion region = getBasketballRegionForPlayer(player);
-                if (region != null && !region.isAnimating()) {
-                    // Pick up the basketball (region update happens in pickupBasketball)
-                    plugin.getBasketballManager().pickupBasketball(player, basketball);
-                    
-                    // Debug logging
-                    if (plugin.getConfigManager().isDebugEnabled()) {
-                        plugin.getLogger().info("Player " + player.getName() + " picked up basketball via left-click");
-                    }
-                    
-                    // Voeg na pickupBasketball() aanroep toe:
-                    startAutoDropTask(player);
-                    
+    private void handleLegacyEntityPickup(Player player, BasketballRegion region) {
+        // Check if region is not animating
+        if (region.isAnimating()) {
+            return;
+        }
+        
+        // Check if there's a basketball of this court nearby that can be picked up
+        Location playerLocation = player.getLocation();
+        Basketball basketball = region.getNearestBallWithin(playerLocation, plugin.getBasketballManager().getEffectivePickupRange());
+        if (basketball == null) {
+            // Balls without a court are not in any court's grid
+            for (Basketball candidate : plugin.getBasketballManager().getCourtlessBasketballs()) {
+                if (plugin.getBasketballManager().isInPickupRange(playerLocation, candidate)) {
+                    basketball = candidate;
                     break;
                 }
             }
         }
+        if (basketball != null) {
+            // Pick up the basketball (region update happens in pickupBasketball)
+            plugin.getBasketballManager().pickupBasketball(player, basketball);
+            
+            plugin.getTraceManager().trace(TraceManager.Event.INTERACT_PICKUP, player.getName(), region.getRegionName(), "entity");
+            
+            // Voeg na pickupBasketball() aanroep toe:
+            startAutoDropTask(player);
+        }
     }
     
     /**
@@ -318,6 +350,9 @@ public class BasketballListener implements Listener {
     @EventHandler
     public void onPlayerQuit(PlayerQuitEvent event) {
         Player player = event.getPlayer();
+        plugin.getOutboundMessageManager().clear(player);
+        interactionGate.remove(player.getUniqueId());
+        
         BasketballRegion region = getBasketballRegionForPlayer(player);
         if (region != null) {
             if (plugin.getBasketballManager().hasBasketballInInventory(player)) {
@@ -367,7 +402,7 @@ public class BasketballListener implements Listener {
         
         // Find the region this basketball belongs to
         for (BasketballRegion region : plugin.getBasketballManager().getRegions().values()) {
-            if (region.getCurrentBasketball() == basketball) {
+            if (region.isActive() && region.getCurrentBasketball() == basketball) {
                 // Check if ball is near a hoop (hopper)
                 if (region.isNearHoop(ballLocation)) {
                     // Check if ball is at the right height for scoring
@@ -392,17 +427,10 @@ public class BasketballListener implements Listener {
      * @param hopperLocation The hopper location
      */
     private void handleHopperScore(Basketball basketball, BasketballRegion region, Location hopperLocation) {
-        // Find the player who threw the basketball (closest player)
-        Player scoringPlayer = null;
-        double closestDistance = Double.MAX_VALUE;
+        Object jfrEvent = plugin.getFlightRecorder().start(FlightRecorderBridge.Kind.SCORE);
         
-        for (Player player : region.getPlayersInRegion()) {
-            double distance = player.getLocation().distance(basketball.getLocation());
-            if (distance < closestDistance) {
-                closestDistance = distance;
-                scoringPlayer = player;
-            }
-        }
+        // Find the player who threw the basketball (closest player)
+        Player scoringPlayer = region.getNearestPlayer(basketball.getLocation());
         
         if (scoringPlayer != null) {
             // Add score
@@ -424,6 +452,9 @@ public class BasketballListener implements Listener {
             // Add score animation
             BasketballAnimation animation = new BasketballAnimation(plugin);
             animation.animateBasketballScore(hopperLocation, region);
+            
+            plugin.getFlightRecorder().commit(FlightRecorderBridge.Kind.SCORE, jfrEvent, region.getRegionName(),
+                basketball.getEntity().getUniqueId(), points);
         }
     }
     
@@ -447,12 +478,12 @@ public class BasketballListener implements Listener {
         Basketball fallingBasketball = plugin.getBasketballManager().createBasketball(fallStart);
         
         // Animate falling
-        new BukkitRunnable() {
+        new TimedRunnable(TimingsManager.EFFECTS, region.getRegionName()) {
             private int ticks = 0;
             private final int maxTicks = 40; // 2 seconds
             
             @Override
-            public void run() {
+            protected void tick() {
                 ticks++;
                 double progress = (double) ticks / maxTicks;
                 
@@ -505,10 +536,10 @@ public class BasketballListener implements Listener {
                         }
                         
                         // Particle effect
-                        groundLocation.getWorld().spawnParticle(org.bukkit.Particle.CLOUD, groundLocation.clone().add(0, 1, 0), 20, 0.3, 0.3, 0.3, 0.05);
-                        groundLocation.getWorld().spawnParticle(org.bukkit.Particle.CRIT, groundLocation.clone().add(0, 1, 0), 10, 0.2, 0.2, 0.2, 0.1);
+                        plugin.getMetricsManager().spawnParticle(MetricsManager.Effect.LANDING, groundLocation.getWorld(), org.bukkit.Particle.CLOUD, groundLocation.clone().add(0, 1, 0), 20, 0.3, 0.3, 0.3, 0.05);
+                        plugin.getMetricsManager().spawnParticle(MetricsManager.Effect.LANDING, groundLocation.getWorld(), org.bukkit.Particle.CRIT, groundLocation.clone().add(0, 1, 0), 10, 0.2, 0.2, 0.2, 0.1);
                         // Geluid
-                        groundLocation.getWorld().playSound(groundLocation, org.bukkit.Sound.ENTITY_SLIME_SQUISH, 0.8f, 1.2f);
+                        plugin.getMetricsManager().playSound(MetricsManager.Effect.LANDING, groundLocation.getWorld(), groundLocation, org.bukkit.Sound.ENTITY_SLIME_SQUISH, 0.8f, 1.2f);
                     } else {
                         // Blok is niet vrij, probeer 1 blok hoger
                         groundLocation.add(0, 1, 0);
@@ -542,10 +573,10 @@ public class BasketballListener implements Listener {
                             }
                             
                             // Particle effect
-                            groundLocation.getWorld().spawnParticle(org.bukkit.Particle.CLOUD, groundLocation.clone().add(0, 1, 0), 20, 0.3, 0.3, 0.3, 0.05);
-                            groundLocation.getWorld().spawnParticle(org.bukkit.Particle.CRIT, groundLocation.clone().add(0, 1, 0), 10, 0.2, 0.2, 0.2, 0.1);
+                            plugin.getMetricsManager().spawnParticle(MetricsManager.Effect.LANDING, groundLocation.getWorld(), org.bukkit.Particle.CLOUD, groundLocation.clone().add(0, 1, 0), 20, 0.3, 0.3, 0.3, 0.05);
+                            plugin.getMetricsManager().spawnParticle(MetricsManager.Effect.LANDING, groundLocation.getWorld(), org.bukkit.Particle.CRIT, groundLocation.clone().add(0, 1, 0), 10, 0.2, 0.2, 0.2, 0.1);
                             // Geluid
-                            groundLocation.getWorld().playSound(groundLocation, org.bukkit.Sound.ENTITY_SLIME_SQUISH, 0.8f, 1.2f);
+                            plugin.getMetricsManager().playSound(MetricsManager.Effect.LANDING, groundLocation.getWorld(), groundLocation, org.bukkit.Sound.ENTITY_SLIME_SQUISH, 0.8f, 1.2f);
                         }
                     }
                     
@@ -566,14 +597,7 @@ public class BasketballListener implements Listener {
         Player scoringPlayer = region.getBasketballOwner();
         if (scoringPlayer == null) {
             // If no owner, try to find the nearest player
-            double minDistance = Double.MAX_VALUE;
-            for (Player player : region.getPlayersInRegion()) {
-                double distance = player.getLocation().distance(basketball.getLocation());
-                if (distance < minDistance) {
-                    minDistance = distance;
-                    scoringPlayer = player;
-                }
-            }
+            scoringPlayer = region.getNearestPlayer(basketball.getLocation());
         }
         
         if (scoringPlayer != null) {
@@ -661,13 +685,13 @@ public class BasketballListener implements Listener {
         addBasketballFlightParticles(basketball, region);
         
         // Add realistic rotation based on velocity
-        new org.bukkit.scheduler.BukkitRunnable() {
+        new TimedRunnable(TimingsManager.EFFECTS, region.getRegionName()) {
             private int ticks = 0;
             private final int maxTicks = 40; // 2 seconds of rotation
             private final double rotationSpeed = 15.0; // degrees per tick
             
             @Override
-            public void run() {
+            protected void tick() {
                 ticks++;
                 
                 // Only rotate if basketball is still moving
@@ -688,7 +712,7 @@ public class BasketballListener implements Listener {
                     if (horizontalSpeed > 0.5 && ticks % 2 == 0) {
                         org.bukkit.Location particleLoc = basketball.getEntity().getLocation().add(0, 0.3, 0);
                         for (Player p : region.getPlayersInRegion()) {
-                            p.spawnParticle(
+                            plugin.getMetricsManager().spawnParticle(MetricsManager.Effect.ROTATION, p,
                                 org.bukkit.Particle.SMOKE_NORMAL,
                                 particleLoc,
                                 1, 0.05, 0.05, 0.05, 0.005
@@ -705,11 +729,8 @@ public class BasketballListener implements Listener {
         
         // Don't send message to player (as requested)
         
-        if (plugin.getConfigManager().isDebugEnabled()) {
-            plugin.getLogger().info("Realistic basketball throw - Power: " + throwPower + 
-                ", Angle: " + throwAngle + ", Pitch: " + Math.toDegrees(pitch) + "°" +
-                ", Max Distance: " + maxDistance + ", Velocity: " + velocityVector);
-        }
+        plugin.getTraceManager().trace(TraceManager.Event.BALL_THROW, player.getName(), region.getRegionName(),
+            velocityVector.getX(), velocityVector.getY(), velocityVector.getZ(), null);
     }
     
     /**
@@ -719,12 +740,12 @@ public class BasketballListener implements Listener {
      * @param region The basketball region
      */
     private void addBasketballFlightParticles(Basketball basketball, BasketballRegion region) {
-        new org.bukkit.scheduler.BukkitRunnable() {
+        new TimedRunnable(TimingsManager.EFFECTS, region.getRegionName()) {
             private int ticks = 0;
             private final int maxTicks = 60; // 3 seconds
             
             @Override
-            public void run() {
+            protected void tick() {
                 ticks++;
                 
                 // Only add particles if basketball is still thrown and moving
@@ -740,14 +761,14 @@ public class BasketballListener implements Listener {
                     // Send particles to all players in region
                     for (Player player : region.getPlayersInRegion()) {
                         // Basketball trail particles
-                        player.spawnParticle(
+                        plugin.getMetricsManager().spawnParticle(MetricsManager.Effect.TRAIL, player,
                             org.bukkit.Particle.SMOKE_NORMAL,
                             particleLoc,
                             1, 0.05, 0.05, 0.05, 0.005
                         );
                         
                         // Basketball glow particles
-                        player.spawnParticle(
+                        plugin.getMetricsManager().spawnParticle(MetricsManager.Effect.TRAIL, player,
                             org.bukkit.Particle.VILLAGER_HAPPY,
                             particleLoc,
                             1, 0.1, 0.1, 0.1, 0.01
@@ -782,26 +803,13 @@ public class BasketballListener implements Listener {
         boolean removedAny = false;
         int removedCount = 0;
         
-        if (plugin.getConfigManager().isDebugEnabled()) {
-            plugin.getLogger().info("Checking inventory for basketball items...");
-        }
-        
         for (int i = 0; i < player.getInventory().getSize(); i++) {
             ItemStack item = player.getInventory().getItem(i);
-            if (item != null) {
-                if (plugin.getConfigManager().isDebugEnabled()) {
-                    plugin.getLogger().info("Slot " + i + ": " + item.getType() + ":" + item.getData().getData());
-                }
-                
-                if (ItemUtil.isBasketballItem(item)) {
-                    if (plugin.getConfigManager().isDebugEnabled()) {
-                        plugin.getLogger().info("Found basketball in slot " + i + ", removing...");
-                    }
-                    // Set the item to null (remove it completely)
-                    player.getInventory().setItem(i, null);
-                    removedCount++;
-                    removedAny = true;
-                }
+            if (item != null && ItemUtil.isBasketballItem(item)) {
+                // Set the item to null (remove it completely)
+                player.getInventory().setItem(i, null);
+                removedCount++;
+                removedAny = true;
             }
         }
         
@@ -810,13 +818,8 @@ public class BasketballListener implements Listener {
             
             // Stop auto-drop timer when basketball is removed from inventory
             stopAutoDropTask(player);
-            
-            if (plugin.getConfigManager().isDebugEnabled()) {
-                plugin.getLogger().info("Removed " + removedCount + " basketball(s) from " + player.getName() + "'s inventory");
-            }
-        } else if (plugin.getConfigManager().isDebugEnabled()) {
-            plugin.getLogger().info("No basketball found in " + player.getName() + "'s inventory");
         }
+        plugin.getTraceManager().trace(TraceManager.Event.INVENTORY_REMOVE, player.getName(), null, removedCount, 0, 0, null);
         
         return removedAny;
     }
@@ -844,12 +847,12 @@ public class BasketballListener implements Listener {
      */
     private void createScoreExplosion(Location hopperLocation, BasketballRegion region) {
         // Create explosion particles in a sphere pattern
-        new BukkitRunnable() {
+        new TimedRunnable(TimingsManager.EFFECTS, region.getRegionName()) {
             private int tick = 0;
             private final int maxTicks = 20; // 1 second
             
             @Override
-            public void run() {
+            protected void tick() {
                 if (tick >= maxTicks) {
                     this.cancel();
                     return;
@@ -871,8 +874,8 @@ public class BasketballListener implements Listener {
                     
                     // Send particles only to players in the region
                     for (Player player : region.getPlayersInRegion()) {
-                        player.spawnParticle(org.bukkit.Particle.FIREWORKS_SPARK, particleLoc, 1, 0, 0, 0, 0);
-                        player.spawnParticle(org.bukkit.Particle.SPELL_WITCH, particleLoc, 1, 0, 0, 0, 0);
+                        plugin.getMetricsManager().spawnParticle(MetricsManager.Effect.SCORE, player, org.bukkit.Particle.FIREWORKS_SPARK, particleLoc, 1, 0, 0, 0, 0);
+                        plugin.getMetricsManager().spawnParticle(MetricsManager.Effect.SCORE, player, org.bukkit.Particle.SPELL_WITCH, particleLoc, 1, 0, 0, 0, 0);
                     }
                 }
                 
@@ -888,139 +891,29 @@ public class BasketballListener implements Listener {
      * @param region The basketball region
      */
     private void sendScoreTitle(Player scoringPlayer, BasketballRegion region) {
-        // Send title to all players in the region
-        for (Player player : region.getPlayersInRegion()) {
-            // Use reflection for 1.12.2 compatibility
-            try {
-                // Send times packet first
-                Object timesPacket = createTimesPacket(10, 40, 10);
-                sendPacket(player, timesPacket);
-                
-                // Send title packet
-                Object titlePacket = createTitlePacket(scoringPlayer.getName() + " §fheeft gescoord!");
-                sendPacket(player, titlePacket);
-                
-                // Send subtitle packet
-                Object subtitlePacket = createSubtitlePacket("§e" + scoringPlayer.getName() + " §fheeft gescoord!");
-                sendPacket(player, subtitlePacket);
-                
-            } catch (Exception e) {
-                // Fallback: send chat message
-                player.sendMessage("§e§lSCORE! §f" + scoringPlayer.getName() + " heeft gescoord!");
-            }
-        }
-    }
-    
-    /**
-     * Send a packet to a player using reflection
-     * 
-     * @param player The player
-     * @param packet The packet to send
-     */
-    private void sendPacket(Player player, Object packet) throws Exception {
-        Object playerConnection = player.getClass().getMethod("getHandle").invoke(player);
-        Object networkManager = playerConnection.getClass().getField("playerConnection").get(playerConnection);
-        networkManager.getClass().getMethod("sendPacket", getNMSClass("Packet")).invoke(networkManager, packet);
-    }
-    
-    /**
-     * Create a times packet using reflection
-     * 
-     * @param fadeIn Fade in ticks
-     * @param stay Stay ticks
-     * @param fadeOut Fade out ticks
-     * @return The packet object
-     */
-    private Object createTimesPacket(int fadeIn, int stay, int fadeOut) throws Exception {
-        Class<?> packetClass = getNMSClass("PacketPlayOutTitle");
-        Class<?> enumClass = getNMSClass("PacketPlayOutTitle$EnumTitleAction");
+        String title = scoringPlayer.getName() + " §fheeft gescoord!";
+        String subtitle = "§e" + scoringPlayer.getName() + " §fheeft gescoord!";
         
-        return packetClass.getConstructor(enumClass, getNMSClass("IChatBaseComponent"), int.class, int.class, int.class).newInstance(
-            enumClass.getField("TIMES").get(null),
-            null,
-            fadeIn,
-            stay,
-            fadeOut
-        );
-    }
-    
-    /**
-     * Create a title packet using reflection
-     * 
-     * @param title The title text
-     * @return The packet object
-     */
-    private Object createTitlePacket(String title) throws Exception {
-        Class<?> packetClass = getNMSClass("PacketPlayOutTitle");
-        Class<?> enumClass = getNMSClass("PacketPlayOutTitle$EnumTitleAction");
-        
-        return packetClass.getConstructor(enumClass, getNMSClass("IChatBaseComponent")).newInstance(
-            enumClass.getField("TITLE").get(null),
-            createChatComponent(title)
-        );
-    }
-    
-    /**
-     * Create a subtitle packet using reflection
-     * 
-     * @param subtitle The subtitle text
-     * @return The packet object
-     */
-    private Object createSubtitlePacket(String subtitle) throws Exception {
-        Class<?> packetClass = getNMSClass("PacketPlayOutTitle");
-        Class<?> enumClass = getNMSClass("PacketPlayOutTitle$EnumTitleAction");
-        
-        return packetClass.getConstructor(enumClass, getNMSClass("IChatBaseComponent")).newInstance(
-            enumClass.getField("SUBTITLE").get(null),
-            createChatComponent(subtitle)
-        );
-    }
-    
-    /**
-     * Create a chat component using reflection
-     * 
-     * @param text The text
-     * @return The chat component
-     */
-    private Object createChatComponent(String text) throws Exception {
-        Class<?> chatComponentClass = getNMSClass("IChatBaseComponent$ChatSerializer");
-        return chatComponentClass.getMethod("a", String.class).invoke(null, "{\"text\":\"" + text + "\"}");
-    }
-    
-    /**
-     * Get NMS class using reflection
-     * 
-     * @param className The class name
-     * @return The class
-     */
-    private Class<?> getNMSClass(String className) {
-        try {
-            return Class.forName("net.minecraft.server." + getServerVersion() + "." + className);
-        } catch (ClassNotFoundException e) {
-            return null;
+        // Queue title for all players in the region, coalesced with the other score titles
+        for (Player player : region.getPlayersInRegion()) {
+            plugin.getOutboundMessageManager().queueTitle(player, title, subtitle, 10, 40, 10);
         }
     }
-    
-    /**
-     * Get server version
-     * 
-     * @return The server version
-     */
-    private String getServerVersion() {
-        return plugin.getServer().getClass().getPackage().getName().split("\\.")[3];
-    }
 
     /**
-     * Helper om auto-drop task te starten/stoppen
+     * Helper om auto-drop task te starten/stoppen. The task ends itself once the
+     * ball leaves the inventory, so it has no watchdog lifetime: holding a ball
+     * may take longer than any fixed limit.
      */
     public void startAutoDropTask(Player player) {
         stopAutoDropTask(player);
-        BukkitRunnable task = new BukkitRunnable() {
+        UUID playerId = player.getUniqueId();
+        BukkitRunnable task = new TimedRunnable(TimingsManager.AUTO_DROP, null, 0) {
             private Location lastLocation = player.getLocation().clone();
             private int stillTicks = 0;
             private int moveTicks = 0;
             @Override
-            public void run() {
+            protected void tick() {
                 if (!player.isOnline() || !plugin.getBasketballManager().hasBasketballInInventory(player)) {
                     stopAutoDropTask(player);
                     cancel();
@@ -1055,12 +948,19 @@ public class BasketballListener implements Listener {
                     cancel();
                 }
             }
+            
+            @Override
+            public synchronized void cancel() {
+                super.cancel();
+                // However the task ends, it no longer holds the player's slot
+                autoDropTasks.remove(playerId, this);
+            }
         };
-        autoDropTasks.put(player, task);
+        autoDropTasks.put(playerId, task);
         task.runTaskTimer(plugin, 1L, 1L);
     }
     public void stopAutoDropTask(Player player) {
-        BukkitRunnable task = autoDropTasks.remove(player);
+        BukkitRunnable task = autoDropTasks.remove(player.getUniqueId());
         if (task != null) task.cancel();
     }
 } 
\ No newline at end of file
@@ -0,0 +1,43 @@
+package nl.djorr.basketball.listeners;
+
+import nl.djorr.basketball.BasketballPlugin;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.world.ChunkLoadEvent;
+import org.bukkit.event.world.ChunkUnloadEvent;
+
+/**
+ * Listener that activates and deactivates courts as their chunks load and unload
+ *
+ * @author Djorr
+ */
+public class CourtChunkListener implements Listener {
+
+    private final BasketballPlugin plugin;
+
+    /**
+     * Constructor for CourtChunkListener
+     *
+     * @param plugin The plugin instance
+     */
+    public CourtChunkListener(BasketballPlugin plugin) {
+        this.plugin = plugin;
+    }
+
+    /**
+     * Activate the courts of a loaded chunk
+     */
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onChunkLoad(ChunkLoadEvent event) {
+        plugin.getCourtActivationManager().onChunkLoad(event.getChunk());
+    }
+
+    /**
+     * Deactivate courts whose last loaded chunk unloads
+     */
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onChunkUnload(ChunkUnloadEvent event) {
+        plugin.getCourtActivationManager().onChunkUnload(event.getChunk());
+    }
+}
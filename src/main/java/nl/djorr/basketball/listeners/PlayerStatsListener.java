@@ -0,0 +1,66 @@
+package nl.djorr.basketball.listeners;
+
+import nl.djorr.basketball.BasketballPlugin;
+import nl.djorr.basketball.managers.StatsCacheManager;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.AsyncPlayerPreLoginEvent;
+import org.bukkit.event.player.PlayerJoinEvent;
+import org.bukkit.event.player.PlayerQuitEvent;
+
+/**
+ * Listener that loads player stats lazily when a storage backend is used
+ *
+ * @author Djorr
+ */
+public class PlayerStatsListener implements Listener {
+
+    private final BasketballPlugin plugin;
+
+    /**
+     * Constructor for PlayerStatsListener
+     *
+     * @param plugin The plugin instance
+     */
+    public PlayerStatsListener(BasketballPlugin plugin) {
+        this.plugin = plugin;
+    }
+
+    /**
+     * Read the player's wins off the main thread before they join
+     */
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onAsyncPreLogin(AsyncPlayerPreLoginEvent event) {
+        if (event.getLoginResult() != AsyncPlayerPreLoginEvent.Result.ALLOWED) {
+            return;
+        }
+
+        StatsCacheManager statsCache = plugin.getDataManager().getStatsCache();
+        if (statsCache != null) {
+            statsCache.prefetch(event.getUniqueId());
+        }
+    }
+
+    /**
+     * Apply the prefetched wins; runs before the other join handlers update holograms
+     */
+    @EventHandler(priority = EventPriority.LOWEST)
+    public void onPlayerJoin(PlayerJoinEvent event) {
+        StatsCacheManager statsCache = plugin.getDataManager().getStatsCache();
+        if (statsCache != null) {
+            statsCache.onJoin(event.getPlayer());
+        }
+    }
+
+    /**
+     * Start the eviction timer for the player's wins
+     */
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerQuit(PlayerQuitEvent event) {
+        StatsCacheManager statsCache = plugin.getDataManager().getStatsCache();
+        if (statsCache != null) {
+            statsCache.onQuit(event.getPlayer());
+        }
+    }
+}
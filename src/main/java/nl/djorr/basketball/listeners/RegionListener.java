@@ -1,17 +1,25 @@
 package nl.djorr.basketball.listeners;
 
 import nl.djorr.basketball.BasketballPlugin;
+import nl.djorr.basketball.managers.TimingsManager;
+import nl.djorr.basketball.managers.TraceManager;
 import nl.djorr.basketball.objects.BasketballRegion;
+import nl.djorr.basketball.utils.RegionBounds;
 import org.bukkit.Location;
 import org.bukkit.entity.Player;
 import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
 import org.bukkit.event.Listener;
+import org.bukkit.event.player.PlayerChangedWorldEvent;
 import org.bukkit.event.player.PlayerJoinEvent;
 import org.bukkit.event.player.PlayerMoveEvent;
 import org.bukkit.event.player.PlayerQuitEvent;
+import org.bukkit.event.player.PlayerRespawnEvent;
+import org.bukkit.event.player.PlayerTeleportEvent;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.UUID;
 
 import com.sk89q.worldguard.bukkit.WorldGuardPlugin;
 import com.sk89q.worldguard.protection.regions.ProtectedRegion;
@@ -27,7 +35,8 @@ import com.sk89q.worldedit.Vector;
 public class RegionListener implements Listener {
     
     private final BasketballPlugin plugin;
-    private final Map<Player, String> playerRegions;
+    private final Map<UUID, String> playerRegions; // Keyed by UUID so no Player outlives its session
+    private final TimingsManager.Section moveTimings;
     
     /**
      * Constructor for RegionListener
@@ -37,6 +46,7 @@ public class RegionListener implements Listener {
     public RegionListener(BasketballPlugin plugin) {
         this.plugin = plugin;
         this.playerRegions = new HashMap<>();
+        this.moveTimings = plugin.getTimingsManager().section(TimingsManager.PLAYER_MOVE);
     }
     
     /**
@@ -55,8 +65,57 @@ public class RegionListener implements Listener {
             return;
         }
         
-        // Check for region entry/exit
-        checkRegionChange(player, to);
+        long start = plugin.getTimingsManager().start();
+        String currentRegion = handlePositionChange(player, to);
+        moveTimings.stop(start, currentRegion);
+    }
+    
+    /**
+     * Handle teleports, which do not fire a move event
+     */
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onPlayerTeleport(PlayerTeleportEvent event) {
+        handlePositionChange(event.getPlayer(), event.getTo());
+    }
+    
+    /**
+     * Handle respawns, the player is placed at the respawn location after this event
+     */
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerRespawn(PlayerRespawnEvent event) {
+        handlePositionChange(event.getPlayer(), event.getRespawnLocation());
+    }
+    
+    /**
+     * Handle world changes that did not come with a teleport event, such as portals
+     */
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerChangedWorld(PlayerChangedWorldEvent event) {
+        handlePositionChange(event.getPlayer(), event.getPlayer().getLocation());
+    }
+    
+    /**
+     * Check for region entry/exit and keep the court's nearest-player index
+     * on the player's new position
+     * 
+     * @param player The player
+     * @param location The player's new location
+     * @return The region the player is in afterwards, or null
+     */
+    private String handlePositionChange(Player player, Location location) {
+        if (location == null) {
+            return playerRegions.get(player.getUniqueId());
+        }
+        checkRegionChange(player, location);
+        
+        String currentRegion = playerRegions.get(player.getUniqueId());
+        if (currentRegion != null) {
+            BasketballRegion basketballRegion = plugin.getBasketballManager().getRegion(currentRegion);
+            if (basketballRegion != null) {
+                basketballRegion.updatePlayerPosition(player, location);
+            }
+        }
+        return currentRegion;
     }
     
     /**
@@ -67,13 +126,13 @@ public class RegionListener implements Listener {
         Player player = event.getPlayer();
         
         // Remove player from any basketball regions
-        String currentRegion = playerRegions.get(player);
+        String currentRegion = playerRegions.get(player.getUniqueId());
         if (currentRegion != null) {
             BasketballRegion basketballRegion = plugin.getBasketballManager().getRegion(currentRegion);
             if (basketballRegion != null) {
                 basketballRegion.removePlayer(player);
             }
-            playerRegions.remove(player);
+            playerRegions.remove(player.getUniqueId());
         }
     }
     
@@ -95,13 +154,12 @@ public class RegionListener implements Listener {
      * @param location The player's location
      */
     private void checkRegionChange(Player player, Location location) {
-        String currentRegion = playerRegions.get(player);
+        String currentRegion = playerRegions.get(player.getUniqueId());
         String newRegion = getCurrentBasketballRegion(player, location);
         
-        // Debug logging
         if (plugin.getConfigManager().shouldLogRegionChecks()) {
-            plugin.getLogger().info("Player " + player.getName() + " at " + location.getBlockX() + "," + 
-                location.getBlockY() + "," + location.getBlockZ() + " - Current: " + currentRegion + ", New: " + newRegion);
+            plugin.getTraceManager().trace(TraceManager.Event.REGION_CHECK, player.getName(), newRegion,
+                location.getBlockX(), location.getBlockY(), location.getBlockZ(), currentRegion);
         }
         
         // Player entered a new basketball region
@@ -130,7 +188,7 @@ public class RegionListener implements Listener {
             // Enter new region
             if (newBasketballRegion != null) {
                 newBasketballRegion.addPlayer(player);
-                playerRegions.put(player, newRegion);
+                playerRegions.put(player.getUniqueId(), newRegion);
             }
         }
         // Player left a basketball region
@@ -139,7 +197,7 @@ public class RegionListener implements Listener {
             if (basketballRegion != null) {
                 basketballRegion.removePlayer(player);
             }
-            playerRegions.remove(player);
+            playerRegions.remove(player.getUniqueId());
         }
     }
     
@@ -153,31 +211,21 @@ public class RegionListener implements Listener {
         // Check all basketball regions to see if player is in any of them
         for (String regionName : plugin.getBasketballManager().getRegions().keySet()) {
             BasketballRegion region = plugin.getBasketballManager().getRegion(regionName);
-            if (region != null) {
+            // Dormant courts have no loaded chunks, so nobody can be on them
+            if (region != null && region.isActive()) {
                 // Get region bounds and check if player is within them
                 int[] bounds = region.getRegionBounds();
                 if (bounds != null) {
-                    int x = location.getBlockX();
-                    int y = location.getBlockY();
-                    int z = location.getBlockZ();
-                    
                     // Check if player is within region bounds
-                    if (x >= bounds[0] && x <= bounds[1] &&
-                        y >= bounds[2] && y <= bounds[3] &&
-                        z >= bounds[4] && z <= bounds[5]) {
-                        
-                        if (plugin.getConfigManager().isDebugEnabled()) {
-                            plugin.getLogger().info("Player in basketball region via fallback: " + regionName);
-                        }
+                    if (RegionBounds.contains(bounds, location.getBlockX(), location.getBlockY(), location.getBlockZ())) {
+                        plugin.getTraceManager().trace(TraceManager.Event.REGION_MATCH, null, regionName, "fallback bounds");
                         return regionName;
                     }
                 } else {
                     // Fallback to distance check if bounds are not available
                     Location center = region.getCenter();
                     if (location.distance(center) <= 20) {
-                        if (plugin.getConfigManager().isDebugEnabled()) {
-                            plugin.getLogger().info("Player in basketball region via distance fallback: " + regionName);
-                        }
+                        plugin.getTraceManager().trace(TraceManager.Event.REGION_MATCH, null, regionName, "fallback distance");
                         return regionName;
                     }
                 }
@@ -200,31 +248,21 @@ public class RegionListener implements Listener {
         // Check all registered basketball regions
         for (String regionName : plugin.getBasketballManager().getRegions().keySet()) {
             BasketballRegion region = plugin.getBasketballManager().getRegion(regionName);
-            if (region != null) {
+            // Dormant courts have no loaded chunks, so nobody can be on them
+            if (region != null && region.isActive()) {
                 // Get region bounds and check if player is within them
                 int[] bounds = region.getRegionBounds();
                 if (bounds != null) {
-                    int x = location.getBlockX();
-                    int y = location.getBlockY();
-                    int z = location.getBlockZ();
-                    
                     // Check if player is within region bounds
-                    if (x >= bounds[0] && x <= bounds[1] &&
-                        y >= bounds[2] && y <= bounds[3] &&
-                        z >= bounds[4] && z <= bounds[5]) {
-                        
-                        if (plugin.getConfigManager().isDebugEnabled()) {
-                            plugin.getLogger().info("Player " + player.getName() + " is in basketball region: " + regionName);
-                        }
+                    if (RegionBounds.contains(bounds, location.getBlockX(), location.getBlockY(), location.getBlockZ())) {
+                        plugin.getTraceManager().trace(TraceManager.Event.REGION_MATCH, player != null ? player.getName() : null, regionName, "bounds");
                         return regionName;
                     }
                 } else {
                     // Fallback to distance check if bounds are not available
                     Location center = region.getCenter();
                     if (location.distance(center) <= 20) {
-                        if (plugin.getConfigManager().isDebugEnabled()) {
-                            plugin.getLogger().info("Player " + player.getName() + " is in basketball region via distance: " + regionName);
-                        }
+                        plugin.getTraceManager().trace(TraceManager.Event.REGION_MATCH, player != null ? player.getName() : null, regionName, "distance");
                         return regionName;
                     }
                 }
@@ -327,15 +365,15 @@ public class RegionListener implements Listener {
      * @return The region name or null
      */
     public String getPlayerRegion(Player player) {
-        return playerRegions.get(player);
+        return playerRegions.get(player.getUniqueId());
     }
     
     /**
      * Get all player regions
      * 
-     * @return Map of players to their regions
+     * @return Map of player UUIDs to their regions
      */
-    public Map<Player, String> getPlayerRegions() {
+    public Map<UUID, String> getPlayerRegions() {
         return new HashMap<>(playerRegions);
     }
 } 
\ No newline at end of file
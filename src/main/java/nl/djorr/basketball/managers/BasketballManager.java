@@ -3,18 +3,27 @@ package nl.djorr.basketball.managers;
 import nl.djorr.basketball.BasketballPlugin;
 import nl.djorr.basketball.objects.Basketball;
 import nl.djorr.basketball.objects.BasketballRegion;
+import nl.djorr.basketball.utils.BallPhysics;
+import nl.djorr.basketball.utils.FlightRecorderBridge;
 import nl.djorr.basketball.utils.ItemUtil;
 import nl.djorr.basketball.utils.ItemBuilder;
+import nl.djorr.basketball.utils.TimedRunnable;
+import nl.djorr.basketball.utils.WorldBlockProbe;
 import nl.djorr.basketball.utils.BasketballTextureUtil;
 import org.bukkit.Location;
 import org.bukkit.Material;
+import org.bukkit.World;
 import org.bukkit.entity.ArmorStand;
 import org.bukkit.entity.Entity;
 import org.bukkit.entity.Player;
 import org.bukkit.inventory.ItemStack;
 import org.bukkit.inventory.meta.SkullMeta;
+import org.bukkit.scheduler.BukkitTask;
 import org.bukkit.util.Vector;
 
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Deque;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.UUID;
@@ -30,8 +39,15 @@ public class BasketballManager {
     
     private final BasketballPlugin plugin;
     private final Map<UUID, Basketball> basketballs;
+    private final Map<UUID, Basketball> courtlessBalls; // Balls without a registered court, not in any court's grid
     private final Map<String, BasketballRegion> regions;
+    private final Deque<CleanupSlice> cleanupQueue = new ArrayDeque<>();
+    private final BallPhysics.State physicsState = new BallPhysics.State(0, 0, 0, 0, 0, 0); // Main thread only
+    private final WorldBlockProbe blockProbe = new WorldBlockProbe();
+    private BukkitTask cleanupTask;
     
+    private static final int CLEANUP_CHUNKS_PER_TICK = 4;
+    private static final double AUTO_PICKUP_RANGE = 3.0; // Blocks
     private static final String BASKETBALL_UUID = "9a869760-a4ae-49ac-9598-e136ce74ba73";
     private static final String BASKETBALL_TEXTURE = "eyJ0ZXh0dXJlcyI6eyJTS0lOIjp7InVybCI6Imh0dHA6Ly90ZXh0dXJlcy5taW5lY3JhZnQubmV0L3RleHR1cmUvZWRmODQ3MTVhNjRkYzQ1NTg2ZjdhNjA3OWY4ZTQ5YTk0NzdjMGZlOTY1ODliNGNmZDcxY2JhMzIyNTRhYzgifX19";
     
@@ -43,6 +59,7 @@ public class BasketballManager {
     public BasketballManager(BasketballPlugin plugin) {
         this.plugin = plugin;
         this.basketballs = new HashMap<>();
+        this.courtlessBalls = new HashMap<>();
         this.regions = new HashMap<>();
     }
     
@@ -68,7 +85,14 @@ public class BasketballManager {
         
         // Create basketball object
         Basketball basketball = new Basketball(armorStand, plugin);
+        basketball.setRegionName(regionName);
         basketballs.put(armorStand.getUniqueId(), basketball);
+        BasketballRegion region = regionName != null ? regions.get(regionName) : null;
+        if (region != null) {
+            region.updateBallPosition(basketball, location);
+        } else {
+            courtlessBalls.put(armorStand.getUniqueId(), basketball);
+        }
         
         if (plugin.getConfigManager().isDebugEnabled()) {
             plugin.getLogger().info("Created basketball entity with GameProfile texture: " + armorStand.getUniqueId() + 
@@ -96,7 +120,13 @@ public class BasketballManager {
      */
     public void removeBasketball(Basketball basketball) {
         if (basketball != null && basketball.getEntity() != null) {
+            plugin.getReplayRecorder().finish(basketball);
+            BasketballRegion region = basketball.getRegionName() != null ? regions.get(basketball.getRegionName()) : null;
+            if (region != null) {
+                region.removeBall(basketball);
+            }
             basketballs.remove(basketball.getEntity().getUniqueId());
+            courtlessBalls.remove(basketball.getEntity().getUniqueId());
             basketball.getEntity().remove();
         }
     }
@@ -111,6 +141,10 @@ public class BasketballManager {
             }
         }
         basketballs.clear();
+        courtlessBalls.clear();
+        for (BasketballRegion region : regions.values()) {
+            region.clearBalls();
+        }
     }
     
     /**
@@ -143,6 +177,7 @@ public class BasketballManager {
         if (basketball == null || basketball.getEntity() == null) {
             return;
         }
+        Object jfrEvent = plugin.getFlightRecorder().start(FlightRecorderBridge.Kind.THROW);
         
         // Remove basketball from player's inventory
         removeBasketballFromInventory(player);
@@ -163,6 +198,9 @@ public class BasketballManager {
         basketball.getEntity().setVelocity(velocityVector);
         basketball.setThrown(true);
         basketball.setBounces(0);
+        plugin.getReplayRecorder().start(basketball);
+        plugin.getFlightRecorder().commit(FlightRecorderBridge.Kind.THROW, jfrEvent, basketball.getRegionName(),
+            basketball.getEntity().getUniqueId(), 0);
         
         // Send message
         player.sendMessage(plugin.getConfigManager().getMessageWithPrefix("basketball_thrown"));
@@ -173,7 +211,9 @@ public class BasketballManager {
     }
     
     /**
-     * Handle basketball physics with realistic bounce physics and auto-pickup
+     * Handle basketball physics with realistic bounce physics and auto-pickup.
+     * The rules are in {@link BallPhysics}, this applies their result to the
+     * entity and plays the effects.
      * 
      * @param basketball The basketball
      */
@@ -184,457 +224,218 @@ public class BasketballManager {
         
         Vector velocity = basketball.getVelocity();
         Location ballLocation = basketball.getLocation();
-        
-        // NEW: Check if basketball is outside region or stuck on ground
-        if (checkBasketballOutOfBounds(basketball)) {
-            return; // Basketball will be respawned at bedrock
+        BasketballRegion ballRegion = basketball.getRegionName() != null ? regions.get(basketball.getRegionName()) : null;
+        if (ballRegion != null) {
+            ballRegion.updateBallPosition(basketball, ballLocation);
         }
         
-        // Apply realistic gravity
-        velocity.setY(velocity.getY() - 0.08); // Basketball gravity
-        
-        // Check for ground collision with realistic detection
-        if (velocity.getY() < 0) {
-            Location groundCheck = ballLocation.clone().add(0, -1, 0); // Check below the ball
-            if (groundCheck.getBlock().getType().isSolid()) {
-                // Ball hit ground, bounce with realistic physics
-                handleRealisticBounce(basketball);
-                return;
+        BasketballRegion region = getBasketballRegion(basketball);
+        if (region == null) {
+            if (plugin.getConfigManager().isDebugEnabled()) {
+                plugin.getLogger().warning("Basketball has no region, removing...");
             }
+            removeBasketball(basketball);
+            return;
         }
-        
-        // Check for wall collision (ALWAYS check region boundaries)
-        handleWallCollision(basketball);
-        
-        // Apply realistic air resistance
-        velocity.multiply(0.995); // Less air resistance for longer flight
-        
-        // Stop ball if velocity is very low
-        if (Math.abs(velocity.getX()) < 0.05 && Math.abs(velocity.getZ()) < 0.05 && Math.abs(velocity.getY()) < 0.05) {
-            velocity.setX(0);
-            velocity.setY(0);
-            velocity.setZ(0);
-            basketball.setThrown(false);
-            basketball.setVelocity(velocity);
-            
-            // Place basketball as skull block on the ground
-            Location groundLocation = basketball.getLocation().clone();
-            groundLocation.setY(groundLocation.getBlockY()); // Zorg dat Y een heel getal is
-            
-            // Check of het blok op de grond vrij is
-            if (groundLocation.getBlock().getType() == org.bukkit.Material.AIR) {
-                // Plaats basketball skull blok
-                groundLocation.getBlock().setType(org.bukkit.Material.SKULL);
-                groundLocation.getBlock().setData((byte) 1); // Floor skull
-                
-                // Set de skull texture met BasketballTextureUtil
-                org.bukkit.block.BlockState state = groundLocation.getBlock().getState();
-                if (state instanceof org.bukkit.block.Skull) {
-                    org.bukkit.block.Skull skull = (org.bukkit.block.Skull) state;
-                    
-                    // Apply basketball texture using BasketballTextureUtil (this also sets the skull type)
-                    BasketballTextureUtil.applyBasketballTexture(skull);
-                    
-                    // Also apply texture to the material data
-                    try {
-                        org.bukkit.material.Skull materialSkull = (org.bukkit.material.Skull) skull.getData();
-                        BasketballTextureUtil.applyBasketballTexture(materialSkull);
-                        skull.setData(materialSkull);
-                        skull.update();
-                    } catch (Exception e) {
-                        if (plugin.getConfigManager().isDebugEnabled()) {
-                            plugin.getLogger().warning("Could not apply material skull texture: " + e.getMessage());
-                        }
-                    }
-                    
-                    if (plugin.getConfigManager().isDebugEnabled()) {
-                        plugin.getLogger().info("Basketball placed as skull block on ground at " + groundLocation);
-                    }
-                }
-                
-                // Particle effect
-                groundLocation.getWorld().spawnParticle(org.bukkit.Particle.CLOUD, groundLocation.clone().add(0, 1, 0), 20, 0.3, 0.3, 0.3, 0.05);
-                groundLocation.getWorld().spawnParticle(org.bukkit.Particle.CRIT, groundLocation.clone().add(0, 1, 0), 10, 0.2, 0.2, 0.2, 0.1);
-                // Geluid
-                groundLocation.getWorld().playSound(groundLocation, org.bukkit.Sound.ENTITY_SLIME_SQUISH, 0.8f, 1.2f);
-            } else {
-                // Blok is niet vrij, probeer 1 blok hoger
-                groundLocation.add(0, 1, 0);
-                if (groundLocation.getBlock().getType() == org.bukkit.Material.AIR) {
-                    groundLocation.getBlock().setType(org.bukkit.Material.SKULL);
-                    groundLocation.getBlock().setData((byte) 1);
-                    
-                    // Set de skull texture met BasketballTextureUtil
-                    org.bukkit.block.BlockState state = groundLocation.getBlock().getState();
-                    if (state instanceof org.bukkit.block.Skull) {
-                        org.bukkit.block.Skull skull = (org.bukkit.block.Skull) state;
-                        
-                        // Apply basketball texture using BasketballTextureUtil (this also sets the skull type)
-                        BasketballTextureUtil.applyBasketballTexture(skull);
-                        
-                        // Also apply texture to the material data
-                        try {
-                            org.bukkit.material.Skull materialSkull = (org.bukkit.material.Skull) skull.getData();
-                            BasketballTextureUtil.applyBasketballTexture(materialSkull);
-                            skull.setData(materialSkull);
-                            skull.update();
-                        } catch (Exception e) {
-                            if (plugin.getConfigManager().isDebugEnabled()) {
-                                plugin.getLogger().warning("Could not apply material skull texture: " + e.getMessage());
-                            }
-                        }
-                        
-                        if (plugin.getConfigManager().isDebugEnabled()) {
-                            plugin.getLogger().info("Basketball placed as skull block (1 block up) at " + groundLocation);
-                        }
-                    }
-                    
-                    // Particle effect
-                    groundLocation.getWorld().spawnParticle(org.bukkit.Particle.CLOUD, groundLocation.clone().add(0, 1, 0), 20, 0.3, 0.3, 0.3, 0.05);
-                    groundLocation.getWorld().spawnParticle(org.bukkit.Particle.CRIT, groundLocation.clone().add(0, 1, 0), 10, 0.2, 0.2, 0.2, 0.1);
-                    // Geluid
-                    groundLocation.getWorld().playSound(groundLocation, org.bukkit.Sound.ENTITY_SLIME_SQUISH, 0.8f, 1.2f);
-                }
+        if (region.getRegionBounds() == null) {
+            if (plugin.getConfigManager().isDebugEnabled()) {
+                plugin.getLogger().warning("Region has no bounds, removing basketball...");
             }
-            
-            // Remove the basketball entity
             removeBasketball(basketball);
-            
-            // Check for auto-pickup by owner
-            checkAutoPickup(basketball);
-            
             return;
         }
         
+        double impactSpeed = Math.abs(velocity.getY());
+        physicsState.set(ballLocation.getX(), ballLocation.getY(), ballLocation.getZ(), velocity.getX(), velocity.getY(), velocity.getZ());
+        physicsState.setBounces(basketball.getBounces());
+        plugin.getReplayRecorder().beginTick(basketball, physicsState, region);
+        BallPhysics.StepResult result = BallPhysics.update(physicsState, blockProbe.in(ballLocation.getWorld()), region,
+            plugin.getConfigManager().getMaxBounces());
+        plugin.getReplayRecorder().endTick(basketball, physicsState, result);
+        velocity.setX(physicsState.getVelocityX());
+        velocity.setY(physicsState.getVelocityY());
+        velocity.setZ(physicsState.getVelocityZ());
+        
+        switch (result) {
+            case OUT_OF_BOUNDS:
+                // Outside the court or stuck on the ground
+                plugin.getTraceManager().trace(TraceManager.Event.BALL_OUT, null, basketball.getRegionName(),
+                    ballLocation.getX(), ballLocation.getY(), ballLocation.getZ(), null);
+                removeBasketball(basketball);
+                respawnBasketballAtBedrock(region);
+                return;
+            case MAX_BOUNCES:
+                basketball.setVelocity(velocity);
+                basketball.setThrown(false);
+                placeBasketballOnGround(basketball, "max bounces");
+                removeBasketball(basketball);
+                return;
+            case AT_REST:
+                basketball.setThrown(false);
+                basketball.setVelocity(velocity);
+                placeBasketballOnGround(basketball, "at rest");
+                removeBasketball(basketball);
+                
+                // Check for auto-pickup by owner
+                checkAutoPickup(basketball);
+                return;
+            case BOUNCED:
+                basketball.setVelocity(velocity);
+                basketball.setBounces(physicsState.getBounces());
+                playBounceEffects(basketball, region);
+                plugin.getTraceManager().trace(TraceManager.Event.BALL_BOUNCE, null, basketball.getRegionName(),
+                    basketball.getBounces(), impactSpeed, velocity.getY(), null);
+                return;
+            case BOUNDARY:
+                playBoundaryEffects(region, ballLocation);
+                plugin.getTraceManager().trace(TraceManager.Event.BALL_BOUNDARY, null, basketball.getRegionName(),
+                    velocity.getX(), velocity.getY(), velocity.getZ(), null);
+                break;
+            case WALL:
+                playWallEffects(region, ballLocation);
+                break;
+            default:
+                break;
+        }
+        
         // Apply velocity and ensure the entity actually moves
         basketball.getEntity().setVelocity(velocity);
         
-        // Debug logging
-        if (plugin.getConfigManager().isDebugEnabled()) {
-            plugin.getLogger().info("Basketball physics - Velocity: " + velocity + 
-                ", Location: " + ballLocation.getBlockX() + "," + ballLocation.getBlockY() + "," + ballLocation.getBlockZ());
-        }
+        plugin.getTraceManager().trace(TraceManager.Event.BALL_TICK, null, basketball.getRegionName(),
+            velocity.getX(), velocity.getY(), velocity.getZ(), null);
     }
     
     /**
-     * Handle realistic basketball bounce physics
+     * Place a stopped basketball as a skull block on the ground, or one block
+     * up when the ground block is taken
      * 
      * @param basketball The basketball
+     * @param reason Why the ball stopped, for the debug log
      */
-    private void handleRealisticBounce(Basketball basketball) {
-        int maxBounces = plugin.getConfigManager().getMaxBounces();
-        double bounceHeight = plugin.getConfigManager().getBounceHeight();
-        double bounceDecay = plugin.getConfigManager().getBounceDecay();
-        
-        if (basketball.getBounces() >= maxBounces) {
-            // Stop the basketball
-            basketball.setVelocity(new Vector(0, 0, 0));
-            basketball.setThrown(false);
+    private void placeBasketballOnGround(Basketball basketball, String reason) {
+        Location groundLocation = basketball.getLocation().clone();
+        groundLocation.setY(groundLocation.getBlockY()); // Zorg dat Y een heel getal is
+        
+        // Check of het blok op de grond vrij is, anders 1 blok hoger
+        if (groundLocation.getBlock().getType() != org.bukkit.Material.AIR) {
+            groundLocation.add(0, 1, 0);
+            if (groundLocation.getBlock().getType() != org.bukkit.Material.AIR) {
+                return;
+            }
+        }
+        
+        // Plaats basketball skull blok
+        groundLocation.getBlock().setType(org.bukkit.Material.SKULL);
+        groundLocation.getBlock().setData((byte) 1); // Floor skull
+        
+        // Set de skull texture met BasketballTextureUtil
+        org.bukkit.block.BlockState state = groundLocation.getBlock().getState();
+        if (state instanceof org.bukkit.block.Skull) {
+            org.bukkit.block.Skull skull = (org.bukkit.block.Skull) state;
             
-            // Place basketball as skull block on the ground
-            Location groundLocation = basketball.getLocation().clone();
-            groundLocation.setY(groundLocation.getBlockY()); // Zorg dat Y een heel getal is
+            // Apply basketball texture using BasketballTextureUtil (this also sets the skull type)
+            BasketballTextureUtil.applyBasketballTexture(skull);
             
-            // Check of het blok op de grond vrij is
-            if (groundLocation.getBlock().getType() == org.bukkit.Material.AIR) {
-                // Plaats basketball skull blok
-                groundLocation.getBlock().setType(org.bukkit.Material.SKULL);
-                groundLocation.getBlock().setData((byte) 1); // Floor skull
-                
-                // Set de skull texture met BasketballTextureUtil
-                org.bukkit.block.BlockState state = groundLocation.getBlock().getState();
-                if (state instanceof org.bukkit.block.Skull) {
-                    org.bukkit.block.Skull skull = (org.bukkit.block.Skull) state;
-                    
-                    // Apply basketball texture using BasketballTextureUtil (this also sets the skull type)
-                    BasketballTextureUtil.applyBasketballTexture(skull);
-                    
-                    // Also apply texture to the material data
-                    try {
-                        org.bukkit.material.Skull materialSkull = (org.bukkit.material.Skull) skull.getData();
-                        BasketballTextureUtil.applyBasketballTexture(materialSkull);
-                        skull.setData(materialSkull);
-                        skull.update();
-                    } catch (Exception e) {
-                        if (plugin.getConfigManager().isDebugEnabled()) {
-                            plugin.getLogger().warning("Could not apply material skull texture: " + e.getMessage());
-                        }
-                    }
-                    
-                    if (plugin.getConfigManager().isDebugEnabled()) {
-                        plugin.getLogger().info("Basketball placed as skull block on ground (max bounces) at " + groundLocation);
-                    }
-                }
-                
-                // Particle effect
-                groundLocation.getWorld().spawnParticle(org.bukkit.Particle.CLOUD, groundLocation.clone().add(0, 1, 0), 20, 0.3, 0.3, 0.3, 0.05);
-                groundLocation.getWorld().spawnParticle(org.bukkit.Particle.CRIT, groundLocation.clone().add(0, 1, 0), 10, 0.2, 0.2, 0.2, 0.1);
-                // Geluid
-                groundLocation.getWorld().playSound(groundLocation, org.bukkit.Sound.ENTITY_SLIME_SQUISH, 0.8f, 1.2f);
-            } else {
-                // Blok is niet vrij, probeer 1 blok hoger
-                groundLocation.add(0, 1, 0);
-                if (groundLocation.getBlock().getType() == org.bukkit.Material.AIR) {
-                    groundLocation.getBlock().setType(org.bukkit.Material.SKULL);
-                    groundLocation.getBlock().setData((byte) 1);
-                    
-                    // Set de skull texture met BasketballTextureUtil
-                    org.bukkit.block.BlockState state = groundLocation.getBlock().getState();
-                    if (state instanceof org.bukkit.block.Skull) {
-                        org.bukkit.block.Skull skull = (org.bukkit.block.Skull) state;
-                        
-                        // Apply basketball texture using BasketballTextureUtil (this also sets the skull type)
-                        BasketballTextureUtil.applyBasketballTexture(skull);
-                        
-                        // Also apply texture to the material data
-                        try {
-                            org.bukkit.material.Skull materialSkull = (org.bukkit.material.Skull) skull.getData();
-                            BasketballTextureUtil.applyBasketballTexture(materialSkull);
-                            skull.setData(materialSkull);
-                            skull.update();
-                        } catch (Exception e) {
-                            if (plugin.getConfigManager().isDebugEnabled()) {
-                                plugin.getLogger().warning("Could not apply material skull texture: " + e.getMessage());
-                            }
-                        }
-                        
-                        if (plugin.getConfigManager().isDebugEnabled()) {
-                            plugin.getLogger().info("Basketball placed as skull block (1 block up, max bounces) at " + groundLocation);
-                        }
-                    }
-                    
-                    // Particle effect
-                    groundLocation.getWorld().spawnParticle(org.bukkit.Particle.CLOUD, groundLocation.clone().add(0, 1, 0), 20, 0.3, 0.3, 0.3, 0.05);
-                    groundLocation.getWorld().spawnParticle(org.bukkit.Particle.CRIT, groundLocation.clone().add(0, 1, 0), 10, 0.2, 0.2, 0.2, 0.1);
-                    // Geluid
-                    groundLocation.getWorld().playSound(groundLocation, org.bukkit.Sound.ENTITY_SLIME_SQUISH, 0.8f, 1.2f);
+            // Also apply texture to the material data
+            try {
+                org.bukkit.material.Skull materialSkull = (org.bukkit.material.Skull) skull.getData();
+                BasketballTextureUtil.applyBasketballTexture(materialSkull);
+                skull.setData(materialSkull);
+                skull.update();
+            } catch (Exception e) {
+                if (plugin.getConfigManager().isDebugEnabled()) {
+                    plugin.getLogger().warning("Could not apply material skull texture: " + e.getMessage());
                 }
             }
             
-            // Remove the basketball entity
-            removeBasketball(basketball);
-            
-            return;
-        }
-        
-        // Get current velocity and calculate realistic bounce
-        Vector velocity = basketball.getVelocity();
-        double impactSpeed = Math.abs(velocity.getY());
-        
-        // Calculate bounce based on impact speed with more realistic physics
-        // Basketball bounces well but loses energy progressively
-        double bounceMultiplier = 0.75; // Basketball bounces well
-        double energyLoss = 0.15; // Energy lost per bounce
-        
-        // Calculate bounce height based on impact speed and bounce count
-        double newY = impactSpeed * bounceMultiplier;
-        
-        // Apply progressive energy loss (more realistic than exponential decay)
-        for (int i = 0; i < basketball.getBounces(); i++) {
-            newY *= (1.0 - energyLoss);
-        }
-        
-        // Ensure minimum bounce height for realism
-        double minBounceHeight = 0.3;
-        if (newY < minBounceHeight && impactSpeed > 0.5) {
-            newY = minBounceHeight;
-        }
-        
-        // Apply realistic bounce physics
-        velocity.setY(newY);
-        
-        // Apply realistic horizontal friction (basketball loses speed on bounce)
-        double horizontalFriction = 0.85; // Basketball maintains some horizontal speed
-        velocity.setX(velocity.getX() * horizontalFriction);
-        velocity.setZ(velocity.getZ() * horizontalFriction);
-        
-        // Apply bounce
-        basketball.setVelocity(velocity);
-        basketball.setBounces(basketball.getBounces() + 1);
-        
-        // Spawn realistic bounce particles
-        Location bounceLocation = basketball.getEntity().getLocation();
-        BasketballRegion region = getBasketballRegion(basketball);
-        if (region != null && !region.getPlayersInRegion().isEmpty()) {
-            // Spawn particles for all players in region
-            for (Player player : region.getPlayersInRegion()) {
-                // Impact particles
-                player.spawnParticle(
-                    org.bukkit.Particle.SMOKE_NORMAL,
-                    bounceLocation.add(0, 0.3, 0),
-                    2, 0.1, 0.05, 0.1, 0.02
-                );
-                
-                // Bounce particles
-                player.spawnParticle(
-                    org.bukkit.Particle.VILLAGER_HAPPY,
-                    bounceLocation.add(0, 0.5, 0),
-                    1, 0.1, 0.1, 0.1, 0.01
-                );
+            if (plugin.getConfigManager().isDebugEnabled()) {
+                plugin.getLogger().info("Basketball placed as skull block (" + reason + ") at " + groundLocation);
             }
         }
         
-        if (plugin.getConfigManager().isDebugEnabled()) {
-            plugin.getLogger().info("Realistic basketball bounce! Bounce #" + basketball.getBounces() + 
-                ", Impact speed: " + impactSpeed + ", New velocity: " + velocity + ", Bounce height: " + newY);
-        }
+        // Particle effect
+        plugin.getMetricsManager().spawnParticle(MetricsManager.Effect.LANDING, groundLocation.getWorld(), org.bukkit.Particle.CLOUD, groundLocation.clone().add(0, 1, 0), 20, 0.3, 0.3, 0.3, 0.05);
+        plugin.getMetricsManager().spawnParticle(MetricsManager.Effect.LANDING, groundLocation.getWorld(), org.bukkit.Particle.CRIT, groundLocation.clone().add(0, 1, 0), 10, 0.2, 0.2, 0.2, 0.1);
+        // Geluid
+        plugin.getMetricsManager().playSound(MetricsManager.Effect.LANDING, groundLocation.getWorld(), groundLocation, org.bukkit.Sound.ENTITY_SLIME_SQUISH, 0.8f, 1.2f);
     }
     
     /**
-     * Handle basketball bounce (legacy method for compatibility)
+     * Spawn bounce particles for every player on the court
      * 
      * @param basketball The basketball
+     * @param region The court
      */
-    private void handleBounce(Basketball basketball) {
-        handleRealisticBounce(basketball);
+    private void playBounceEffects(Basketball basketball, BasketballRegion region) {
+        Location bounceLocation = basketball.getEntity().getLocation();
+        for (Player player : region.getPlayersInRegion()) {
+            // Impact particles
+            plugin.getMetricsManager().spawnParticle(MetricsManager.Effect.BOUNCE, player,
+                org.bukkit.Particle.SMOKE_NORMAL,
+                bounceLocation.add(0, 0.3, 0),
+                2, 0.1, 0.05, 0.1, 0.02
+            );
+            
+            // Bounce particles
+            plugin.getMetricsManager().spawnParticle(MetricsManager.Effect.BOUNCE, player,
+                org.bukkit.Particle.VILLAGER_HAPPY,
+                bounceLocation.add(0, 0.5, 0),
+                1, 0.1, 0.1, 0.1, 0.01
+            );
+        }
     }
     
     /**
-     * Handle realistic wall collision and region boundaries
+     * Spawn the particles and sounds of a court boundary pushback
      * 
-     * @param basketball The basketball
+     * @param region The court
+     * @param ballLocation The ball location
      */
-    private void handleWallCollision(Basketball basketball) {
-        Vector velocity = basketball.getVelocity();
-        Location ballLocation = basketball.getLocation();
-        
-        // Check region boundaries first (optimized)
-        BasketballRegion region = getBasketballRegion(basketball);
-        if (region != null) {
-            int[] bounds = region.getRegionBounds();
-            if (bounds != null) {
-                boolean hitBoundary = false;
-                
-                // DIRECT CHECK: if the ball is outside the region, bounce it back immediately
-                if (ballLocation.getBlockX() < bounds[0] || ballLocation.getBlockX() > bounds[1] ||
-                    ballLocation.getBlockZ() < bounds[4] || ballLocation.getBlockZ() > bounds[5]) {
-                    // Ball is outside the region, bounce it back to center with extra force
-                    Vector toRegionCenter = region.getCenter().toVector().subtract(ballLocation.toVector()).normalize();
-                    velocity.setX(toRegionCenter.getX() * 2.0); // Extra force
-                    velocity.setZ(toRegionCenter.getZ() * 2.0);
-                    velocity.setY(Math.abs(velocity.getY()) + 1.5); // Add upward bounce
-                    hitBoundary = true;
-                    
-                    if (plugin.getConfigManager().isDebugEnabled()) {
-                        plugin.getLogger().info("Basketball outside region bounds, bouncing back to center with force");
-                    }
-                }
-                
-                // Check X boundaries with keiharde terugstuitering (more aggressive)
-                if (ballLocation.getBlockX() <= bounds[0] + 2 || ballLocation.getBlockX() >= bounds[1] - 2) {
-                    // Keiharde terugstuitering - bereken richting naar dichtstbijzijnde speler toe
-                    Player nearestPlayer = getNearestPlayer(region, ballLocation);
-                    if (nearestPlayer != null && nearestPlayer.isOnline()) {
-                        // Bounce back towards the nearest player with extra force
-                        Vector toPlayer = nearestPlayer.getLocation().toVector().subtract(ballLocation.toVector()).normalize();
-                        velocity.setX(toPlayer.getX() * 3.0); // Extra force
-                        velocity.setZ(toPlayer.getZ() * 3.0);
-                        velocity.setY(Math.abs(velocity.getY()) + 1.5); // Add upward bounce
-                    } else {
-                        // Fallback: reverse with extra force
-                        velocity.setX(-velocity.getX() * 2.0); // Extra force instead of energy loss
-                    }
-                    hitBoundary = true;
-                    
-                    if (plugin.getConfigManager().isDebugEnabled()) {
-                        plugin.getLogger().info("Basketball hit X boundary, bouncing back");
-                    }
-                }
-                
-                // Check Z boundaries with keiharde terugstuitering (more aggressive)
-                if (ballLocation.getBlockZ() <= bounds[4] + 2 || ballLocation.getBlockZ() >= bounds[5] - 2) {
-                    // Keiharde terugstuitering - bereken richting naar dichtstbijzijnde speler toe
-                    Player nearestPlayer = getNearestPlayer(region, ballLocation);
-                    if (nearestPlayer != null && nearestPlayer.isOnline()) {
-                        // Bounce back towards the nearest player with extra force
-                        Vector toPlayer = nearestPlayer.getLocation().toVector().subtract(ballLocation.toVector()).normalize();
-                        velocity.setX(toPlayer.getX() * 3.0); // Extra force
-                        velocity.setZ(toPlayer.getZ() * 3.0);
-                        velocity.setY(Math.abs(velocity.getY()) + 1.5); // Add upward bounce
-                    } else {
-                        // Fallback: reverse with extra force
-                        velocity.setZ(-velocity.getZ() * 2.0); // Extra force instead of energy loss
-                    }
-                    hitBoundary = true;
-                    
-                    if (plugin.getConfigManager().isDebugEnabled()) {
-                        plugin.getLogger().info("Basketball hit Z boundary, bouncing back");
-                    }
-                }
-                
-                // Check Y boundaries (keep ball within height limits)
-                if (ballLocation.getBlockY() <= bounds[2] || ballLocation.getBlockY() >= bounds[3]) {
-                    velocity.setY(-velocity.getY() * 0.75);
-                    hitBoundary = true;
-                    
-                    if (plugin.getConfigManager().isDebugEnabled()) {
-                        plugin.getLogger().info("Basketball hit Y boundary, bouncing back");
-                    }
-                }
-                
-                if (hitBoundary) {
-                    // Spawn wall collision particles with extra effects for keiharde terugstuitering
-                    Location collisionLocation = ballLocation.clone();
-                    if (region.getPlayersInRegion().size() > 0) {
-                        Player firstPlayer = region.getPlayersInRegion().iterator().next();
-                        
-                        // Extra particles for keiharde terugstuitering
-                        firstPlayer.spawnParticle(
-                            org.bukkit.Particle.EXPLOSION_NORMAL,
-                            collisionLocation.add(0, 0.5, 0),
-                            5, 0.3, 0.3, 0.3, 0.05
-                        );
-                        
-                        firstPlayer.spawnParticle(
-                            org.bukkit.Particle.SMOKE_NORMAL,
-                            collisionLocation,
-                            8, 0.2, 0.2, 0.2, 0.02
-                        );
-                        
-                        // Add bounce sound effect with extra volume
-                        firstPlayer.playSound(collisionLocation, org.bukkit.Sound.BLOCK_STONE_HIT, 1.2f, 0.8f);
-                        firstPlayer.playSound(collisionLocation, org.bukkit.Sound.ENTITY_GENERIC_EXPLODE, 0.5f, 1.2f);
-                    }
-                    
-                    if (plugin.getConfigManager().isDebugEnabled()) {
-                        plugin.getLogger().info("Keiharde terugstuitering triggered - New velocity: " + velocity);
-                    }
-                    
-                    // Apply velocity and let the ball bounce naturally
-                    basketball.setVelocity(velocity);
-                    return; // Don't do regular wall collision if we hit region boundary
-                }
-            }
+    private void playBoundaryEffects(BasketballRegion region, Location ballLocation) {
+        if (region.getPlayersInRegion().isEmpty()) {
+            return;
         }
-        
-        // Regular wall collision - check for actual blocks
-        Location frontCheck = ballLocation.clone().add(velocity.getX() * 0.5, 0, velocity.getZ() * 0.5);
-        if (frontCheck.getBlock().getType().isSolid()) {
-            // Ball hit a wall, reverse direction with energy loss
-            if (Math.abs(velocity.getX()) > 0.1) {
-                velocity.setX(-velocity.getX() * 0.75);
-            }
-            if (Math.abs(velocity.getZ()) > 0.1) {
-                velocity.setZ(-velocity.getZ() * 0.75);
-            }
-            
-            // Spawn wall collision particles
-            Location collisionLocation = ballLocation.clone();
-            BasketballRegion region2 = getBasketballRegion(basketball);
-            if (region2 != null && region2.getPlayersInRegion().size() > 0) {
-                Player firstPlayer = region2.getPlayersInRegion().iterator().next();
-                firstPlayer.spawnParticle(
-                    org.bukkit.Particle.SMOKE_NORMAL,
-                    collisionLocation.add(0, 0.5, 0),
-                    3, 0.1, 0.1, 0.1, 0.02
-                );
-                
-                // Add bounce sound effect
-                firstPlayer.playSound(collisionLocation, org.bukkit.Sound.BLOCK_STONE_HIT, 0.5f, 1.0f);
-            }
+        Player firstPlayer = region.getPlayersInRegion().iterator().next();
+        Location collisionLocation = ballLocation.clone();
+        
+        // Extra particles for keiharde terugstuitering
+        plugin.getMetricsManager().spawnParticle(MetricsManager.Effect.COLLISION, firstPlayer,
+            org.bukkit.Particle.EXPLOSION_NORMAL,
+            collisionLocation.add(0, 0.5, 0),
+            5, 0.3, 0.3, 0.3, 0.05
+        );
+        
+        plugin.getMetricsManager().spawnParticle(MetricsManager.Effect.COLLISION, firstPlayer,
+            org.bukkit.Particle.SMOKE_NORMAL,
+            collisionLocation,
+            8, 0.2, 0.2, 0.2, 0.02
+        );
+        
+        // Add bounce sound effect with extra volume
+        plugin.getMetricsManager().playSound(MetricsManager.Effect.COLLISION, firstPlayer, collisionLocation, org.bukkit.Sound.BLOCK_STONE_HIT, 1.2f, 0.8f);
+        plugin.getMetricsManager().playSound(MetricsManager.Effect.COLLISION, firstPlayer, collisionLocation, org.bukkit.Sound.ENTITY_GENERIC_EXPLODE, 0.5f, 1.2f);
+    }
+    
+    /**
+     * Spawn the particles and sound of a ball hitting a wall
+     * 
+     * @param region The court
+     * @param ballLocation The ball location
+     */
+    private void playWallEffects(BasketballRegion region, Location ballLocation) {
+        if (region.getPlayersInRegion().isEmpty()) {
+            return;
         }
-        
-        basketball.setVelocity(velocity);
+        Player firstPlayer = region.getPlayersInRegion().iterator().next();
+        Location collisionLocation = ballLocation.clone();
+        plugin.getMetricsManager().spawnParticle(MetricsManager.Effect.COLLISION, firstPlayer,
+            org.bukkit.Particle.SMOKE_NORMAL,
+            collisionLocation.add(0, 0.5, 0),
+            3, 0.1, 0.1, 0.1, 0.02
+        );
+        
+        // Add bounce sound effect
+        plugin.getMetricsManager().playSound(MetricsManager.Effect.COLLISION, firstPlayer, collisionLocation, org.bukkit.Sound.BLOCK_STONE_HIT, 0.5f, 1.0f);
     }
     
     /**
@@ -660,21 +461,43 @@ public class BasketballManager {
      * @return True if in pickup range
      */
     public boolean isInPickupRange(Player player, Basketball basketball) {
-        if (basketball == null) {
+        return isInPickupRange(player.getLocation(), basketball);
+    }
+    
+    /**
+     * Check if basketball is in pickup range of a location
+     * 
+     * @param location The player location
+     * @param basketball The basketball
+     * @return True if in pickup range
+     */
+    public boolean isInPickupRange(Location location, Basketball basketball) {
+        if (basketball == null || basketball.getEntity() == null) {
             return false;
         }
         
-        double pickupRange = plugin.getConfigManager().getPickupRange();
-        double distance = player.getLocation().distance(basketball.getLocation());
+        Location ballLocation = basketball.getLocation();
+        if (ballLocation.getWorld() != location.getWorld()) {
+            return false;
+        }
         
-        // Increased pickup range for better usability
-        double effectiveRange = pickupRange * 2.0;
+        double distanceSquared = location.distanceSquared(ballLocation);
+        double effectiveRange = getEffectivePickupRange();
         
-        if (plugin.getConfigManager().isDebugEnabled()) {
-            plugin.getLogger().info("Pickup check - Distance: " + distance + ", Range: " + effectiveRange);
-        }
+        plugin.getTraceManager().trace(TraceManager.Event.PICKUP_CHECK, null, basketball.getRegionName(),
+            distanceSquared, effectiveRange, 0, null);
         
-        return distance <= effectiveRange;
+        return distanceSquared <= effectiveRange * effectiveRange;
+    }
+    
+    /**
+     * Get the distance within which a player can pick up a basketball
+     * 
+     * @return The pickup range in blocks
+     */
+    public double getEffectivePickupRange() {
+        // Increased pickup range for better usability
+        return plugin.getConfigManager().getPickupRange() * 2.0;
     }
     
     /**
@@ -767,52 +590,16 @@ public class BasketballManager {
             return;
         }
         
-        // Check all players in the region for auto-pickup (multiplayer basketball!)
-        for (Player player : region.getPlayersInRegion()) {
-            if (!player.isOnline()) {
-                continue;
-            }
-            
-            // Check if player is close enough for auto-pickup
-            double autoPickupRange = 3.0; // 3 blocks auto-pickup range
-            double distance = player.getLocation().distance(basketball.getLocation());
-            
-            if (distance <= autoPickupRange) {
-                if (plugin.getConfigManager().isDebugEnabled()) {
-                    plugin.getLogger().info("Auto-pickup triggered for " + player.getName() + " at distance " + distance);
-                }
-                
-                // Auto-pickup the basketball (anyone can pick it up!)
-                pickupBasketball(player, basketball);
-                return; // Only pickup by one player
-            }
-        }
-    }
-    
-    /**
-     * Get the nearest player to a location in a region
-     * 
-     * @param region The basketball region
-     * @param location The location to check from
-     * @return The nearest player or null
-     */
-    private Player getNearestPlayer(BasketballRegion region, Location location) {
-        Player nearestPlayer = null;
-        double closestDistance = Double.MAX_VALUE;
-        
-        for (Player player : region.getPlayersInRegion()) {
-            if (!player.isOnline()) {
-                continue;
-            }
+        // The nearest player in the region picks it up (multiplayer basketball!)
+        Location ballLocation = basketball.getLocation();
+        Player player = region.getNearestPlayerWithin(ballLocation, AUTO_PICKUP_RANGE);
+        if (player != null) {
+            plugin.getTraceManager().trace(TraceManager.Event.PICKUP_AUTO, player.getName(), region.getRegionName(),
+                player.getLocation().distanceSquared(ballLocation), 0, 0, null);
             
-            double distance = player.getLocation().distance(location);
-            if (distance < closestDistance) {
-                closestDistance = distance;
-                nearestPlayer = player;
-            }
+            // Auto-pickup the basketball (anyone can pick it up!)
+            pickupBasketball(player, basketball);
         }
-        
-        return nearestPlayer;
     }
     
     /**
@@ -826,25 +613,15 @@ public class BasketballManager {
             return;
         }
         
-        // Check all players in the region for auto-pickup
-        for (Player player : region.getPlayersInRegion()) {
-            if (!player.isOnline()) {
-                continue;
-            }
-            
-            // Check if player is close enough for auto-pickup
-            double autoPickupRange = 3.0; // 3 blocks auto-pickup range
-            double distance = player.getLocation().distance(basketball.getLocation());
+        // Check the players in the region for auto-pickup
+        Location ballLocation = basketball.getLocation();
+        Player player = region.getNearestPlayerWithin(ballLocation, AUTO_PICKUP_RANGE);
+        if (player != null) {
+            plugin.getTraceManager().trace(TraceManager.Event.PICKUP_AUTO, player.getName(), region.getRegionName(),
+                player.getLocation().distanceSquared(ballLocation), 0, 0, null);
             
-            if (distance <= autoPickupRange) {
-                if (plugin.getConfigManager().isDebugEnabled()) {
-                    plugin.getLogger().info("Auto-pickup triggered for " + player.getName() + " at distance " + distance);
-                }
-                
-                // Auto-pickup the basketball
-                pickupBasketball(player, basketball);
-                return; // Only pickup by one player
-            }
+            // Auto-pickup the basketball
+            pickupBasketball(player, basketball);
         }
     }
     
@@ -855,22 +632,15 @@ public class BasketballManager {
      * @return True if the player has a basketball
      */
     public boolean hasBasketballInInventory(Player player) {
-        if (plugin.getConfigManager().isDebugEnabled()) {
-            plugin.getLogger().info("Checking if " + player.getName() + " has basketball in inventory...");
-        }
-        
-        for (ItemStack item : player.getInventory().getContents()) {
-            if (item != null && ItemUtil.isBasketballItem(item)) {
-                if (plugin.getConfigManager().isDebugEnabled()) {
-                    plugin.getLogger().info("Found basketball in " + player.getName() + "'s inventory");
-                }
+        ItemStack[] contents = player.getInventory().getContents();
+        for (int slot = 0; slot < contents.length; slot++) {
+            if (contents[slot] != null && ItemUtil.isBasketballItem(contents[slot])) {
+                plugin.getTraceManager().trace(TraceManager.Event.INVENTORY_CHECK, player.getName(), null, 1, slot + 1, 0, null);
                 return true;
             }
         }
         
-        if (plugin.getConfigManager().isDebugEnabled()) {
-            plugin.getLogger().info("No basketball found in " + player.getName() + "'s inventory");
-        }
+        plugin.getTraceManager().trace(TraceManager.Event.INVENTORY_CHECK, player.getName(), null, 0, contents.length, 0, null);
         return false;
     }
     
@@ -888,7 +658,7 @@ public class BasketballManager {
         ItemStack item = BasketballTextureUtil.createBasketballSkullItem(plugin.getConfigManager().getBasketballName());
         
         // Add NBT tag to identify as basketball
-        item = io.github.bananapuncher714.nbteditor.NBTEditor.set(item, true, "basketball");
+        item = ItemUtil.tagBasketballItem(item);
         
         // Verify NBT was added correctly
         if (plugin.getConfigManager().isDebugEnabled()) {
@@ -907,6 +677,25 @@ public class BasketballManager {
      */
     public void registerRegion(String name, BasketballRegion region) {
         regions.put(name, region);
+        
+        // Balls of the court that are already out go into its grid
+        for (Basketball basketball : basketballs.values()) {
+            if (name.equals(basketball.getRegionName()) && basketball.getEntity() != null) {
+                region.updateBallPosition(basketball, basketball.getLocation());
+                courtlessBalls.remove(basketball.getEntity().getUniqueId());
+            }
+        }
+        
+        // Courts stay dormant until one of their chunks is loaded
+        if (plugin.getCourtActivationManager() != null) {
+            plugin.getCourtActivationManager().track(region);
+        }
+        
+        // Courts created after their players joined still get the cached wins
+        StatsCacheManager statsCache = plugin.getDataManager() != null ? plugin.getDataManager().getStatsCache() : null;
+        if (statsCache != null) {
+            statsCache.onRegionRegistered(region);
+        }
     }
     
     /**
@@ -916,6 +705,16 @@ public class BasketballManager {
      */
     public void unregisterRegion(String name) {
         regions.remove(name);
+        
+        for (Basketball basketball : basketballs.values()) {
+            if (name.equals(basketball.getRegionName()) && basketball.getEntity() != null) {
+                courtlessBalls.put(basketball.getEntity().getUniqueId(), basketball);
+            }
+        }
+        
+        if (plugin.getCourtActivationManager() != null) {
+            plugin.getCourtActivationManager().untrack(name);
+        }
     }
     
     /**
@@ -946,6 +745,16 @@ public class BasketballManager {
         return basketballs;
     }
     
+    /**
+     * Get the basketballs without a registered court. Every other ball is in
+     * the grid of its court.
+     * 
+     * @return The basketballs without a court
+     */
+    public Collection<Basketball> getCourtlessBasketballs() {
+        return courtlessBalls.values();
+    }
+    
     /**
      * Update player wins when a player joins
      * 
@@ -958,7 +767,11 @@ public class BasketballManager {
     }
 
     /**
-     * Clean up all basketball entities and blocks in all regions on startup
+     * Clean up basketball entities now and basketball skull blocks in slices.
+     * Skulls are tile entities, so only the tile entities of the court chunks
+     * are checked instead of every block, a few chunks per tick. Only chunks
+     * that are loaded are queued; dormant courts are cleaned up by
+     * {@link CourtActivationManager} when their chunks load.
      */
     public void cleanupBasketballsOnStartup() {
         if (plugin.getConfigManager().isDebugEnabled()) {
@@ -966,7 +779,6 @@ public class BasketballManager {
         }
         
         int removedEntities = 0;
-        int removedBlocks = 0;
         
         // Clean up all basketball entities
         for (Basketball basketball : basketballs.values()) {
@@ -977,39 +789,15 @@ public class BasketballManager {
         }
         basketballs.clear();
         
-        // Clean up basketball skull blocks in all regions
+        // Queue every loaded chunk of every court
         for (BasketballRegion region : regions.values()) {
+            World world = region.getCenter().getWorld();
             int[] bounds = region.getRegionBounds();
-            if (bounds != null) {
-                for (int x = bounds[0]; x <= bounds[1]; x++) {
-                    for (int y = bounds[2]; y <= bounds[3]; y++) {
-                        for (int z = bounds[4]; z <= bounds[5]; z++) {
-                            Location loc = new Location(region.getCenter().getWorld(), x, y, z);
-                            if (loc.getBlock().getType() == Material.SKULL) {
-                                // Check if it's a basketball skull
-                                org.bukkit.block.BlockState state = loc.getBlock().getState();
-                                if (state instanceof org.bukkit.block.Skull) {
-                                    org.bukkit.block.Skull skull = (org.bukkit.block.Skull) state;
-                                    if (skull.getSkullType() == org.bukkit.SkullType.PLAYER) {
-                                        try {
-                                            org.bukkit.inventory.meta.SkullMeta meta = (org.bukkit.inventory.meta.SkullMeta) skull.getData();
-                                            if (meta.hasOwner() && meta.getOwner().equals("9a869760-a4ae-49ac-9598-e136ce74ba73")) {
-                                                // This is a basketball skull block, remove it
-                                                loc.getBlock().setType(Material.AIR);
-                                                removedBlocks++;
-                                                
-                                                if (plugin.getConfigManager().isDebugEnabled()) {
-                                                    plugin.getLogger().info("Removed basketball skull block at " + loc);
-                                                }
-                                            }
-                                        } catch (Exception e) {
-                                            if (plugin.getConfigManager().isDebugEnabled()) {
-                                                plugin.getLogger().warning("Error checking basketball skull block: " + e.getMessage());
-                                            }
-                                        }
-                                    }
-                                }
-                            }
+            if (bounds != null && world != null) {
+                for (int chunkX = bounds[0] >> 4; chunkX <= bounds[1] >> 4; chunkX++) {
+                    for (int chunkZ = bounds[4] >> 4; chunkZ <= bounds[5] >> 4; chunkZ++) {
+                        if (world.isChunkLoaded(chunkX, chunkZ)) {
+                            queueCleanup(world, chunkX, chunkZ, bounds);
                         }
                     }
                 }
@@ -1017,8 +805,88 @@ public class BasketballManager {
         }
         
         if (plugin.getConfigManager().isDebugEnabled()) {
-            plugin.getLogger().info("Basketball cleanup complete - Removed " + removedEntities + " entities and " + removedBlocks + " blocks");
+            plugin.getLogger().info("Basketball cleanup started - Removed " + removedEntities + " entities, " + cleanupQueue.size() + " chunks queued");
+        }
+    }
+    
+    /**
+     * Queue a court chunk for the sliced skull cleanup
+     * 
+     * @param world The world
+     * @param chunkX The chunk X coordinate
+     * @param chunkZ The chunk Z coordinate
+     * @param bounds The court bounds {minX, maxX, minY, maxY, minZ, maxZ}
+     */
+    public void queueCleanup(World world, int chunkX, int chunkZ, int[] bounds) {
+        cleanupQueue.add(new CleanupSlice(world, chunkX, chunkZ, bounds));
+        if (cleanupTask != null) {
+            return;
+        }
+        
+        // Runs until the queue is empty, however long that takes
+        cleanupTask = new TimedRunnable(TimingsManager.SKULL_CLEANUP, null, 0) {
+            private int removedBlocks = 0;
+            
+            @Override
+            protected void tick() {
+                for (int i = 0; i < CLEANUP_CHUNKS_PER_TICK && !cleanupQueue.isEmpty(); i++) {
+                    removedBlocks += cleanupSlice(cleanupQueue.poll());
+                }
+                
+                if (cleanupQueue.isEmpty()) {
+                    cancel();
+                    cleanupTask = null;
+                    if (plugin.getConfigManager().isDebugEnabled() && removedBlocks > 0) {
+                        plugin.getLogger().info("Basketball cleanup removed " + removedBlocks + " blocks");
+                    }
+                }
+            }
+        }.runTaskTimer(plugin, 1L, 1L);
+    }
+    
+    /**
+     * Remove the basketball skull blocks of one court chunk, if it is loaded
+     * 
+     * @return The number of removed blocks
+     */
+    private int cleanupSlice(CleanupSlice slice) {
+        // Never load a chunk just to clean it, it is queued again when it loads
+        if (!slice.world.isChunkLoaded(slice.chunkX, slice.chunkZ)) {
+            return 0;
         }
+        
+        int removedBlocks = 0;
+        int[] bounds = slice.bounds;
+        
+        for (org.bukkit.block.BlockState state : slice.world.getChunkAt(slice.chunkX, slice.chunkZ).getTileEntities()) {
+            if (!(state instanceof org.bukkit.block.Skull)
+                || state.getX() < bounds[0] || state.getX() > bounds[1]
+                || state.getY() < bounds[2] || state.getY() > bounds[3]
+                || state.getZ() < bounds[4] || state.getZ() > bounds[5]) {
+                continue;
+            }
+            
+            org.bukkit.block.Skull skull = (org.bukkit.block.Skull) state;
+            if (skull.getSkullType() == org.bukkit.SkullType.PLAYER) {
+                try {
+                    org.bukkit.inventory.meta.SkullMeta meta = (org.bukkit.inventory.meta.SkullMeta) skull.getData();
+                    if (meta.hasOwner() && meta.getOwner().equals("9a869760-a4ae-49ac-9598-e136ce74ba73")) {
+                        // This is a basketball skull block, remove it
+                        state.getBlock().setType(Material.AIR);
+                        removedBlocks++;
+                        
+                        if (plugin.getConfigManager().isDebugEnabled()) {
+                            plugin.getLogger().info("Removed basketball skull block at " + state.getLocation());
+                        }
+                    }
+                } catch (Exception e) {
+                    if (plugin.getConfigManager().isDebugEnabled()) {
+                        plugin.getLogger().warning("Error checking basketball skull block: " + e.getMessage());
+                    }
+                }
+            }
+        }
+        return removedBlocks;
     }
 
     /**
@@ -1079,10 +947,10 @@ public class BasketballManager {
             }
             
             // Particle effect
-            location.getWorld().spawnParticle(org.bukkit.Particle.CLOUD, location.clone().add(0, 1, 0), 20, 0.3, 0.3, 0.3, 0.05);
-            location.getWorld().spawnParticle(org.bukkit.Particle.CRIT, location.clone().add(0, 1, 0), 10, 0.2, 0.2, 0.2, 0.1);
+            plugin.getMetricsManager().spawnParticle(MetricsManager.Effect.LANDING, location.getWorld(), org.bukkit.Particle.CLOUD, location.clone().add(0, 1, 0), 20, 0.3, 0.3, 0.3, 0.05);
+            plugin.getMetricsManager().spawnParticle(MetricsManager.Effect.LANDING, location.getWorld(), org.bukkit.Particle.CRIT, location.clone().add(0, 1, 0), 10, 0.2, 0.2, 0.2, 0.1);
             // Geluid
-            location.getWorld().playSound(location, org.bukkit.Sound.ENTITY_SLIME_SQUISH, 0.8f, 1.2f);
+            plugin.getMetricsManager().playSound(MetricsManager.Effect.LANDING, location.getWorld(), location, org.bukkit.Sound.ENTITY_SLIME_SQUISH, 0.8f, 1.2f);
             
             if (plugin.getConfigManager().isDebugEnabled()) {
                 plugin.getLogger().info("Basketball dropped on ground at " + groundLocation);
@@ -1120,10 +988,10 @@ public class BasketballManager {
                 }
                 
                 // Particle effect
-                location.getWorld().spawnParticle(org.bukkit.Particle.CLOUD, location.clone().add(0, 1, 0), 20, 0.3, 0.3, 0.3, 0.05);
-                location.getWorld().spawnParticle(org.bukkit.Particle.CRIT, location.clone().add(0, 1, 0), 10, 0.2, 0.2, 0.2, 0.1);
+                plugin.getMetricsManager().spawnParticle(MetricsManager.Effect.LANDING, location.getWorld(), org.bukkit.Particle.CLOUD, location.clone().add(0, 1, 0), 20, 0.3, 0.3, 0.3, 0.05);
+                plugin.getMetricsManager().spawnParticle(MetricsManager.Effect.LANDING, location.getWorld(), org.bukkit.Particle.CRIT, location.clone().add(0, 1, 0), 10, 0.2, 0.2, 0.2, 0.1);
                 // Geluid
-                location.getWorld().playSound(location, org.bukkit.Sound.ENTITY_SLIME_SQUISH, 0.8f, 1.2f);
+                plugin.getMetricsManager().playSound(MetricsManager.Effect.LANDING, location.getWorld(), location, org.bukkit.Sound.ENTITY_SLIME_SQUISH, 0.8f, 1.2f);
                 
                 if (plugin.getConfigManager().isDebugEnabled()) {
                     plugin.getLogger().info("Basketball dropped on ground (1 block up) at " + groundLocation);
@@ -1136,41 +1004,21 @@ public class BasketballManager {
      * Verwijder alle basketballen uit de inventory van de speler
      */
     public void removeBasketballFromInventory(Player player) {
-        boolean removedAny = false;
         int removedCount = 0;
         
-        if (plugin.getConfigManager().isDebugEnabled()) {
-            plugin.getLogger().info("BasketballManager: Checking inventory for basketball items...");
-        }
-        
         for (int i = 0; i < player.getInventory().getSize(); i++) {
             ItemStack item = player.getInventory().getItem(i);
-            if (item != null) {
-                if (plugin.getConfigManager().isDebugEnabled()) {
-                    plugin.getLogger().info("BasketballManager: Slot " + i + ": " + item.getType() + ":" + item.getData().getData());
-                }
-                
-                if (ItemUtil.isBasketballItem(item)) {
-                    if (plugin.getConfigManager().isDebugEnabled()) {
-                        plugin.getLogger().info("BasketballManager: Found basketball in slot " + i + ", removing...");
-                    }
-                    // Set the item to null (remove it completely)
-                    player.getInventory().setItem(i, null);
-                    removedCount++;
-                    removedAny = true;
-                }
+            if (item != null && ItemUtil.isBasketballItem(item)) {
+                // Set the item to null (remove it completely)
+                player.getInventory().setItem(i, null);
+                removedCount++;
             }
         }
         
-        if (removedAny) {
+        if (removedCount > 0) {
             player.updateInventory();
-            
-            if (plugin.getConfigManager().isDebugEnabled()) {
-                plugin.getLogger().info("BasketballManager: Removed " + removedCount + " basketball(s) from " + player.getName() + "'s inventory");
-            }
-        } else if (plugin.getConfigManager().isDebugEnabled()) {
-            plugin.getLogger().info("BasketballManager: No basketball found in " + player.getName() + "'s inventory");
         }
+        plugin.getTraceManager().trace(TraceManager.Event.INVENTORY_REMOVE, player.getName(), null, removedCount, 0, 0, null);
     }
 
     /**
@@ -1188,63 +1036,6 @@ public class BasketballManager {
         return ItemUtil.isBasketballItem(item);
     }
 
-    /**
-     * Check if basketball is out of bounds (outside region or stuck on ground)
-     * and respawn it at bedrock if needed
-     * 
-     * @param basketball The basketball to check
-     * @return True if basketball was respawned, false otherwise
-     */
-    private boolean checkBasketballOutOfBounds(Basketball basketball) {
-        Location ballLocation = basketball.getLocation();
-        BasketballRegion region = getBasketballRegion(basketball);
-        
-        if (region == null) {
-            if (plugin.getConfigManager().isDebugEnabled()) {
-                plugin.getLogger().warning("Basketball has no region, removing...");
-            }
-            removeBasketball(basketball);
-            return true;
-        }
-        
-        int[] bounds = region.getRegionBounds();
-        if (bounds == null) {
-            if (plugin.getConfigManager().isDebugEnabled()) {
-                plugin.getLogger().warning("Region has no bounds, removing basketball...");
-            }
-            removeBasketball(basketball);
-            return true;
-        }
-        
-        // Check if basketball is outside region boundaries
-        boolean outsideRegion = ballLocation.getBlockX() < bounds[0] - 1 || ballLocation.getBlockX() > bounds[1] + 1 ||
-                              ballLocation.getBlockZ() < bounds[4] - 1 || ballLocation.getBlockZ() > bounds[5] + 1 ||
-                              ballLocation.getBlockY() < bounds[2] - 1 || ballLocation.getBlockY() > bounds[3] + 1;
-        
-        // Check if basketball is stuck on ground (not moving and on ground)
-        boolean stuckOnGround = Math.abs(basketball.getVelocity().getX()) < 0.01 && 
-                              Math.abs(basketball.getVelocity().getZ()) < 0.01 && 
-                              Math.abs(basketball.getVelocity().getY()) < 0.01 &&
-                              ballLocation.getBlock().getRelative(0, -1, 0).getType().isSolid();
-        
-        if (outsideRegion || stuckOnGround) {
-            if (plugin.getConfigManager().isDebugEnabled()) {
-                plugin.getLogger().info("Basketball out of bounds - Outside: " + outsideRegion + 
-                    ", Stuck: " + stuckOnGround + ", Location: " + ballLocation);
-            }
-            
-            // Remove the basketball entity
-            removeBasketball(basketball);
-            
-            // Respawn basketball at bedrock with animation
-            respawnBasketballAtBedrock(region);
-            
-            return true;
-        }
-        
-        return false;
-    }
-    
     /**
      * Respawn basketball at spawn location with animation
      * 
@@ -1267,13 +1058,13 @@ public class BasketballManager {
      * @param region The basketball region
      */
     private void animateBasketballSpawn(Basketball basketball, Location spawnLocation, BasketballRegion region) {
-        new org.bukkit.scheduler.BukkitRunnable() {
+        new TimedRunnable(TimingsManager.EFFECTS, region.getRegionName()) {
             private int ticks = 0;
             private final int maxTicks = 40; // 2 seconds
             private final double maxHeight = 3.0; // Maximum height to rise
             
             @Override
-            public void run() {
+            protected void tick() {
                 if (ticks >= maxTicks || basketball.getEntity() == null || basketball.getEntity().isDead()) {
                     this.cancel();
                     return;
@@ -1335,4 +1126,21 @@ public class BasketballManager {
             }
         }
     }
-} 
\ No newline at end of file
+    
+    /**
+     * One chunk of a court that still has to be cleaned up
+     */
+    private static final class CleanupSlice {
+        private final World world;
+        private final int chunkX;
+        private final int chunkZ;
+        private final int[] bounds;
+        
+        private CleanupSlice(World world, int chunkX, int chunkZ, int[] bounds) {
+            this.world = world;
+            this.chunkX = chunkX;
+            this.chunkZ = chunkZ;
+            this.bounds = bounds;
+        }
+    }
+}
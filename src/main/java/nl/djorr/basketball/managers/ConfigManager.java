@@ -35,6 +35,10 @@ public class ConfigManager {
     private double throwArc;
     private double pickupRange;
     
+    // Interaction settings
+    private int interactionBurst = 8;
+    private double interactionRate = 5.0;
+    
     // Scoring settings
     private int pointsPerBasket;
     private int titleDuration;
@@ -47,12 +51,53 @@ public class ConfigManager {
     private Material backboardMaterial;
     private byte backboardData;
     
+    // Leaderboard settings
+    private int leaderboardRefreshInterval = 20;
+    
+    // Storage settings
+    private String storageType = "yaml";
+    private long journalCommitInterval = 50;
+    private int compactionInterval = 300;
+    private int statsCacheSize = 1000;
+    private int statsCacheEvictAfter = 300;
+    private int mmapCapacity = 65536;
+    private int mmapMaxRegions = 64;
+    
+    // Match history settings
+    private boolean historyEnabled = true;
+    private int historyBufferSize = 4096;
+    private long historyFlushInterval = 1000;
+    private int historyRetentionDays = 30;
+    
+    // Stats sync settings
+    private boolean syncEnabled = false;
+    private String syncNodeId = "";
+    private String syncDirectory = "sync";
+    private long syncInterval = 500;
+    private int syncMaxBatch = 500;
+    
+    // Metrics settings
+    private boolean metricsEnabled = false;
+    private String metricsMode = "http";
+    private int metricsPort = 9464;
+    private String metricsTextfile = "metrics/basketball.prom";
+    private long metricsInterval = 15000;
+    
+    // Task watchdog settings
+    private long taskMaxLifetime = 600;
+    
     // Messages
     private Map<String, String> messages;
     
     // Debug settings
     private boolean debugEnabled;
     private boolean logRegionChecks;
+    private boolean timingsEnabled = true;
+    private boolean replayEnabled;
+    private int flightRecorderPhysicsSample = 10;
+    private int traceBufferSize = 8192;
+    private boolean traceToFile = true;
+    private final Map<String, Integer> traceSampleRates = new HashMap<>();
     
     /**
      * Constructor for ConfigManager
@@ -75,8 +120,15 @@ public class ConfigManager {
         loadDebugSettings();
         loadBasketballSettings();
         loadPhysicsSettings();
+        loadInteractionSettings();
         loadScoringSettings();
         loadHoopSettings();
+        loadLeaderboardSettings();
+        loadStorageSettings();
+        loadHistorySettings();
+        loadSyncSettings();
+        loadMetricsSettings();
+        loadTaskSettings();
         loadMessages();
     }
     
@@ -88,6 +140,19 @@ public class ConfigManager {
         if (debugSection != null) {
             this.debugEnabled = debugSection.getBoolean("enabled", false);
             this.logRegionChecks = debugSection.getBoolean("log_region_checks", false);
+            this.timingsEnabled = debugSection.getBoolean("timings", true);
+            this.replayEnabled = debugSection.getBoolean("record_throws", false);
+            this.flightRecorderPhysicsSample = debugSection.getInt("jfr_physics_sample", 10);
+            this.traceBufferSize = debugSection.getInt("trace.buffer_size", 8192);
+            this.traceToFile = debugSection.getBoolean("trace.file", true);
+            
+            traceSampleRates.clear();
+            ConfigurationSection sampleSection = debugSection.getConfigurationSection("trace.sample");
+            if (sampleSection != null) {
+                for (String category : sampleSection.getKeys(false)) {
+                    traceSampleRates.put(category, sampleSection.getInt(category, 1));
+                }
+            }
         }
         
 
@@ -147,6 +212,94 @@ public class ConfigManager {
         }
     }
     
+    /**
+     * Load leaderboard settings
+     */
+    private void loadLeaderboardSettings() {
+        ConfigurationSection leaderboardSection = config.getConfigurationSection("basketball.leaderboard");
+        if (leaderboardSection != null) {
+            this.leaderboardRefreshInterval = leaderboardSection.getInt("refresh_interval", 20);
+        }
+    }
+    
+    /**
+     * Load storage settings
+     */
+    private void loadStorageSettings() {
+        ConfigurationSection storageSection = config.getConfigurationSection("basketball.storage");
+        if (storageSection != null) {
+            this.storageType = storageSection.getString("type", "yaml").toLowerCase();
+            this.journalCommitInterval = storageSection.getLong("journal_commit_interval", 50);
+            this.compactionInterval = storageSection.getInt("compaction_interval", 300);
+            this.statsCacheSize = storageSection.getInt("cache_size", 1000);
+            this.statsCacheEvictAfter = storageSection.getInt("cache_evict_after", 300);
+            this.mmapCapacity = storageSection.getInt("mmap_capacity", 65536);
+            this.mmapMaxRegions = storageSection.getInt("mmap_max_regions", 64);
+        }
+    }
+    
+    /**
+     * Load match history settings
+     */
+    private void loadHistorySettings() {
+        ConfigurationSection historySection = config.getConfigurationSection("basketball.history");
+        if (historySection != null) {
+            this.historyEnabled = historySection.getBoolean("enabled", true);
+            this.historyBufferSize = historySection.getInt("buffer_size", 4096);
+            this.historyFlushInterval = historySection.getLong("flush_interval", 1000);
+            this.historyRetentionDays = historySection.getInt("retention_days", 30);
+        }
+    }
+    
+    /**
+     * Load stats sync settings
+     */
+    private void loadSyncSettings() {
+        ConfigurationSection syncSection = config.getConfigurationSection("basketball.sync");
+        if (syncSection != null) {
+            this.syncEnabled = syncSection.getBoolean("enabled", false);
+            this.syncNodeId = syncSection.getString("node_id", "");
+            this.syncDirectory = syncSection.getString("directory", "sync");
+            this.syncInterval = syncSection.getLong("interval", 500);
+            this.syncMaxBatch = syncSection.getInt("max_batch", 500);
+        }
+    }
+    
+    /**
+     * Load metrics exporter settings
+     */
+    private void loadMetricsSettings() {
+        ConfigurationSection metricsSection = config.getConfigurationSection("basketball.metrics");
+        if (metricsSection != null) {
+            this.metricsEnabled = metricsSection.getBoolean("enabled", false);
+            this.metricsMode = metricsSection.getString("mode", "http");
+            this.metricsPort = metricsSection.getInt("port", 9464);
+            this.metricsTextfile = metricsSection.getString("textfile", "metrics/basketball.prom");
+            this.metricsInterval = metricsSection.getLong("interval", 15000);
+        }
+    }
+    
+    /**
+     * Load click rate limit settings
+     */
+    private void loadInteractionSettings() {
+        ConfigurationSection interactionSection = config.getConfigurationSection("basketball.interaction");
+        if (interactionSection != null) {
+            this.interactionBurst = interactionSection.getInt("burst", 8);
+            this.interactionRate = interactionSection.getDouble("rate", 5.0);
+        }
+    }
+    
+    /**
+     * Load task watchdog settings
+     */
+    private void loadTaskSettings() {
+        ConfigurationSection tasksSection = config.getConfigurationSection("basketball.tasks");
+        if (tasksSection != null) {
+            this.taskMaxLifetime = tasksSection.getLong("max_lifetime", 600);
+        }
+    }
+    
     /**
      * Load messages
      */
@@ -209,6 +362,15 @@ public class ConfigManager {
         return pickupRange;
     }
     
+    // Getters for interaction settings
+    public int getInteractionBurst() {
+        return interactionBurst;
+    }
+    
+    public double getInteractionRate() {
+        return interactionRate;
+    }
+    
     // Getters for scoring settings
     public int getPointsPerBasket() {
         return pointsPerBasket;
@@ -243,6 +405,104 @@ public class ConfigManager {
         return backboardData;
     }
     
+    // Getters for leaderboard settings
+    public int getLeaderboardRefreshInterval() {
+        return leaderboardRefreshInterval;
+    }
+    
+    // Getters for storage settings
+    public String getStorageType() {
+        return storageType;
+    }
+    
+    public long getJournalCommitInterval() {
+        return journalCommitInterval;
+    }
+    
+    public int getCompactionInterval() {
+        return compactionInterval;
+    }
+    
+    public int getStatsCacheSize() {
+        return statsCacheSize;
+    }
+    
+    public int getStatsCacheEvictAfter() {
+        return statsCacheEvictAfter;
+    }
+    
+    public int getMmapCapacity() {
+        return mmapCapacity;
+    }
+    
+    public int getMmapMaxRegions() {
+        return mmapMaxRegions;
+    }
+    
+    // Getters for match history settings
+    public boolean isHistoryEnabled() {
+        return historyEnabled;
+    }
+    
+    public int getHistoryBufferSize() {
+        return historyBufferSize;
+    }
+    
+    public long getHistoryFlushInterval() {
+        return historyFlushInterval;
+    }
+    
+    public int getHistoryRetentionDays() {
+        return historyRetentionDays;
+    }
+    
+    // Getters for stats sync settings
+    public boolean isSyncEnabled() {
+        return syncEnabled;
+    }
+    
+    public String getSyncNodeId() {
+        return syncNodeId;
+    }
+    
+    public String getSyncDirectory() {
+        return syncDirectory;
+    }
+    
+    public long getSyncInterval() {
+        return syncInterval;
+    }
+    
+    public int getSyncMaxBatch() {
+        return syncMaxBatch;
+    }
+    
+    // Getters for metrics settings
+    public boolean isMetricsEnabled() {
+        return metricsEnabled;
+    }
+    
+    public String getMetricsMode() {
+        return metricsMode;
+    }
+    
+    public int getMetricsPort() {
+        return metricsPort;
+    }
+    
+    public String getMetricsTextfile() {
+        return metricsTextfile;
+    }
+    
+    public long getMetricsInterval() {
+        return metricsInterval;
+    }
+    
+    // Getters for task watchdog settings
+    public long getTaskMaxLifetime() {
+        return taskMaxLifetime;
+    }
+    
     // Getters for debug settings
     public boolean isDebugEnabled() {
         return debugEnabled;
@@ -252,6 +512,37 @@ public class ConfigManager {
         return logRegionChecks;
     }
     
+    public boolean isTimingsEnabled() {
+        return timingsEnabled;
+    }
+    
+    public boolean isReplayEnabled() {
+        return replayEnabled;
+    }
+    
+    public int getFlightRecorderPhysicsSample() {
+        return flightRecorderPhysicsSample;
+    }
+    
+    public int getTraceBufferSize() {
+        return traceBufferSize;
+    }
+    
+    public boolean isTraceToFile() {
+        return traceToFile;
+    }
+    
+    /**
+     * Get the sampling rate of a trace category
+     * 
+     * @param category The category key
+     * @return Record 1 in this many events, 0 when off; 1 if not configured
+     */
+    public int getTraceSampleRate(String category) {
+        Integer rate = traceSampleRates.get(category);
+        return rate != null ? rate : 1;
+    }
+    
 
     
     /**
@@ -0,0 +1,194 @@
+package nl.djorr.basketball.managers;
+
+import nl.djorr.basketball.BasketballPlugin;
+import nl.djorr.basketball.objects.Basketball;
+import nl.djorr.basketball.objects.BasketballRegion;
+import org.bukkit.Chunk;
+import org.bukkit.Location;
+import org.bukkit.World;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Keeps courts dormant until one of their chunks is loaded.
+ * <p>
+ * Every court is indexed by the chunks its bounds overlap and counts how many
+ * of them are loaded. When the first one loads the court becomes active and
+ * the chunk is queued for the sliced skull cleanup; when the last one unloads
+ * the court is deactivated, which removes its ball and drops its cached
+ * bounds. Dormant courts are skipped by the movement and scoring checks.
+ *
+ * @author Djorr
+ */
+public class CourtActivationManager {
+
+    private final BasketballPlugin plugin;
+    private final Map<UUID, Map<Long, List<Court>>> chunkIndex; // World UUID to chunk key to courts
+    private final Map<String, Court> courts;
+    private int activeCourts = 0;
+
+    /**
+     * Constructor for CourtActivationManager
+     *
+     * @param plugin The plugin instance
+     */
+    public CourtActivationManager(BasketballPlugin plugin) {
+        this.plugin = plugin;
+        this.chunkIndex = new HashMap<>();
+        this.courts = new HashMap<>();
+    }
+
+    /**
+     * Start tracking a court, activating it if one of its chunks is loaded
+     *
+     * @param region The court
+     */
+    public void track(BasketballRegion region) {
+        untrack(region.getRegionName());
+
+        World world = region.getCenter().getWorld();
+        int[] bounds = region.getRegionBounds();
+        if (world == null || bounds == null) {
+            // Without a footprint the court can't follow chunks, keep it live
+            region.activate();
+            return;
+        }
+
+        Court court = new Court(region, world.getUID(), bounds);
+        Map<Long, List<Court>> worldChunks = chunkIndex.computeIfAbsent(court.worldId, id -> new HashMap<>());
+        for (int chunkX = bounds[0] >> 4; chunkX <= bounds[1] >> 4; chunkX++) {
+            for (int chunkZ = bounds[4] >> 4; chunkZ <= bounds[5] >> 4; chunkZ++) {
+                worldChunks.computeIfAbsent(chunkKey(chunkX, chunkZ), key -> new ArrayList<>()).add(court);
+                if (world.isChunkLoaded(chunkX, chunkZ)) {
+                    court.loadedChunks++;
+                }
+            }
+        }
+        courts.put(region.getRegionName(), court);
+
+        if (court.loadedChunks > 0) {
+            region.activate();
+            activeCourts++;
+        } else {
+            region.deactivate();
+        }
+    }
+
+    /**
+     * Stop tracking a court
+     *
+     * @param regionName The region name
+     */
+    public void untrack(String regionName) {
+        Court court = courts.remove(regionName);
+        if (court == null) {
+            return;
+        }
+
+        if (court.loadedChunks > 0) {
+            activeCourts--;
+        }
+
+        Map<Long, List<Court>> worldChunks = chunkIndex.get(court.worldId);
+        if (worldChunks != null) {
+            worldChunks.values().removeIf(list -> list.remove(court) && list.isEmpty());
+        }
+    }
+
+    /**
+     * Count a loaded chunk for the courts it overlaps
+     *
+     * @param chunk The chunk that was loaded
+     */
+    public void onChunkLoad(Chunk chunk) {
+        List<Court> overlapping = getCourts(chunk);
+        if (overlapping == null) {
+            return;
+        }
+
+        for (Court court : overlapping) {
+            court.loadedChunks++;
+
+            // Leftover ball blocks in this chunk are removed over the next ticks
+            plugin.getBasketballManager().queueCleanup(chunk.getWorld(), chunk.getX(), chunk.getZ(), court.bounds);
+
+            if (court.loadedChunks == 1) {
+                court.region.activate();
+                activeCourts++;
+                if (plugin.getConfigManager().isDebugEnabled()) {
+                    plugin.getLogger().info("Activated court " + court.region.getRegionName());
+                }
+            }
+        }
+    }
+
+    /**
+     * Count an unloaded chunk for the courts it overlaps
+     *
+     * @param chunk The chunk that is being unloaded
+     */
+    public void onChunkUnload(Chunk chunk) {
+        List<Court> overlapping = getCourts(chunk);
+        if (overlapping == null) {
+            return;
+        }
+
+        for (Court court : overlapping) {
+            // A ball saved with the chunk would come back as an orphan entity
+            Basketball basketball = court.region.getCurrentBasketball();
+            if (basketball != null && basketball.getEntity() != null) {
+                Location location = basketball.getEntity().getLocation();
+                if (location.getBlockX() >> 4 == chunk.getX() && location.getBlockZ() >> 4 == chunk.getZ()) {
+                    court.region.removeBasketball();
+                }
+            }
+
+            court.loadedChunks = Math.max(0, court.loadedChunks - 1);
+            if (court.loadedChunks == 0) {
+                court.region.deactivate();
+                activeCourts--;
+                if (plugin.getConfigManager().isDebugEnabled()) {
+                    plugin.getLogger().info("Deactivated court " + court.region.getRegionName());
+                }
+            }
+        }
+    }
+
+    /**
+     * Get the number of active courts
+     *
+     * @return The number of courts with at least one loaded chunk
+     */
+    public int getActiveCourts() {
+        return activeCourts;
+    }
+
+    private List<Court> getCourts(Chunk chunk) {
+        Map<Long, List<Court>> worldChunks = chunkIndex.get(chunk.getWorld().getUID());
+        return worldChunks != null ? worldChunks.get(chunkKey(chunk.getX(), chunk.getZ())) : null;
+    }
+
+    private static long chunkKey(int chunkX, int chunkZ) {
+        return ((long) chunkX << 32) | (chunkZ & 0xffffffffL);
+    }
+
+    /**
+     * A tracked court and its footprint
+     */
+    private static final class Court {
+        private final BasketballRegion region;
+        private final UUID worldId;
+        private final int[] bounds;
+        private int loadedChunks;
+
+        private Court(BasketballRegion region, UUID worldId, int[] bounds) {
+            this.region = region;
+            this.worldId = worldId;
+            this.bounds = bounds;
+        }
+    }
+}
@@ -2,17 +2,43 @@ package nl.djorr.basketball.managers;
 
 import nl.djorr.basketball.BasketballPlugin;
 import nl.djorr.basketball.objects.BasketballRegion;
+import nl.djorr.basketball.storage.FileStatsBus;
+import nl.djorr.basketball.storage.MappedStatsStorage;
+import nl.djorr.basketball.storage.MatchHistory;
+import nl.djorr.basketball.storage.SqliteStatsStorage;
+import nl.djorr.basketball.storage.StatsStorage;
+import nl.djorr.basketball.storage.WinsJournal;
+import nl.djorr.basketball.utils.FlightRecorderBridge;
+import nl.djorr.basketball.utils.LatencyHistogram;
 import org.bukkit.Location;
+import org.bukkit.World;
 import org.bukkit.configuration.ConfigurationSection;
-import org.bukkit.configuration.file.FileConfiguration;
 import org.bukkit.configuration.file.YamlConfiguration;
 import org.bukkit.entity.Player;
+import org.bukkit.scheduler.BukkitTask;
+import org.yaml.snakeyaml.Yaml;
+import org.yaml.snakeyaml.constructor.SafeConstructor;
 
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 /**
  * Manages data persistence for basketball regions and player wins
@@ -22,150 +48,712 @@ import java.util.UUID;
 public class DataManager {
     
     private final BasketballPlugin plugin;
+    private static final int LOADER_THREADS = Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors()));
+    
     private final File dataFile;
-    private final FileConfiguration dataConfig;
+    private final WinsJournal journal;
+    private StatsStorage statsStorage; // Null when wins are kept in regions.yml
+    private StatsCacheManager statsCache; // Only used with a storage backend
+    private MatchHistory matchHistory; // Null when match history is disabled
+    private StatsSyncManager statsSync; // Null when stats sync is disabled
+    private boolean journalOpen = false;
+    private BukkitTask compactionTask;
+    private final Object snapshotLock = new Object();
+    private long snapshotSequence = 0; // Main thread only
+    private long writtenSequence = 0; // Guarded by snapshotLock
+    private final LatencyHistogram saveLatency = new LatencyHistogram();
     
     public DataManager(BasketballPlugin plugin) {
         this.plugin = plugin;
         this.dataFile = new File(plugin.getDataFolder(), "regions.yml");
-        this.dataConfig = YamlConfiguration.loadConfiguration(dataFile);
+        this.journal = new WinsJournal(new File(plugin.getDataFolder(), "journal"), plugin.getLogger(),
+            plugin.getFlightRecorder(), plugin.getConfigManager().getJournalCommitInterval());
+        
+        String storageType = plugin.getConfigManager().getStorageType();
+        if ("sqlite".equals(storageType)) {
+            this.statsStorage = new SqliteStatsStorage(new File(plugin.getDataFolder(), "stats.db"), plugin.getLogger(),
+                plugin.getFlightRecorder(), plugin.getConfigManager().getJournalCommitInterval());
+        } else if ("mmap".equals(storageType)) {
+            this.statsStorage = new MappedStatsStorage(new File(plugin.getDataFolder(), "stats.dat"), plugin.getLogger(),
+                plugin.getFlightRecorder(), plugin.getConfigManager().getMmapCapacity(), plugin.getConfigManager().getMmapMaxRegions());
+        }
+        
+        ConfigManager config = plugin.getConfigManager();
+        if (config.isHistoryEnabled()) {
+            this.matchHistory = new MatchHistory(new File(plugin.getDataFolder(), "history"), plugin.getLogger(),
+                config.getHistoryBufferSize(), config.getHistoryFlushInterval(), config.getHistoryRetentionDays());
+        }
+        
+        if (config.isSyncEnabled()) {
+            String nodeId = config.getSyncNodeId().isEmpty() ? "server-" + plugin.getServer().getPort() : config.getSyncNodeId();
+            File directory = new File(config.getSyncDirectory());
+            if (!directory.isAbsolute()) {
+                directory = new File(plugin.getDataFolder(), config.getSyncDirectory());
+            }
+            this.statsSync = new StatsSyncManager(plugin, this, new FileStatsBus(directory, nodeId, plugin.getLogger()), nodeId);
+        }
     }
     
     /**
-     * Save all regions and player wins data
+     * Open the wins journal and schedule periodic snapshots.
+     * Must be called after {@link #loadData()} so replayed segments are kept.
      */
-    public void saveData() {
-        try {
-            // Clear existing data
-            dataConfig.set("regions", null);
+    public void start() {
+        if (statsCache != null) {
+            statsCache.start();
+        }
+        
+        if (matchHistory != null) {
+            try {
+                matchHistory.open();
+            } catch (IOException e) {
+                plugin.getLogger().severe("Could not open match history, games are not recorded: " + e.getMessage());
+                matchHistory = null;
+            }
+        }
+        
+        if (statsSync != null) {
+            try {
+                statsSync.start();
+            } catch (IOException e) {
+                plugin.getLogger().severe("Could not open stats sync bus, wins are not shared: " + e.getMessage());
+                statsSync = null;
+            }
+        }
+        
+        // A storage backend is durable on its own, the journal only backs regions.yml
+        if (statsStorage == null) {
+            boolean replayed = journal.hasSegments();
             
-            // Save regions
-            ConfigurationSection regionsSection = dataConfig.createSection("regions");
-            Map<String, BasketballRegion> regions = plugin.getBasketballManager().getRegions();
+            try {
+                journal.open();
+                journalOpen = true;
+            } catch (IOException e) {
+                plugin.getLogger().severe("Could not open wins journal, wins are only saved with snapshots: " + e.getMessage());
+            }
             
-            for (Map.Entry<String, BasketballRegion> entry : regions.entrySet()) {
-                String regionName = entry.getKey();
-                BasketballRegion region = entry.getValue();
-                
-                ConfigurationSection regionSection = regionsSection.createSection(regionName);
-                
-                // Save region data
-                regionSection.set("center", region.getCenter());
-                regionSection.set("spawnLocation", region.getSpawnLocation());
+            // Fold whatever was replayed into the snapshot straight away
+            if (replayed) {
+                compact();
+            }
+        }
+        
+        long interval = plugin.getConfigManager().getCompactionInterval() * 20L;
+        if (interval > 0) {
+            compactionTask = plugin.getTaskManager().track(plugin.getServer().getScheduler().runTaskTimer(plugin, this::compact, interval, interval), "DataManager");
+        }
+    }
+    
+    /**
+     * Write a snapshot and close the journal
+     */
+    public void shutdown() {
+        if (compactionTask != null) {
+            compactionTask.cancel();
+            compactionTask = null;
+        }
+        
+        if (statsSync != null) {
+            statsSync.stop();
+        }
+        
+        // Write the final snapshot synchronously, the scheduler is shutting down
+        snapshot(false);
+        
+        if (journalOpen) {
+            journal.close();
+            journalOpen = false;
+        }
+        
+        if (statsCache != null) {
+            statsCache.stop();
+        }
+        
+        if (statsStorage != null) {
+            statsStorage.close();
+        }
+        
+        if (matchHistory != null) {
+            matchHistory.close();
+        }
+    }
+    
+    /**
+     * Record a win on this server: persist it, add it to the match history
+     * and publish it to the other servers
+     * 
+     * @param regionName The region name
+     * @param playerUUID The player UUID
+     * @param wins The new number of wins
+     */
+    public void recordWin(String regionName, UUID playerUUID, int wins) {
+        persistWins(regionName, playerUUID, wins);
+        
+        if (matchHistory != null) {
+            matchHistory.recordWin(regionName, playerUUID, wins);
+        }
+        
+        if (statsSync != null) {
+            statsSync.publishWin(regionName, playerUUID);
+        }
+    }
+    
+    /**
+     * Write a wins change to the storage backend or the journal
+     * 
+     * @param regionName The region name
+     * @param playerUUID The player UUID
+     * @param wins The new number of wins
+     */
+    void persistWins(String regionName, UUID playerUUID, int wins) {
+        if (statsCache != null && statsCache.isPending(playerUUID)) {
+            return; // Written together with the stored wins once they are read
+        }
+        if (statsStorage != null) {
+            statsStorage.saveWins(regionName, playerUUID, wins);
+        } else if (journalOpen) {
+            journal.appendWins(regionName, playerUUID, wins);
+        }
+    }
+    
+    /**
+     * Count a throw for the player's stats
+     * 
+     * @param regionName The region name
+     * @param playerUUID The player UUID
+     */
+    public void recordThrow(String regionName, UUID playerUUID) {
+        if (statsStorage != null) {
+            statsStorage.recordThrow(regionName, playerUUID);
+        }
+        
+        if (matchHistory != null) {
+            matchHistory.recordThrow(regionName, playerUUID);
+        }
+    }
+    
+    /**
+     * Count a made basket for the player's stats
+     * 
+     * @param regionName The region name
+     * @param playerUUID The player UUID
+     * @param score The player's new score
+     */
+    public void recordMake(String regionName, UUID playerUUID, int score) {
+        if (statsStorage != null) {
+            statsStorage.recordMake(regionName, playerUUID);
+        }
+        
+        if (matchHistory != null) {
+            matchHistory.recordMake(regionName, playerUUID, score);
+        }
+    }
+    
+    /**
+     * Count a finished game for the player's stats
+     * 
+     * @param regionName The region name
+     * @param playerUUID The player UUID
+     */
+    public void recordGame(String regionName, UUID playerUUID) {
+        if (statsStorage != null) {
+            statsStorage.recordGame(regionName, playerUUID);
+        }
+    }
+    
+    /**
+     * Close the current game of a court in the match history
+     * 
+     * @param regionName The region name
+     */
+    public void recordGameReset(String regionName) {
+        if (matchHistory != null) {
+            matchHistory.recordGameEnd(regionName);
+        }
+    }
+    
+    /**
+     * Fold the journal into a snapshot that is written in the background
+     */
+    public void compact() {
+        snapshot(true);
+    }
+    
+    /**
+     * Save all regions and player wins data on the calling thread
+     * 
+     * @return True if the data was written
+     */
+    public boolean saveData() {
+        return writeSnapshot(captureSnapshot(), ++snapshotSequence);
+    }
+    
+    /**
+     * Capture a snapshot and write it. The current journal segment is sealed
+     * first so its records are covered by the snapshot and can be released
+     * once the snapshot is on disk.
+     * 
+     * @param async True to write on a worker thread, false to write right away
+     */
+    private void snapshot(boolean async) {
+        long sealed = journalOpen ? journal.rotate() : 0;
+        boolean release = journalOpen;
+        List<RegionSnapshot> snapshot = captureSnapshot();
+        long sequence = ++snapshotSequence;
+        
+        Runnable write = () -> {
+            if (writeSnapshot(snapshot, sequence) && release) {
+                journal.release(sealed);
+            }
+        };
+        
+        if (async && plugin.isEnabled()) {
+            plugin.getServer().getScheduler().runTaskAsynchronously(plugin, write);
+        } else {
+            write.run();
+        }
+    }
+    
+    /**
+     * Copy all region and wins state. This is the only part of a save that
+     * runs on the main thread.
+     * 
+     * @return Immutable copy of every region
+     */
+    private List<RegionSnapshot> captureSnapshot() {
+        Map<String, BasketballRegion> regions = plugin.getBasketballManager().getRegions();
+        List<RegionSnapshot> snapshot = new ArrayList<>(regions.size());
+        
+        for (Map.Entry<String, BasketballRegion> entry : regions.entrySet()) {
+            snapshot.add(new RegionSnapshot(entry.getKey(), entry.getValue(), statsStorage == null));
+        }
+        return snapshot;
+    }
+    
+    /**
+     * Serialize a snapshot to a temp file and atomically move it over regions.yml.
+     * Older snapshots that finish after a newer one are dropped.
+     * 
+     * @param snapshot The captured regions
+     * @param sequence The capture sequence number
+     * @return True if the data is on disk
+     */
+    private boolean writeSnapshot(List<RegionSnapshot> snapshot, long sequence) {
+        synchronized (snapshotLock) {
+            if (sequence <= writtenSequence) {
+                return true;
+            }
+            
+            long start = System.nanoTime();
+            Object jfrEvent = plugin.getFlightRecorder().start(FlightRecorderBridge.Kind.STORAGE_FLUSH);
+            try {
+                YamlConfiguration config = new YamlConfiguration();
+                ConfigurationSection regionsSection = config.createSection("regions");
                 
-                if (region.getLeftHoop() != null) {
-                    regionSection.set("leftHoop", region.getLeftHoop());
-                }
-                if (region.getRightHoop() != null) {
-                    regionSection.set("rightHoop", region.getRightHoop());
-                }
-                if (region.getLeftBackboard() != null) {
-                    regionSection.set("leftBackboard", region.getLeftBackboard());
-                }
-                if (region.getRightBackboard() != null) {
-                    regionSection.set("rightBackboard", region.getRightBackboard());
+                for (RegionSnapshot region : snapshot) {
+                    ConfigurationSection regionSection = regionsSection.createSection(region.name);
+                    
+                    // Save region data
+                    regionSection.set("center", region.center);
+                    regionSection.set("spawnLocation", region.spawnLocation);
+                    
+                    if (region.leftHoop != null) {
+                        regionSection.set("leftHoop", region.leftHoop);
+                    }
+                    if (region.rightHoop != null) {
+                        regionSection.set("rightHoop", region.rightHoop);
+                    }
+                    if (region.leftBackboard != null) {
+                        regionSection.set("leftBackboard", region.leftBackboard);
+                    }
+                    if (region.rightBackboard != null) {
+                        regionSection.set("rightBackboard", region.rightBackboard);
+                    }
+                    
+                    // Save player wins, unless a storage backend keeps them
+                    if (region.wins != null) {
+                        ConfigurationSection winsSection = regionSection.createSection("playerWins");
+                        for (Map.Entry<UUID, Integer> winEntry : region.wins.entrySet()) {
+                            winsSection.set(winEntry.getKey().toString(), winEntry.getValue());
+                        }
+                    }
                 }
                 
-                // Save player wins
-                ConfigurationSection winsSection = regionSection.createSection("playerWins");
-                Map<Player, Integer> playerWins = region.getPlayerWins();
+                writeAtomically(config.saveToString().getBytes(StandardCharsets.UTF_8));
+                writtenSequence = sequence;
+                saveLatency.record(System.nanoTime() - start);
+                plugin.getFlightRecorder().commit(FlightRecorderBridge.Kind.STORAGE_FLUSH, jfrEvent, null, null, snapshot.size(), "regions.yml");
                 
-                for (Map.Entry<Player, Integer> winEntry : playerWins.entrySet()) {
-                    Player player = winEntry.getKey();
-                    int wins = winEntry.getValue();
-                    winsSection.set(player.getUniqueId().toString(), wins);
+                if (plugin.getConfigManager().isDebugEnabled()) {
+                    plugin.getLogger().info("Saved " + snapshot.size() + " regions with player wins data");
                 }
+                return true;
+                
+            } catch (IOException e) {
+                plugin.getLogger().severe("Could not save regions data: " + e.getMessage());
+                return false;
             }
-            
-            dataConfig.save(dataFile);
-            
-            if (plugin.getConfigManager().isDebugEnabled()) {
-                plugin.getLogger().info("Saved " + regions.size() + " regions with player wins data");
-            }
-            
-        } catch (IOException e) {
-            plugin.getLogger().severe("Could not save regions data: " + e.getMessage());
         }
     }
     
     /**
-     * Load all regions and player wins data
+     * Write to a temp file, fsync it and rename it over the data file, so a
+     * crash mid-write leaves the previous regions.yml intact
+     * 
+     * @param data The file contents
+     * @throws IOException If the file could not be written
+     */
+    private void writeAtomically(byte[] data) throws IOException {
+        File directory = dataFile.getParentFile();
+        if (!directory.exists() && !directory.mkdirs()) {
+            throw new IOException("Could not create " + directory);
+        }
+        
+        File tempFile = new File(directory, dataFile.getName() + ".tmp");
+        try (FileOutputStream out = new FileOutputStream(tempFile)) {
+            out.write(data);
+            out.getFD().sync();
+        }
+        
+        try {
+            Files.move(tempFile.toPath(), dataFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(tempFile.toPath(), dataFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+    
+    /**
+     * Load all regions and player wins data.
+     * <p>
+     * regions.yml is parsed and the storage backend is opened at the same time
+     * on a small worker pool, and the wins of every region are read there as
+     * well. The workers only produce plain values: locations need a world, so
+     * they are resolved on the main thread, which also builds and registers
+     * the regions.
      */
     public void loadData() {
-        if (!dataFile.exists()) {
-            if (plugin.getConfigManager().isDebugEnabled()) {
+        ExecutorService loader = Executors.newFixedThreadPool(LOADER_THREADS, runnable -> {
+            Thread thread = new Thread(runnable, "Basketball-Loader");
+            thread.setDaemon(true);
+            return thread;
+        });
+        
+        try {
+            Future<Map<?, ?>> snapshot = dataFile.exists() ? loader.submit(this::parseSnapshot) : null;
+            Future<Boolean> storageOpened = statsStorage != null ? loader.submit(this::openStatsStorage) : null;
+            
+            if (snapshot != null) {
+                loadSnapshot(snapshot.get(), loader);
+            } else if (plugin.getConfigManager().isDebugEnabled()) {
                 plugin.getLogger().info("No regions data file found, starting fresh");
             }
-            return;
+            
+            if (storageOpened != null && storageOpened.get()) {
+                loadStoredWins(loader);
+            } else {
+                replayJournal();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            plugin.getLogger().severe("Interrupted while loading regions data");
+        } catch (ExecutionException e) {
+            plugin.getLogger().severe("Could not load regions data: " + e.getCause());
+        } finally {
+            loader.shutdown();
         }
+    }
+    
+    /**
+     * Open the configured storage backend, falling back to regions.yml if it fails
+     * 
+     * @return True if the backend is usable
+     */
+    private boolean openStatsStorage() {
+        try {
+            statsStorage.open();
+            return true;
+        } catch (IOException e) {
+            plugin.getLogger().severe("Could not open stats storage, falling back to regions.yml: " + e.getMessage());
+            statsStorage = null;
+            return false;
+        }
+    }
+    
+    /**
+     * Load the top winners of every court from the storage backend; other
+     * players are loaded by the {@link StatsCacheManager} when they join.
+     * The first time, the wins from regions.yml (and any journal left behind)
+     * are imported instead.
+     * <p>
+     * The storage is only read and written on the worker pool, the courts of
+     * every region are read in parallel; the results are applied to the
+     * regions here.
+     * 
+     * @param loader The worker pool
+     */
+    private void loadStoredWins(ExecutorService loader) throws InterruptedException {
+        Map<String, BasketballRegion> regions = plugin.getBasketballManager().getRegions();
+        int keepTop = HologramManager.TOP_WINNERS;
+        StatsStorage storage = statsStorage;
         
         try {
-            ConfigurationSection regionsSection = dataConfig.getConfigurationSection("regions");
-            if (regionsSection == null) {
-                if (plugin.getConfigManager().isDebugEnabled()) {
-                    plugin.getLogger().info("No regions data found in file");
-                }
-                return;
-            }
-            
-            int loadedRegions = 0;
-            
-            for (String regionName : regionsSection.getKeys(false)) {
-                ConfigurationSection regionSection = regionsSection.getConfigurationSection(regionName);
-                if (regionSection == null) continue;
+            if (loader.submit(storage::needsMigration).get()) {
+                replayJournal();
                 
-                // Load region data
-                Location center = (Location) regionSection.get("center");
-                Location spawnLocation = (Location) regionSection.get("spawnLocation");
-                
-                if (center == null || spawnLocation == null) {
-                    plugin.getLogger().warning("Invalid region data for " + regionName + ", skipping");
-                    continue;
+                Map<String, Map<UUID, Integer>> wins = new HashMap<>();
+                int migrated = 0;
+                for (Map.Entry<String, BasketballRegion> entry : regions.entrySet()) {
+                    Map<UUID, Integer> regionWins = entry.getValue().getPlayerWins().toMap();
+                    wins.put(entry.getKey(), regionWins);
+                    migrated += regionWins.size();
                 }
                 
-                // Create region
-                BasketballRegion region = new BasketballRegion(regionName, center, spawnLocation);
-                
-                // Load optional hoop and backboard data
-                Location leftHoop = (Location) regionSection.get("leftHoop");
-                Location rightHoop = (Location) regionSection.get("rightHoop");
-                Location leftBackboard = (Location) regionSection.get("leftBackboard");
-                Location rightBackboard = (Location) regionSection.get("rightBackboard");
+                loader.submit(() -> {
+                    storage.migrate(wins);
+                    return null;
+                }).get();
+                plugin.getLogger().info("Migrated " + migrated + " player wins from regions.yml to the stats storage");
                 
-                if (leftHoop != null) region.setLeftHoop(leftHoop);
-                if (rightHoop != null) region.setRightHoop(rightHoop);
-                if (leftBackboard != null) region.setLeftBackboard(leftBackboard);
-                if (rightBackboard != null) region.setRightBackboard(rightBackboard);
-                
-                // Load player wins
-                ConfigurationSection winsSection = regionSection.getConfigurationSection("playerWins");
-                if (winsSection != null) {
-                    for (String playerUUID : winsSection.getKeys(false)) {
-                        int wins = winsSection.getInt(playerUUID, 0);
-                        if (wins > 0) {
-                            // We'll need to load this when players join
-                            region.setPlayerWinsFromUUID(UUID.fromString(playerUUID), wins);
-                        }
+                // Only keep what would have been loaded without the migration
+                for (Map.Entry<String, Map<UUID, Integer>> entry : wins.entrySet()) {
+                    BasketballRegion region = regions.get(entry.getKey());
+                    for (UUID playerUUID : entry.getValue().keySet()) {
+                        region.unloadPlayerWins(playerUUID, keepTop);
                     }
                 }
+            } else {
+                Map<BasketballRegion, Future<List<Map.Entry<UUID, Integer>>>> reading = new LinkedHashMap<>();
+                for (Map.Entry<String, BasketballRegion> entry : regions.entrySet()) {
+                    String regionName = entry.getKey();
+                    reading.put(entry.getValue(), loader.submit(() -> storage.getTopWins(regionName, keepTop)));
+                }
                 
-                // Register region
-                plugin.getBasketballManager().registerRegion(regionName, region);
-                loadedRegions++;
-                
-                if (plugin.getConfigManager().isDebugEnabled()) {
-                    plugin.getLogger().info("Loaded region: " + regionName + " with " + 
-                        (winsSection != null ? winsSection.getKeys(false).size() : 0) + " player wins");
+                // Read everything before applying anything, so a failed read leaves the regions as loaded
+                Map<BasketballRegion, List<Map.Entry<UUID, Integer>>> topWins = new LinkedHashMap<>();
+                for (Map.Entry<BasketballRegion, Future<List<Map.Entry<UUID, Integer>>>> entry : reading.entrySet()) {
+                    topWins.put(entry.getKey(), entry.getValue().get());
+                }
+                for (Map.Entry<BasketballRegion, List<Map.Entry<UUID, Integer>>> entry : topWins.entrySet()) {
+                    for (Map.Entry<UUID, Integer> winEntry : entry.getValue()) {
+                        entry.getKey().setPlayerWinsFromUUID(winEntry.getKey(), winEntry.getValue());
+                    }
                 }
             }
             
+            statsCache = new StatsCacheManager(plugin, storage, keepTop);
+        } catch (ExecutionException e) {
+            // Keep the database untouched and run on regions.yml for this session
+            plugin.getLogger().severe("Could not load wins from stats storage, falling back to regions.yml: " + e.getCause());
+            storage.close();
+            statsStorage = null;
+        }
+    }
+    
+    /**
+     * Get the storage backend for player wins
+     * 
+     * @return The backend, or null when wins are kept in regions.yml
+     */
+    public StatsStorage getStatsStorage() {
+        return statsStorage;
+    }
+    
+    /**
+     * Get the lazy player stats cache
+     * 
+     * @return The cache, or null when wins are kept in regions.yml
+     */
+    public StatsCacheManager getStatsCache() {
+        return statsCache;
+    }
+    
+    /**
+     * Get the match history store
+     * 
+     * @return The store, or null when match history is disabled
+     */
+    public MatchHistory getMatchHistory() {
+        return matchHistory;
+    }
+    
+    /**
+     * Get the time it takes to write a regions.yml snapshot
+     * 
+     * @return Latencies in nanoseconds
+     */
+    public LatencyHistogram getSaveLatency() {
+        return saveLatency;
+    }
+    
+    /**
+     * Get the number of wins writes queued in the storage backend
+     * 
+     * @return The queue depth, 0 without a backend
+     */
+    public int getStatsQueueDepth() {
+        return statsStorage != null ? statsStorage.getQueueDepth() : 0;
+    }
+    
+    /**
+     * Get the number of wins records waiting for the next journal commit
+     * 
+     * @return The queue depth, 0 when the journal is not used
+     */
+    public int getJournalQueueDepth() {
+        return journalOpen ? journal.getQueueDepth() : 0;
+    }
+    
+    /**
+     * Apply journal records written after the last snapshot
+     */
+    private void replayJournal() {
+        int replayed = journal.replay((regionName, playerUUID, wins) -> {
+            BasketballRegion region = plugin.getBasketballManager().getRegions().get(regionName);
+            if (region != null) {
+                region.setPlayerWinsFromUUID(playerUUID, wins);
+            }
+        });
+        
+        if (replayed > 0) {
+            plugin.getLogger().info("Replayed " + replayed + " wins from the journal");
+        }
+    }
+    
+    /**
+     * Read regions.yml as plain maps and lists. Runs on the worker pool.
+     * <p>
+     * YamlConfiguration would turn the saved locations into {@link Location}
+     * objects while parsing, which looks up their world; that is only safe on
+     * the main thread, so the raw YAML is read instead.
+     * 
+     * @return The root of the document
+     * @throws IOException If the file could not be read
+     */
+    private Map<?, ?> parseSnapshot() throws IOException {
+        try (Reader reader = new InputStreamReader(new FileInputStream(dataFile), StandardCharsets.UTF_8)) {
+            Object root = new Yaml(new SafeConstructor()).load(reader);
+            return root instanceof Map ? (Map<?, ?>) root : new HashMap<>();
+        }
+    }
+    
+    /**
+     * Read the regions of the snapshot on the worker pool, then build and
+     * register them here
+     * 
+     * @param root The parsed regions.yml
+     * @param loader The worker pool
+     */
+    private void loadSnapshot(Map<?, ?> root, ExecutorService loader) throws InterruptedException {
+        Object regionsSection = root.get("regions");
+        if (!(regionsSection instanceof Map)) {
             if (plugin.getConfigManager().isDebugEnabled()) {
-                plugin.getLogger().info("Loaded " + loadedRegions + " regions from data file");
+                plugin.getLogger().info("No regions data found in file");
             }
+            return;
+        }
+        
+        // The parsed maps are only read from here on, so the workers can share them
+        Map<String, Future<RegionData>> reading = new LinkedHashMap<>();
+        for (Map.Entry<?, ?> entry : ((Map<?, ?>) regionsSection).entrySet()) {
+            String regionName = String.valueOf(entry.getKey());
+            if (entry.getValue() instanceof Map) {
+                Map<?, ?> regionSection = (Map<?, ?>) entry.getValue();
+                reading.put(regionName, loader.submit(() -> readRegion(regionSection)));
+            }
+        }
+        
+        int loadedRegions = 0;
+        for (Map.Entry<String, Future<RegionData>> entry : reading.entrySet()) {
+            BasketballRegion region;
+            try {
+                region = buildRegion(entry.getKey(), entry.getValue().get());
+            } catch (ExecutionException e) {
+                plugin.getLogger().warning("Could not load region " + entry.getKey() + ", skipping: " + e.getCause());
+                continue;
+            }
+            if (region == null) {
+                continue;
+            }
+            
+            // Older data without hoops needs a block search, which has to run here
+            region.findMissingHoopsAndBackboards();
+            
+            plugin.getBasketballManager().registerRegion(entry.getKey(), region);
+            loadedRegions++;
             
-        } catch (Exception e) {
-            plugin.getLogger().severe("Could not load regions data: " + e.getMessage());
+            if (plugin.getConfigManager().isDebugEnabled()) {
+                plugin.getLogger().info("Loaded region: " + entry.getKey() + " with " + 
+                    region.getPlayerWins().size() + " player wins");
+            }
+        }
+        
+        if (plugin.getConfigManager().isDebugEnabled()) {
+            plugin.getLogger().info("Loaded " + loadedRegions + " regions from data file");
+        }
+    }
+    
+    /**
+     * Read the locations and wins of a region from its raw section. Runs on
+     * the worker pool, so it only produces plain values.
+     */
+    private RegionData readRegion(Map<?, ?> regionSection) {
+        RegionData data = new RegionData();
+        data.center = LocationData.read(regionSection.get("center"));
+        data.spawnLocation = LocationData.read(regionSection.get("spawnLocation"));
+        data.leftHoop = LocationData.read(regionSection.get("leftHoop"));
+        data.rightHoop = LocationData.read(regionSection.get("rightHoop"));
+        data.leftBackboard = LocationData.read(regionSection.get("leftBackboard"));
+        data.rightBackboard = LocationData.read(regionSection.get("rightBackboard"));
+        
+        Object winsSection = regionSection.get("playerWins");
+        if (winsSection instanceof Map) {
+            for (Map.Entry<?, ?> winEntry : ((Map<?, ?>) winsSection).entrySet()) {
+                if (winEntry.getValue() instanceof Number && ((Number) winEntry.getValue()).intValue() > 0) {
+                    data.wins.put(UUID.fromString(String.valueOf(winEntry.getKey())), ((Number) winEntry.getValue()).intValue());
+                }
+            }
+        }
+        return data;
+    }
+    
+    /**
+     * Build a region from the values read by a worker. Main thread only.
+     * 
+     * @return The region, or null if the data is invalid
+     */
+    private BasketballRegion buildRegion(String regionName, RegionData data) {
+        Location center = toLocation(data.center);
+        Location spawnLocation = toLocation(data.spawnLocation);
+        
+        if (center == null || spawnLocation == null) {
+            plugin.getLogger().warning("Invalid region data for " + regionName + ", skipping");
+            return null;
+        }
+        
+        // Hoops and backboards may be missing, they are searched for after this
+        BasketballRegion region = new BasketballRegion(regionName, center,
+            toLocation(data.leftHoop), toLocation(data.rightHoop),
+            toLocation(data.leftBackboard), toLocation(data.rightBackboard),
+            spawnLocation);
+        
+        // Load player wins straight into the leaderboard, the region is not registered yet
+        for (Map.Entry<UUID, Integer> winEntry : data.wins.entrySet()) {
+            region.getWinsLeaderboard().setWins(winEntry.getKey(), winEntry.getValue());
         }
+        return region;
+    }
+    
+    /**
+     * Resolve a saved location against the loaded worlds
+     * 
+     * @return The location, or null if it is missing or its world is not loaded
+     */
+    private Location toLocation(LocationData data) {
+        if (data == null) {
+            return null;
+        }
+        World world = plugin.getServer().getWorld(data.world);
+        return world != null ? new Location(world, data.x, data.y, data.z, data.yaw, data.pitch) : null;
     }
     
     /**
@@ -176,4 +764,86 @@ public class DataManager {
             region.updatePlayerWinsFromUUID(player);
         }
     }
-} 
\ No newline at end of file
+    
+    /**
+     * Plain values of a region read from regions.yml on a worker
+     */
+    private static final class RegionData {
+        private LocationData center;
+        private LocationData spawnLocation;
+        private LocationData leftHoop;
+        private LocationData rightHoop;
+        private LocationData leftBackboard;
+        private LocationData rightBackboard;
+        private final Map<UUID, Integer> wins = new HashMap<>();
+    }
+    
+    /**
+     * A location as serialized by Bukkit, without its world resolved
+     */
+    private static final class LocationData {
+        private String world;
+        private double x;
+        private double y;
+        private double z;
+        private float yaw;
+        private float pitch;
+        
+        /**
+         * Read a serialized location map
+         * 
+         * @return The location, or null if the value is not a location
+         */
+        private static LocationData read(Object value) {
+            if (!(value instanceof Map)) {
+                return null;
+            }
+            Map<?, ?> map = (Map<?, ?>) value;
+            if (!(map.get("world") instanceof String)) {
+                return null;
+            }
+            
+            LocationData data = new LocationData();
+            data.world = (String) map.get("world");
+            data.x = number(map.get("x"));
+            data.y = number(map.get("y"));
+            data.z = number(map.get("z"));
+            data.yaw = (float) number(map.get("yaw"));
+            data.pitch = (float) number(map.get("pitch"));
+            return data;
+        }
+        
+        private static double number(Object value) {
+            return value instanceof Number ? ((Number) value).doubleValue() : 0;
+        }
+    }
+    
+    /**
+     * Immutable copy of a region taken on the main thread
+     */
+    private static final class RegionSnapshot {
+        private final String name;
+        private final Location center;
+        private final Location spawnLocation;
+        private final Location leftHoop;
+        private final Location rightHoop;
+        private final Location leftBackboard;
+        private final Location rightBackboard;
+        private final Map<UUID, Integer> wins;
+        
+        private RegionSnapshot(String name, BasketballRegion region, boolean includeWins) {
+            this.name = name;
+            this.center = copy(region.getCenter());
+            this.spawnLocation = copy(region.getSpawnLocation());
+            this.leftHoop = copy(region.getLeftHoop());
+            this.rightHoop = copy(region.getRightHoop());
+            this.leftBackboard = copy(region.getLeftBackboard());
+            this.rightBackboard = copy(region.getRightBackboard());
+            this.wins = includeWins ? region.getPlayerWins().toMap() : null;
+        }
+        
+        private static Location copy(Location location) {
+            return location != null ? location.clone() : null;
+        }
+    }
+}
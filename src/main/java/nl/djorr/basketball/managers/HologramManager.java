@@ -4,12 +4,14 @@ import eu.decentsoftware.holograms.api.DHAPI;
 import eu.decentsoftware.holograms.api.holograms.Hologram;
 import nl.djorr.basketball.BasketballPlugin;
 import nl.djorr.basketball.objects.BasketballRegion;
-import org.bukkit.ChatColor;
+import nl.djorr.basketball.utils.FlightRecorderBridge;
+import nl.djorr.basketball.utils.LeaderboardRenderer;
+import nl.djorr.basketball.utils.UUIDIntView;
 import org.bukkit.Location;
 import org.bukkit.entity.Player;
+import org.bukkit.scheduler.BukkitTask;
 
 import java.util.*;
-import java.util.stream.Collectors;
 
 /**
  * Manages hologram displays for basketball leaderboards
@@ -18,14 +20,101 @@ import java.util.stream.Collectors;
  */
 public class HologramManager {
     
+    public static final int TOP_WINNERS = 10; // Number of winners shown on an idle court
+    
     private final BasketballPlugin plugin;
     private final Map<Player, Hologram> playerHolograms;
     private final Map<String, Hologram> regionHolograms;
+    private final Map<String, List<String>> regionHologramLines; // Last rendered lines per region
+    private final Set<String> dirtyRegions; // Regions whose leaderboard needs a refresh
+    private boolean renderInFlight = false;
+    private BukkitTask refreshTask;
     
     public HologramManager(BasketballPlugin plugin) {
         this.plugin = plugin;
         this.playerHolograms = new HashMap<>();
         this.regionHolograms = new HashMap<>();
+        this.regionHologramLines = new HashMap<>();
+        this.dirtyRegions = new LinkedHashSet<>();
+    }
+    
+    /**
+     * Start the debounced leaderboard refresh task
+     */
+    public void startRefreshTask() {
+        stopRefreshTask();
+        long interval = Math.max(1, plugin.getConfigManager().getLeaderboardRefreshInterval());
+        this.refreshTask = plugin.getTaskManager().track(plugin.getServer().getScheduler().runTaskTimer(plugin, this::refreshDirtyHolograms, interval, interval), "HologramManager");
+    }
+    
+    /**
+     * Stop the debounced leaderboard refresh task
+     */
+    public void stopRefreshTask() {
+        if (refreshTask != null) {
+            refreshTask.cancel();
+            refreshTask = null;
+        }
+    }
+    
+    /**
+     * Mark a region's leaderboard as changed. It is re-rendered on the next refresh cycle.
+     * 
+     * @param regionName The region name
+     */
+    public void markDirty(String regionName) {
+        if (regionHolograms.containsKey(regionName)) {
+            dirtyRegions.add(regionName);
+        }
+    }
+    
+    /**
+     * Re-render all dirty leaderboards. Data is captured on the main thread,
+     * lines are rendered async and only the line diff is pushed back on the main thread.
+     */
+    private void refreshDirtyHolograms() {
+        if (renderInFlight || dirtyRegions.isEmpty()) {
+            return;
+        }
+        
+        TimingsManager timings = plugin.getTimingsManager();
+        
+        // Capture snapshots on the main thread
+        long captureStart = timings.start();
+        Map<String, LeaderboardSnapshot> snapshots = new LinkedHashMap<>();
+        for (String regionName : dirtyRegions) {
+            BasketballRegion region = plugin.getBasketballManager().getRegion(regionName);
+            if (region != null && regionHolograms.containsKey(regionName)) {
+                snapshots.put(regionName, captureLeaderboard(region));
+            }
+        }
+        dirtyRegions.clear();
+        timings.section(TimingsManager.HOLOGRAM_CAPTURE).stop(captureStart, null);
+        if (snapshots.isEmpty()) {
+            return;
+        }
+        
+        renderInFlight = true;
+        plugin.getServer().getScheduler().runTaskAsynchronously(plugin, () -> {
+            TimingsManager.Section renderTimings = timings.section(TimingsManager.HOLOGRAM_RENDER);
+            Map<String, List<String>> rendered = new LinkedHashMap<>();
+            for (Map.Entry<String, LeaderboardSnapshot> entry : snapshots.entrySet()) {
+                long start = timings.start();
+                rendered.put(entry.getKey(), renderLeaderboardLines(entry.getValue()));
+                renderTimings.stop(start, entry.getKey());
+            }
+            
+            // Push the changed lines on the main thread
+            plugin.getServer().getScheduler().runTask(plugin, () -> {
+                renderInFlight = false;
+                TimingsManager.Section applyTimings = timings.section(TimingsManager.HOLOGRAM_APPLY);
+                for (Map.Entry<String, List<String>> entry : rendered.entrySet()) {
+                    long start = timings.start();
+                    applyRenderedLines(entry.getKey(), entry.getValue());
+                    applyTimings.stop(start, entry.getKey());
+                }
+            });
+        });
     }
     
     /**
@@ -85,86 +174,58 @@ public class HologramManager {
      * @return List of formatted lines
      */
     private List<String> createLeaderboardLines(BasketballRegion region) {
-        List<String> lines = new ArrayList<>();
-        
-        // Header
-        lines.add(ChatColor.GOLD + "╔══════════════════════════════════════╗");
-        lines.add(ChatColor.GOLD + "║" + ChatColor.YELLOW + "        [Basketbal Leaderboard]        " + ChatColor.GOLD + "║");
-        lines.add(ChatColor.GOLD + "║" + ChatColor.GREEN + "    Behaal de 10 punten en win!    " + ChatColor.GOLD + "║");
-        lines.add(ChatColor.GOLD + "╠══════════════════════════════════════╣");
-        
-        Set<Player> playersInRegion = region.getPlayersInRegion();
+        return renderLeaderboardLines(captureLeaderboard(region));
+    }
+    
+    /**
+     * Capture the data a leaderboard needs. Must run on the main thread.
+     * 
+     * @param region The basketball region
+     * @return Immutable snapshot of the leaderboard data
+     */
+    private LeaderboardSnapshot captureLeaderboard(BasketballRegion region) {
+        boolean live = !region.getPlayersInRegion().isEmpty();
         
-        if (playersInRegion.isEmpty()) {
-            // No players in region - show top 10 winners
-            lines.add(ChatColor.GOLD + "║" + ChatColor.GRAY + "                                    " + ChatColor.GOLD + "║");
-            lines.add(ChatColor.GOLD + "║" + ChatColor.YELLOW + "           Top Winners            " + ChatColor.GOLD + "║");
-            lines.add(ChatColor.GOLD + "╠══════════════════════════════════════╣");
-            
-            Map<Player, Integer> playerWins = region.getPlayerWins();
-            List<Map.Entry<Player, Integer>> sortedWins = playerWins.entrySet().stream()
-                .sorted(Map.Entry.<Player, Integer>comparingByValue().reversed())
-                .limit(10)
-                .collect(Collectors.toList());
-            
-            if (sortedWins.isEmpty()) {
-                lines.add(ChatColor.GOLD + "║" + ChatColor.GRAY + "         Nog geen wins!          " + ChatColor.GOLD + "║");
-            } else {
-                for (int i = 0; i < sortedWins.size(); i++) {
-                    Map.Entry<Player, Integer> entry = sortedWins.get(i);
-                    Player player = entry.getKey();
-                    int wins = entry.getValue();
-                    
-                    ChatColor color;
-                    if (i == 0) color = ChatColor.GOLD;      // 1st place
-                    else if (i == 1) color = ChatColor.GRAY;  // 2nd place
-                    else if (i == 2) color = ChatColor.RED;   // 3rd place
-                    else color = ChatColor.WHITE;             // 4th-10th place
-                    
-                    String line = ChatColor.GOLD + "║" + color + " " + player.getName() + ": " + wins + " wins";
-                    // Pad to 36 characters
-                    while (line.length() < 36) {
-                        line += " ";
-                    }
-                    line += ChatColor.GOLD + "║";
-                    lines.add(line);
-                }
-            }
-        } else {
-            // Players in region - show live scores
-            lines.add(ChatColor.GOLD + "║" + ChatColor.YELLOW + "           Live Scores            " + ChatColor.GOLD + "║");
-            lines.add(ChatColor.GOLD + "╠══════════════════════════════════════╣");
-            
-            Map<Player, Integer> playerScores = region.getPlayerScores();
-            List<Map.Entry<Player, Integer>> sortedScores = playerScores.entrySet().stream()
-                .sorted(Map.Entry.<Player, Integer>comparingByValue().reversed())
-                .collect(Collectors.toList());
-            
-            for (int i = 0; i < sortedScores.size(); i++) {
-                Map.Entry<Player, Integer> entry = sortedScores.get(i);
-                Player player = entry.getKey();
-                int score = entry.getValue();
-                
-                ChatColor color;
-                if (i == 0) color = ChatColor.GOLD;      // 1st place
-                else if (i == 1) color = ChatColor.GRAY;  // 2nd place
-                else if (i == 2) color = ChatColor.RED;   // 3rd place
-                else color = ChatColor.WHITE;             // 4th+ place
-                
-                String line = ChatColor.GOLD + "║" + color + " " + player.getName() + ": " + score;
-                // Pad to 36 characters
-                while (line.length() < 36) {
-                    line += " ";
-                }
-                line += ChatColor.GOLD + "║";
-                lines.add(line);
+        if (!live) {
+            // Top winners come out of the court's leaderboard already ordered
+            List<Map.Entry<UUID, Integer>> top = region.getWinsLeaderboard().getTop(TOP_WINNERS);
+            List<Map.Entry<String, Integer>> entries = new ArrayList<>(top.size());
+            for (Map.Entry<UUID, Integer> entry : top) {
+                entries.add(new AbstractMap.SimpleImmutableEntry<>(getPlayerName(entry.getKey()), entry.getValue()));
             }
+            return new LeaderboardSnapshot(false, entries);
         }
         
-        // Footer
-        lines.add(ChatColor.GOLD + "╚══════════════════════════════════════╝");
+        UUIDIntView scores = region.getPlayerScores();
+        List<Map.Entry<String, Integer>> entries = new ArrayList<>(scores.size());
+        scores.forEach((uuid, score) -> entries.add(new AbstractMap.SimpleImmutableEntry<>(getPlayerName(uuid), score)));
+        return new LeaderboardSnapshot(true, entries);
+    }
+    
+    /**
+     * Get the name of a player that may be offline
+     * 
+     * @param uuid The player UUID
+     * @return The player name, or a shortened UUID if the server does not know it
+     */
+    private String getPlayerName(UUID uuid) {
+        Player online = plugin.getServer().getPlayer(uuid);
+        if (online != null) {
+            return online.getName();
+        }
         
-        return lines;
+        String name = plugin.getServer().getOfflinePlayer(uuid).getName();
+        return name != null ? name : uuid.toString().substring(0, 8);
+    }
+    
+    /**
+     * Render leaderboard lines from a snapshot. Safe to call off the main thread.
+     * 
+     * @param snapshot The leaderboard snapshot
+     * @return List of formatted lines
+     */
+    private static List<String> renderLeaderboardLines(LeaderboardSnapshot snapshot) {
+        return LeaderboardRenderer.render(snapshot.live, snapshot.entries);
     }
     
     /**
@@ -212,10 +273,14 @@ public class HologramManager {
         
         // Create permanent hologram
         String hologramId = "basketball_region_" + regionName;
+        Object jfrEvent = plugin.getFlightRecorder().start(FlightRecorderBridge.Kind.HOLOGRAM_REBUILD);
         Hologram hologram = DHAPI.createHologram(hologramId, safeLocation, lines);
         
         // Store reference
         regionHolograms.put(regionName, hologram);
+        regionHologramLines.put(regionName, lines);
+        plugin.getMetricsManager().countHologramRebuild(lines.size());
+        plugin.getFlightRecorder().commit(FlightRecorderBridge.Kind.HOLOGRAM_REBUILD, jfrEvent, regionName, null, lines.size());
         
         if (plugin.getConfigManager().isDebugEnabled()) {
             plugin.getLogger().info("Created permanent leaderboard hologram for region: " + regionName);
@@ -228,6 +293,8 @@ public class HologramManager {
      * @param regionName The region name
      */
     public void removeRegionHologram(String regionName) {
+        regionHologramLines.remove(regionName);
+        dirtyRegions.remove(regionName);
         Hologram hologram = regionHolograms.remove(regionName);
         if (hologram != null) {
             hologram.delete();
@@ -238,24 +305,84 @@ public class HologramManager {
      * Update all region holograms with live data
      */
     public void updateAllRegionHolograms() {
-        for (Map.Entry<String, Hologram> entry : regionHolograms.entrySet()) {
-            String regionName = entry.getKey();
-            Hologram hologram = entry.getValue();
-            
-            BasketballRegion region = plugin.getBasketballManager().getRegion(regionName);
-            if (region != null) {
-                // Recreate hologram with updated lines
-                List<String> lines = createLeaderboardLines(region);
-                hologram.delete();
-                String hologramId = "basketball_region_" + regionName;
-                Hologram newHologram = DHAPI.createHologram(hologramId, hologram.getLocation(), lines);
-                regionHolograms.put(regionName, newHologram);
-                
-                if (plugin.getConfigManager().isDebugEnabled()) {
-                    plugin.getLogger().info("Updated leaderboard hologram for region: " + regionName);
-                }
+        for (String regionName : new ArrayList<>(regionHolograms.keySet())) {
+            updateRegionHologram(regionName);
+        }
+    }
+    
+    /**
+     * Update the hologram of a single region, only touching lines that changed
+     * 
+     * @param regionName The region name
+     */
+    public void updateRegionHologram(String regionName) {
+        Hologram hologram = regionHolograms.get(regionName);
+        BasketballRegion region = plugin.getBasketballManager().getRegion(regionName);
+        if (hologram == null || region == null) {
+            return;
+        }
+        
+        dirtyRegions.remove(regionName);
+        applyRenderedLines(regionName, createLeaderboardLines(region));
+    }
+    
+    /**
+     * Push freshly rendered lines to a region hologram
+     * 
+     * @param regionName The region name
+     * @param lines The rendered lines
+     */
+    private void applyRenderedLines(String regionName, List<String> lines) {
+        Hologram hologram = regionHolograms.get(regionName);
+        if (hologram == null) {
+            return; // Hologram was removed while rendering
+        }
+        
+        List<String> oldLines = regionHologramLines.getOrDefault(regionName, Collections.emptyList());
+        Object jfrEvent = plugin.getFlightRecorder().start(FlightRecorderBridge.Kind.HOLOGRAM_REBUILD);
+        int changed = applyLineDiff(hologram, oldLines, lines);
+        regionHologramLines.put(regionName, lines);
+        plugin.getMetricsManager().countHologramRebuild(changed);
+        plugin.getFlightRecorder().commit(FlightRecorderBridge.Kind.HOLOGRAM_REBUILD, jfrEvent, regionName, null, changed);
+        
+        if (plugin.getConfigManager().isDebugEnabled()) {
+            plugin.getLogger().info("Updated leaderboard hologram for region: " + regionName + " (" + changed + " lines changed)");
+        }
+    }
+    
+    /**
+     * Push the difference between two line lists to a hologram
+     * 
+     * @param hologram The hologram
+     * @param oldLines The lines currently shown
+     * @param newLines The lines that should be shown
+     * @return The number of lines that were set, added or removed
+     */
+    private int applyLineDiff(Hologram hologram, List<String> oldLines, List<String> newLines) {
+        int changed = 0;
+        int common = Math.min(oldLines.size(), newLines.size());
+        
+        // Update lines that exist in both
+        for (int i = 0; i < common; i++) {
+            if (!oldLines.get(i).equals(newLines.get(i))) {
+                DHAPI.setHologramLine(hologram, i, newLines.get(i));
+                changed++;
             }
         }
+        
+        // Append new lines
+        for (int i = common; i < newLines.size(); i++) {
+            DHAPI.addHologramLine(hologram, newLines.get(i));
+            changed++;
+        }
+        
+        // Remove lines from the end so indices stay valid
+        for (int i = oldLines.size() - 1; i >= newLines.size(); i--) {
+            DHAPI.removeHologramLine(hologram, i);
+            changed++;
+        }
+        
+        return changed;
     }
     
     /**
@@ -266,6 +393,8 @@ public class HologramManager {
             hologram.delete();
         }
         regionHolograms.clear();
+        regionHologramLines.clear();
+        dirtyRegions.clear();
     }
     
     /**
@@ -322,4 +451,17 @@ public class HologramManager {
         }
         return true;
     }
-} 
\ No newline at end of file
+    
+    /**
+     * Immutable copy of the data shown on a leaderboard
+     */
+    private static class LeaderboardSnapshot {
+        private final boolean live; // True when showing live scores instead of wins
+        private final List<Map.Entry<String, Integer>> entries;
+        
+        private LeaderboardSnapshot(boolean live, List<Map.Entry<String, Integer>> entries) {
+            this.live = live;
+            this.entries = entries;
+        }
+    }
+}
@@ -0,0 +1,366 @@
+package nl.djorr.basketball.managers;
+
+import com.sun.net.httpserver.HttpServer;
+import nl.djorr.basketball.BasketballPlugin;
+import nl.djorr.basketball.objects.Basketball;
+import nl.djorr.basketball.storage.MatchHistory;
+import nl.djorr.basketball.utils.LatencyHistogram;
+import org.bukkit.Location;
+import org.bukkit.Particle;
+import org.bukkit.Sound;
+import org.bukkit.World;
+import org.bukkit.entity.Player;
+import org.bukkit.scheduler.BukkitTask;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Exports the plugin's counters, gauges and latency histograms in the
+ * Prometheus text format, either on {@code http://127.0.0.1:<port>/metrics}
+ * or as a file for the node_exporter textfile collector.
+ * <p>
+ * Counters are {@link LongAdder}s, which stripe contended increments over
+ * cells instead of allocating, so the hot paths only pay an add. Gauges that
+ * need main-thread state (balls, courts) are sampled on the main thread every
+ * interval; a scrape only reads what was sampled and never touches Bukkit.
+ * <p>
+ * Effect sends are counted by sending them through this manager, so the
+ * counters follow the particle and sound calls that were actually made.
+ * Latencies are exported from cumulative histograms that a timings reset
+ * does not clear, so the exported counts and sums only ever grow.
+ *
+ * @author Djorr
+ */
+public class MetricsManager {
+
+    private static final double[] QUANTILES = {0.5, 0.9, 0.99};
+
+    /**
+     * Effects whose particle and sound sends are counted
+     */
+    public enum Effect {
+        PICKUP, LANDING, BOUNCE, COLLISION, ROTATION, TRAIL, SCORE, TITLE, ACTION_BAR;
+
+        private final String label = name().toLowerCase(Locale.ROOT).replace('_', '-');
+    }
+
+    private final BasketballPlugin plugin;
+    private final LongAdder[] effectSends;
+    private final LongAdder hologramRebuilds = new LongAdder();
+    private final LongAdder hologramLinesChanged = new LongAdder();
+    private final LatencyHistogram physicsStep = new LatencyHistogram(); // Cumulative, never reset
+    private boolean enabled;
+
+    // Sampled on the main thread
+    private volatile int balls;
+    private volatile int ballsInFlight;
+    private volatile int courts;
+    private volatile int activeCourts;
+
+    private BukkitTask sampleTask;
+    private BukkitTask textfileTask;
+    private HttpServer server;
+    private ExecutorService serverExecutor;
+
+    /**
+     * Constructor for MetricsManager
+     *
+     * @param plugin The plugin instance
+     */
+    public MetricsManager(BasketballPlugin plugin) {
+        this.plugin = plugin;
+        this.effectSends = new LongAdder[Effect.values().length];
+        for (int i = 0; i < effectSends.length; i++) {
+            effectSends[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * Start sampling and exporting, if enabled in the config
+     */
+    public void start() {
+        ConfigManager config = plugin.getConfigManager();
+        if (!config.isMetricsEnabled()) {
+            return;
+        }
+        enabled = true;
+
+        long interval = Math.max(1, config.getMetricsInterval() / 50);
+        sampleTask = plugin.getTaskManager().track(plugin.getServer().getScheduler().runTaskTimer(plugin, this::sample, 0L, interval), "MetricsManager");
+
+        if ("textfile".equalsIgnoreCase(config.getMetricsMode())) {
+            File file = new File(config.getMetricsTextfile());
+            if (!file.isAbsolute()) {
+                file = new File(plugin.getDataFolder(), config.getMetricsTextfile());
+            }
+            File target = file;
+            textfileTask = plugin.getTaskManager().track(plugin.getServer().getScheduler().runTaskTimerAsynchronously(plugin, () -> writeTextfile(target), interval, interval), "MetricsManager");
+            plugin.getLogger().info("Writing metrics to " + file);
+            return;
+        }
+
+        try {
+            // Loopback only; put a proxy in front if the metrics must be reachable from elsewhere
+            server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), config.getMetricsPort()), 0);
+            server.createContext("/metrics", exchange -> {
+                byte[] body = scrape().getBytes(StandardCharsets.UTF_8);
+                exchange.getResponseHeaders().set("Content-Type", "text/plain; version=0.0.4; charset=utf-8");
+                exchange.sendResponseHeaders(200, body.length);
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(body);
+                }
+            });
+            serverExecutor = Executors.newSingleThreadExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "Basketball-Metrics");
+                thread.setDaemon(true);
+                return thread;
+            });
+            server.setExecutor(serverExecutor);
+            server.start();
+            plugin.getLogger().info("Serving metrics on http://127.0.0.1:" + config.getMetricsPort() + "/metrics");
+        } catch (IOException e) {
+            plugin.getLogger().severe("Could not start metrics endpoint on port " + config.getMetricsPort() + ": " + e.getMessage());
+            server = null;
+        }
+    }
+
+    /**
+     * Stop sampling and exporting
+     */
+    public void stop() {
+        enabled = false;
+        if (sampleTask != null) {
+            sampleTask.cancel();
+            sampleTask = null;
+        }
+        if (textfileTask != null) {
+            textfileTask.cancel();
+            textfileTask = null;
+        }
+        if (server != null) {
+            server.stop(0);
+            server = null;
+        }
+        if (serverExecutor != null) {
+            serverExecutor.shutdownNow();
+            serverExecutor = null;
+        }
+    }
+
+    /**
+     * Count particle or sound sends of an effect. Safe from any thread.
+     *
+     * @param effect The effect
+     * @param sends The number of sends
+     */
+    public void countEffect(Effect effect, int sends) {
+        effectSends[effect.ordinal()].add(sends);
+    }
+
+    /**
+     * Spawn particles for one player and count the send
+     *
+     * @param effect The effect the particles belong to
+     * @param player The player to send them to
+     */
+    public void spawnParticle(Effect effect, Player player, Particle particle, Location location, int count,
+                              double offsetX, double offsetY, double offsetZ, double extra) {
+        player.spawnParticle(particle, location, count, offsetX, offsetY, offsetZ, extra);
+        effectSends[effect.ordinal()].increment();
+    }
+
+    /**
+     * Spawn particles for everyone near the location and count the send
+     *
+     * @param effect The effect the particles belong to
+     * @param world The world to spawn them in
+     */
+    public void spawnParticle(Effect effect, World world, Particle particle, Location location, int count,
+                              double offsetX, double offsetY, double offsetZ, double extra) {
+        world.spawnParticle(particle, location, count, offsetX, offsetY, offsetZ, extra);
+        effectSends[effect.ordinal()].increment();
+    }
+
+    /**
+     * Play a sound for one player and count the send
+     *
+     * @param effect The effect the sound belongs to
+     * @param player The player to play it for
+     */
+    public void playSound(Effect effect, Player player, Location location, Sound sound, float volume, float pitch) {
+        player.playSound(location, sound, volume, pitch);
+        effectSends[effect.ordinal()].increment();
+    }
+
+    /**
+     * Play a sound for everyone near the location and count the send
+     *
+     * @param effect The effect the sound belongs to
+     * @param world The world to play it in
+     */
+    public void playSound(Effect effect, World world, Location location, Sound sound, float volume, float pitch) {
+        world.playSound(location, sound, volume, pitch);
+        effectSends[effect.ordinal()].increment();
+    }
+
+    /**
+     * Start timing a physics step
+     *
+     * @return The start time to pass to {@link #recordPhysicsStep(long)}, 0 when metrics are disabled
+     */
+    public long startPhysicsStep() {
+        return enabled ? System.nanoTime() : 0;
+    }
+
+    /**
+     * Record the time of a physics step since start
+     *
+     * @param start The value returned by {@link #startPhysicsStep()}
+     */
+    public void recordPhysicsStep(long start) {
+        if (start != 0) {
+            physicsStep.record(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Count a leaderboard hologram that was built or re-rendered
+     *
+     * @param linesChanged The number of lines that were set, added or removed
+     */
+    public void countHologramRebuild(int linesChanged) {
+        hologramRebuilds.increment();
+        hologramLinesChanged.add(linesChanged);
+    }
+
+    /**
+     * Sample the gauges that need the main thread
+     */
+    private void sample() {
+        int total = 0;
+        int inFlight = 0;
+        for (Basketball basketball : plugin.getBasketballManager().getBasketballs().values()) {
+            total++;
+            if (basketball.isThrown()) {
+                inFlight++;
+            }
+        }
+        balls = total;
+        ballsInFlight = inFlight;
+        courts = plugin.getBasketballManager().getRegions().size();
+        activeCourts = plugin.getCourtActivationManager().getActiveCourts();
+    }
+
+    /**
+     * Render every metric in the Prometheus text format
+     *
+     * @return The exposition text
+     */
+    public String scrape() {
+        StringBuilder out = new StringBuilder(4096);
+
+        gauge(out, "basketball_balls", "Basketballs that exist", balls);
+        gauge(out, "basketball_balls_in_flight", "Basketballs that are thrown and simulated", ballsInFlight);
+        gauge(out, "basketball_courts", "Registered courts", courts);
+        gauge(out, "basketball_courts_active", "Courts with at least one loaded chunk", activeCourts);
+
+        header(out, "basketball_effect_sends_total", "Particle and sound sends per effect, a world-wide send counts once", "counter");
+        for (Effect effect : Effect.values()) {
+            out.append("basketball_effect_sends_total{effect=\"").append(effect.label).append("\"} ")
+                .append(effectSends[effect.ordinal()].sum()).append('\n');
+        }
+
+        header(out, "basketball_hologram_rebuilds_total", "Leaderboard holograms built or re-rendered", "counter");
+        out.append("basketball_hologram_rebuilds_total ").append(hologramRebuilds.sum()).append('\n');
+        header(out, "basketball_hologram_lines_changed_total", "Hologram lines set, added or removed", "counter");
+        out.append("basketball_hologram_lines_changed_total ").append(hologramLinesChanged.sum()).append('\n');
+
+        DataManager dataManager = plugin.getDataManager();
+        MatchHistory history = dataManager.getMatchHistory();
+        header(out, "basketball_storage_queue_depth", "Writes waiting for the next flush", "gauge");
+        out.append("basketball_storage_queue_depth{queue=\"stats\"} ").append(dataManager.getStatsQueueDepth()).append('\n');
+        out.append("basketball_storage_queue_depth{queue=\"journal\"} ").append(dataManager.getJournalQueueDepth()).append('\n');
+        out.append("basketball_storage_queue_depth{queue=\"history\"} ").append(history != null ? history.getBufferedEvents() : 0).append('\n');
+        if (history != null) {
+            header(out, "basketball_history_dropped_events_total", "Match history events dropped because the buffer was full", "counter");
+            out.append("basketball_history_dropped_events_total ").append(history.getDroppedEvents()).append('\n');
+        }
+
+        header(out, "basketball_save_seconds", "Time to write a regions.yml snapshot", "summary");
+        summary(out, "basketball_save_seconds", null, dataManager.getSaveLatency());
+
+        header(out, "basketball_physics_step_seconds", "Time to simulate one thrown ball for one step", "summary");
+        summary(out, "basketball_physics_step_seconds", null, physicsStep);
+
+        // Sections are only recorded while timings are enabled
+        header(out, "basketball_section_seconds", "Time spent per profiled section", "summary");
+        for (Map.Entry<String, TimingsManager.Section> entry : plugin.getTimingsManager().getSections().entrySet()) {
+            summary(out, "basketball_section_seconds", "section=\"" + entry.getKey() + "\"", entry.getValue().getCumulative());
+        }
+
+        return out.toString();
+    }
+
+    /**
+     * Write the metrics to a temp file and atomically move it over the target,
+     * so the collector never reads a half-written file
+     */
+    private void writeTextfile(File file) {
+        File directory = file.getParentFile();
+        File tempFile = new File(directory, file.getName() + ".tmp");
+        try {
+            if (!directory.exists() && !directory.mkdirs()) {
+                throw new IOException("Could not create " + directory);
+            }
+            try (FileOutputStream out = new FileOutputStream(tempFile)) {
+                out.write(scrape().getBytes(StandardCharsets.UTF_8));
+            }
+            try {
+                Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            plugin.getLogger().warning("Could not write metrics to " + file + ": " + e.getMessage());
+        }
+    }
+
+    private static void header(StringBuilder out, String name, String help, String type) {
+        out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        out.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+    }
+
+    private static void gauge(StringBuilder out, String name, String help, long value) {
+        header(out, name, help, "gauge");
+        out.append(name).append(' ').append(value).append('\n');
+    }
+
+    private static void summary(StringBuilder out, String name, String labels, LatencyHistogram histogram) {
+        String prefix = labels != null ? labels + "," : "";
+        for (double quantile : QUANTILES) {
+            out.append(name).append("{").append(prefix).append("quantile=\"").append(quantile).append("\"} ")
+                .append(seconds(histogram.getValueAt(quantile))).append('\n');
+        }
+        String suffix = labels != null ? "{" + labels + "}" : "";
+        out.append(name).append("_sum").append(suffix).append(' ').append(seconds(histogram.getSum())).append('\n');
+        out.append(name).append("_count").append(suffix).append(' ').append(histogram.getCount()).append('\n');
+    }
+
+    private static String seconds(long nanos) {
+        return Double.toString(nanos / 1e9);
+    }
+}
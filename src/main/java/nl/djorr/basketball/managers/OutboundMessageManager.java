@@ -0,0 +1,182 @@
+package nl.djorr.basketball.managers;
+
+import nl.djorr.basketball.BasketballPlugin;
+import org.bukkit.entity.Player;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Coalesces outbound chat, titles and action bars per player.
+ * Everything queued during a tick is flushed once on the next scheduler pass.
+ * Titles and action bars are deduplicated so only the latest one is sent.
+ *
+ * @author Djorr
+ */
+public class OutboundMessageManager {
+
+    private final BasketballPlugin plugin;
+    private final Map<UUID, PendingMessages> pending;
+    private boolean flushScheduled = false;
+
+    /**
+     * Constructor for OutboundMessageManager
+     *
+     * @param plugin The plugin instance
+     */
+    public OutboundMessageManager(BasketballPlugin plugin) {
+        this.plugin = plugin;
+        this.pending = new LinkedHashMap<>();
+    }
+
+    /**
+     * Queue a chat line for a player (chat lines are kept in order)
+     *
+     * @param player The player
+     * @param message The message
+     */
+    public void queueChat(Player player, String message) {
+        getPending(player).chat.add(message);
+    }
+
+    /**
+     * Queue a title with explicit timings, replacing any title queued this tick
+     *
+     * @param player The player
+     * @param title The title text
+     * @param subtitle The subtitle text
+     * @param fadeIn Fade in ticks
+     * @param stay Stay ticks
+     * @param fadeOut Fade out ticks
+     */
+    public void queueTitle(Player player, String title, String subtitle, int fadeIn, int stay, int fadeOut) {
+        PendingMessages messages = getPending(player);
+        messages.title = title;
+        messages.subtitle = subtitle;
+        messages.hasTimes = true;
+        messages.fadeIn = fadeIn;
+        messages.stay = stay;
+        messages.fadeOut = fadeOut;
+    }
+
+    /**
+     * Queue a title using the client's current timings, replacing any title queued this tick
+     *
+     * @param player The player
+     * @param title The title text
+     * @param subtitle The subtitle text
+     */
+    public void queueTitle(Player player, String title, String subtitle) {
+        PendingMessages messages = getPending(player);
+        messages.title = title;
+        messages.subtitle = subtitle;
+        messages.hasTimes = false;
+    }
+
+    /**
+     * Queue an action bar, replacing any action bar queued this tick
+     *
+     * @param player The player
+     * @param message The message
+     */
+    public void queueActionBar(Player player, String message) {
+        getPending(player).actionBar = message;
+    }
+
+    /**
+     * Drop everything queued for a player (e.g. on quit)
+     *
+     * @param player The player
+     */
+    public void clear(Player player) {
+        pending.remove(player.getUniqueId());
+    }
+
+    /**
+     * Send everything that was queued since the last flush
+     */
+    public void flush() {
+        flushScheduled = false;
+        if (pending.isEmpty()) {
+            return;
+        }
+
+        List<PendingMessages> batch = new ArrayList<>(pending.values());
+        pending.clear();
+
+        for (PendingMessages messages : batch) {
+            Player player = messages.player;
+            if (!player.isOnline()) {
+                continue;
+            }
+
+            if (!messages.chat.isEmpty()) {
+                player.sendMessage(messages.chat.toArray(new String[0]));
+            }
+
+            if (messages.title != null) {
+                String subtitle = messages.subtitle != null ? messages.subtitle : "";
+                int sent = messages.hasTimes
+                    ? plugin.getNMSBridge().sendTitle(player, messages.title, subtitle, messages.fadeIn, messages.stay, messages.fadeOut)
+                    : plugin.getNMSBridge().sendTitle(player, messages.title, subtitle);
+                if (sent > 0) {
+                    plugin.getMetricsManager().countEffect(MetricsManager.Effect.TITLE, sent);
+                } else {
+                    // Fallback to chat if title fails
+                    player.sendMessage(messages.title);
+                    if (!subtitle.isEmpty()) {
+                        player.sendMessage(subtitle);
+                    }
+                }
+            }
+
+            if (messages.actionBar != null) {
+                if (plugin.getNMSBridge().sendActionBar(player, messages.actionBar)) {
+                    plugin.getMetricsManager().countEffect(MetricsManager.Effect.ACTION_BAR, 1);
+                } else {
+                    // Fallback to regular message
+                    player.sendMessage(messages.actionBar);
+                }
+            }
+        }
+    }
+
+    /**
+     * Get or create the pending messages for a player and make sure a flush is scheduled
+     */
+    private PendingMessages getPending(Player player) {
+        PendingMessages messages = pending.get(player.getUniqueId());
+        if (messages == null) {
+            messages = new PendingMessages(player);
+            pending.put(player.getUniqueId(), messages);
+        }
+
+        if (!flushScheduled && plugin.isEnabled()) {
+            flushScheduled = true;
+            plugin.getServer().getScheduler().runTask(plugin, this::flush);
+        }
+        return messages;
+    }
+
+    /**
+     * Messages waiting to be sent to a single player
+     */
+    private static class PendingMessages {
+        private final Player player;
+        private final List<String> chat = new ArrayList<>();
+        private String title;
+        private String subtitle;
+        private boolean hasTimes;
+        private int fadeIn;
+        private int stay;
+        private int fadeOut;
+        private String actionBar;
+
+        private PendingMessages(Player player) {
+            this.player = player;
+        }
+    }
+}
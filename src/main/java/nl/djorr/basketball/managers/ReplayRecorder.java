@@ -0,0 +1,293 @@
+package nl.djorr.basketball.managers;
+
+import nl.djorr.basketball.BasketballPlugin;
+import nl.djorr.basketball.objects.Basketball;
+import nl.djorr.basketball.objects.BasketballRegion;
+import nl.djorr.basketball.utils.BallPhysics;
+import nl.djorr.basketball.utils.ThrowRecording;
+import org.bukkit.Location;
+import org.bukkit.World;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.text.SimpleDateFormat;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Records thrown basketballs to {@code replays/} so bounce and score bugs can
+ * be reproduced without a server, see {@link ThrowRecording}.
+ * <p>
+ * At the throw the solid blocks of the court are copied into a bitset, which
+ * costs one block read per block of the court, so recording is a debug
+ * setting and off by default. Every physics tick of the live ball appends
+ * what went into {@link BallPhysics#update} and what came out, and the file
+ * is written off the main thread once the ball is removed.
+ *
+ * @author Djorr
+ */
+public class ReplayRecorder {
+
+    private static final int MAX_SNAPSHOT_BLOCKS = 128 * 32 * 128;
+    private static final int FALLBACK_RADIUS = 12; // Snapshot size around a ball outside a court
+    private static final int MAX_LIVE_TICKS = 600;
+
+    private final BasketballPlugin plugin;
+    private final File directory;
+    private final Map<UUID, Capture> captures = new HashMap<>();
+    private Capture current; // The capture between beginTick and endTick
+
+    /**
+     * Constructor for ReplayRecorder
+     *
+     * @param plugin The plugin instance
+     */
+    public ReplayRecorder(BasketballPlugin plugin) {
+        this.plugin = plugin;
+        this.directory = new File(plugin.getDataFolder(), "replays");
+    }
+
+    /**
+     * Start recording a throw
+     *
+     * @param basketball The thrown basketball
+     */
+    public void start(Basketball basketball) {
+        if (!plugin.getConfigManager().isReplayEnabled() || basketball.getEntity() == null) {
+            return;
+        }
+
+        UUID id = basketball.getEntity().getUniqueId();
+        finish(basketball);
+
+        Location location = basketball.getLocation();
+        int[] origin;
+        int[] size;
+        BasketballRegion region = basketball.getRegionName() != null
+            ? plugin.getBasketballManager().getRegion(basketball.getRegionName()) : null;
+        int[] bounds = region != null ? region.getRegionBounds() : null;
+        if (bounds != null) {
+            // The court plus one block around it, for the floor and the walls
+            origin = new int[] {bounds[0] - 1, bounds[2] - 1, bounds[4] - 1};
+            size = new int[] {bounds[1] - bounds[0] + 3, bounds[3] - bounds[2] + 3, bounds[5] - bounds[4] + 3};
+        } else {
+            origin = new int[] {location.getBlockX() - FALLBACK_RADIUS, location.getBlockY() - FALLBACK_RADIUS, location.getBlockZ() - FALLBACK_RADIUS};
+            size = new int[] {FALLBACK_RADIUS * 2 + 1, FALLBACK_RADIUS * 2 + 1, FALLBACK_RADIUS * 2 + 1};
+        }
+
+        if ((long) size[0] * size[1] * size[2] > MAX_SNAPSHOT_BLOCKS) {
+            if (plugin.getConfigManager().isDebugEnabled()) {
+                plugin.getLogger().info("Court '" + basketball.getRegionName() + "' is too large to record throws in");
+            }
+            return;
+        }
+
+        World world = location.getWorld();
+        long[] solid = new long[ThrowRecording.words(size[0], size[1], size[2])];
+        for (int y = 0; y < size[1]; y++) {
+            for (int z = 0; z < size[2]; z++) {
+                for (int x = 0; x < size[0]; x++) {
+                    if (world.getBlockAt(origin[0] + x, origin[1] + y, origin[2] + z).getType().isSolid()) {
+                        int bit = ThrowRecording.index(size, x, y, z);
+                        solid[bit >>> 6] |= 1L << bit;
+                    }
+                }
+            }
+        }
+
+        String court = basketball.getRegionName() != null ? basketball.getRegionName() : "";
+        captures.put(id, new Capture(court, origin, size, solid, plugin.getConfigManager().getMaxBounces()));
+    }
+
+    /**
+     * Start recording a physics tick of a ball in flight, before
+     * {@link BallPhysics#update} runs on it
+     *
+     * @param basketball The basketball
+     * @param ball The physics input taken from the entity
+     * @param region The court the ball is played in
+     */
+    public void beginTick(Basketball basketball, BallPhysics.State ball, BasketballRegion region) {
+        current = null;
+        if (captures.isEmpty() || basketball.getEntity() == null) {
+            return;
+        }
+
+        Capture capture = captures.get(basketball.getEntity().getUniqueId());
+        if (capture == null) {
+            return;
+        }
+
+        capture.begin(ball, region);
+        current = capture;
+    }
+
+    /**
+     * Finish recording a physics tick with the result of the update
+     *
+     * @param basketball The basketball
+     * @param ball The physics output
+     * @param result The result of the update
+     */
+    public void endTick(Basketball basketball, BallPhysics.State ball, BallPhysics.StepResult result) {
+        Capture capture = current;
+        if (capture == null) {
+            return;
+        }
+
+        current = null;
+        capture.end(ball, result);
+        if (capture.ticks >= MAX_LIVE_TICKS) {
+            finish(basketball);
+        }
+    }
+
+    /**
+     * Stop recording a ball and write its recording off the main thread
+     *
+     * @param basketball The basketball
+     */
+    public void finish(Basketball basketball) {
+        if (captures.isEmpty() || basketball.getEntity() == null) {
+            return;
+        }
+
+        Capture capture = captures.remove(basketball.getEntity().getUniqueId());
+        if (capture == null || capture.ticks == 0) {
+            return;
+        }
+
+        ThrowRecording recording = capture.toRecording();
+        File file = new File(directory, (capture.court.isEmpty() ? "none" : capture.court) + "-"
+            + new SimpleDateFormat("yyyyMMdd-HHmmss-SSS").format(new Date(recording.getRecordedAt())) + ".throw");
+        plugin.getServer().getScheduler().runTaskAsynchronously(plugin, () -> {
+            try {
+                write(recording, file);
+            } catch (IOException e) {
+                plugin.getLogger().warning("Could not write throw recording " + file.getName() + ": " + e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * Drop the throws still being recorded
+     */
+    public void clear() {
+        captures.clear();
+        current = null;
+    }
+
+    private void write(ThrowRecording recording, File file) throws IOException {
+        if (!directory.exists() && !directory.mkdirs()) {
+            throw new IOException("Could not create " + directory);
+        }
+
+        File tempFile = new File(directory, file.getName() + ".tmp");
+        try (OutputStream out = new BufferedOutputStream(new FileOutputStream(tempFile))) {
+            recording.write(out);
+        }
+        try {
+            Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Read a recording from the replays folder
+     *
+     * @param name The file name, with or without {@code .throw}
+     * @return The recording
+     * @throws IOException If the file is missing or not a recording
+     */
+    public ThrowRecording load(String name) throws IOException {
+        File file = new File(directory, name.endsWith(".throw") ? name : name + ".throw");
+        if (!file.getParentFile().equals(directory)) {
+            throw new IOException("Not a recording name: " + name);
+        }
+        try (InputStream in = new BufferedInputStream(new FileInputStream(file))) {
+            return ThrowRecording.read(in);
+        }
+    }
+
+    /**
+     * Get the names of the recordings, newest first
+     */
+    public String[] list() {
+        String[] names = directory.list((dir, name) -> name.endsWith(".throw"));
+        if (names == null) {
+            return new String[0];
+        }
+        Arrays.sort(names, (a, b) -> Long.compare(new File(directory, b).lastModified(), new File(directory, a).lastModified()));
+        return names;
+    }
+
+    /**
+     * A throw being recorded
+     */
+    private static final class Capture {
+        private final String court;
+        private final long recordedAt = System.currentTimeMillis();
+        private final int[] origin;
+        private final int[] size;
+        private final long[] solid;
+        private final int maxBounces;
+        private int[] bounds; // Taken from the court at the first tick
+        private double[] values = new double[64 * ThrowRecording.TICK_DOUBLES];
+        private int[] counts = new int[64 * ThrowRecording.TICK_INTS];
+        private int ticks;
+
+        private Capture(String court, int[] origin, int[] size, long[] solid, int maxBounces) {
+            this.court = court;
+            this.origin = origin;
+            this.size = size;
+            this.solid = solid;
+            this.maxBounces = maxBounces;
+        }
+
+        private void begin(BallPhysics.State ball, BallPhysics.Court region) {
+            if ((ticks + 1) * ThrowRecording.TICK_DOUBLES > values.length) {
+                values = Arrays.copyOf(values, values.length * 2);
+                counts = Arrays.copyOf(counts, counts.length * 2);
+            }
+            if (bounds == null && region.getBounds() != null) {
+                bounds = region.getBounds().clone();
+            }
+            int value = ticks * ThrowRecording.TICK_DOUBLES;
+            values[value] = ball.getX();
+            values[value + 1] = ball.getY();
+            values[value + 2] = ball.getZ();
+            values[value + 3] = ball.getVelocityX();
+            values[value + 4] = ball.getVelocityY();
+            values[value + 5] = ball.getVelocityZ();
+            counts[ticks * ThrowRecording.TICK_INTS] = ball.getBounces();
+        }
+
+        private void end(BallPhysics.State ball, BallPhysics.StepResult result) {
+            int value = ticks * ThrowRecording.TICK_DOUBLES;
+            values[value + 6] = ball.getVelocityX();
+            values[value + 7] = ball.getVelocityY();
+            values[value + 8] = ball.getVelocityZ();
+            counts[ticks * ThrowRecording.TICK_INTS + 1] = ball.getBounces();
+            counts[ticks * ThrowRecording.TICK_INTS + 2] = result.ordinal();
+            ticks++;
+        }
+
+        private ThrowRecording toRecording() {
+            return new ThrowRecording(court, recordedAt, maxBounces, origin, size, solid, bounds,
+                Arrays.copyOf(values, ticks * ThrowRecording.TICK_DOUBLES), Arrays.copyOf(counts, ticks * ThrowRecording.TICK_INTS));
+        }
+    }
+}
@@ -60,7 +60,7 @@ public class ScoreManager {
         setScore(player, newScore);
         
         // Show score message
-        player.sendMessage(plugin.getConfigManager().getMessageWithPrefix("score"));
+        plugin.getOutboundMessageManager().queueChat(player, plugin.getConfigManager().getMessageWithPrefix("score"));
         
         // Show title
         showScoreTitle(player, points);
@@ -103,95 +103,8 @@ public class ScoreManager {
         int duration = plugin.getConfigManager().getTitleDuration();
         int fadeOut = plugin.getConfigManager().getTitleFadeOut();
         
-        // Send title using reflection for 1.12.2 compatibility
-        sendTitle(player, title, subtitle, fadeIn, duration, fadeOut);
-    }
-    
-    /**
-     * Send a title to a player using reflection
-     * 
-     * @param player The player
-     * @param title The title text
-     * @param subtitle The subtitle text
-     * @param fadeIn Fade in ticks
-     * @param duration Duration ticks
-     * @param fadeOut Fade out ticks
-     */
-    private void sendTitle(Player player, String title, String subtitle, int fadeIn, int duration, int fadeOut) {
-        try {
-            // Use reflection to send title for 1.12.2 compatibility
-            Object chatComponentTitle = createChatComponent(title);
-            Object chatComponentSubtitle = createChatComponent(subtitle);
-            
-            Object packetTitle = createTitlePacket(chatComponentTitle, chatComponentSubtitle, fadeIn, duration, fadeOut);
-            
-            sendPacket(player, packetTitle);
-        } catch (Exception e) {
-            // Fallback to action bar if title fails
-            sendActionBar(player, title + " " + subtitle);
-        }
-    }
-    
-    /**
-     * Create a chat component using reflection
-     * 
-     * @param text The text
-     * @return The chat component
-     * @throws Exception If reflection fails
-     */
-    private Object createChatComponent(String text) throws Exception {
-        Class<?> chatComponentClass = Class.forName("net.minecraft.server.v1_12_R1.IChatBaseComponent");
-        Class<?> chatComponentTextClass = Class.forName("net.minecraft.server.v1_12_R1.ChatComponentText");
-        
-        Object chatComponent = chatComponentTextClass.getConstructor(String.class).newInstance(text);
-        return chatComponent;
-    }
-    
-    /**
-     * Create a title packet using reflection
-     * 
-     * @param title The title component
-     * @param subtitle The subtitle component
-     * @param fadeIn Fade in ticks
-     * @param duration Duration ticks
-     * @param fadeOut Fade out ticks
-     * @return The packet
-     * @throws Exception If reflection fails
-     */
-    private Object createTitlePacket(Object title, Object subtitle, int fadeIn, int duration, int fadeOut) throws Exception {
-        Class<?> packetClass = Class.forName("net.minecraft.server.v1_12_R1.PacketPlayOutTitle");
-        Class<?> enumTitleActionClass = Class.forName("net.minecraft.server.v1_12_R1.PacketPlayOutTitle$EnumTitleAction");
-        
-        // Create times packet
-        Object timesPacket = packetClass.getConstructor(enumTitleActionClass, int.class, int.class, int.class)
-            .newInstance(enumTitleActionClass.getField("TIMES").get(null), fadeIn, duration, fadeOut);
-        
-        // Create title packet
-        Object titlePacket = packetClass.getConstructor(enumTitleActionClass, Class.forName("net.minecraft.server.v1_12_R1.IChatBaseComponent"))
-            .newInstance(enumTitleActionClass.getField("TITLE").get(null), title);
-        
-        // Create subtitle packet
-        Object subtitlePacket = packetClass.getConstructor(enumTitleActionClass, Class.forName("net.minecraft.server.v1_12_R1.IChatBaseComponent"))
-            .newInstance(enumTitleActionClass.getField("SUBTITLE").get(null), subtitle);
-        
-        return new Object[]{timesPacket, titlePacket, subtitlePacket};
-    }
-    
-    /**
-     * Send a packet to a player using reflection
-     * 
-     * @param player The player
-     * @param packet The packet to send
-     * @throws Exception If reflection fails
-     */
-    private void sendPacket(Player player, Object packet) throws Exception {
-        Object[] packets = (Object[]) packet;
-        for (Object p : packets) {
-            Object connection = player.getClass().getMethod("getHandle").invoke(player);
-            Object playerConnection = connection.getClass().getField("playerConnection").get(connection);
-            playerConnection.getClass().getMethod("sendPacket", Class.forName("net.minecraft.server.v1_12_R1.Packet"))
-                .invoke(playerConnection, p);
-        }
+        // Queue title, only the latest title of this tick is sent
+        plugin.getOutboundMessageManager().queueTitle(player, title, subtitle, fadeIn, duration, fadeOut);
     }
     
     /**
@@ -201,17 +114,7 @@ public class ScoreManager {
      * @param message The message
      */
     public void sendActionBar(Player player, String message) {
-        try {
-            Object chatComponent = createChatComponent(message);
-            Class<?> packetClass = Class.forName("net.minecraft.server.v1_12_R1.PacketPlayOutChat");
-            Object packet = packetClass.getConstructor(Class.forName("net.minecraft.server.v1_12_R1.IChatBaseComponent"), byte.class)
-                .newInstance(chatComponent, (byte) 2);
-            
-            sendPacket(player, packet);
-        } catch (Exception e) {
-            // Fallback to regular message
-            player.sendMessage(message);
-        }
+        plugin.getOutboundMessageManager().queueActionBar(player, message);
     }
     
     /**
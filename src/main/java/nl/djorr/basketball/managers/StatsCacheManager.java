@@ -0,0 +1,501 @@
+package nl.djorr.basketball.managers;
+
+import nl.djorr.basketball.BasketballPlugin;
+import nl.djorr.basketball.objects.BasketballRegion;
+import nl.djorr.basketball.storage.StatsStorage;
+import org.bukkit.entity.Player;
+import org.bukkit.scheduler.BukkitTask;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps player wins in memory only while they are needed.
+ * <p>
+ * Wins are read from the {@link StatsStorage} on the async pre-login thread and
+ * applied to the courts when the player joins. After a player quits their
+ * wins stay cached for a while (a quick rejoin needs no read) and are then
+ * written back and dropped from every court, except when they are part of a
+ * court's top winners. The cache is bounded; online players are never evicted.
+ * <p>
+ * When no pre-login read is available (e.g. after a reload) the wins are read
+ * on a worker thread instead. Until that read succeeds the player is pending:
+ * wins they gain stay in memory and absolute writes for them are held back, so
+ * a count that started from zero never overwrites their stored total. A failed
+ * read is retried by the eviction timer.
+ * <p>
+ * Wins deltas from other servers for a player whose pre-login read has
+ * started are held here instead of being added to the storage, where the
+ * read may already have missed them; they are added when the player joins.
+ *
+ * @author Djorr
+ */
+public class StatsCacheManager {
+
+    private final BasketballPlugin plugin;
+    private final StatsStorage storage;
+    private final int maxSize;
+    private final long evictAfterMillis;
+    private final int keepTop;
+    private final Map<UUID, Prefetched> prefetched; // Filled on the pre-login thread
+    private final LinkedHashMap<UUID, CachedPlayer> cache; // Access ordered, main thread only
+    private final Map<UUID, PendingPlayer> pending = new HashMap<>(); // Read not done yet, main thread only
+    private BukkitTask evictionTask;
+
+    /**
+     * Constructor for StatsCacheManager
+     *
+     * @param plugin The plugin instance
+     * @param storage The storage backend
+     * @param keepTop Number of top winners per court that always stay loaded
+     */
+    public StatsCacheManager(BasketballPlugin plugin, StatsStorage storage, int keepTop) {
+        this.plugin = plugin;
+        this.storage = storage;
+        this.maxSize = Math.max(1, plugin.getConfigManager().getStatsCacheSize());
+        this.evictAfterMillis = plugin.getConfigManager().getStatsCacheEvictAfter() * 1000L;
+        this.keepTop = keepTop;
+        this.prefetched = new ConcurrentHashMap<>();
+        this.cache = new LinkedHashMap<>(16, 0.75f, true);
+    }
+
+    /**
+     * Load the players that are already online (e.g. after a reload) and start evicting
+     */
+    public void start() {
+        for (Player player : plugin.getServer().getOnlinePlayers()) {
+            onJoin(player);
+        }
+
+        evictionTask = plugin.getTaskManager().track(plugin.getServer().getScheduler().runTaskTimer(plugin, this::evictExpired, 20L * 30, 20L * 30), "StatsCacheManager");
+    }
+
+    /**
+     * Stop evicting and write every cached player back
+     */
+    public void stop() {
+        if (evictionTask != null) {
+            evictionTask.cancel();
+            evictionTask = null;
+        }
+
+        for (UUID uuid : cache.keySet()) {
+            writeBack(uuid);
+        }
+        cache.clear();
+        for (Map.Entry<UUID, Prefetched> entry : prefetched.entrySet()) {
+            addToStorage(entry.getKey(), entry.getValue().drain());
+        }
+        prefetched.clear();
+
+        // The stored totals of these players are unknown, so only add what they gained
+        for (Map.Entry<UUID, PendingPlayer> entry : pending.entrySet()) {
+            for (BasketballRegion region : plugin.getBasketballManager().getRegions().values()) {
+                int gained = entry.getValue().getGained(region, entry.getKey());
+                if (gained > 0) {
+                    storage.addWins(region.getRegionName(), entry.getKey(), gained);
+                }
+            }
+        }
+        pending.clear();
+    }
+
+    /**
+     * Read a player's wins ahead of their join. Called on the async pre-login thread.
+     *
+     * @param uuid The player UUID
+     */
+    public void prefetch(UUID uuid) {
+        // Registered before the read, so deltas that arrive during it are held
+        Prefetched loading = new Prefetched();
+        Prefetched previous = prefetched.put(uuid, loading);
+        if (previous != null) {
+            Map<String, Integer> held = previous.drain();
+            if (held != null) {
+                held.forEach(loading::hold);
+            }
+        }
+
+        try {
+            loading.wins = storage.loadPlayerWins(uuid);
+        } catch (IOException e) {
+            // Read again on join; the held deltas are kept until then
+            plugin.getLogger().warning("Could not prefetch wins for " + uuid + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Hold a wins delta from another server for a player whose pre-login
+     * read has started, so it is added on join instead of being missed by
+     * the read. Main thread only.
+     *
+     * @param regionName The region name
+     * @param uuid The player UUID
+     * @param delta The wins to add
+     * @return False if no read is waiting for the player's join
+     */
+    public boolean holdForJoin(String regionName, UUID uuid, int delta) {
+        Prefetched loading = prefetched.get(uuid);
+        return loading != null && loading.hold(regionName, delta);
+    }
+
+    /**
+     * Apply a player's wins to the courts when they join
+     *
+     * @param player The player
+     */
+    public void onJoin(Player player) {
+        UUID uuid = player.getUniqueId();
+        Prefetched loaded = prefetched.remove(uuid);
+        Map<String, Integer> held = loaded != null ? loaded.drain() : null;
+
+        CachedPlayer cached = cache.get(uuid);
+        if (cached != null) {
+            // Still cached from a previous session, memory is newer than anything read
+            cached.quitAt = 0;
+            addToMemory(uuid, held);
+            return;
+        }
+
+        PendingPlayer waiting = pending.get(uuid);
+        if (waiting != null) {
+            // Rejoined before the read finished
+            waiting.quitAt = 0;
+            addToMemory(uuid, held);
+            return;
+        }
+
+        if (loaded == null || loaded.wins == null) {
+            // No pre-login read (e.g. reload), read it on a worker and hold writes until then;
+            // held deltas count as gained, so they are added to what the read finds
+            pending.put(uuid, new PendingPlayer(snapshotWins(uuid)));
+            addToMemory(uuid, held);
+            load(uuid);
+            return;
+        }
+
+        for (Map.Entry<String, Integer> entry : loaded.wins.entrySet()) {
+            BasketballRegion region = plugin.getBasketballManager().getRegion(entry.getKey());
+            if (region != null) {
+                region.setPlayerWinsFromUUID(uuid, entry.getValue());
+            }
+        }
+
+        cache.put(uuid, new CachedPlayer(loaded.wins));
+        addToMemory(uuid, held);
+        trimToSize();
+    }
+
+    /**
+     * Add held deltas to the courts and write the new totals
+     */
+    private void addToMemory(UUID uuid, Map<String, Integer> held) {
+        if (held == null) {
+            return;
+        }
+        for (Map.Entry<String, Integer> entry : held.entrySet()) {
+            BasketballRegion region = plugin.getBasketballManager().getRegion(entry.getKey());
+            if (region == null) {
+                storage.addWins(entry.getKey(), uuid, entry.getValue());
+                continue;
+            }
+            int wins = Math.max(0, region.getWinsLeaderboard().getWins(uuid) + entry.getValue());
+            region.setPlayerWinsFromUUID(uuid, wins);
+            plugin.getDataManager().persistWins(entry.getKey(), uuid, wins);
+        }
+    }
+
+    /**
+     * Add held deltas of a player that did not join to the storage
+     */
+    private void addToStorage(UUID uuid, Map<String, Integer> held) {
+        if (held == null) {
+            return;
+        }
+        for (Map.Entry<String, Integer> entry : held.entrySet()) {
+            storage.addWins(entry.getKey(), uuid, entry.getValue());
+        }
+    }
+
+    /**
+     * Read a pending player's wins on a worker thread
+     */
+    private void load(UUID uuid) {
+        PendingPlayer waiting = pending.get(uuid);
+        if (waiting == null || waiting.loading) {
+            return;
+        }
+        waiting.loading = true;
+
+        plugin.getServer().getScheduler().runTaskAsynchronously(plugin, () -> {
+            Map<String, Integer> wins;
+            try {
+                wins = storage.loadPlayerWins(uuid);
+            } catch (IOException e) {
+                plugin.getLogger().warning("Could not load wins for " + uuid + ", retrying: " + e.getMessage());
+                wins = null;
+            }
+
+            if (plugin.isEnabled()) {
+                Map<String, Integer> result = wins;
+                plugin.getServer().getScheduler().runTask(plugin, () -> completeLoad(uuid, result));
+            }
+        });
+    }
+
+    /**
+     * Merge a finished read with the wins gained while it ran. Main thread only.
+     *
+     * @param uuid The player UUID
+     * @param wins The stored wins, or null if the read failed
+     */
+    private void completeLoad(UUID uuid, Map<String, Integer> wins) {
+        PendingPlayer waiting = pending.get(uuid);
+        if (waiting == null) {
+            return; // Stopped in the meantime
+        }
+        waiting.loading = false;
+        if (wins == null) {
+            return; // Retried by the eviction timer
+        }
+        pending.remove(uuid);
+
+        for (BasketballRegion region : plugin.getBasketballManager().getRegions().values()) {
+            Integer stored = wins.get(region.getRegionName());
+            int gained = waiting.getGained(region, uuid);
+            if (stored == null && gained == 0) {
+                continue;
+            }
+
+            int total = Math.max(0, (stored != null ? stored : 0) + gained);
+            region.setPlayerWinsFromUUID(uuid, total);
+            if (gained != 0) {
+                storage.saveWins(region.getRegionName(), uuid, total);
+            }
+        }
+
+        CachedPlayer cached = new CachedPlayer(wins);
+        cached.quitAt = waiting.quitAt;
+        cache.put(uuid, cached);
+        trimToSize();
+    }
+
+    /**
+     * Get the wins a player already has in memory, e.g. as a retained top winner
+     */
+    private Map<String, Integer> snapshotWins(UUID uuid) {
+        Map<String, Integer> wins = new HashMap<>();
+        for (BasketballRegion region : plugin.getBasketballManager().getRegions().values()) {
+            int count = region.getWinsLeaderboard().getWins(uuid);
+            if (count > 0) {
+                wins.put(region.getRegionName(), count);
+            }
+        }
+        return wins;
+    }
+
+    /**
+     * Start the eviction timer of a player that quit
+     *
+     * @param player The player
+     */
+    public void onQuit(Player player) {
+        CachedPlayer cached = cache.get(player.getUniqueId());
+        if (cached != null) {
+            cached.quitAt = System.currentTimeMillis();
+        }
+
+        PendingPlayer waiting = pending.get(player.getUniqueId());
+        if (waiting != null) {
+            waiting.quitAt = System.currentTimeMillis();
+        }
+    }
+
+    /**
+     * Apply cached wins to a court that was registered after its players joined
+     *
+     * @param region The new region
+     */
+    public void onRegionRegistered(BasketballRegion region) {
+        for (Map.Entry<UUID, CachedPlayer> entry : cache.entrySet()) {
+            Integer wins = entry.getValue().loadedWins.get(region.getRegionName());
+            if (wins != null && region.getWinsLeaderboard().getWins(entry.getKey()) == 0) {
+                region.setPlayerWinsFromUUID(entry.getKey(), wins);
+            }
+        }
+    }
+
+    /**
+     * Check if a player's wins are loaded in the courts
+     *
+     * @param uuid The player UUID
+     * @return True if the player is cached
+     */
+    public boolean isLoaded(UUID uuid) {
+        return cache.containsKey(uuid);
+    }
+
+    /**
+     * Check if a player's stored wins are still being read. Absolute writes for
+     * them must be held back until then.
+     *
+     * @param uuid The player UUID
+     * @return True if the player is pending
+     */
+    public boolean isPending(UUID uuid) {
+        return pending.containsKey(uuid);
+    }
+    
+    /**
+     * Get the number of cached players
+     *
+     * @return The number of cached players
+     */
+    public int size() {
+        return cache.size();
+    }
+
+    /**
+     * Evict players that have been offline longer than the configured time
+     */
+    private void evictExpired() {
+        long now = System.currentTimeMillis();
+        List<UUID> expired = new ArrayList<>();
+
+        for (Map.Entry<UUID, CachedPlayer> entry : cache.entrySet()) {
+            long quitAt = entry.getValue().quitAt;
+            if (quitAt > 0 && now - quitAt >= evictAfterMillis) {
+                expired.add(entry.getKey());
+            }
+        }
+
+        for (UUID uuid : expired) {
+            cache.remove(uuid);
+            evict(uuid);
+        }
+
+        // Reads for logins that never completed
+        for (Iterator<Map.Entry<UUID, Prefetched>> iterator = prefetched.entrySet().iterator(); iterator.hasNext(); ) {
+            Map.Entry<UUID, Prefetched> entry = iterator.next();
+            if (now - entry.getValue().loadedAt >= evictAfterMillis) {
+                iterator.remove();
+                addToStorage(entry.getKey(), entry.getValue().drain());
+            }
+        }
+
+        // Retry reads that failed
+        for (UUID uuid : new ArrayList<>(pending.keySet())) {
+            load(uuid);
+        }
+    }
+
+    /**
+     * Evict the least recently used offline players until the cache fits
+     */
+    private void trimToSize() {
+        Iterator<Map.Entry<UUID, CachedPlayer>> iterator = cache.entrySet().iterator();
+        while (cache.size() > maxSize && iterator.hasNext()) {
+            Map.Entry<UUID, CachedPlayer> entry = iterator.next();
+            if (entry.getValue().quitAt > 0) {
+                iterator.remove();
+                evict(entry.getKey());
+            }
+        }
+    }
+
+    /**
+     * Write a player back and drop them from every court where they are not a top winner
+     */
+    private void evict(UUID uuid) {
+        writeBack(uuid);
+        for (BasketballRegion region : plugin.getBasketballManager().getRegions().values()) {
+            region.unloadPlayerWins(uuid, keepTop);
+        }
+    }
+
+    /**
+     * Queue the in-memory wins of a player for every court
+     */
+    private void writeBack(UUID uuid) {
+        for (BasketballRegion region : plugin.getBasketballManager().getRegions().values()) {
+            int wins = region.getWinsLeaderboard().getWins(uuid);
+            if (wins > 0) {
+                storage.saveWins(region.getRegionName(), uuid, wins);
+            }
+        }
+    }
+
+    /**
+     * Wins read on the pre-login thread, and the deltas from other servers
+     * that arrived once the read started
+     */
+    private static class Prefetched {
+        private volatile Map<String, Integer> wins; // Null until read, or if the read failed
+        private final long loadedAt;
+        private Map<String, Integer> held = new HashMap<>(); // Null once drained
+
+        private Prefetched() {
+            this.loadedAt = System.currentTimeMillis();
+        }
+
+        /**
+         * @return False if the deltas were already drained
+         */
+        private synchronized boolean hold(String regionName, int delta) {
+            if (held == null) {
+                return false;
+            }
+            held.merge(regionName, delta, Integer::sum);
+            return true;
+        }
+
+        /**
+         * Take the held deltas; later deltas are no longer held
+         */
+        private synchronized Map<String, Integer> drain() {
+            Map<String, Integer> drained = held;
+            held = null;
+            return drained;
+        }
+    }
+
+    /**
+     * A player whose stored wins are being read
+     */
+    private static class PendingPlayer {
+        private final Map<String, Integer> baseline; // Wins in memory when the read started
+        private boolean loading;
+        private long quitAt; // 0 while online
+
+        private PendingPlayer(Map<String, Integer> baseline) {
+            this.baseline = baseline;
+        }
+
+        /**
+         * Get the wins gained in a court since the read started
+         */
+        private int getGained(BasketballRegion region, UUID uuid) {
+            Integer base = baseline.get(region.getRegionName());
+            return region.getWinsLeaderboard().getWins(uuid) - (base != null ? base : 0);
+        }
+    }
+
+    /**
+     * A player whose wins are loaded
+     */
+    private static class CachedPlayer {
+        private final Map<String, Integer> loadedWins;
+        private long quitAt; // 0 while online
+
+        private CachedPlayer(Map<String, Integer> loadedWins) {
+            this.loadedWins = loadedWins;
+        }
+    }
+}
@@ -0,0 +1,348 @@
+package nl.djorr.basketball.managers;
+
+import nl.djorr.basketball.BasketballPlugin;
+import nl.djorr.basketball.objects.BasketballRegion;
+import nl.djorr.basketball.storage.StatsBus;
+import nl.djorr.basketball.storage.StatsStorage;
+import nl.djorr.basketball.storage.WinsDelta;
+import org.bukkit.scheduler.BukkitTask;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps wins in sync between servers that run the same courts.
+ * <p>
+ * Local wins are coalesced per (region, player) and published as deltas in
+ * batches from an async task, so scoring never waits on the bus. Deltas of
+ * other servers are polled in bounded batches and merged on the main thread;
+ * no new batch is polled while the previous one is still waiting to be
+ * applied. The highest applied sequence number per origin is kept in
+ * {@code sync-state.properties}, so deltas that are delivered again after a
+ * restart are skipped, and the bus is only told a batch was consumed once
+ * that file is written. The same file holds the last sequence number this
+ * server published, so numbering never goes back, whatever the clock does.
+ *
+ * @author Djorr
+ */
+public class StatsSyncManager {
+
+    private static final long COMPACT_INTERVAL = 60_000; // Milliseconds
+
+    private final BasketballPlugin plugin;
+    private final DataManager dataManager;
+    private final StatsBus bus;
+    private final String nodeId;
+    private final File stateFile;
+    private final int maxBatch;
+    private final Object outboundLock = new Object();
+    private Map<DeltaKey, Integer> outbound; // Guarded by outboundLock
+    private final Map<String, Long> applied; // Written on the main thread
+    private long sequence; // Last published, sync thread only
+    private volatile boolean applying = false;
+    private volatile boolean stateDirty = false;
+    private boolean uncommitted = false; // Applied deltas the bus was not told about, sync thread only
+    private long lastCompact;
+    private BukkitTask syncTask;
+
+    /**
+     * Constructor for StatsSyncManager
+     *
+     * @param plugin The plugin instance
+     * @param dataManager The data manager that persists merged wins
+     * @param bus The message bus
+     * @param nodeId The id of this server
+     */
+    public StatsSyncManager(BasketballPlugin plugin, DataManager dataManager, StatsBus bus, String nodeId) {
+        this.plugin = plugin;
+        this.dataManager = dataManager;
+        this.bus = bus;
+        this.nodeId = nodeId;
+        this.stateFile = new File(plugin.getDataFolder(), "sync-state.properties");
+        this.maxBatch = Math.max(1, plugin.getConfigManager().getSyncMaxBatch());
+        this.outbound = new LinkedHashMap<>();
+        this.applied = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Connect to the bus and start syncing
+     *
+     * @throws IOException If the bus could not be opened
+     */
+    public void start() throws IOException {
+        loadState();
+        bus.open();
+        
+        Long stored = applied.remove(nodeId);
+        sequence = Math.max(stored != null ? stored : 0, bus.getPublishedSequence());
+        if (sequence == 0) {
+            // Servers before the sequence was stored numbered from the clock, stay above those once
+            sequence = System.currentTimeMillis() * 1000;
+            stateDirty = true;
+        }
+
+        long interval = Math.max(1, plugin.getConfigManager().getSyncInterval() / 50);
+        syncTask = plugin.getTaskManager().track(plugin.getServer().getScheduler().runTaskTimerAsynchronously(plugin, this::sync, interval, interval), "StatsSyncManager");
+    }
+
+    /**
+     * Publish what is left and disconnect
+     */
+    public void stop() {
+        if (syncTask != null) {
+            syncTask.cancel();
+            syncTask = null;
+        }
+
+        // Waits for a sync that is still running
+        synchronized (this) {
+            publishOutbound();
+            saveState();
+            // A batch still waiting for the main thread is read again on the next start
+            if (!applying && !stateDirty) {
+                commitApplied();
+            }
+            bus.close();
+        }
+    }
+
+    /**
+     * Queue a local win for the other servers. Main thread only.
+     *
+     * @param regionName The region name
+     * @param uuid The player UUID
+     */
+    public void publishWin(String regionName, UUID uuid) {
+        synchronized (outboundLock) {
+            outbound.merge(new DeltaKey(regionName, uuid), 1, Integer::sum);
+        }
+    }
+
+    /**
+     * Publish local wins and poll for remote ones
+     */
+    private synchronized void sync() {
+        publishOutbound();
+
+        // Backpressure: wait until the main thread has applied the previous batch
+        if (!applying) {
+            // The applied sequences are stored before the bus may forget the batch
+            if (stateDirty) {
+                saveState();
+            }
+            if (stateDirty || !commitApplied()) {
+                return;
+            }
+
+            try {
+                List<WinsDelta> polled = bus.poll(maxBatch);
+                List<WinsDelta> received = new ArrayList<>();
+                for (WinsDelta delta : polled) {
+                    Long last = applied.get(delta.getOrigin());
+                    if (!delta.getOrigin().equals(nodeId) && (last == null || delta.getSequence() > last)) {
+                        received.add(delta);
+                    }
+                }
+
+                if (!received.isEmpty()) {
+                    applying = true;
+                    plugin.getServer().getScheduler().runTask(plugin, () -> apply(received));
+                }
+                // Also covers deltas that were skipped as already applied
+                uncommitted |= !polled.isEmpty();
+            } catch (IOException e) {
+                plugin.getLogger().warning("Could not read stats sync bus: " + e.getMessage());
+            }
+        }
+
+        if (stateDirty) {
+            saveState();
+        }
+
+        long now = System.currentTimeMillis();
+        if (now - lastCompact >= COMPACT_INTERVAL) {
+            lastCompact = now;
+            try {
+                bus.compact();
+            } catch (IOException e) {
+                plugin.getLogger().warning("Could not compact stats sync bus: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Tell the bus the applied deltas were consumed
+     *
+     * @return False if the bus could not store it
+     */
+    private boolean commitApplied() {
+        if (!uncommitted) {
+            return true;
+        }
+        try {
+            bus.commit();
+            uncommitted = false;
+            return true;
+        } catch (IOException e) {
+            plugin.getLogger().warning("Could not store stats sync position: " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Publish the coalesced local wins as one batch, keeping them queued if the bus fails
+     */
+    private void publishOutbound() {
+        Map<DeltaKey, Integer> batch;
+        synchronized (outboundLock) {
+            if (outbound.isEmpty()) {
+                return;
+            }
+            batch = outbound;
+            outbound = new LinkedHashMap<>();
+        }
+
+        List<WinsDelta> deltas = new ArrayList<>(batch.size());
+        long next = sequence;
+        for (Map.Entry<DeltaKey, Integer> entry : batch.entrySet()) {
+            deltas.add(new WinsDelta(nodeId, ++next, entry.getKey().regionName, entry.getKey().uuid, entry.getValue()));
+        }
+
+        // Numbers are never reused, even when the batch is retried
+        sequence = next;
+        stateDirty = true;
+        try {
+            bus.publish(deltas);
+        } catch (IOException e) {
+            plugin.getLogger().warning("Could not publish " + deltas.size() + " wins deltas, retrying: " + e.getMessage());
+            synchronized (outboundLock) {
+                for (Map.Entry<DeltaKey, Integer> entry : batch.entrySet()) {
+                    outbound.merge(entry.getKey(), entry.getValue(), Integer::sum);
+                }
+            }
+        }
+    }
+
+    /**
+     * Merge remote deltas into the courts and the stats store. Main thread only.
+     */
+    private void apply(List<WinsDelta> deltas) {
+        try {
+            StatsStorage storage = dataManager.getStatsStorage();
+            StatsCacheManager cache = dataManager.getStatsCache();
+
+            for (WinsDelta delta : deltas) {
+                Long last = applied.get(delta.getOrigin());
+                if (last != null && delta.getSequence() <= last) {
+                    continue;
+                }
+                applied.put(delta.getOrigin(), delta.getSequence());
+
+                UUID uuid = delta.getUuid();
+                BasketballRegion region = plugin.getBasketballManager().getRegion(delta.getRegionName());
+                boolean inMemory = region != null && (storage == null || region.getPlayerWins().containsKey(uuid)
+                    || (cache != null && (cache.isLoaded(uuid) || cache.isPending(uuid))));
+
+                if (inMemory) {
+                    int wins = Math.max(0, region.getWinsLeaderboard().getWins(uuid) + delta.getDelta());
+                    region.setPlayerWinsFromUUID(uuid, wins);
+                    dataManager.persistWins(delta.getRegionName(), uuid, wins);
+                } else if (cache != null && cache.holdForJoin(delta.getRegionName(), uuid, delta.getDelta())) {
+                    // Their wins are being read for a join that is about to happen; added on join
+                } else if (storage != null) {
+                    // Not loaded here, so only the stored value changes
+                    storage.addWins(delta.getRegionName(), uuid, delta.getDelta());
+                }
+            }
+            stateDirty = true;
+        } finally {
+            applying = false;
+        }
+    }
+
+    /**
+     * Load the highest applied sequence number per origin
+     */
+    private void loadState() {
+        if (!stateFile.exists()) {
+            return;
+        }
+
+        Properties state = new Properties();
+        try (FileInputStream in = new FileInputStream(stateFile)) {
+            state.load(in);
+            for (String origin : state.stringPropertyNames()) {
+                applied.put(origin, Long.parseLong(state.getProperty(origin)));
+            }
+        } catch (IOException | NumberFormatException e) {
+            plugin.getLogger().warning("Could not read " + stateFile.getName() + ", deltas may be applied again: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Store the highest applied sequence number per origin (temp file + atomic rename)
+     */
+    private synchronized void saveState() {
+        stateDirty = false;
+
+        Properties state = new Properties();
+        for (Map.Entry<String, Long> entry : applied.entrySet()) {
+            state.setProperty(entry.getKey(), String.valueOf(entry.getValue()));
+        }
+        state.setProperty(nodeId, String.valueOf(sequence));
+
+        File tempFile = new File(stateFile.getParentFile(), stateFile.getName() + ".tmp");
+        try {
+            try (FileOutputStream out = new FileOutputStream(tempFile)) {
+                state.store(out, "Basketball stats sync state");
+                out.getFD().sync();
+            }
+            try {
+                Files.move(tempFile.toPath(), stateFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tempFile.toPath(), stateFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            stateDirty = true;
+            plugin.getLogger().warning("Could not write " + stateFile.getName() + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Region and player pair
+     */
+    private static final class DeltaKey {
+        private final String regionName;
+        private final UUID uuid;
+
+        private DeltaKey(String regionName, UUID uuid) {
+            this.regionName = regionName;
+            this.uuid = uuid;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (this == other) return true;
+            if (!(other instanceof DeltaKey)) return false;
+            DeltaKey key = (DeltaKey) other;
+            return regionName.equals(key.regionName) && uuid.equals(key.uuid);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * regionName.hashCode() + uuid.hashCode();
+        }
+    }
+}
@@ -0,0 +1,253 @@
+package nl.djorr.basketball.managers;
+
+import nl.djorr.basketball.BasketballPlugin;
+import nl.djorr.basketball.utils.TimedRunnable;
+import org.bukkit.scheduler.BukkitScheduler;
+import org.bukkit.scheduler.BukkitTask;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Watchdog for the plugin's repeating tasks. Effect and animation tasks cancel
+ * themselves once a tick count is reached or their entity is gone; when that
+ * never happens they would run until the server stops. Every
+ * {@link TimedRunnable} registers here when it is scheduled, and the
+ * long-running service tasks are registered with {@link #track}, so
+ * {@code /basketbal tasks} shows what is running, for which court and for how
+ * long.
+ * <p>
+ * Once a second the registry drops tasks that have ended and cancels the ones
+ * that outlived their maximum lifetime, with a warning naming the owner.
+ * Runnables are cancelled through {@link TimedRunnable#cancel()}, so their
+ * owner sees the cancel. Tasks whose owner stops them itself, such as the
+ * auto-drop timers, are scheduled without a lifetime. All methods are called
+ * on the main thread.
+ *
+ * @author Djorr
+ */
+public class TaskManager {
+
+    private static final long SWEEP_INTERVAL = 20L; // Ticks
+
+    private final BasketballPlugin plugin;
+    private final long defaultMaxLifetime;
+    private final Map<Integer, TrackedTask> tasks = new HashMap<>();
+    private final Map<String, Integer> offenders = new TreeMap<>(); // Owner -> runaway tasks cancelled
+    private BukkitTask clockTask;
+    private long currentTick;
+    private long cancelled;
+
+    /**
+     * Constructor for TaskManager
+     *
+     * @param plugin The plugin instance
+     */
+    public TaskManager(BasketballPlugin plugin) {
+        this.plugin = plugin;
+        this.defaultMaxLifetime = Math.max(0, plugin.getConfigManager().getTaskMaxLifetime());
+    }
+
+    /**
+     * Start the tick clock and the watchdog sweep
+     */
+    public void start() {
+        clockTask = plugin.getServer().getScheduler().runTaskTimer(plugin, this::tick, 1L, 1L);
+    }
+
+    /**
+     * Stop the watchdog, the server cancels the remaining tasks itself
+     */
+    public void stop() {
+        if (clockTask != null) {
+            clockTask.cancel();
+            clockTask = null;
+        }
+        tasks.clear();
+    }
+
+    private void tick() {
+        currentTick++;
+        if (currentTick % SWEEP_INTERVAL == 0) {
+            sweep();
+        }
+    }
+
+    /**
+     * Register a runnable when it is scheduled
+     *
+     * @param runnable The runnable
+     * @param owner The class that scheduled it
+     * @param kind The timings section it runs in
+     * @param court The region name, or null
+     * @param maxLifetime The maximum lifetime in ticks, 0 for no limit
+     */
+    public void register(TimedRunnable runnable, String owner, String kind, String court, long maxLifetime) {
+        tasks.put(runnable.getTaskId(), new TrackedTask(runnable.getTaskId(), owner, kind, court, currentTick, maxLifetime, runnable));
+    }
+
+    /**
+     * Forget a task that cancelled itself
+     *
+     * @param taskId The task id
+     */
+    public void unregister(int taskId) {
+        tasks.remove(taskId);
+    }
+
+    /**
+     * Track a long-running task that is cancelled by its owner on disable
+     *
+     * @param task The scheduled task
+     * @param owner The class that scheduled it
+     * @return The task
+     */
+    public BukkitTask track(BukkitTask task, String owner) {
+        tasks.put(task.getTaskId(), new TrackedTask(task.getTaskId(), owner, null, null, currentTick, 0, null));
+        return task;
+    }
+
+    /**
+     * Get the maximum lifetime of runnables that do not set their own
+     *
+     * @return The lifetime in ticks, 0 for no limit
+     */
+    public long getDefaultMaxLifetime() {
+        return defaultMaxLifetime;
+    }
+
+    /**
+     * Drop the tasks that have ended and cancel the ones past their lifetime
+     */
+    private void sweep() {
+        BukkitScheduler scheduler = plugin.getServer().getScheduler();
+        List<TrackedTask> runaways = new ArrayList<>();
+        Iterator<TrackedTask> iterator = tasks.values().iterator();
+        while (iterator.hasNext()) {
+            TrackedTask task = iterator.next();
+            if (!scheduler.isQueued(task.taskId) && !scheduler.isCurrentlyRunning(task.taskId)) {
+                iterator.remove();
+                continue;
+            }
+
+            if (task.maxLifetime > 0 && currentTick - task.startTick > task.maxLifetime) {
+                iterator.remove();
+                runaways.add(task);
+            }
+        }
+
+        // Cancelled after the loop, a runnable's cancel unregisters it
+        for (TrackedTask task : runaways) {
+            if (task.runnable != null) {
+                task.runnable.cancel();
+            } else {
+                scheduler.cancelTask(task.taskId);
+            }
+            cancelled++;
+            offenders.merge(task.owner, 1, Integer::sum);
+            plugin.getLogger().warning("Cancelled runaway task #" + task.taskId + " of " + task.owner
+                + (task.kind != null ? " (" + task.kind + ")" : "")
+                + (task.court != null ? " in court '" + task.court + "'" : "")
+                + " after " + (currentTick - task.startTick) + " ticks and " + task.getRuns() + " runs");
+        }
+    }
+
+    /**
+     * Get the tracked tasks, oldest first
+     */
+    public List<TrackedTask> getTasks() {
+        List<TrackedTask> list = new ArrayList<>(tasks.values());
+        list.sort((a, b) -> Long.compare(a.startTick, b.startTick));
+        return list;
+    }
+
+    /**
+     * Count the plugin's scheduled tasks that are not tracked, such as
+     * one-shot delayed tasks
+     */
+    public int countUntracked() {
+        int count = 0;
+        for (BukkitTask task : plugin.getServer().getScheduler().getPendingTasks()) {
+            if (task.getOwner() == plugin && !tasks.containsKey(task.getTaskId()) && (clockTask == null || task.getTaskId() != clockTask.getTaskId())) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Get the number of runaway tasks cancelled per owner
+     */
+    public Map<String, Integer> getOffenders() {
+        return offenders;
+    }
+
+    /**
+     * Get the number of runaway tasks cancelled since the start
+     */
+    public long getCancelled() {
+        return cancelled;
+    }
+
+    public long getCurrentTick() {
+        return currentTick;
+    }
+
+    /**
+     * A scheduled task and where it came from
+     */
+    public static final class TrackedTask {
+        private final int taskId;
+        private final String owner;
+        private final String kind;
+        private final String court;
+        private final long startTick;
+        private final long maxLifetime;
+        private final TimedRunnable runnable;
+
+        private TrackedTask(int taskId, String owner, String kind, String court, long startTick, long maxLifetime, TimedRunnable runnable) {
+            this.taskId = taskId;
+            this.owner = owner;
+            this.kind = kind;
+            this.court = court;
+            this.startTick = startTick;
+            this.maxLifetime = maxLifetime;
+            this.runnable = runnable;
+        }
+
+        public int getTaskId() {
+            return taskId;
+        }
+
+        public String getOwner() {
+            return owner;
+        }
+
+        public String getKind() {
+            return kind;
+        }
+
+        public String getCourt() {
+            return court;
+        }
+
+        public long getStartTick() {
+            return startTick;
+        }
+
+        public long getMaxLifetime() {
+            return maxLifetime;
+        }
+
+        /**
+         * Get the number of runs, -1 for tasks that are not a TimedRunnable
+         */
+        public long getRuns() {
+            return runnable != null ? runnable.getRuns() : -1;
+        }
+    }
+}
@@ -0,0 +1,166 @@
+package nl.djorr.basketball.managers;
+
+import nl.djorr.basketball.utils.LatencyHistogram;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Tick profiler for the plugin's own work. Every named section keeps a
+ * {@link LatencyHistogram} in total and one per court. Timing a section is
+ * two {@link System#nanoTime()} calls and a few atomic increments; when
+ * timings are disabled {@link #start()} returns 0 and nothing is recorded.
+ * Every section also keeps a cumulative histogram that {@link #reset()} does
+ * not clear, for exporters that need counts which only grow.
+ *
+ * @author Djorr
+ */
+public class TimingsManager {
+
+    public static final String PHYSICS = "physics";
+    public static final String SCORE_CHECK = "score-check";
+    public static final String PLAYER_MOVE = "player-move";
+    public static final String HOLOGRAM_CAPTURE = "hologram-capture";
+    public static final String HOLOGRAM_RENDER = "hologram-render";
+    public static final String HOLOGRAM_APPLY = "hologram-apply";
+    public static final String EFFECTS = "effects";
+    public static final String AUTO_DROP = "auto-drop";
+    public static final String SKULL_CLEANUP = "skull-cleanup";
+
+    private final boolean enabled;
+    private final Map<String, Section> sections; // Sorted for display
+    private long resetAt;
+
+    /**
+     * Constructor for TimingsManager
+     *
+     * @param enabled Whether sections are timed
+     */
+    public TimingsManager(boolean enabled) {
+        this.enabled = enabled;
+        this.sections = new ConcurrentSkipListMap<>();
+        this.resetAt = System.currentTimeMillis();
+    }
+
+    /**
+     * Get a section, creating it on first use. Keep the result in a field on hot paths.
+     *
+     * @param name The section name
+     * @return The section
+     */
+    public Section section(String name) {
+        Section section = sections.get(name);
+        if (section == null) {
+            Section created = new Section();
+            section = sections.putIfAbsent(name, created);
+            if (section == null) {
+                section = created;
+            }
+        }
+        return section;
+    }
+
+    /**
+     * Start timing
+     *
+     * @return The start time to pass to {@link Section#stop(long, String)}, 0 when disabled
+     */
+    public long start() {
+        return enabled ? System.nanoTime() : 0;
+    }
+
+    /**
+     * Check if timings are recorded
+     *
+     * @return True if enabled
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Get all sections by name
+     *
+     * @return Read-only use, sorted by name
+     */
+    public Map<String, Section> getSections() {
+        return sections;
+    }
+
+    /**
+     * Get the time of the last reset
+     *
+     * @return Milliseconds since the epoch
+     */
+    public long getResetAt() {
+        return resetAt;
+    }
+
+    /**
+     * Clear all recorded timings
+     */
+    public void reset() {
+        for (Section section : sections.values()) {
+            section.reset();
+        }
+        resetAt = System.currentTimeMillis();
+    }
+
+    /**
+     * A timed section with a histogram in total and per court
+     */
+    public static final class Section {
+        private final LatencyHistogram total = new LatencyHistogram();
+        private final LatencyHistogram cumulative = new LatencyHistogram(); // Not cleared by reset
+        private final Map<String, LatencyHistogram> courts = new ConcurrentSkipListMap<>();
+
+        /**
+         * Record the time since start
+         *
+         * @param start The value returned by {@link TimingsManager#start()}
+         * @param court The region name, or null if the work is not tied to a court
+         */
+        public void stop(long start, String court) {
+            if (start == 0) {
+                return;
+            }
+            long elapsed = System.nanoTime() - start;
+            total.record(elapsed);
+            cumulative.record(elapsed);
+
+            if (court != null) {
+                LatencyHistogram histogram = courts.get(court);
+                if (histogram == null) {
+                    LatencyHistogram created = new LatencyHistogram();
+                    histogram = courts.putIfAbsent(court, created);
+                    if (histogram == null) {
+                        histogram = created;
+                    }
+                }
+                histogram.record(elapsed);
+            }
+        }
+
+        public LatencyHistogram getTotal() {
+            return total;
+        }
+
+        /**
+         * Get the histogram of every run since the section was created
+         */
+        public LatencyHistogram getCumulative() {
+            return cumulative;
+        }
+
+        public Map<String, LatencyHistogram> getCourts() {
+            return courts;
+        }
+
+        private void reset() {
+            total.reset();
+            for (LatencyHistogram histogram : courts.values()) {
+                histogram.reset();
+            }
+        }
+    }
+}
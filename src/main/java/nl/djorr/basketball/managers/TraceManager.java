@@ -0,0 +1,305 @@
+package nl.djorr.basketball.managers;
+
+import nl.djorr.basketball.BasketballPlugin;
+import nl.djorr.basketball.utils.TraceBuffer;
+import org.bukkit.scheduler.BukkitTask;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Structured debug tracing for the hot paths. Instead of building a log line
+ * and writing it to the console on the main thread, a traced event stores a
+ * type, the player and court names and a few numbers in a preallocated
+ * {@link TraceBuffer}; formatting happens only when the events are drained to
+ * {@code trace/trace.log} off the main thread, or dumped with
+ * {@code /basketbal trace}.
+ * <p>
+ * Every category records one in N of its events, set in the config, so the
+ * busiest paths can be thinned out. Tracing follows {@code debug.enabled}.
+ *
+ * @author Djorr
+ */
+public class TraceManager {
+
+    private static final long DRAIN_INTERVAL = 20L; // Ticks
+    private static final long MAX_FILE_SIZE = 16L * 1024 * 1024; // Rolled over to trace.log.1
+
+    /**
+     * Groups of events that share a sampling rate
+     */
+    public enum Category {
+        PHYSICS, PICKUP, ITEM, INVENTORY, INTERACT, REGION;
+
+        private final String key = name().toLowerCase(Locale.ROOT);
+
+        public String getKey() {
+            return key;
+        }
+    }
+
+    /**
+     * Traced events. The message is a format with the three values as
+     * arguments 1 to 3 and the detail as argument 4.
+     */
+    public enum Event {
+        BALL_TICK(Category.PHYSICS, "velocity %.2f, %.2f, %.2f"),
+        BALL_BOUNCE(Category.PHYSICS, "bounce #%.0f, impact speed %.2f, bounce velocity %.2f"),
+        BALL_THROW(Category.PHYSICS, "thrown with velocity %.2f, %.2f, %.2f"),
+        BALL_BOUNDARY(Category.PHYSICS, "court boundary, velocity %.2f, %.2f, %.2f"),
+        BALL_OUT(Category.PHYSICS, "out of bounds at %.1f, %.1f, %.1f"),
+        PICKUP_CHECK(Category.PICKUP, "distance squared %.2f, range %.2f"),
+        PICKUP_AUTO(Category.PICKUP, "auto-pickup at distance squared %.2f"),
+        ITEM_CHECK(Category.ITEM, "%4$s:%1$.0f, nbt %2$.0f, material match %3$.0f"),
+        INVENTORY_CHECK(Category.INVENTORY, "basketball in inventory %1$.0f after %2$.0f slots"),
+        INVENTORY_COURT(Category.INVENTORY, "basketball in a court inventory %1$.0f after %2$.0f players"),
+        INVENTORY_REMOVE(Category.INVENTORY, "removed %1$.0f basketball(s)"),
+        INTERACT_CLICK(Category.INTERACT, "%4$s"),
+        INTERACT_BLOCK(Category.INTERACT, "clicked %4$s, skull data %1$.0f, basketball skull %2$.0f"),
+        INTERACT_PICKUP(Category.INTERACT, "picked up basketball %4$s"),
+        INTERACT_THROW(Category.INTERACT, "threw basketball"),
+        INTERACT_REJECTED(Category.INTERACT, "%4$s"),
+        REGION_CHECK(Category.REGION, "at %1$.0f, %2$.0f, %3$.0f, was in %4$s"),
+        REGION_MATCH(Category.REGION, "in court by %4$s");
+
+        private final Category category;
+        private final String format;
+        private final String label = name().toLowerCase(Locale.ROOT).replace('_', '-');
+
+        Event(Category category, String format) {
+            this.category = category;
+            this.format = format;
+        }
+
+        public Category getCategory() {
+            return category;
+        }
+    }
+
+    private final BasketballPlugin plugin;
+    private final boolean enabled;
+    private final TraceBuffer buffer;
+    private final int[] sampleRates;
+    private final int[] sampleCounters;
+    private final File file;
+    private BukkitTask drainTask;
+    private long drained; // Sequence of the next event to drain, drainer thread only
+    private volatile long lost;
+
+    /**
+     * Constructor for TraceManager
+     *
+     * @param plugin The plugin instance
+     */
+    public TraceManager(BasketballPlugin plugin) {
+        this.plugin = plugin;
+        ConfigManager config = plugin.getConfigManager();
+        this.enabled = config.isDebugEnabled();
+        this.buffer = new TraceBuffer(enabled ? config.getTraceBufferSize() : 16);
+        this.sampleRates = new int[Category.values().length];
+        this.sampleCounters = new int[sampleRates.length];
+        for (Category category : Category.values()) {
+            sampleRates[category.ordinal()] = Math.max(0, config.getTraceSampleRate(category.getKey()));
+        }
+        this.file = config.isTraceToFile() ? new File(new File(plugin.getDataFolder(), "trace"), "trace.log") : null;
+    }
+
+    /**
+     * Start draining to the trace file, if enabled
+     */
+    public void start() {
+        if (!enabled || file == null) {
+            return;
+        }
+        drained = buffer.getHead();
+        drainTask = plugin.getTaskManager().track(plugin.getServer().getScheduler().runTaskTimerAsynchronously(plugin, this::drain, DRAIN_INTERVAL, DRAIN_INTERVAL), "TraceManager");
+    }
+
+    /**
+     * Stop draining and write what is left
+     */
+    public void stop() {
+        if (drainTask != null) {
+            drainTask.cancel();
+            drainTask = null;
+            drain();
+        }
+    }
+
+    /**
+     * Check if tracing is on
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Trace an event without values
+     *
+     * @param event The event
+     * @param player The player name, or null
+     * @param court The court name, or null
+     */
+    public void trace(Event event, String player, String court) {
+        trace(event, player, court, 0, 0, 0, null);
+    }
+
+    /**
+     * Trace an event with a detail only
+     *
+     * @param event The event
+     * @param player The player name, or null
+     * @param court The court name, or null
+     * @param detail An immutable detail such as an enum constant or a constant string
+     */
+    public void trace(Event event, String player, String court, Object detail) {
+        trace(event, player, court, 0, 0, 0, detail);
+    }
+
+    /**
+     * Trace an event. Does nothing when tracing is off or the event is not sampled.
+     *
+     * @param event The event
+     * @param player The player name, or null
+     * @param court The court name, or null
+     * @param first The first value
+     * @param second The second value
+     * @param third The third value
+     * @param detail An immutable detail such as an enum constant or a constant string, or null
+     */
+    public void trace(Event event, String player, String court, double first, double second, double third, Object detail) {
+        if (!enabled) {
+            return;
+        }
+
+        // Sampling counters are not atomic, a lost increment only shifts the sample
+        int category = event.category.ordinal();
+        int rate = sampleRates[category];
+        if (rate == 0 || (rate > 1 && ++sampleCounters[category] % rate != 0)) {
+            return;
+        }
+
+        buffer.record(System.currentTimeMillis(), event, player, court, first, second, third, detail);
+    }
+
+    /**
+     * Get the last events of a player or a court, newest first. Safe from any thread.
+     *
+     * @param player The player name to match, or null
+     * @param court The court name to match, or null
+     * @param limit The maximum number of events
+     * @return The formatted events
+     */
+    public List<String> dump(String player, String court, int limit) {
+        List<String> lines = new ArrayList<>(limit);
+        TraceBuffer.Entry entry = new TraceBuffer.Entry();
+        SimpleDateFormat timeFormat = new SimpleDateFormat("HH:mm:ss.SSS");
+        long head = buffer.getHead();
+        long oldest = Math.max(0, head - buffer.getCapacity());
+        for (long sequence = head - 1; sequence >= oldest && lines.size() < limit; sequence--) {
+            if (!buffer.read(sequence, entry)) {
+                continue;
+            }
+            if ((player == null || player.equalsIgnoreCase(entry.getPlayer())) && (court == null || court.equalsIgnoreCase(entry.getCourt()))) {
+                lines.add(format(entry, timeFormat));
+            }
+        }
+        return lines;
+    }
+
+    /**
+     * Get the number of events recorded since the start
+     */
+    public long getRecorded() {
+        return buffer.getHead();
+    }
+
+    /**
+     * Get the number of events overwritten before they were drained to the file
+     */
+    public long getLost() {
+        return lost;
+    }
+
+    public int getCapacity() {
+        return buffer.getCapacity();
+    }
+
+    /**
+     * Get the sampling rate of a category
+     *
+     * @return Record 1 in this many events, 0 when off
+     */
+    public int getSampleRate(Category category) {
+        return sampleRates[category.ordinal()];
+    }
+
+    /**
+     * Append the events recorded since the last drain to the trace file
+     */
+    private synchronized void drain() {
+        long head = buffer.getHead();
+        if (head == drained) {
+            return;
+        }
+
+        long oldest = head - buffer.getCapacity();
+        if (drained < oldest) {
+            lost += oldest - drained;
+            drained = oldest;
+        }
+
+        try {
+            File directory = file.getParentFile();
+            if (!directory.exists() && !directory.mkdirs()) {
+                throw new IOException("Could not create " + directory);
+            }
+            if (file.length() > MAX_FILE_SIZE) {
+                Files.move(file.toPath(), new File(directory, file.getName() + ".1").toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+
+            TraceBuffer.Entry entry = new TraceBuffer.Entry();
+            SimpleDateFormat timeFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss.SSS");
+            try (Writer out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file, true), StandardCharsets.UTF_8))) {
+                for (long sequence = drained; sequence < head; sequence++) {
+                    if (buffer.read(sequence, entry)) {
+                        out.write(format(entry, timeFormat));
+                        out.write('\n');
+                    } else {
+                        lost++;
+                    }
+                }
+            }
+        } catch (IOException e) {
+            plugin.getLogger().warning("Could not write trace events to " + file + ": " + e.getMessage());
+        }
+        drained = head;
+    }
+
+    private static String format(TraceBuffer.Entry entry, SimpleDateFormat timeFormat) {
+        Event event = (Event) entry.getType();
+        StringBuilder line = new StringBuilder(96);
+        line.append(timeFormat.format(new Date(entry.getTime()))).append(' ')
+            .append(event.category.key).append('/').append(event.label);
+        if (entry.getPlayer() != null) {
+            line.append(' ').append(entry.getPlayer());
+        }
+        if (entry.getCourt() != null) {
+            line.append(" @").append(entry.getCourt());
+        }
+        line.append(": ").append(String.format(Locale.ROOT, event.format, entry.getFirst(), entry.getSecond(), entry.getThird(), entry.getDetail()));
+        return line.toString();
+    }
+}
@@ -15,6 +15,7 @@ public class Basketball {
     private boolean thrown;
     private int bounces;
     private long lastBounceTime;
+    private String regionName; // Court the ball belongs to, null if unknown
     
     /**
      * Constructor for Basketball
@@ -39,6 +40,24 @@ public class Basketball {
         return entity;
     }
     
+    /**
+     * Get the court this ball belongs to
+     * 
+     * @return The region name or null
+     */
+    public String getRegionName() {
+        return regionName;
+    }
+    
+    /**
+     * Set the court this ball belongs to
+     * 
+     * @param regionName The region name
+     */
+    public void setRegionName(String regionName) {
+        this.regionName = regionName;
+    }
+    
     /**
      * Check if the basketball is thrown
      * 
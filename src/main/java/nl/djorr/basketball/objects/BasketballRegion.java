@@ -1,20 +1,33 @@
 package nl.djorr.basketball.objects;
 
 import nl.djorr.basketball.BasketballPlugin;
+import nl.djorr.basketball.managers.MetricsManager;
+import nl.djorr.basketball.managers.OutboundMessageManager;
+import nl.djorr.basketball.managers.TraceManager;
+import nl.djorr.basketball.utils.BallPhysics;
 import nl.djorr.basketball.utils.BasketballTextureUtil;
+import nl.djorr.basketball.utils.FlightRecorderBridge;
+import org.bukkit.Bukkit;
 import org.bukkit.Location;
 import org.bukkit.entity.Player;
 import org.bukkit.inventory.ItemStack;
 
-import java.util.HashSet;
-import java.util.Set;
+import java.util.AbstractCollection;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.UUID;
 
 import com.sk89q.worldguard.bukkit.WorldGuardPlugin;
 import com.sk89q.worldguard.protection.regions.ProtectedRegion;
 import com.sk89q.worldedit.Vector;
 import nl.djorr.basketball.utils.ItemUtil;
+import nl.djorr.basketball.utils.SpatialHash;
+import nl.djorr.basketball.utils.UUIDIntMap;
+import nl.djorr.basketball.utils.UUIDIntView;
 import nl.djorr.basketball.utils.BasketballAnimation;
 import org.bukkit.ChatColor;
 
@@ -23,7 +36,12 @@ import org.bukkit.ChatColor;
  * 
  * @author Djorr
  */
-public class BasketballRegion {
+public class BasketballRegion implements BallPhysics.Court {
+    
+    private static final double GRID_CELL_SIZE = 4.0; // Blocks, about the pickup ranges
+    private static final double PLAYER_SLACK = 2.0; // Players are re-indexed when they change block
+    private static final double BALL_SLACK = 2.0; // Balls are re-indexed every physics step
+    private static final int NEAREST_CANDIDATES = 4; // Indexed players checked before the online ones are scanned
     
     private final String regionName;
     private final Location center;
@@ -32,16 +50,21 @@ public class BasketballRegion {
     private Location leftBackboard;
     private Location rightBackboard;
     private final Location spawnLocation;
-    private final Set<Player> playersInRegion;
+    private final UUIDIntMap playersInRegion; // Player UUIDs, the values are unused
+    private final PlayersView playersView; // Online players resolved from playersInRegion
     private Basketball currentBasketball;
-    private Player basketballOwner; // Track who threw the basketball
+    private UUID basketballOwner; // Track who threw the basketball
     private boolean isAnimating = false;
     private int[] cachedRegionBounds = null;
     private long lastBoundsCheck = 0;
-    private final Map<Player, Integer> playerScores; // Track scores per player
+    private boolean active = true; // False while none of the court's chunks are loaded
+    private final UUIDIntMap playerScores; // Track scores per player UUID
     private boolean gameWon = false; // Track if someone has won
-    private final Map<Player, Integer> playerWins; // Track wins per player
-    private final Map<UUID, Integer> playerWinsByUUID; // Track wins by UUID for persistence
+    private final WinsLeaderboard winsLeaderboard; // Track wins per player UUID, ordered for the leaderboard
+    private final SpatialHash<UUID> playerGrid = new SpatialHash<>(GRID_CELL_SIZE); // Last known player positions, by UUID
+    private final SpatialHash<Basketball> ballGrid = new SpatialHash<>(GRID_CELL_SIZE); // Last known ball positions
+    private final List<UUID> nearbyPlayers = new ArrayList<>(); // Scratch for range queries
+    private final List<Basketball> nearbyBalls = new ArrayList<>();
     
     /**
      * Constructor for BasketballRegion
@@ -54,11 +77,11 @@ public class BasketballRegion {
         this.regionName = regionName;
         this.center = center;
         this.spawnLocation = spawnLocation;
-        this.playersInRegion = new HashSet<>();
+        this.playersInRegion = new UUIDIntMap();
+        this.playersView = new PlayersView();
         this.currentBasketball = null;
-        this.playerScores = new java.util.HashMap<>();
-        this.playerWins = new java.util.HashMap<>();
-        this.playerWinsByUUID = new java.util.HashMap<>();
+        this.playerScores = new UUIDIntMap();
+        this.winsLeaderboard = new WinsLeaderboard();
         
         // Automatically find hoops and backboards
         findHoopsAndBackboards();
@@ -84,11 +107,11 @@ public class BasketballRegion {
         this.leftBackboard = leftBackboard;
         this.rightBackboard = rightBackboard;
         this.spawnLocation = spawnLocation;
-        this.playersInRegion = new HashSet<>();
+        this.playersInRegion = new UUIDIntMap();
+        this.playersView = new PlayersView();
         this.currentBasketball = null;
-        this.playerScores = new java.util.HashMap<>();
-        this.playerWins = new java.util.HashMap<>();
-        this.playerWinsByUUID = new java.util.HashMap<>();
+        this.playerScores = new UUIDIntMap();
+        this.winsLeaderboard = new WinsLeaderboard();
     }
     
     /**
@@ -193,10 +216,10 @@ public class BasketballRegion {
     /**
      * Get all players in the region
      * 
-     * @return Set of players in the region
+     * @return Read-only view of the online players in the region
      */
-    public Set<Player> getPlayersInRegion() {
-        return playersInRegion;
+    public Collection<Player> getPlayersInRegion() {
+        return playersView;
     }
     
     /**
@@ -205,8 +228,12 @@ public class BasketballRegion {
      * @param player The player to add
      */
     public void addPlayer(Player player) {
-        playersInRegion.add(player);
-        playerScores.put(player, 0); // Initialize score for new player
+        playersInRegion.put(player.getUniqueId(), 0);
+        playersView.invalidate();
+        Location location = player.getLocation();
+        playerGrid.update(player.getUniqueId(), location.getX(), location.getY(), location.getZ());
+        playerScores.put(player.getUniqueId(), 0); // Initialize score for new player
+        markLeaderboardDirty();
         
         // Debug logging
         BasketballPlugin plugin = BasketballPlugin.getInstance();
@@ -226,8 +253,11 @@ public class BasketballRegion {
      * @param player The player to remove
      */
     public void removePlayer(Player player) {
-        playersInRegion.remove(player);
-        playerScores.remove(player); // Remove player's score
+        playersInRegion.remove(player.getUniqueId());
+        playersView.invalidate();
+        playerGrid.remove(player.getUniqueId());
+        playerScores.remove(player.getUniqueId()); // Remove player's score
+        markLeaderboardDirty();
         
         // Debug logging
         BasketballPlugin plugin = BasketballPlugin.getInstance();
@@ -271,7 +301,152 @@ public class BasketballRegion {
      * @return True if the player is in the region
      */
     public boolean hasPlayer(Player player) {
-        return playersInRegion.contains(player);
+        return playersInRegion.containsKey(player.getUniqueId());
+    }
+    
+    /**
+     * Move a player of the region in the spatial index
+     * 
+     * @param player The player
+     * @param location The player's new location
+     */
+    public void updatePlayerPosition(Player player, Location location) {
+        if (playerGrid.contains(player.getUniqueId())) {
+            playerGrid.update(player.getUniqueId(), location.getX(), location.getY(), location.getZ());
+        }
+    }
+    
+    /**
+     * Add a basketball of the region to the spatial index, or move it
+     * 
+     * @param basketball The basketball
+     * @param location The basketball's location
+     */
+    public void updateBallPosition(Basketball basketball, Location location) {
+        ballGrid.update(basketball, location.getX(), location.getY(), location.getZ());
+    }
+    
+    /**
+     * Remove a basketball from the spatial index
+     * 
+     * @param basketball The basketball
+     */
+    public void removeBall(Basketball basketball) {
+        ballGrid.remove(basketball);
+    }
+    
+    /**
+     * Remove every basketball from the spatial index
+     */
+    public void clearBalls() {
+        ballGrid.clear();
+    }
+    
+    /**
+     * Get the online player nearest to a location, by their last indexed position
+     * 
+     * @param location The location
+     * @return The nearest player, or null if no player of the region is online in its world
+     */
+    public Player getNearestPlayer(Location location) {
+        nearbyPlayers.clear();
+        playerGrid.nearest(location.getX(), location.getY(), location.getZ(), NEAREST_CANDIDATES, Double.MAX_VALUE, nearbyPlayers);
+        
+        Player nearest = null;
+        for (int i = 0; i < nearbyPlayers.size(); i++) {
+            Player player = Bukkit.getPlayer(nearbyPlayers.get(i));
+            if (player != null && player.getWorld() == location.getWorld()) {
+                nearest = player;
+                break;
+            }
+        }
+        boolean allCandidates = nearbyPlayers.size() < NEAREST_CANDIDATES;
+        nearbyPlayers.clear();
+        if (nearest != null || allCandidates) {
+            return nearest;
+        }
+        
+        // Every candidate is gone without leaving the court, compare the online players instead
+        double nearestDistanceSquared = Double.MAX_VALUE;
+        for (Player player : playersView) {
+            Location playerLocation = player.getLocation();
+            if (playerLocation.getWorld() != location.getWorld()) {
+                continue;
+            }
+            double distanceSquared = playerLocation.distanceSquared(location);
+            if (distanceSquared < nearestDistanceSquared) {
+                nearestDistanceSquared = distanceSquared;
+                nearest = player;
+            }
+        }
+        return nearest;
+    }
+    
+    /**
+     * Get the nearest player within a distance of a location. Indexed
+     * positions trail the live ones, so the candidates are checked again on
+     * their live position.
+     * 
+     * @param location The location
+     * @param maxDistance The distance
+     * @return The nearest player, or null if none is within the distance
+     */
+    public Player getNearestPlayerWithin(Location location, double maxDistance) {
+        nearbyPlayers.clear();
+        playerGrid.within(location.getX(), location.getY(), location.getZ(), maxDistance + PLAYER_SLACK, nearbyPlayers);
+        
+        Player nearest = null;
+        double nearestDistanceSquared = maxDistance * maxDistance;
+        for (int i = 0; i < nearbyPlayers.size(); i++) {
+            Player player = Bukkit.getPlayer(nearbyPlayers.get(i));
+            if (player == null) {
+                continue;
+            }
+            Location playerLocation = player.getLocation();
+            if (playerLocation.getWorld() != location.getWorld()) {
+                continue;
+            }
+            double distanceSquared = playerLocation.distanceSquared(location);
+            if (distanceSquared <= nearestDistanceSquared) {
+                nearestDistanceSquared = distanceSquared;
+                nearest = player;
+            }
+        }
+        nearbyPlayers.clear();
+        return nearest;
+    }
+    
+    /**
+     * Get the nearest basketball within a distance of a location, checked on
+     * the live position of the ball
+     * 
+     * @param location The location
+     * @param maxDistance The distance
+     * @return The nearest basketball, or null if none is within the distance
+     */
+    public Basketball getNearestBallWithin(Location location, double maxDistance) {
+        nearbyBalls.clear();
+        ballGrid.within(location.getX(), location.getY(), location.getZ(), maxDistance + BALL_SLACK, nearbyBalls);
+        
+        Basketball nearest = null;
+        double nearestDistanceSquared = maxDistance * maxDistance;
+        for (int i = 0; i < nearbyBalls.size(); i++) {
+            Basketball basketball = nearbyBalls.get(i);
+            if (basketball.getEntity() == null || basketball.getEntity().isDead()) {
+                continue;
+            }
+            Location ballLocation = basketball.getLocation();
+            if (ballLocation.getWorld() != location.getWorld()) {
+                continue;
+            }
+            double distanceSquared = ballLocation.distanceSquared(location);
+            if (distanceSquared <= nearestDistanceSquared) {
+                nearestDistanceSquared = distanceSquared;
+                nearest = basketball;
+            }
+        }
+        nearbyBalls.clear();
+        return nearest;
     }
     
     /**
@@ -290,24 +465,30 @@ public class BasketballRegion {
      */
     public void setCurrentBasketball(Basketball basketball) {
         this.currentBasketball = basketball;
+        if (basketball != null) {
+            basketball.setRegionName(regionName);
+            if (!ballGrid.contains(basketball) && basketball.getEntity() != null) {
+                updateBallPosition(basketball, basketball.getLocation());
+            }
+        }
     }
     
     /**
      * Get the basketball owner (who threw it)
      * 
-     * @return The basketball owner or null
+     * @return The basketball owner, or null if there is none or they are offline
      */
     public Player getBasketballOwner() {
-        return basketballOwner;
+        return basketballOwner != null ? Bukkit.getPlayer(basketballOwner) : null;
     }
     
     /**
      * Set the basketball owner
      * 
-     * @param owner The player who threw the basketball
+     * @param owner The player who threw the basketball, or null
      */
     public void setBasketballOwner(Player owner) {
-        this.basketballOwner = owner;
+        this.basketballOwner = owner != null ? owner.getUniqueId() : null;
     }
     
     /**
@@ -317,7 +498,7 @@ public class BasketballRegion {
      * @return True if the player is the owner
      */
     public boolean isBasketballOwner(Player player) {
-        return basketballOwner != null && basketballOwner.equals(player);
+        return basketballOwner != null && basketballOwner.equals(player.getUniqueId());
     }
     
     /**
@@ -331,9 +512,9 @@ public class BasketballRegion {
             return false; // Game already won
         }
         
-        int currentScore = playerScores.getOrDefault(player, 0);
-        int newScore = currentScore + 1;
-        playerScores.put(player, newScore);
+        int newScore = playerScores.add(player.getUniqueId(), 1);
+        recordMake(player, newScore);
+        markLeaderboardDirty();
         
         BasketballPlugin plugin = BasketballPlugin.getInstance();
         if (plugin != null && plugin.getConfigManager().isDebugEnabled()) {
@@ -345,27 +526,29 @@ public class BasketballRegion {
             gameWon = true;
             
             // Update wins/losses
-            int currentWins = playerWins.getOrDefault(player, 0);
-            playerWins.put(player, currentWins + 1);
+            recordWins(player, winsLeaderboard.increment(player.getUniqueId()));
+            recordGameEnd();
+            markLeaderboardDirty();
             
             if (plugin != null) {
                 // Send title to winner
                 sendWinnerTitle(player);
                 
                 // Announce winner in chat
-                for (Player p : playersInRegion) {
-                    p.sendMessage("§6§l╔══════════════════════════════════════╗");
-                    p.sendMessage("§6§l║" + "§e§l🏆 WINNER! 🏆" + "§6§l                    ║");
-                    p.sendMessage("§6§l║" + "§f" + player.getName() + " §ehas won!" + "§6§l                    ║");
-                    p.sendMessage("§6§l║" + "§aScore: §f" + newScore + "§a/10" + "§6§l                    ║");
-                    p.sendMessage("§6§l╚══════════════════════════════════════╝");
+                OutboundMessageManager outbound = plugin.getOutboundMessageManager();
+                for (Player p : playersView) {
+                    outbound.queueChat(p, "§6§l╔══════════════════════════════════════╗");
+                    outbound.queueChat(p, "§6§l║" + "§e§l🏆 WINNER! 🏆" + "§6§l                    ║");
+                    outbound.queueChat(p, "§6§l║" + "§f" + player.getName() + " §ehas won!" + "§6§l                    ║");
+                    outbound.queueChat(p, "§6§l║" + "§aScore: §f" + newScore + "§a/10" + "§6§l                    ║");
+                    outbound.queueChat(p, "§6§l╚══════════════════════════════════════╝");
                 }
                 
                 // Reset game after 5 seconds
                 plugin.getServer().getScheduler().runTaskLater(plugin, () -> {
                     resetGame();
-                    for (Player p : playersInRegion) {
-                        p.sendMessage("§a§lGame reset! New game starting...");
+                    for (Player p : playersView) {
+                        outbound.queueChat(p, "§a§lGame reset! New game starting...");
                     }
                 }, 100L); // 5 seconds
             }
@@ -382,9 +565,8 @@ public class BasketballRegion {
      * @param points The points to add
      */
     public void addScore(Player player, int points) {
-        int currentScore = playerScores.getOrDefault(player, 0);
-        int newScore = currentScore + points;
-        playerScores.put(player, newScore);
+        int newScore = playerScores.add(player.getUniqueId(), points);
+        recordMake(player, newScore);
         
         // Notify all players in the region about the score
         notifyScoring(player, points, newScore);
@@ -396,11 +578,8 @@ public class BasketballRegion {
             resetGame();
         }
         
-        // Update holograms automatically
-        BasketballPlugin plugin = BasketballPlugin.getInstance();
-        if (plugin != null) {
-            plugin.getHologramManager().updateAllRegionHolograms();
-        }
+        // Mark this court's leaderboard for the next refresh
+        markLeaderboardDirty();
     }
     
     /**
@@ -419,81 +598,28 @@ public class BasketballRegion {
         String subtitleMessage = ChatColor.YELLOW + scorer.getName() + ChatColor.GREEN + " - " + 
             ChatColor.GOLD + totalScore + ChatColor.GREEN + " punten";
         
+        BasketballPlugin plugin = BasketballPlugin.getInstance();
+        if (plugin == null) {
+            return;
+        }
+        OutboundMessageManager outbound = plugin.getOutboundMessageManager();
+        
         // Send to all players in the region
-        for (Player player : playersInRegion) {
+        for (Player player : playersView) {
             // Chat message
-            player.sendMessage(chatMessage);
+            outbound.queueChat(player, chatMessage);
             
             // Title and subtitle
-            sendTitle(player, titleMessage, subtitleMessage);
+            outbound.queueTitle(player, titleMessage, subtitleMessage);
         }
         
         // Also send to the scorer specifically
-        if (!playersInRegion.contains(scorer)) {
-            scorer.sendMessage(chatMessage);
-            sendTitle(scorer, titleMessage, subtitleMessage);
+        if (!playersInRegion.containsKey(scorer.getUniqueId())) {
+            outbound.queueChat(scorer, chatMessage);
+            outbound.queueTitle(scorer, titleMessage, subtitleMessage);
         }
     }
     
-    /**
-     * Send a title to a player using reflection (compatible with 1.12.2)
-     * 
-     * @param player The player to send the title to
-     * @param title The title text
-     * @param subtitle The subtitle text
-     */
-    private void sendTitle(Player player, String title, String subtitle) {
-        try {
-            // Get the player's connection
-            Object craftPlayer = player.getClass().getMethod("getHandle").invoke(player);
-            Object connection = craftPlayer.getClass().getField("playerConnection").get(craftPlayer);
-            
-            // Create title packets
-            Object[] packets = createTitlePacket(title, subtitle);
-            
-            // Send both packets
-            for (Object packet : packets) {
-                connection.getClass().getMethod("sendPacket", getNMSClass("Packet")).invoke(connection, packet);
-            }
-            
-        } catch (Exception e) {
-            // Fallback to chat message if title fails
-            player.sendMessage(title);
-            if (!subtitle.isEmpty()) {
-                player.sendMessage(subtitle);
-            }
-        }
-    }
-    
-    /**
-     * Create title packets using reflection
-     * 
-     * @param title The title text
-     * @param subtitle The subtitle text
-     * @return Array of title packets
-     */
-    private Object[] createTitlePacket(String title, String subtitle) throws Exception {
-        // Get NMS classes
-        Class<?> packetClass = getNMSClass("PacketPlayOutTitle");
-        Class<?> enumClass = getNMSClass("PacketPlayOutTitle$EnumTitleAction");
-        Class<?> chatComponentClass = getNMSClass("IChatBaseComponent");
-        
-        // Create title component
-        Object titleComponent = chatComponentClass.getMethod("a", String.class).invoke(null, title);
-        Object subtitleComponent = chatComponentClass.getMethod("a", String.class).invoke(null, subtitle);
-        
-        // Create title packet
-        Object titlePacket = packetClass.getConstructor(enumClass, chatComponentClass).newInstance(
-            enumClass.getField("TITLE").get(null), titleComponent);
-        
-        // Create subtitle packet
-        Object subtitlePacket = packetClass.getConstructor(enumClass, chatComponentClass).newInstance(
-            enumClass.getField("SUBTITLE").get(null), subtitleComponent);
-        
-        // Return both packets
-        return new Object[]{titlePacket, subtitlePacket};
-    }
-    
     /**
      * Announce the winner
      * 
@@ -501,21 +627,64 @@ public class BasketballRegion {
      */
     private void announceWinner(Player winner) {
         // Add win to player
-        int currentWins = playerWins.getOrDefault(winner, 0);
-        playerWins.put(winner, currentWins + 1);
+        recordWins(winner, winsLeaderboard.increment(winner.getUniqueId()));
+        recordGameEnd();
         
         // Broadcast winner message
         String message = ChatColor.GOLD + "🏆 " + ChatColor.YELLOW + winner.getName() + 
             ChatColor.GREEN + " heeft gewonnen met 10 punten! 🏆";
-        winner.getWorld().getPlayers().forEach(p -> p.sendMessage(message));
+        BasketballPlugin plugin = BasketballPlugin.getInstance();
+        if (plugin != null) {
+            winner.getWorld().getPlayers().forEach(p -> plugin.getOutboundMessageManager().queueChat(p, message));
+        }
         
         // Send title to winner
         sendWinnerTitle(winner);
         
-        // Update holograms automatically
+        // Mark this court's leaderboard for the next refresh
+        markLeaderboardDirty();
+    }
+    
+    /**
+     * Record a win of a player on this court
+     */
+    private void recordWins(Player player, int wins) {
         BasketballPlugin plugin = BasketballPlugin.getInstance();
-        if (plugin != null) {
-            plugin.getHologramManager().updateAllRegionHolograms();
+        if (plugin != null && plugin.getDataManager() != null) {
+            plugin.getDataManager().recordWin(regionName, player.getUniqueId(), wins);
+        }
+    }
+    
+    /**
+     * Count a made basket in the player's stats and the match history
+     */
+    private void recordMake(Player player, int score) {
+        BasketballPlugin plugin = BasketballPlugin.getInstance();
+        if (plugin != null && plugin.getDataManager() != null) {
+            plugin.getDataManager().recordMake(regionName, player.getUniqueId(), score);
+        }
+    }
+    
+    /**
+     * Count a finished game for everyone on the court
+     */
+    private void recordGameEnd() {
+        BasketballPlugin plugin = BasketballPlugin.getInstance();
+        if (plugin == null || plugin.getDataManager() == null) {
+            return;
+        }
+        for (Iterator<UUID> iterator = playersInRegion.keyIterator(); iterator.hasNext(); ) {
+            plugin.getDataManager().recordGame(regionName, iterator.next());
+        }
+    }
+    
+    /**
+     * Mark this court's leaderboard hologram as changed
+     */
+    private void markLeaderboardDirty() {
+        BasketballPlugin plugin = BasketballPlugin.getInstance();
+        if (plugin != null && plugin.getHologramManager() != null) {
+            plugin.getHologramManager().markDirty(regionName);
         }
     }
     
@@ -526,16 +695,16 @@ public class BasketballRegion {
      * @return The player's score
      */
     public int getPlayerScore(Player player) {
-        return playerScores.getOrDefault(player, 0);
+        return playerScores.get(player.getUniqueId(), 0);
     }
     
     /**
      * Get all player scores
      * 
-     * @return Map of player scores
+     * @return Read-only view of player UUIDs to scores
      */
-    public Map<Player, Integer> getPlayerScores() {
-        return new java.util.HashMap<>(playerScores);
+    public UUIDIntView getPlayerScores() {
+        return playerScores.readOnlyView();
     }
     
     /**
@@ -551,15 +720,28 @@ public class BasketballRegion {
      * Reset the game (clear scores and game won status)
      */
     public void resetGame() {
+        BasketballPlugin plugin = BasketballPlugin.getInstance();
+        Object jfrEvent = plugin != null ? plugin.getFlightRecorder().start(FlightRecorderBridge.Kind.GAME_RESET) : null;
+        
         playerScores.clear();
         gameWon = false;
         
+        if (plugin != null && plugin.getDataManager() != null) {
+            plugin.getDataManager().recordGameReset(regionName);
+        }
+        
         // Initialize scores for current players
-        for (Player player : playersInRegion) {
-            playerScores.put(player, 0);
+        for (Iterator<UUID> iterator = playersInRegion.keyIterator(); iterator.hasNext(); ) {
+            playerScores.put(iterator.next(), 0);
+        }
+        markLeaderboardDirty();
+        
+        if (jfrEvent != null) {
+            plugin.getFlightRecorder().commit(FlightRecorderBridge.Kind.GAME_RESET, jfrEvent, regionName,
+                currentBasketball != null && currentBasketball.getEntity() != null ? currentBasketball.getEntity().getUniqueId() : null,
+                playersInRegion.size());
         }
         
-        BasketballPlugin plugin = BasketballPlugin.getInstance();
         if (plugin != null && plugin.getConfigManager().isDebugEnabled()) {
             plugin.getLogger().info("Basketball game reset for region " + regionName);
         }
@@ -647,10 +829,10 @@ public class BasketballRegion {
                     }
                     
                     // Particle effect
-                    groundLocation.getWorld().spawnParticle(org.bukkit.Particle.CLOUD, groundLocation.clone().add(0, 1, 0), 20, 0.3, 0.3, 0.3, 0.05);
-                    groundLocation.getWorld().spawnParticle(org.bukkit.Particle.CRIT, groundLocation.clone().add(0, 1, 0), 10, 0.2, 0.2, 0.2, 0.1);
+                    plugin.getMetricsManager().spawnParticle(MetricsManager.Effect.LANDING, groundLocation.getWorld(), org.bukkit.Particle.CLOUD, groundLocation.clone().add(0, 1, 0), 20, 0.3, 0.3, 0.3, 0.05);
+                    plugin.getMetricsManager().spawnParticle(MetricsManager.Effect.LANDING, groundLocation.getWorld(), org.bukkit.Particle.CRIT, groundLocation.clone().add(0, 1, 0), 10, 0.2, 0.2, 0.2, 0.1);
                     // Geluid
-                    groundLocation.getWorld().playSound(groundLocation, org.bukkit.Sound.ENTITY_SLIME_SQUISH, 0.8f, 1.2f);
+                    plugin.getMetricsManager().playSound(MetricsManager.Effect.LANDING, groundLocation.getWorld(), groundLocation, org.bukkit.Sound.ENTITY_SLIME_SQUISH, 0.8f, 1.2f);
                     
                     if (plugin.getConfigManager().isDebugEnabled()) {
                         plugin.getLogger().info("Basketball spawned as block at " + groundLocation);
@@ -688,10 +870,10 @@ public class BasketballRegion {
                         }
                         
                         // Particle effect
-                        groundLocation.getWorld().spawnParticle(org.bukkit.Particle.CLOUD, groundLocation.clone().add(0, 1, 0), 20, 0.3, 0.3, 0.3, 0.05);
-                        groundLocation.getWorld().spawnParticle(org.bukkit.Particle.CRIT, groundLocation.clone().add(0, 1, 0), 10, 0.2, 0.2, 0.2, 0.1);
+                        plugin.getMetricsManager().spawnParticle(MetricsManager.Effect.LANDING, groundLocation.getWorld(), org.bukkit.Particle.CLOUD, groundLocation.clone().add(0, 1, 0), 20, 0.3, 0.3, 0.3, 0.05);
+                        plugin.getMetricsManager().spawnParticle(MetricsManager.Effect.LANDING, groundLocation.getWorld(), org.bukkit.Particle.CRIT, groundLocation.clone().add(0, 1, 0), 10, 0.2, 0.2, 0.2, 0.1);
                         // Geluid
-                        groundLocation.getWorld().playSound(groundLocation, org.bukkit.Sound.ENTITY_SLIME_SQUISH, 0.8f, 1.2f);
+                        plugin.getMetricsManager().playSound(MetricsManager.Effect.LANDING, groundLocation.getWorld(), groundLocation, org.bukkit.Sound.ENTITY_SLIME_SQUISH, 0.8f, 1.2f);
                         
                         if (plugin.getConfigManager().isDebugEnabled()) {
                             plugin.getLogger().info("Basketball spawned as block (1 block up) at " + groundLocation);
@@ -724,6 +906,31 @@ public class BasketballRegion {
         isAnimating = false;
     }
     
+    /**
+     * Check if the court is active (one of its chunks is loaded)
+     * 
+     * @return True if active
+     */
+    public boolean isActive() {
+        return active;
+    }
+    
+    /**
+     * Mark the court as active
+     */
+    public void activate() {
+        active = true;
+    }
+    
+    /**
+     * Mark the court as dormant and release its ball and cached bounds
+     */
+    public void deactivate() {
+        active = false;
+        removeBasketball();
+        cachedRegionBounds = null;
+    }
+    
     /**
      * Check if the region is currently animating
      * 
@@ -748,19 +955,21 @@ public class BasketballRegion {
     public boolean hasBasketballInInventory() {
         BasketballPlugin plugin = BasketballPlugin.getInstance();
         
-        for (Player player : playersInRegion) {
+        int checked = 0;
+        for (Player player : playersView) {
+            checked++;
             for (ItemStack item : player.getInventory().getContents()) {
                 if (item != null && ItemUtil.isBasketballItem(item)) {
-                    if (plugin != null && plugin.getConfigManager().isDebugEnabled()) {
-                        plugin.getLogger().info("Found basketball in " + player.getName() + "'s inventory");
+                    if (plugin != null) {
+                        plugin.getTraceManager().trace(TraceManager.Event.INVENTORY_COURT, player.getName(), regionName, 1, checked, 0, null);
                     }
                     return true;
                 }
             }
         }
         
-        if (plugin != null && plugin.getConfigManager().isDebugEnabled()) {
-            plugin.getLogger().info("No basketball found in any player's inventory");
+        if (plugin != null) {
+            plugin.getTraceManager().trace(TraceManager.Event.INVENTORY_COURT, null, regionName, 0, checked, 0, null);
         }
         return false;
     }
@@ -771,7 +980,7 @@ public class BasketballRegion {
     public void removeAllBasketballsFromInventory() {
         BasketballPlugin plugin = BasketballPlugin.getInstance();
         
-        for (Player player : playersInRegion) {
+        for (Player player : playersView) {
             int removedCount = 0;
             for (int i = 0; i < player.getInventory().getSize(); i++) {
                 ItemStack item = player.getInventory().getItem(i);
@@ -887,6 +1096,11 @@ public class BasketballRegion {
         }
     }
     
+    @Override
+    public int[] getBounds() {
+        return getRegionBounds();
+    }
+    
     /**
      * Fallback method to find hoops and backboards around center
      */
@@ -948,6 +1162,28 @@ public class BasketballRegion {
         }
     }
     
+    /**
+     * Search the court for hoops and backboards that are not set yet, keeping
+     * the ones that are. Touches blocks, so main thread only.
+     */
+    public void findMissingHoopsAndBackboards() {
+        if (leftHoop != null && rightHoop != null && leftBackboard != null && rightBackboard != null) {
+            return;
+        }
+        
+        Location knownLeftHoop = leftHoop;
+        Location knownRightHoop = rightHoop;
+        Location knownLeftBackboard = leftBackboard;
+        Location knownRightBackboard = rightBackboard;
+        
+        findHoopsAndBackboards();
+        
+        if (knownLeftHoop != null) leftHoop = knownLeftHoop;
+        if (knownRightHoop != null) rightHoop = knownRightHoop;
+        if (knownLeftBackboard != null) leftBackboard = knownLeftBackboard;
+        if (knownRightBackboard != null) rightBackboard = knownRightBackboard;
+    }
+    
     /**
      * Automatically find hoops and backboards in the region
      */
@@ -1063,8 +1299,12 @@ public class BasketballRegion {
         
         if (bounds != null) {
             for (int x = bounds[0]; x <= bounds[1]; x++) {
-                for (int y = bounds[2]; y <= bounds[3]; y++) {
-                    for (int z = bounds[4]; z <= bounds[5]; z++) {
+                for (int z = bounds[4]; z <= bounds[5]; z++) {
+                    // Unloaded chunks are cleaned when they load, never load them here
+                    if (!center.getWorld().isChunkLoaded(x >> 4, z >> 4)) {
+                        continue;
+                    }
+                    for (int y = bounds[2]; y <= bounds[3]; y++) {
                         Location loc = new Location(center.getWorld(), x, y, z);
                         if (loc.getBlock().getType() == org.bukkit.Material.SKULL) {
                             // Check if it's a basketball skull using BasketballTextureUtil
@@ -1098,22 +1338,14 @@ public class BasketballRegion {
      * @param player The winning player
      */
     private void sendWinnerTitle(Player player) {
-        try {
-            // Send title packet
-            Object timesPacket = createTimesPacket(10, 60, 10); // 0.5s fade in, 3s stay, 0.5s fade out
-            Object titlePacket = createTitlePacket("§e§l🏆 WINNER! 🏆", "");
-            Object subtitlePacket = createSubtitlePacket("§f" + player.getName() + " §ehas won!");
-            
-            sendPacket(player, timesPacket);
-            sendPacket(player, titlePacket);
-            sendPacket(player, subtitlePacket);
-            
-        } catch (Exception e) {
-            BasketballPlugin plugin = BasketballPlugin.getInstance();
-            if (plugin != null && plugin.getConfigManager().isDebugEnabled()) {
-                plugin.getLogger().warning("Could not send winner title: " + e.getMessage());
-            }
+        BasketballPlugin plugin = BasketballPlugin.getInstance();
+        if (plugin == null) {
+            return;
         }
+        
+        // 0.5s fade in, 3s stay, 0.5s fade out
+        plugin.getOutboundMessageManager().queueTitle(player, "§e§l🏆 WINNER! 🏆",
+            "§f" + player.getName() + " §ehas won!", 10, 60, 10);
     }
     
     /**
@@ -1123,7 +1355,7 @@ public class BasketballRegion {
      * @return Number of wins
      */
     public int getPlayerWins(Player player) {
-        return playerWins.getOrDefault(player, 0);
+        return winsLeaderboard.getWins(player.getUniqueId());
     }
     
     /**
@@ -1137,12 +1369,21 @@ public class BasketballRegion {
     }
     
     /**
-     * Get all player wins
+     * Get all loaded player wins, including players that are offline
+     * 
+     * @return Read-only view of player UUIDs to wins
+     */
+    public UUIDIntView getPlayerWins() {
+        return winsLeaderboard.getWinsView();
+    }
+    
+    /**
+     * Get the wins leaderboard of this court
      * 
-     * @return Map of player wins
+     * @return The wins leaderboard
      */
-    public Map<Player, Integer> getPlayerWins() {
-        return new java.util.HashMap<>(playerWins);
+    public WinsLeaderboard getWinsLeaderboard() {
+        return winsLeaderboard;
     }
     
     /**
@@ -1161,107 +1402,119 @@ public class BasketballRegion {
      * @param wins The number of wins
      */
     public void setPlayerWinsFromUUID(UUID playerUUID, int wins) {
-        playerWinsByUUID.put(playerUUID, wins);
+        winsLeaderboard.setWins(playerUUID, wins);
+        markLeaderboardDirty();
     }
     
     /**
-     * Update player wins from UUID when player joins
+     * Update player wins from UUID when player joins.
+     * Wins are already keyed by UUID, so this only refreshes the leaderboard
+     * in case the player's name changed.
      * 
      * @param player The player who joined
      */
     public void updatePlayerWinsFromUUID(Player player) {
-        UUID playerUUID = player.getUniqueId();
-        if (playerWinsByUUID.containsKey(playerUUID)) {
-            int wins = playerWinsByUUID.get(playerUUID);
-            playerWins.put(player, wins);
-            playerWinsByUUID.remove(playerUUID);
+        if (winsLeaderboard.getWins(player.getUniqueId()) > 0) {
+            markLeaderboardDirty();
         }
     }
     
     /**
-     * Send a packet to a player using reflection
+     * Drop a player's wins from memory unless they are shown on the leaderboard
      * 
-     * @param player The player
-     * @param packet The packet to send
+     * @param playerUUID The player UUID
+     * @param keepTop Players ranked this high or better stay loaded
      */
-    private void sendPacket(Player player, Object packet) throws Exception {
-        Object playerConnection = player.getClass().getMethod("getHandle").invoke(player);
-        Object networkManager = playerConnection.getClass().getField("playerConnection").get(playerConnection);
-        networkManager.getClass().getMethod("sendPacket", getNMSClass("Packet")).invoke(networkManager, packet);
+    public void unloadPlayerWins(UUID playerUUID, int keepTop) {
+        int rank = winsLeaderboard.getRank(playerUUID);
+        if (rank > keepTop) {
+            winsLeaderboard.setWins(playerUUID, 0);
+        }
     }
     
     /**
-     * Create a times packet using reflection
-     * 
-     * @param fadeIn Fade in ticks
-     * @param stay Stay ticks
-     * @param fadeOut Fade out ticks
-     * @return The packet object
+     * Read-only collection of the online players in this region. The members
+     * are resolved to players once after every join or leave instead of on
+     * every call, and the resolved list is replaced rather than changed, so
+     * a running iteration is not affected by players entering or leaving.
+     * Members that went offline without leaving are skipped by the iterator
+     * and dropped from size() at the next resolve.
      */
-    private Object createTimesPacket(int fadeIn, int stay, int fadeOut) throws Exception {
-        Class<?> packetClass = getNMSClass("PacketPlayOutTitle");
-        Class<?> enumClass = getNMSClass("PacketPlayOutTitle$EnumTitleAction");
+    private class PlayersView extends AbstractCollection<Player> {
         
-        return packetClass.getConstructor(enumClass, getNMSClass("IChatBaseComponent"), int.class, int.class, int.class).newInstance(
-            enumClass.getField("TIMES").get(null),
-            null,
-            fadeIn,
-            stay,
-            fadeOut
-        );
-    }
-    
-    /**
-     * Create a subtitle packet using reflection
-     * 
-     * @param subtitle The subtitle text
-     * @return The packet object
-     */
-    private Object createSubtitlePacket(String subtitle) throws Exception {
-        Class<?> packetClass = getNMSClass("PacketPlayOutTitle");
-        Class<?> enumClass = getNMSClass("PacketPlayOutTitle$EnumTitleAction");
+        private List<Player> online; // null when the members changed since the last resolve
         
-        return packetClass.getConstructor(enumClass, getNMSClass("IChatBaseComponent")).newInstance(
-            enumClass.getField("SUBTITLE").get(null),
-            createChatComponent(subtitle)
-        );
-    }
-    
-    /**
-     * Create a chat component using reflection
-     * 
-     * @param text The text
-     * @return The chat component
-     */
-    private Object createChatComponent(String text) throws Exception {
-        Class<?> chatComponentClass = getNMSClass("IChatBaseComponent$ChatSerializer");
-        return chatComponentClass.getMethod("a", String.class).invoke(null, "{\"text\":\"" + text + "\"}");
-    }
-    
-    /**
-     * Get NMS class using reflection
-     * 
-     * @param className The class name
-     * @return The class
-     */
-    private Class<?> getNMSClass(String className) {
-        try {
-            return Class.forName("net.minecraft.server." + getServerVersion() + "." + className);
-        } catch (ClassNotFoundException e) {
-            return null;
+        /**
+         * Resolve the members again on next use
+         */
+        void invalidate() {
+            online = null;
         }
-    }
-    
-    /**
-     * Get server version
-     * 
-     * @return The server version
-     */
-    private String getServerVersion() {
-        BasketballPlugin plugin = BasketballPlugin.getInstance();
-        if (plugin != null) {
-            return plugin.getServer().getClass().getPackage().getName().split("\\.")[3];
+        
+        private List<Player> resolve() {
+            List<Player> players = online;
+            if (players == null) {
+                players = new ArrayList<>(playersInRegion.size());
+                for (Iterator<UUID> keys = playersInRegion.keyIterator(); keys.hasNext(); ) {
+                    Player player = Bukkit.getPlayer(keys.next());
+                    if (player != null) {
+                        players.add(player);
+                    }
+                }
+                online = players;
+            }
+            return players;
+        }
+        
+        @Override
+        public Iterator<Player> iterator() {
+            List<Player> players = resolve();
+            return new Iterator<Player>() {
+                private int index;
+                private Player next = advance();
+                
+                private Player advance() {
+                    while (index < players.size()) {
+                        Player player = players.get(index++);
+                        if (player.isOnline()) {
+                            return player;
+                        }
+                        invalidate();
+                    }
+                    return null;
+                }
+                
+                @Override
+                public boolean hasNext() {
+                    return next != null;
+                }
+                
+                @Override
+                public Player next() {
+                    if (next == null) {
+                        throw new NoSuchElementException();
+                    }
+                    Player current = next;
+                    next = advance();
+                    return current;
+                }
+            };
+        }
+        
+        @Override
+        public int size() {
+            return resolve().size();
+        }
+        
+        @Override
+        public boolean isEmpty() {
+            return resolve().isEmpty();
+        }
+        
+        @Override
+        public boolean contains(Object object) {
+            return object instanceof Player && ((Player) object).isOnline()
+                && playersInRegion.containsKey(((Player) object).getUniqueId());
         }
-        return "v1_12_R1"; // Fallback
     }
-} 
\ No newline at end of file
+}
@@ -0,0 +1,293 @@
+package nl.djorr.basketball.objects;
+
+import nl.djorr.basketball.utils.UUIDIntMap;
+import nl.djorr.basketball.utils.UUIDIntView;
+
+import java.util.AbstractMap;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+
+/**
+ * Wins per player for a court, kept ordered by (wins descending, uuid) in an
+ * order-statistic treap. Updates, rank lookups and top-N queries are O(log n)
+ * (top-N is O(log n + N)), so leaderboards never need to sort every winner.
+ *
+ * @author Djorr
+ */
+public class WinsLeaderboard {
+
+    private final UUIDIntMap wins;
+    private final Random random;
+    private Node root;
+
+    /**
+     * Constructor for WinsLeaderboard
+     */
+    public WinsLeaderboard() {
+        this.wins = new UUIDIntMap();
+        this.random = new Random();
+    }
+
+    /**
+     * Get the wins of a player
+     *
+     * @param uuid The player UUID
+     * @return The number of wins, 0 if unknown
+     */
+    public int getWins(UUID uuid) {
+        return wins.get(uuid, 0);
+    }
+
+    /**
+     * Set the wins of a player
+     *
+     * @param uuid The player UUID
+     * @param amount The number of wins, players with 0 wins are removed
+     */
+    public void setWins(UUID uuid, int amount) {
+        int current = wins.get(uuid, 0);
+        if (current > 0) {
+            if (current == amount) {
+                return;
+            }
+            root = remove(root, current, uuid);
+            wins.remove(uuid);
+        }
+
+        if (amount > 0) {
+            wins.put(uuid, amount);
+            root = insert(root, new Node(uuid, amount, random.nextInt()));
+        }
+    }
+
+    /**
+     * Add one win to a player
+     *
+     * @param uuid The player UUID
+     * @return The new number of wins
+     */
+    public int increment(UUID uuid) {
+        int amount = getWins(uuid) + 1;
+        setWins(uuid, amount);
+        return amount;
+    }
+
+    /**
+     * Get the number of players with at least one win
+     *
+     * @return The number of players
+     */
+    public int size() {
+        return wins.size();
+    }
+
+    /**
+     * Get the 1-based rank of a player
+     *
+     * @param uuid The player UUID
+     * @return The rank, or 0 if the player has no wins
+     */
+    public int getRank(UUID uuid) {
+        int amount = wins.get(uuid, 0);
+        if (amount == 0) {
+            return 0;
+        }
+
+        int rank = 1;
+        Node node = root;
+        while (node != null) {
+            int cmp = compare(amount, uuid, node.wins, node.uuid);
+            if (cmp < 0) {
+                node = node.left;
+            } else {
+                rank += size(node.left);
+                if (cmp == 0) {
+                    return rank;
+                }
+                rank++;
+                node = node.right;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Get the entry at a 1-based rank
+     *
+     * @param rank The rank
+     * @return The entry, or null if the rank is out of range
+     */
+    public Map.Entry<UUID, Integer> getByRank(int rank) {
+        if (rank < 1 || rank > size(root)) {
+            return null;
+        }
+
+        int index = rank - 1;
+        Node node = root;
+        while (node != null) {
+            int leftSize = size(node.left);
+            if (index < leftSize) {
+                node = node.left;
+            } else if (index == leftSize) {
+                return new AbstractMap.SimpleImmutableEntry<>(node.uuid, node.wins);
+            } else {
+                index -= leftSize + 1;
+                node = node.right;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Get the players with the most wins, best first
+     *
+     * @param limit The maximum number of entries
+     * @return List of UUID to wins entries
+     */
+    public List<Map.Entry<UUID, Integer>> getTop(int limit) {
+        List<Map.Entry<UUID, Integer>> top = new ArrayList<>(Math.min(limit, wins.size()));
+        Deque<Node> stack = new ArrayDeque<>();
+        Node node = root;
+
+        // In-order walk that stops after limit entries
+        while ((node != null || !stack.isEmpty()) && top.size() < limit) {
+            while (node != null) {
+                stack.push(node);
+                node = node.left;
+            }
+            node = stack.pop();
+            top.add(new AbstractMap.SimpleImmutableEntry<>(node.uuid, node.wins));
+            node = node.right;
+        }
+        return top;
+    }
+
+    /**
+     * Get a read-only view of all wins
+     *
+     * @return View of player UUIDs to wins
+     */
+    public UUIDIntView getWinsView() {
+        return wins.readOnlyView();
+    }
+
+    /**
+     * Remove all wins
+     */
+    public void clear() {
+        wins.clear();
+        root = null;
+    }
+
+    /**
+     * Order by wins descending, then by UUID
+     */
+    private static int compare(int winsA, UUID uuidA, int winsB, UUID uuidB) {
+        if (winsA != winsB) {
+            return winsA > winsB ? -1 : 1;
+        }
+        return uuidA.compareTo(uuidB);
+    }
+
+    private static int size(Node node) {
+        return node == null ? 0 : node.size;
+    }
+
+    private static Node update(Node node) {
+        node.size = 1 + size(node.left) + size(node.right);
+        return node;
+    }
+
+    /**
+     * Insert a node, rotating it up while its priority is higher than its parent's
+     */
+    private static Node insert(Node node, Node added) {
+        if (node == null) {
+            return added;
+        }
+
+        if (compare(added.wins, added.uuid, node.wins, node.uuid) < 0) {
+            node.left = insert(node.left, added);
+            if (node.left.priority > node.priority) {
+                node = rotateRight(node);
+            }
+        } else {
+            node.right = insert(node.right, added);
+            if (node.right.priority > node.priority) {
+                node = rotateLeft(node);
+            }
+        }
+        return update(node);
+    }
+
+    /**
+     * Remove the node with the given key
+     */
+    private static Node remove(Node node, int amount, UUID uuid) {
+        if (node == null) {
+            return null;
+        }
+
+        int cmp = compare(amount, uuid, node.wins, node.uuid);
+        if (cmp < 0) {
+            node.left = remove(node.left, amount, uuid);
+        } else if (cmp > 0) {
+            node.right = remove(node.right, amount, uuid);
+        } else {
+            return merge(node.left, node.right);
+        }
+        return update(node);
+    }
+
+    /**
+     * Merge two treaps where every key in left is smaller than every key in right
+     */
+    private static Node merge(Node left, Node right) {
+        if (left == null) return right;
+        if (right == null) return left;
+
+        if (left.priority > right.priority) {
+            left.right = merge(left.right, right);
+            return update(left);
+        }
+        right.left = merge(left, right.left);
+        return update(right);
+    }
+
+    private static Node rotateRight(Node node) {
+        Node pivot = node.left;
+        node.left = pivot.right;
+        pivot.right = update(node);
+        return update(pivot);
+    }
+
+    private static Node rotateLeft(Node node) {
+        Node pivot = node.right;
+        node.right = pivot.left;
+        pivot.left = update(node);
+        return update(pivot);
+    }
+
+    /**
+     * Treap node
+     */
+    private static final class Node {
+        private final UUID uuid;
+        private final int wins;
+        private final int priority;
+        private Node left;
+        private Node right;
+        private int size = 1;
+
+        private Node(UUID uuid, int wins, int priority) {
+            this.uuid = uuid;
+            this.wins = wins;
+            this.priority = priority;
+        }
+    }
+}
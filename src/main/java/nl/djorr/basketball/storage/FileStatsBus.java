@@ -0,0 +1,349 @@
+package nl.djorr.basketball.storage;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+/**
+ * {@link StatsBus} over a directory that every server can reach (a local
+ * directory for servers on one machine, or a shared mount). Each server
+ * appends its deltas as lines to its own log segments
+ * ({@code <node>@<segment>.log}) and tails the segments of the other servers.
+ * Lines are only consumed once they are complete, so a reader never sees half
+ * a delta.
+ * <p>
+ * A reader keeps its read positions in {@code <node>.offsets} in the same
+ * directory. They are only written by {@link #commit()}, after the polled
+ * deltas were applied, so a restart continues where the applied deltas end.
+ * The writer starts a new segment once the current one is
+ * {@value #SEGMENT_SIZE} bytes and deletes its old segments when every peer
+ * has read them to the end. Peers whose offsets were not written for
+ * {@value #PEER_TIMEOUT_DAYS} days are considered gone and no longer hold
+ * segments back.
+ *
+ * @author Djorr
+ */
+public class FileStatsBus implements StatsBus {
+
+    private static final String LOG_SUFFIX = ".log";
+    private static final String OFFSETS_SUFFIX = ".offsets";
+    private static final char SEGMENT_SEPARATOR = '@';
+    private static final int READ_CHUNK = 64 * 1024;
+    private static final long SEGMENT_SIZE = 1024 * 1024;
+    private static final long PEER_TIMEOUT_DAYS = 7;
+
+    private final File directory;
+    private final String nodeId;
+    private final Logger logger;
+    private final Map<String, Long> offsets; // Read position per segment, sync thread only
+    private FileChannel out;
+    private long segment;
+
+    /**
+     * Constructor for FileStatsBus
+     *
+     * @param directory The shared directory
+     * @param nodeId The id of this server, unique among the servers sharing the directory
+     * @param logger The logger to report errors to
+     */
+    public FileStatsBus(File directory, String nodeId, Logger logger) {
+        this.directory = directory;
+        this.nodeId = nodeId;
+        this.logger = logger;
+        this.offsets = new HashMap<>();
+    }
+
+    @Override
+    public void open() throws IOException {
+        if (!directory.exists() && !directory.mkdirs()) {
+            throw new IOException("Could not create " + directory);
+        }
+
+        offsets.putAll(readOffsets(new File(directory, nodeId + OFFSETS_SUFFIX)));
+
+        // Continue in the newest own segment
+        segment = 0;
+        for (File log : listSegments(nodeId)) {
+            segment = Math.max(segment, segmentOf(log.getName()));
+        }
+        openSegment();
+
+        // Terminate a line torn by a crash, readers skip it as unparseable
+        long size = out.size();
+        if (size > 0) {
+            ByteBuffer last = ByteBuffer.allocate(1);
+            try (FileChannel in = FileChannel.open(segmentFile(nodeId, segment).toPath(), StandardOpenOption.READ)) {
+                in.read(last, size - 1);
+            }
+            if (last.get(0) != '\n') {
+                out.write(ByteBuffer.wrap(new byte[] {'\n'}));
+            }
+        }
+    }
+
+    @Override
+    public long getPublishedSequence() throws IOException {
+        long highest = 0;
+        for (File log : listSegments(nodeId)) {
+            List<WinsDelta> deltas = new ArrayList<>();
+            readLog(log, 0, deltas, Integer.MAX_VALUE);
+            for (WinsDelta delta : deltas) {
+                highest = Math.max(highest, delta.getSequence());
+            }
+        }
+        return highest;
+    }
+
+    @Override
+    public void publish(List<WinsDelta> deltas) throws IOException {
+        if (out.size() >= SEGMENT_SIZE) {
+            out.close();
+            segment++;
+            openSegment();
+        }
+
+        StringBuilder lines = new StringBuilder(deltas.size() * 80);
+        for (WinsDelta delta : deltas) {
+            lines.append(delta.getOrigin()).append('\t')
+                .append(delta.getSequence()).append('\t')
+                .append(delta.getRegionName()).append('\t')
+                .append(delta.getUuid()).append('\t')
+                .append(delta.getDelta()).append('\n');
+        }
+
+        // One write per batch, so the batch lands in the file as a whole
+        ByteBuffer buffer = ByteBuffer.wrap(lines.toString().getBytes(StandardCharsets.UTF_8));
+        while (buffer.hasRemaining()) {
+            out.write(buffer);
+        }
+    }
+
+    @Override
+    public List<WinsDelta> poll(int max) throws IOException {
+        List<WinsDelta> deltas = new ArrayList<>();
+        List<File> logs = new ArrayList<>();
+        File[] files = directory.listFiles((dir, name) -> name.endsWith(LOG_SUFFIX) && !nodeOf(name).equals(nodeId));
+        if (files != null) {
+            for (File log : files) {
+                logs.add(log);
+            }
+        }
+
+        // Segments of one node in order, so its deltas are delivered in order
+        logs.sort((a, b) -> {
+            int byNode = nodeOf(a.getName()).compareTo(nodeOf(b.getName()));
+            return byNode != 0 ? byNode : Long.compare(segmentOf(a.getName()), segmentOf(b.getName()));
+        });
+
+        // Forget segments that were deleted by their writer
+        List<String> names = new ArrayList<>();
+        for (File log : logs) {
+            names.add(log.getName());
+        }
+        offsets.keySet().retainAll(names);
+
+        for (File log : logs) {
+            if (deltas.size() >= max) {
+                break;
+            }
+            String name = log.getName();
+            long offset = offsets.containsKey(name) ? offsets.get(name) : 0;
+            offsets.put(name, readLog(log, offset, deltas, max));
+        }
+        return deltas;
+    }
+
+    @Override
+    public void commit() throws IOException {
+        Properties state = new Properties();
+        for (Map.Entry<String, Long> entry : offsets.entrySet()) {
+            state.setProperty(entry.getKey(), String.valueOf(entry.getValue()));
+        }
+
+        File offsetsFile = new File(directory, nodeId + OFFSETS_SUFFIX);
+        File tempFile = new File(directory, nodeId + OFFSETS_SUFFIX + ".tmp");
+        try (FileOutputStream stream = new FileOutputStream(tempFile)) {
+            state.store(stream, "Read positions of " + nodeId);
+            stream.getFD().sync();
+        }
+        try {
+            Files.move(tempFile.toPath(), offsetsFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(tempFile.toPath(), offsetsFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    @Override
+    public void compact() throws IOException {
+        List<Map<String, Long>> peers = new ArrayList<>();
+        long cutoff = System.currentTimeMillis() - TimeUnit.DAYS.toMillis(PEER_TIMEOUT_DAYS);
+        File[] offsetFiles = directory.listFiles((dir, name) -> name.endsWith(OFFSETS_SUFFIX)
+            && !name.equals(nodeId + OFFSETS_SUFFIX));
+        if (offsetFiles != null) {
+            for (File file : offsetFiles) {
+                if (file.lastModified() >= cutoff) {
+                    peers.add(readOffsets(file));
+                }
+            }
+        }
+
+        for (File log : listSegments(nodeId)) {
+            if (segmentOf(log.getName()) >= segment) {
+                continue; // Still written to
+            }
+
+            boolean readByAll = true;
+            for (Map<String, Long> peer : peers) {
+                Long offset = peer.get(log.getName());
+                if (offset == null || offset < log.length()) {
+                    readByAll = false;
+                    break;
+                }
+            }
+            if (readByAll && !log.delete()) {
+                logger.warning("Could not delete sync segment " + log.getName());
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        if (out != null) {
+            try {
+                out.close();
+            } catch (IOException e) {
+                logger.warning("Could not close sync log: " + e.getMessage());
+            }
+            out = null;
+        }
+    }
+
+    private void openSegment() throws IOException {
+        out = FileChannel.open(segmentFile(nodeId, segment).toPath(),
+            StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    /**
+     * Get a segment file; segment 0 keeps the name of the logs written before segments existed
+     */
+    private File segmentFile(String node, long number) {
+        return new File(directory, number == 0 ? node + LOG_SUFFIX : node + SEGMENT_SEPARATOR + number + LOG_SUFFIX);
+    }
+
+    private List<File> listSegments(String node) {
+        List<File> segments = new ArrayList<>();
+        File[] files = directory.listFiles((dir, name) -> name.endsWith(LOG_SUFFIX) && nodeOf(name).equals(node));
+        if (files != null) {
+            for (File file : files) {
+                segments.add(file);
+            }
+        }
+        return segments;
+    }
+
+    private static String nodeOf(String logName) {
+        String base = logName.substring(0, logName.length() - LOG_SUFFIX.length());
+        int separator = base.lastIndexOf(SEGMENT_SEPARATOR);
+        return separator >= 0 ? base.substring(0, separator) : base;
+    }
+
+    private static long segmentOf(String logName) {
+        String base = logName.substring(0, logName.length() - LOG_SUFFIX.length());
+        int separator = base.lastIndexOf(SEGMENT_SEPARATOR);
+        if (separator < 0) {
+            return 0;
+        }
+        try {
+            return Long.parseLong(base.substring(separator + 1));
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    private Map<String, Long> readOffsets(File file) {
+        Map<String, Long> result = new HashMap<>();
+        if (!file.exists()) {
+            return result;
+        }
+
+        Properties state = new Properties();
+        try (FileInputStream in = new FileInputStream(file)) {
+            state.load(in);
+            for (String name : state.stringPropertyNames()) {
+                result.put(name, Long.parseLong(state.getProperty(name)));
+            }
+        } catch (IOException | NumberFormatException e) {
+            logger.warning("Could not read " + file.getName() + ": " + e.getMessage());
+        }
+        return result;
+    }
+
+    /**
+     * Read complete lines from a segment
+     *
+     * @return The position after the last complete line read
+     */
+    private long readLog(File log, long offset, List<WinsDelta> deltas, int max) throws IOException {
+        try (RandomAccessFile file = new RandomAccessFile(log, "r")) {
+            byte[] chunk = new byte[READ_CHUNK];
+            while (deltas.size() < max && offset < file.length()) {
+                file.seek(offset);
+                int read = file.read(chunk);
+                if (read <= 0) {
+                    break;
+                }
+
+                int lineStart = 0;
+                for (int i = 0; i < read && deltas.size() < max; i++) {
+                    if (chunk[i] == '\n') {
+                        WinsDelta delta = parse(new String(chunk, lineStart, i - lineStart, StandardCharsets.UTF_8));
+                        if (delta != null) {
+                            deltas.add(delta);
+                        }
+                        lineStart = i + 1;
+                    }
+                }
+
+                if (lineStart == 0) {
+                    // No complete line in this chunk; wait for the writer
+                    break;
+                }
+                offset += lineStart;
+            }
+        }
+        return offset;
+    }
+
+    private WinsDelta parse(String line) {
+        if (line.isEmpty()) {
+            return null;
+        }
+        String[] parts = line.split("\t");
+        if (parts.length != 5) {
+            return null;
+        }
+        try {
+            return new WinsDelta(parts[0], Long.parseLong(parts[1]), parts[2], UUID.fromString(parts[3]), Integer.parseInt(parts[4]));
+        } catch (IllegalArgumentException e) {
+            logger.warning("Skipping malformed sync delta: " + line);
+            return null;
+        }
+    }
+}
@@ -0,0 +1,734 @@
+package nl.djorr.basketball.storage;
+
+import nl.djorr.basketball.utils.FlightRecorderBridge;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+/**
+ * Fixed-record stats file accessed through a {@link MappedByteBuffer}.
+ * <p>
+ * The file is an open-addressed hash table keyed by (region, player), so
+ * lookups and updates read and write the mapped records in place and
+ * startup does not parse anything. The OS writes dirty pages back; the
+ * buffer is only forced on close, after a migration and after a grow.
+ * <p>
+ * New files are pre-sized to the configured capacity so the table normally
+ * never grows. When it does get half full, a bigger table is built on the
+ * storage thread in a new region of the same file and swapped in by one
+ * header write; the old table space stays unused. The records are copied in
+ * chunks of {@value #GROW_CHUNK} under the lock, so a write waits for one
+ * chunk at most, and the new table is forced without the lock. Records that
+ * are written after their chunk was copied are copied again just before the
+ * swap. Writes only grow the table themselves when it is three quarters full
+ * and no grow is running.
+ * <p>
+ * Records store a small region id instead of the region name, and the names
+ * live in a fixed table in the header. Its size is chosen when the file is
+ * created ({@code mmap_max_regions}); stats for further regions are not
+ * stored. Files written before the size was configurable have 64 entries.
+ * <p>
+ * Layout: a header, the region name table, then {@value #RECORD_SIZE}-byte
+ * records: {@code byte used | 3 pad | int region | long uuidMost |
+ * long uuidLeast | int wins | int games | int shots | int makes |
+ * long lastSeen}.
+ *
+ * @author Djorr
+ */
+public class MappedStatsStorage implements StatsStorage {
+
+    private static final int MAGIC = 0x4242534D; // "BBSM"
+    private static final int VERSION = 2;
+    private static final int LEGACY_VERSION = 1;
+    private static final int LEGACY_MAX_REGIONS = 64;
+    private static final int REGION_ENTRY_SIZE = 64;
+    private static final int HEADER_SIZE = 32;
+    private static final int RECORD_SIZE = 48;
+    private static final int MIN_CAPACITY = 1024;
+    private static final int GROW_CHUNK = 4096;
+
+    // Header fields
+    private static final int HEADER_MAGIC = 0;
+    private static final int HEADER_VERSION = 4;
+    private static final int HEADER_MAX_REGIONS = 8; // Table capacity in version 1
+    private static final int HEADER_SIZE_FIELD = 12;
+    private static final int HEADER_REGIONS = 16;
+    private static final int HEADER_MIGRATED = 20;
+    private static final int HEADER_TABLE = 24; // long: table offset << 32 | capacity, written in one store
+
+    // Record fields
+    private static final int USED = 0;
+    private static final int REGION = 4;
+    private static final int UUID_MOST = 8;
+    private static final int UUID_LEAST = 16;
+    private static final int WINS = 24;
+    private static final int GAMES = 28;
+    private static final int SHOTS = 32;
+    private static final int MAKES = 36;
+    private static final int LAST_SEEN = 40;
+
+    private final File file;
+    private final Logger logger;
+    private final FlightRecorderBridge flightRecorder;
+    private final int initialCapacity;
+    private final int configuredMaxRegions;
+    private final Map<String, Integer> regionIds;
+    private RandomAccessFile raf;
+    private FileChannel channel;
+    private MappedByteBuffer buffer; // Null once closed
+    private ExecutorService executor;
+    private int maxRegions;
+    private int tableOffset;
+    private int capacity;
+    private int size;
+    private boolean growQueued;
+    private boolean growing; // The storage thread is copying records into growTable
+    private MappedByteBuffer growTable; // The table being built, mapped on its own
+    private int growOffset;
+    private int growCapacity;
+    private int copied; // Records of the current table copied so far
+    private BitSet rewritten; // Copied records that were written afterwards
+    private boolean regionsFullLogged;
+
+    /**
+     * Constructor for MappedStatsStorage
+     *
+     * @param file The stats file
+     * @param logger The logger to report errors to
+     * @param flightRecorder The bridge that forces are reported to
+     * @param initialCapacity The number of records a new file is sized for
+     * @param maxRegions The size of the region table of a new file
+     */
+    public MappedStatsStorage(File file, Logger logger, FlightRecorderBridge flightRecorder, int initialCapacity, int maxRegions) {
+        this.file = file;
+        this.logger = logger;
+        this.flightRecorder = flightRecorder;
+        this.initialCapacity = Math.max(MIN_CAPACITY, Integer.highestOneBit(Math.max(1, initialCapacity - 1)) << 1);
+        this.configuredMaxRegions = Math.max(1, maxRegions);
+        this.regionIds = new HashMap<>();
+    }
+
+    @Override
+    public synchronized void open() throws IOException {
+        boolean created = !file.exists() || file.length() < HEADER_SIZE;
+        raf = new RandomAccessFile(file, "rw");
+        channel = raf.getChannel();
+
+        if (created) {
+            maxRegions = configuredMaxRegions;
+            tableOffset = HEADER_SIZE + maxRegions * REGION_ENTRY_SIZE;
+            capacity = initialCapacity;
+            raf.setLength(0);
+            raf.setLength(tableOffset + (long) capacity * RECORD_SIZE);
+            map();
+            buffer.putInt(HEADER_MAGIC, MAGIC);
+            buffer.putInt(HEADER_VERSION, VERSION);
+            buffer.putInt(HEADER_MAX_REGIONS, maxRegions);
+            buffer.putLong(HEADER_TABLE, table(tableOffset, capacity));
+            force();
+        } else {
+            map();
+            readHeader();
+        }
+
+        size = buffer.getInt(HEADER_SIZE_FIELD);
+        int regions = buffer.getInt(HEADER_REGIONS);
+        for (int id = 0; id < regions; id++) {
+            regionIds.put(readRegionName(id), id);
+        }
+
+        executor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "Basketball-Storage");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Read the table location, upgrading a version 1 header in place
+     */
+    private void readHeader() throws IOException {
+        int version = buffer.getInt(HEADER_VERSION);
+        if (buffer.getInt(HEADER_MAGIC) != MAGIC || (version != VERSION && version != LEGACY_VERSION)) {
+            throw new IOException(file.getName() + " is not a basketball stats file");
+        }
+
+        if (version == LEGACY_VERSION) {
+            maxRegions = LEGACY_MAX_REGIONS;
+            tableOffset = HEADER_SIZE + LEGACY_MAX_REGIONS * REGION_ENTRY_SIZE;
+            capacity = buffer.getInt(HEADER_MAX_REGIONS);
+        } else {
+            maxRegions = buffer.getInt(HEADER_MAX_REGIONS);
+            long table = buffer.getLong(HEADER_TABLE);
+            tableOffset = (int) (table >>> 32);
+            capacity = (int) table;
+        }
+
+        if (capacity <= 0 || Integer.bitCount(capacity) != 1 || channel.size() < tableOffset + (long) capacity * RECORD_SIZE) {
+            throw new IOException(file.getName() + " is truncated");
+        }
+
+        if (version == LEGACY_VERSION) {
+            buffer.putLong(HEADER_TABLE, table(tableOffset, capacity));
+            buffer.putInt(HEADER_MAX_REGIONS, maxRegions);
+            buffer.putInt(HEADER_VERSION, VERSION);
+            force();
+        }
+    }
+
+    @Override
+    public synchronized boolean needsMigration() throws IOException {
+        ensureOpen();
+        return buffer.getInt(HEADER_MIGRATED) == 0;
+    }
+
+    @Override
+    public synchronized void migrate(Map<String, Map<UUID, Integer>> wins) throws IOException {
+        ensureOpen();
+        for (Map.Entry<String, Map<UUID, Integer>> region : wins.entrySet()) {
+            for (Map.Entry<UUID, Integer> entry : region.getValue().entrySet()) {
+                int slot = findOrCreate(region.getKey(), entry.getKey());
+                if (slot >= 0) {
+                    buffer.putInt(slot + WINS, entry.getValue());
+                }
+            }
+        }
+
+        buffer.putInt(HEADER_MIGRATED, 1);
+        force();
+    }
+
+    @Override
+    public synchronized Map<UUID, Integer> loadWins(String regionName) throws IOException {
+        ensureOpen();
+        Map<UUID, Integer> wins = new HashMap<>();
+        Integer regionId = regionIds.get(regionName);
+        if (regionId == null) {
+            return wins;
+        }
+
+        for (int i = 0; i < capacity; i++) {
+            int slot = tableOffset + i * RECORD_SIZE;
+            if (buffer.get(slot + USED) != 0 && buffer.getInt(slot + REGION) == regionId && buffer.getInt(slot + WINS) > 0) {
+                wins.put(new UUID(buffer.getLong(slot + UUID_MOST), buffer.getLong(slot + UUID_LEAST)), buffer.getInt(slot + WINS));
+            }
+        }
+        return wins;
+    }
+
+    @Override
+    public synchronized Map<String, Integer> loadPlayerWins(UUID uuid) throws IOException {
+        ensureOpen();
+        Map<String, Integer> wins = new HashMap<>();
+        for (Map.Entry<String, Integer> region : regionIds.entrySet()) {
+            int slot = find(region.getValue(), uuid.getMostSignificantBits(), uuid.getLeastSignificantBits());
+            if (slot >= 0 && buffer.getInt(slot + WINS) > 0) {
+                wins.put(region.getKey(), buffer.getInt(slot + WINS));
+            }
+        }
+        return wins;
+    }
+
+    @Override
+    public synchronized List<Map.Entry<UUID, Integer>> getTopWins(String regionName, int limit) throws IOException {
+        ensureOpen();
+        List<Map.Entry<UUID, Integer>> top = new ArrayList<>();
+        Integer regionId = regionIds.get(regionName);
+        if (regionId == null || limit <= 0) {
+            return top;
+        }
+
+        // Keep the best entries in a min-heap of at most limit entries
+        PriorityQueue<Map.Entry<UUID, Integer>> heap = new PriorityQueue<>(limit, Map.Entry.comparingByValue());
+        for (int i = 0; i < capacity; i++) {
+            int slot = tableOffset + i * RECORD_SIZE;
+            if (buffer.get(slot + USED) == 0 || buffer.getInt(slot + REGION) != regionId) {
+                continue;
+            }
+
+            int wins = buffer.getInt(slot + WINS);
+            if (wins > 0 && (heap.size() < limit || wins > heap.peek().getValue())) {
+                heap.add(new AbstractMap.SimpleImmutableEntry<>(
+                    new UUID(buffer.getLong(slot + UUID_MOST), buffer.getLong(slot + UUID_LEAST)), wins));
+                if (heap.size() > limit) {
+                    heap.poll();
+                }
+            }
+        }
+
+        top.addAll(heap);
+        top.sort(Map.Entry.<UUID, Integer>comparingByValue().reversed());
+        return top;
+    }
+
+    @Override
+    public synchronized void saveWins(String regionName, UUID uuid, int wins) {
+        int slot = findOrCreate(regionName, uuid);
+        if (slot >= 0) {
+            buffer.putInt(slot + WINS, Math.max(0, wins));
+            buffer.putLong(slot + LAST_SEEN, System.currentTimeMillis());
+        }
+    }
+
+    @Override
+    public synchronized void addWins(String regionName, UUID uuid, int delta) {
+        int slot = findOrCreate(regionName, uuid);
+        if (slot >= 0) {
+            buffer.putInt(slot + WINS, Math.max(0, buffer.getInt(slot + WINS) + delta));
+            buffer.putLong(slot + LAST_SEEN, System.currentTimeMillis());
+        }
+    }
+
+    @Override
+    public synchronized void recordThrow(String regionName, UUID uuid) {
+        increment(regionName, uuid, SHOTS);
+    }
+
+    @Override
+    public synchronized void recordMake(String regionName, UUID uuid) {
+        increment(regionName, uuid, MAKES);
+    }
+
+    @Override
+    public synchronized void recordGame(String regionName, UUID uuid) {
+        increment(regionName, uuid, GAMES);
+    }
+
+    @Override
+    public void close() {
+        if (executor != null) {
+            // Let a running grow finish before the mapping goes away
+            executor.shutdown();
+            try {
+                executor.awaitTermination(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        synchronized (this) {
+            if (buffer != null) {
+                force();
+                unmap(buffer);
+                buffer = null;
+            }
+            try {
+                if (raf != null) {
+                    raf.close();
+                }
+            } catch (IOException e) {
+                logger.warning("Could not close " + file.getName() + ": " + e.getMessage());
+            }
+        }
+    }
+
+    private void ensureOpen() throws IOException {
+        if (buffer == null) {
+            throw new IOException(file.getName() + " is closed");
+        }
+    }
+
+    /**
+     * Add one to a counter of a record and touch its last seen time
+     */
+    private void increment(String regionName, UUID uuid, int field) {
+        int slot = findOrCreate(regionName, uuid);
+        if (slot >= 0) {
+            buffer.putInt(slot + field, buffer.getInt(slot + field) + 1);
+            buffer.putLong(slot + LAST_SEEN, System.currentTimeMillis());
+        }
+    }
+
+    /**
+     * Find the record of a player in a region, creating it if needed
+     *
+     * @return The byte offset of the record, or -1 if it cannot be stored
+     */
+    private int findOrCreate(String regionName, UUID uuid) {
+        if (buffer == null) {
+            return -1; // Closed, late writes during shutdown are dropped
+        }
+
+        Integer regionId = regionIds.get(regionName);
+        if (regionId == null) {
+            regionId = addRegion(regionName);
+            if (regionId < 0) {
+                return -1;
+            }
+        }
+
+        long msb = uuid.getMostSignificantBits();
+        long lsb = uuid.getLeastSignificantBits();
+        int slot = find(regionId, msb, lsb);
+        if (slot >= 0) {
+            return written(slot);
+        }
+
+        if (growing) {
+            // The storage thread is already building the bigger table
+            if (size + 1 >= capacity) {
+                logger.warning(file.getName() + " is full until the running grow completes, dropping a write");
+                return -1;
+            }
+        } else if ((size + 1) * 4 > capacity * 3) {
+            // The storage thread fell behind, grow here rather than lose the write
+            logger.warning(file.getName() + " is three quarters full, growing on the calling thread");
+            try {
+                grow();
+            } catch (IOException e) {
+                logger.severe("Could not grow " + file.getName() + ": " + e.getMessage());
+                return -1;
+            }
+        } else if ((size + 1) * 2 > capacity && !growQueued) {
+            // Keep probe chains short, but build the bigger table off the hot path
+            growQueued = true;
+            executor.execute(this::growQueued);
+        }
+
+        slot = probeFree(tableOffset, capacity, hash(regionId, msb, lsb));
+        buffer.put(slot + USED, (byte) 1);
+        buffer.putInt(slot + REGION, regionId);
+        buffer.putLong(slot + UUID_MOST, msb);
+        buffer.putLong(slot + UUID_LEAST, lsb);
+        buffer.putInt(slot + WINS, 0);
+        buffer.putInt(slot + GAMES, 0);
+        buffer.putInt(slot + SHOTS, 0);
+        buffer.putInt(slot + MAKES, 0);
+        buffer.putLong(slot + LAST_SEEN, 0);
+        buffer.putInt(HEADER_SIZE_FIELD, ++size);
+        return written(slot);
+    }
+
+    /**
+     * Note a write to a record the running grow has already copied
+     *
+     * @return The byte offset of the record
+     */
+    private int written(int slot) {
+        if (growing) {
+            int index = (slot - tableOffset) / RECORD_SIZE;
+            if (index < copied) {
+                rewritten.set(index);
+            }
+        }
+        return slot;
+    }
+
+    private int find(int regionId, long msb, long lsb) {
+        int index = hash(regionId, msb, lsb) & (capacity - 1);
+        while (true) {
+            int slot = tableOffset + index * RECORD_SIZE;
+            if (buffer.get(slot + USED) == 0) {
+                return -1;
+            }
+            if (buffer.getInt(slot + REGION) == regionId && buffer.getLong(slot + UUID_MOST) == msb
+                    && buffer.getLong(slot + UUID_LEAST) == lsb) {
+                return slot;
+            }
+            index = (index + 1) & (capacity - 1);
+        }
+    }
+
+    private int probeFree(int offset, int tableCapacity, int hash) {
+        int index = hash & (tableCapacity - 1);
+        while (buffer.get(offset + index * RECORD_SIZE + USED) != 0) {
+            index = (index + 1) & (tableCapacity - 1);
+        }
+        return offset + index * RECORD_SIZE;
+    }
+
+    /**
+     * Find the record of a key in the table being built, or the free slot
+     * it goes into
+     *
+     * @return The byte offset of the slot in {@link #growTable}
+     */
+    private int probeGrowTable(int regionId, long msb, long lsb) {
+        int index = hash(regionId, msb, lsb) & (growCapacity - 1);
+        while (true) {
+            int slot = index * RECORD_SIZE;
+            if (growTable.get(slot + USED) == 0 || (growTable.getInt(slot + REGION) == regionId
+                    && growTable.getLong(slot + UUID_MOST) == msb && growTable.getLong(slot + UUID_LEAST) == lsb)) {
+                return slot;
+            }
+            index = (index + 1) & (growCapacity - 1);
+        }
+    }
+
+    /**
+     * Register a region name in the header
+     *
+     * @return The region id, or -1 if the table is full
+     */
+    private int addRegion(String regionName) {
+        byte[] name = regionName.getBytes(StandardCharsets.UTF_8);
+        int id = regionIds.size();
+        if (id >= maxRegions || name.length > REGION_ENTRY_SIZE - 2) {
+            if (!regionsFullLogged) {
+                regionsFullLogged = true;
+                logger.warning("Cannot store stats for region " + regionName + " in " + file.getName()
+                    + ", it holds " + maxRegions + " regions with names up to " + (REGION_ENTRY_SIZE - 2) + " bytes");
+            }
+            return -1;
+        }
+
+        int offset = HEADER_SIZE + id * REGION_ENTRY_SIZE;
+        buffer.putShort(offset, (short) name.length);
+        for (int i = 0; i < name.length; i++) {
+            buffer.put(offset + 2 + i, name[i]);
+        }
+        buffer.putInt(HEADER_REGIONS, id + 1);
+        regionIds.put(regionName, id);
+        return id;
+    }
+
+    private String readRegionName(int id) {
+        int offset = HEADER_SIZE + id * REGION_ENTRY_SIZE;
+        byte[] name = new byte[buffer.getShort(offset)];
+        for (int i = 0; i < name.length; i++) {
+            name[i] = buffer.get(offset + 2 + i);
+        }
+        return new String(name, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Grow queued by a write once the table got half full. Storage thread.
+     * Writers only wait for the setup, one chunk of records or the final
+     * catch-up and swap; clearing and forcing the new table happen without
+     * the lock.
+     */
+    private void growQueued() {
+        synchronized (this) {
+            growQueued = false;
+            if (buffer == null || size * 2 <= capacity) {
+                return; // Closed, or already grown by a writer
+            }
+            try {
+                prepareGrow();
+            } catch (IOException e) {
+                logger.severe("Could not grow " + file.getName() + ": " + e.getMessage());
+                return;
+            }
+            growing = true;
+            copied = 0;
+            rewritten = new BitSet();
+        }
+
+        try {
+            clearGrowTable();
+            while (true) {
+                synchronized (this) {
+                    if (buffer == null) {
+                        return; // Closed while growing
+                    }
+                    int end = Math.min(capacity, copied + GROW_CHUNK);
+                    for (int i = copied; i < end; i++) {
+                        copyRecord(i);
+                    }
+                    copied = end;
+                    if (copied == capacity) {
+                        break;
+                    }
+                }
+            }
+            force(growTable);
+
+            synchronized (this) {
+                if (buffer == null) {
+                    return;
+                }
+                for (int i = rewritten.nextSetBit(0); i >= 0; i = rewritten.nextSetBit(i + 1)) {
+                    copyRecord(i);
+                }
+                force(growTable); // Only the records copied again are dirty
+                switchTable();
+            }
+            forceHeader();
+        } catch (IOException e) {
+            logger.severe("Could not grow " + file.getName() + ": " + e.getMessage());
+        } finally {
+            synchronized (this) {
+                growing = false;
+                rewritten = null;
+                unmap(growTable);
+                growTable = null;
+            }
+        }
+    }
+
+    /**
+     * Write the dirty pages of the mapping to disk
+     */
+    private void force() {
+        force(buffer);
+    }
+
+    private void force(MappedByteBuffer mapped) {
+        Object jfrEvent = flightRecorder.start(FlightRecorderBridge.Kind.STORAGE_FLUSH);
+        mapped.force();
+        flightRecorder.commit(FlightRecorderBridge.Kind.STORAGE_FLUSH, jfrEvent, null, null, size, "mmap");
+    }
+
+    /**
+     * Force only the header page, through a mapping of its own, so writers
+     * can keep using the main mapping meanwhile
+     */
+    private void forceHeader() throws IOException {
+        MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE);
+        force(header);
+        unmap(header);
+    }
+
+    /**
+     * Grow on the calling thread: build a table of twice the capacity, force
+     * it and switch the header to it
+     */
+    private void grow() throws IOException {
+        prepareGrow();
+        try {
+            clearGrowTable();
+            for (int i = 0; i < capacity; i++) {
+                copyRecord(i);
+            }
+            force(growTable);
+            switchTable();
+            force();
+        } finally {
+            if (growTable != null) {
+                unmap(growTable);
+                growTable = null;
+            }
+        }
+    }
+
+    /**
+     * Place a table of twice the capacity behind the current one, or at the
+     * start of the data area when it fits there, and map it on its own
+     */
+    private void prepareGrow() throws IOException {
+        int newCapacity = capacity * 2;
+        int dataOffset = HEADER_SIZE + maxRegions * REGION_ENTRY_SIZE;
+        long newOffset = dataOffset + (long) newCapacity * RECORD_SIZE <= tableOffset
+            ? dataOffset : tableOffset + (long) capacity * RECORD_SIZE;
+        long newLength = newOffset + (long) newCapacity * RECORD_SIZE;
+        if (newLength > Integer.MAX_VALUE) {
+            throw new IOException("the table cannot grow beyond " + capacity + " records");
+        }
+
+        if (channel.size() < newLength) {
+            raf.setLength(newLength);
+        }
+        growOffset = (int) newOffset;
+        growCapacity = newCapacity;
+        growTable = channel.map(FileChannel.MapMode.READ_WRITE, newOffset, (long) newCapacity * RECORD_SIZE);
+    }
+
+    /**
+     * Clear the new table; its space may hold an older table
+     */
+    private void clearGrowTable() {
+        for (int i = 0; i < growCapacity; i++) {
+            growTable.put(i * RECORD_SIZE + USED, (byte) 0);
+        }
+    }
+
+    /**
+     * Copy one record of the current table into the table being built,
+     * over its earlier copy if there is one
+     */
+    private void copyRecord(int index) {
+        int source = tableOffset + index * RECORD_SIZE;
+        if (buffer.get(source + USED) == 0) {
+            return;
+        }
+
+        int destination = probeGrowTable(buffer.getInt(source + REGION),
+            buffer.getLong(source + UUID_MOST), buffer.getLong(source + UUID_LEAST));
+        for (int b = 0; b < RECORD_SIZE; b++) {
+            growTable.put(destination + b, buffer.get(source + b));
+        }
+    }
+
+    /**
+     * Point the header at the new table, which must be on disk already, and
+     * map the grown file
+     */
+    private void switchTable() throws IOException {
+        buffer.putLong(HEADER_TABLE, table(growOffset, growCapacity));
+        tableOffset = growOffset;
+        capacity = growCapacity;
+        map();
+    }
+
+    /**
+     * Map the whole file, releasing the previous mapping
+     */
+    private void map() throws IOException {
+        MappedByteBuffer previous = buffer;
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, channel.size());
+        if (previous != null) {
+            unmap(previous);
+        }
+    }
+
+    private static long table(int offset, int tableCapacity) {
+        return ((long) offset << 32) | (tableCapacity & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Release a mapping now instead of when it is collected. The buffer must
+     * not be touched afterwards; every access goes through {@link #buffer}
+     * under the lock, so no other reference exists.
+     */
+    private static void unmap(MappedByteBuffer mapped) {
+        try {
+            // Java 9 and later
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            Method invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+            Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+            theUnsafe.setAccessible(true);
+            invokeCleaner.invoke(theUnsafe.get(null), mapped);
+        } catch (NoSuchMethodException e) {
+            try {
+                // Java 8
+                Method cleaner = mapped.getClass().getMethod("cleaner");
+                cleaner.setAccessible(true);
+                Object instance = cleaner.invoke(mapped);
+                if (instance != null) {
+                    instance.getClass().getMethod("clean").invoke(instance);
+                }
+            } catch (ReflectiveOperationException | RuntimeException ignored) {
+                // Released when the buffer is collected
+            }
+        } catch (ReflectiveOperationException | RuntimeException ignored) {
+            // Released when the buffer is collected
+        }
+    }
+
+    private static int hash(int regionId, long msb, long lsb) {
+        long h = msb ^ lsb ^ ((long) regionId * 0x9E3779B97F4A7C15L);
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        return (int) h;
+    }
+}
@@ -0,0 +1,675 @@
+package nl.djorr.basketball.storage;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.BufferedInputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Records every throw, make, miss, win and game boundary per court.
+ * <p>
+ * The main thread writes events into a fixed-size single-producer ring
+ * buffer and never blocks; when the ring is full events are dropped and
+ * counted. A background thread drains the ring, appends each batch as a
+ * gzip member to the segment of that day ({@code yyyy-MM-dd.events.gz}) and
+ * writes one index line per finished game ({@code yyyy-MM-dd.idx}).
+ * Queries only read the small index files, and the segments of the days a
+ * game was played when its events are requested.
+ *
+ * @author Djorr
+ */
+public class MatchHistory {
+
+    public static final byte THROW = 1;
+    public static final byte MAKE = 2;
+    public static final byte MISS = 3;
+    public static final byte WIN = 4;
+    public static final byte GAME_START = 5;
+    public static final byte GAME_END = 6;
+
+    private static final String SEGMENT_SUFFIX = ".events.gz";
+    private static final String INDEX_SUFFIX = ".idx";
+    private static final String NO_WINNER = "-";
+
+    private final File directory;
+    private final Logger logger;
+    private final long flushIntervalMillis;
+    private final int retentionDays;
+    private final ZoneId zone;
+
+    // Ring buffer, written by the main thread and drained by the writer thread
+    private final int mask;
+    private final byte[] types;
+    private final long[] times;
+    private final String[] courts;
+    private final long[] gameIds;
+    private final long[] playerMost;
+    private final long[] playerLeast;
+    private final int[] values;
+    private final AtomicLong head = new AtomicLong();
+    private final AtomicLong tail = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+
+    // Main thread only
+    private final Map<String, Long> courtGames;
+    private final Map<String, UUID> openShots;
+    private long nextGameId;
+
+    // Writer thread only
+    private final Map<Long, OpenGame> openGames;
+    private ScheduledExecutorService executor;
+
+    /**
+     * Constructor for MatchHistory
+     *
+     * @param directory The directory for segments and indexes
+     * @param logger The logger to report errors to
+     * @param bufferSize Number of events the ring can hold, rounded up to a power of two
+     * @param flushIntervalMillis Milliseconds between writes
+     * @param retentionDays Days of history to keep, 0 to keep everything
+     */
+    public MatchHistory(File directory, Logger logger, int bufferSize, long flushIntervalMillis, int retentionDays) {
+        this.directory = directory;
+        this.logger = logger;
+        this.flushIntervalMillis = Math.max(1, flushIntervalMillis);
+        this.retentionDays = retentionDays;
+        this.zone = ZoneId.systemDefault();
+
+        int capacity = 64;
+        while (capacity < bufferSize) {
+            capacity <<= 1;
+        }
+        this.mask = capacity - 1;
+        this.types = new byte[capacity];
+        this.times = new long[capacity];
+        this.courts = new String[capacity];
+        this.gameIds = new long[capacity];
+        this.playerMost = new long[capacity];
+        this.playerLeast = new long[capacity];
+        this.values = new int[capacity];
+
+        this.courtGames = new HashMap<>();
+        this.openShots = new HashMap<>();
+        this.openGames = new LinkedHashMap<>();
+        this.nextGameId = System.currentTimeMillis() * 1000;
+    }
+
+    /**
+     * Remove expired days and start the writer thread
+     *
+     * @throws IOException If the directory could not be created
+     */
+    public void open() throws IOException {
+        if (!directory.exists() && !directory.mkdirs()) {
+            throw new IOException("Could not create " + directory);
+        }
+        deleteExpiredDays();
+
+        executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "Basketball-History");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.scheduleWithFixedDelay(this::drain, flushIntervalMillis, flushIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stop the writer thread and write what is left, including unfinished games
+     */
+    public void close() {
+        if (executor == null) {
+            return;
+        }
+
+        executor.shutdown();
+        try {
+            executor.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        executor = null;
+
+        // The executor is gone, so it is safe to drain from this thread
+        drain();
+        List<OpenGame> unfinished = new ArrayList<>(openGames.values());
+        openGames.clear();
+        for (OpenGame game : unfinished) {
+            writeIndex(game, game.lastEvent);
+        }
+    }
+
+    /**
+     * Record a throw. A previous throw on the court that did not score is recorded as a miss.
+     *
+     * @param court The region name
+     * @param player The thrower
+     */
+    public void recordThrow(String court, UUID player) {
+        closeOpenShot(court);
+        openShots.put(court, player);
+        publish(THROW, court, player, 0);
+    }
+
+    /**
+     * Record a made basket
+     *
+     * @param court The region name
+     * @param player The scorer
+     * @param score The scorer's new score
+     */
+    public void recordMake(String court, UUID player, int score) {
+        openShots.remove(court);
+        publish(MAKE, court, player, score);
+    }
+
+    /**
+     * Record a win
+     *
+     * @param court The region name
+     * @param player The winner
+     * @param wins The winner's new number of wins
+     */
+    public void recordWin(String court, UUID player, int wins) {
+        publish(WIN, court, player, wins);
+    }
+
+    /**
+     * Record the end of the current game on a court
+     *
+     * @param court The region name
+     */
+    public void recordGameEnd(String court) {
+        if (!courtGames.containsKey(court)) {
+            return;
+        }
+        closeOpenShot(court);
+        publish(GAME_END, court, null, 0);
+        courtGames.remove(court);
+    }
+
+    /**
+     * Get the number of events dropped because the ring buffer was full
+     *
+     * @return The number of dropped events
+     */
+    public long getDroppedEvents() {
+        return dropped.get();
+    }
+
+    /**
+     * Get the number of events waiting in the ring buffer
+     *
+     * @return The number of buffered events
+     */
+    public long getBufferedEvents() {
+        return Math.max(0, head.get() - tail.get());
+    }
+
+    /**
+     * Get the most recent games on a court. Blocking, do not call on the main thread.
+     *
+     * @param court The region name
+     * @param limit The maximum number of games
+     * @return Games, newest first
+     */
+    public List<GameSummary> getRecentGames(String court, int limit) {
+        List<GameSummary> games = new ArrayList<>();
+        for (File index : listFiles(INDEX_SUFFIX, true)) {
+            List<GameSummary> day = readIndex(index);
+            Collections.reverse(day);
+            for (GameSummary game : day) {
+                if (game.getCourt().equals(court)) {
+                    games.add(game);
+                    if (games.size() >= limit) {
+                        return games;
+                    }
+                }
+            }
+        }
+        return games;
+    }
+
+    /**
+     * Get the most recent games a player took part in. Blocking, do not call on the main thread.
+     *
+     * @param player The player UUID
+     * @param limit The maximum number of games
+     * @return Games, newest first
+     */
+    public List<GameSummary> getPlayerGames(UUID player, int limit) {
+        List<GameSummary> games = new ArrayList<>();
+        for (File index : listFiles(INDEX_SUFFIX, true)) {
+            List<GameSummary> day = readIndex(index);
+            Collections.reverse(day);
+            for (GameSummary game : day) {
+                if (game.getPlayers().contains(player)) {
+                    games.add(game);
+                    if (games.size() >= limit) {
+                        return games;
+                    }
+                }
+            }
+        }
+        return games;
+    }
+
+    /**
+     * Get all events of a game. Only the segments of the days the game was
+     * played are read. Blocking, do not call on the main thread.
+     *
+     * @param game The game
+     * @return The events in order
+     */
+    public List<MatchEvent> getGameEvents(GameSummary game) {
+        List<MatchEvent> events = new ArrayList<>();
+        LocalDate day = toDay(game.getStartTime());
+        LocalDate last = toDay(game.getEndTime());
+
+        while (!day.isAfter(last)) {
+            File segment = new File(directory, day + SEGMENT_SUFFIX);
+            if (segment.exists()) {
+                readSegment(segment, game.getGameId(), events);
+            }
+            day = day.plusDays(1);
+        }
+        return events;
+    }
+
+    /**
+     * Record a miss for a throw on the court that never scored
+     */
+    private void closeOpenShot(String court) {
+        UUID previous = openShots.remove(court);
+        if (previous != null) {
+            publish(MISS, court, previous, 0);
+        }
+    }
+
+    /**
+     * Write an event into the ring buffer, starting a game on the court if needed
+     */
+    private void publish(byte type, String court, UUID player, int value) {
+        Long gameId = courtGames.get(court);
+        if (gameId == null) {
+            gameId = nextGameId++;
+            courtGames.put(court, gameId);
+            offer(GAME_START, court, gameId, null, 0);
+        }
+        offer(type, court, gameId, player, value);
+    }
+
+    private void offer(byte type, String court, long gameId, UUID player, int value) {
+        long position = head.get();
+        if (position - tail.get() > mask) {
+            dropped.incrementAndGet();
+            return;
+        }
+
+        int slot = (int) (position & mask);
+        types[slot] = type;
+        times[slot] = System.currentTimeMillis();
+        courts[slot] = court;
+        gameIds[slot] = gameId;
+        playerMost[slot] = player != null ? player.getMostSignificantBits() : 0;
+        playerLeast[slot] = player != null ? player.getLeastSignificantBits() : 0;
+        values[slot] = value;
+
+        // Publish after the slot is written
+        head.lazySet(position + 1);
+    }
+
+    /**
+     * Drain the ring buffer into the day segments and write finished games to the index
+     */
+    private void drain() {
+        try {
+            long position = tail.get();
+            long end = head.get();
+            if (position == end) {
+                return;
+            }
+
+            Map<LocalDate, ByteArrayOutputStream> batches = new LinkedHashMap<>();
+            List<Object[]> finished = new ArrayList<>();
+            LocalDate day = null;
+            long dayStart = 0;
+            long dayEnd = 0;
+            DataOutputStream out = null;
+
+            for (; position < end; position++) {
+                int slot = (int) (position & mask);
+                long time = times[slot];
+
+                // Only resolve the date when the event falls outside the current day
+                if (day == null || time < dayStart || time >= dayEnd) {
+                    day = toDay(time);
+                    dayStart = day.atStartOfDay(zone).toInstant().toEpochMilli();
+                    dayEnd = day.plusDays(1).atStartOfDay(zone).toInstant().toEpochMilli();
+                    ByteArrayOutputStream batch = batches.get(day);
+                    if (batch == null) {
+                        batch = new ByteArrayOutputStream();
+                        batches.put(day, batch);
+                    }
+                    out = new DataOutputStream(batch);
+                }
+
+                MatchEvent event = new MatchEvent(types[slot], time, courts[slot], gameIds[slot],
+                    playerMost[slot] == 0 && playerLeast[slot] == 0 ? null : new UUID(playerMost[slot], playerLeast[slot]),
+                    values[slot]);
+                courts[slot] = null;
+                writeEvent(out, event);
+                trackGame(event, finished);
+            }
+            tail.lazySet(position);
+
+            for (Map.Entry<LocalDate, ByteArrayOutputStream> batch : batches.entrySet()) {
+                appendSegment(batch.getKey(), batch.getValue().toByteArray());
+            }
+            for (Object[] game : finished) {
+                writeIndex((OpenGame) game[0], (Long) game[1]);
+            }
+        } catch (Throwable e) {
+            logger.log(Level.SEVERE, "Could not write match history", e);
+        }
+    }
+
+    /**
+     * Keep track of who played in which game, so finished games can be indexed
+     */
+    private void trackGame(MatchEvent event, List<Object[]> finished) {
+        OpenGame game = openGames.get(event.getGameId());
+        if (game == null) {
+            game = new OpenGame(event.getGameId(), event.getCourt(), event.getTime());
+            openGames.put(event.getGameId(), game);
+        }
+        game.lastEvent = event.getTime();
+
+        if (event.getPlayer() != null) {
+            game.players.add(event.getPlayer());
+        }
+        if (event.getType() == WIN) {
+            game.winner = event.getPlayer();
+        } else if (event.getType() == GAME_END) {
+            openGames.remove(event.getGameId());
+            finished.add(new Object[] {game, event.getTime()});
+        }
+    }
+
+    private void writeEvent(DataOutputStream out, MatchEvent event) throws IOException {
+        out.writeByte(event.getType());
+        out.writeLong(event.getTime());
+        out.writeUTF(event.getCourt());
+        out.writeLong(event.getGameId());
+        UUID player = event.getPlayer();
+        out.writeLong(player != null ? player.getMostSignificantBits() : 0);
+        out.writeLong(player != null ? player.getLeastSignificantBits() : 0);
+        out.writeInt(event.getValue());
+    }
+
+    /**
+     * Append a batch to a day segment as its own gzip member
+     */
+    private void appendSegment(LocalDate day, byte[] data) throws IOException {
+        try (GZIPOutputStream out = new GZIPOutputStream(new FileOutputStream(new File(directory, day + SEGMENT_SUFFIX), true))) {
+            out.write(data);
+        }
+    }
+
+    /**
+     * Append a game to the index of the day it ended.
+     * Format: gameId, court, start, end, winner, players (comma separated), tab separated.
+     */
+    private void writeIndex(OpenGame game, long endTime) {
+        StringBuilder players = new StringBuilder();
+        for (UUID player : game.players) {
+            if (players.length() > 0) {
+                players.append(',');
+            }
+            players.append(player);
+        }
+
+        String line = game.gameId + "\t" + game.court + "\t" + game.startTime + "\t" + endTime + "\t"
+            + (game.winner != null ? game.winner.toString() : NO_WINNER) + "\t" + players + "\n";
+        File index = new File(directory, toDay(endTime) + INDEX_SUFFIX);
+        try (BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(index, true), StandardCharsets.UTF_8))) {
+            writer.write(line);
+        } catch (IOException e) {
+            logger.log(Level.SEVERE, "Could not write match history index", e);
+        }
+    }
+
+    private List<GameSummary> readIndex(File index) {
+        List<GameSummary> games = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(index), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] parts = line.split("\t", -1);
+                if (parts.length < 6) {
+                    continue;
+                }
+
+                Set<UUID> players = new LinkedHashSet<>();
+                if (!parts[5].isEmpty()) {
+                    for (String player : parts[5].split(",")) {
+                        players.add(UUID.fromString(player));
+                    }
+                }
+                UUID winner = NO_WINNER.equals(parts[4]) ? null : UUID.fromString(parts[4]);
+                games.add(new GameSummary(Long.parseLong(parts[0]), parts[1], Long.parseLong(parts[2]),
+                    Long.parseLong(parts[3]), winner, players));
+            }
+        } catch (IOException | IllegalArgumentException e) {
+            logger.warning("Could not read match history index " + index.getName() + ": " + e.getMessage());
+        }
+        return games;
+    }
+
+    private void readSegment(File segment, long gameId, List<MatchEvent> events) {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new GZIPInputStream(new FileInputStream(segment))))) {
+            while (true) {
+                byte type;
+                try {
+                    type = in.readByte();
+                } catch (EOFException e) {
+                    break;
+                }
+                long time = in.readLong();
+                String court = in.readUTF();
+                long id = in.readLong();
+                long most = in.readLong();
+                long least = in.readLong();
+                int value = in.readInt();
+
+                if (id == gameId) {
+                    events.add(new MatchEvent(type, time, court, id, most == 0 && least == 0 ? null : new UUID(most, least), value));
+                }
+            }
+        } catch (IOException e) {
+            // A torn last member only loses the events of that batch
+            logger.warning("Could not fully read match history segment " + segment.getName() + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Delete days older than the retention period
+     */
+    private void deleteExpiredDays() {
+        if (retentionDays <= 0) {
+            return;
+        }
+
+        String oldest = LocalDate.now(zone).minusDays(retentionDays).toString();
+        File[] files = directory.listFiles((dir, name) -> name.endsWith(SEGMENT_SUFFIX) || name.endsWith(INDEX_SUFFIX));
+        if (files == null) {
+            return;
+        }
+        for (File file : files) {
+            // Day names sort lexicographically
+            if (file.getName().substring(0, Math.min(10, file.getName().length())).compareTo(oldest) < 0 && !file.delete()) {
+                logger.warning("Could not delete expired match history " + file.getName());
+            }
+        }
+    }
+
+    private List<File> listFiles(String suffix, boolean newestFirst) {
+        File[] files = directory.listFiles((dir, name) -> name.endsWith(suffix));
+        if (files == null) {
+            return Collections.emptyList();
+        }
+        Arrays.sort(files, (a, b) -> newestFirst ? b.getName().compareTo(a.getName()) : a.getName().compareTo(b.getName()));
+        return Arrays.asList(files);
+    }
+
+    private LocalDate toDay(long time) {
+        return Instant.ofEpochMilli(time).atZone(zone).toLocalDate();
+    }
+
+    /**
+     * Game that has started but not ended yet, tracked on the writer thread
+     */
+    private static class OpenGame {
+        private final long gameId;
+        private final String court;
+        private final long startTime;
+        private final Set<UUID> players = new LinkedHashSet<>();
+        private UUID winner;
+        private long lastEvent;
+
+        private OpenGame(long gameId, String court, long startTime) {
+            this.gameId = gameId;
+            this.court = court;
+            this.startTime = startTime;
+            this.lastEvent = startTime;
+        }
+    }
+
+    /**
+     * A recorded event
+     */
+    public static class MatchEvent {
+        private final byte type;
+        private final long time;
+        private final String court;
+        private final long gameId;
+        private final UUID player;
+        private final int value;
+
+        public MatchEvent(byte type, long time, String court, long gameId, UUID player, int value) {
+            this.type = type;
+            this.time = time;
+            this.court = court;
+            this.gameId = gameId;
+            this.player = player;
+            this.value = value;
+        }
+
+        public byte getType() {
+            return type;
+        }
+
+        public long getTime() {
+            return time;
+        }
+
+        public String getCourt() {
+            return court;
+        }
+
+        public long getGameId() {
+            return gameId;
+        }
+
+        /**
+         * @return The player, or null for game boundaries
+         */
+        public UUID getPlayer() {
+            return player;
+        }
+
+        /**
+         * @return The new score for makes, the new wins for wins, otherwise 0
+         */
+        public int getValue() {
+            return value;
+        }
+    }
+
+    /**
+     * Index entry of a game
+     */
+    public static class GameSummary {
+        private final long gameId;
+        private final String court;
+        private final long startTime;
+        private final long endTime;
+        private final UUID winner;
+        private final Set<UUID> players;
+
+        public GameSummary(long gameId, String court, long startTime, long endTime, UUID winner, Set<UUID> players) {
+            this.gameId = gameId;
+            this.court = court;
+            this.startTime = startTime;
+            this.endTime = endTime;
+            this.winner = winner;
+            this.players = Collections.unmodifiableSet(players);
+        }
+
+        public long getGameId() {
+            return gameId;
+        }
+
+        public String getCourt() {
+            return court;
+        }
+
+        public long getStartTime() {
+            return startTime;
+        }
+
+        public long getEndTime() {
+            return endTime;
+        }
+
+        /**
+         * @return The winner, or null if the game ended without one
+         */
+        public UUID getWinner() {
+            return winner;
+        }
+
+        public Set<UUID> getPlayers() {
+            return players;
+        }
+    }
+}
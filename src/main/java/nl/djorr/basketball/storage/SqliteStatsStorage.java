@@ -0,0 +1,403 @@
+package nl.djorr.basketball.storage;
+
+import nl.djorr.basketball.utils.FlightRecorderBridge;
+
+import java.io.File;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * SQLite implementation of {@link StatsStorage}. The driver ships with the
+ * server, so no extra dependency is needed.
+ * <p>
+ * Updates are coalesced per (region, player) and written in one batched
+ * transaction per flush interval on a dedicated thread. Increments for
+ * players that are not in memory are applied in the same transaction, after
+ * the absolute updates.
+ *
+ * @author Djorr
+ */
+public class SqliteStatsStorage implements StatsStorage {
+
+    private static final String MIGRATION_KEY = "yaml_migrated";
+
+    private final File databaseFile;
+    private final Logger logger;
+    private final FlightRecorderBridge flightRecorder;
+    private final long flushIntervalMillis;
+    private final Object connectionLock = new Object();
+    private final Object pendingLock = new Object();
+    private Map<WinsKey, Integer> pending;
+    private Map<WinsKey, Integer> pendingDeltas;
+    private ScheduledExecutorService executor;
+    private Connection connection;
+
+    /**
+     * Constructor for SqliteStatsStorage
+     *
+     * @param databaseFile The database file
+     * @param logger The logger to report errors to
+     * @param flightRecorder The bridge that flushes are reported to
+     * @param flushIntervalMillis Milliseconds between batched writes
+     */
+    public SqliteStatsStorage(File databaseFile, Logger logger, FlightRecorderBridge flightRecorder, long flushIntervalMillis) {
+        this.databaseFile = databaseFile;
+        this.logger = logger;
+        this.flightRecorder = flightRecorder;
+        this.flushIntervalMillis = Math.max(1, flushIntervalMillis);
+        this.pending = new LinkedHashMap<>();
+        this.pendingDeltas = new LinkedHashMap<>();
+    }
+
+    @Override
+    public void open() throws IOException {
+        try {
+            Class.forName("org.sqlite.JDBC");
+            connection = DriverManager.getConnection("jdbc:sqlite:" + databaseFile.getAbsolutePath());
+
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("PRAGMA journal_mode=WAL");
+                statement.execute("PRAGMA synchronous=NORMAL");
+                statement.execute("CREATE TABLE IF NOT EXISTS basketball_wins ("
+                    + "region TEXT NOT NULL, "
+                    + "uuid CHAR(36) NOT NULL, "
+                    + "wins INTEGER NOT NULL, "
+                    + "PRIMARY KEY (region, uuid))");
+                statement.execute("CREATE INDEX IF NOT EXISTS idx_basketball_wins_top ON basketball_wins (region, wins DESC)");
+                statement.execute("CREATE INDEX IF NOT EXISTS idx_basketball_wins_player ON basketball_wins (uuid)");
+                statement.execute("CREATE TABLE IF NOT EXISTS basketball_meta ("
+                    + "meta_key TEXT PRIMARY KEY, "
+                    + "meta_value TEXT NOT NULL)");
+            }
+        } catch (ClassNotFoundException | SQLException e) {
+            throw new IOException("Could not open " + databaseFile.getName(), e);
+        }
+
+        executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "Basketball-Storage");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.scheduleWithFixedDelay(this::flush, flushIntervalMillis, flushIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public boolean needsMigration() throws IOException {
+        synchronized (connectionLock) {
+            try (PreparedStatement statement = connection.prepareStatement(
+                    "SELECT meta_value FROM basketball_meta WHERE meta_key = ?")) {
+                statement.setString(1, MIGRATION_KEY);
+                try (ResultSet result = statement.executeQuery()) {
+                    return !result.next();
+                }
+            } catch (SQLException e) {
+                throw new IOException(e);
+            }
+        }
+    }
+
+    @Override
+    public void migrate(Map<String, Map<UUID, Integer>> wins) throws IOException {
+        synchronized (connectionLock) {
+            try {
+                connection.setAutoCommit(false);
+                try (PreparedStatement upsert = connection.prepareStatement(
+                        "INSERT OR REPLACE INTO basketball_wins (region, uuid, wins) VALUES (?, ?, ?)");
+                     PreparedStatement marker = connection.prepareStatement(
+                        "INSERT OR REPLACE INTO basketball_meta (meta_key, meta_value) VALUES (?, ?)")) {
+
+                    for (Map.Entry<String, Map<UUID, Integer>> region : wins.entrySet()) {
+                        for (Map.Entry<UUID, Integer> entry : region.getValue().entrySet()) {
+                            upsert.setString(1, region.getKey());
+                            upsert.setString(2, entry.getKey().toString());
+                            upsert.setInt(3, entry.getValue());
+                            upsert.addBatch();
+                        }
+                    }
+                    upsert.executeBatch();
+
+                    marker.setString(1, MIGRATION_KEY);
+                    marker.setString(2, String.valueOf(System.currentTimeMillis()));
+                    marker.executeUpdate();
+                    connection.commit();
+                } catch (SQLException e) {
+                    connection.rollback();
+                    throw e;
+                } finally {
+                    connection.setAutoCommit(true);
+                }
+            } catch (SQLException e) {
+                throw new IOException(e);
+            }
+        }
+    }
+
+    @Override
+    public Map<UUID, Integer> loadWins(String regionName) throws IOException {
+        Map<UUID, Integer> wins = new HashMap<>();
+        synchronized (connectionLock) {
+            try (PreparedStatement statement = connection.prepareStatement(
+                    "SELECT uuid, wins FROM basketball_wins WHERE region = ?")) {
+                statement.setString(1, regionName);
+                try (ResultSet result = statement.executeQuery()) {
+                    while (result.next()) {
+                        wins.put(UUID.fromString(result.getString(1)), result.getInt(2));
+                    }
+                }
+            } catch (SQLException e) {
+                throw new IOException(e);
+            }
+        }
+        return wins;
+    }
+
+    @Override
+    public Map<String, Integer> loadPlayerWins(UUID uuid) throws IOException {
+        Map<String, Integer> wins = new HashMap<>();
+        synchronized (connectionLock) {
+            try (PreparedStatement statement = connection.prepareStatement(
+                    "SELECT region, wins FROM basketball_wins WHERE uuid = ?")) {
+                statement.setString(1, uuid.toString());
+                try (ResultSet result = statement.executeQuery()) {
+                    while (result.next()) {
+                        wins.put(result.getString(1), result.getInt(2));
+                    }
+                }
+            } catch (SQLException e) {
+                throw new IOException(e);
+            }
+
+            // Writes that are still queued are newer than what is on disk
+            synchronized (pendingLock) {
+                for (Map.Entry<WinsKey, Integer> entry : pending.entrySet()) {
+                    if (entry.getKey().uuid.equals(uuid)) {
+                        wins.put(entry.getKey().regionName, entry.getValue());
+                    }
+                }
+                for (Map.Entry<WinsKey, Integer> entry : pendingDeltas.entrySet()) {
+                    if (entry.getKey().uuid.equals(uuid)) {
+                        wins.merge(entry.getKey().regionName, entry.getValue(), Integer::sum);
+                    }
+                }
+            }
+        }
+        return wins;
+    }
+
+    @Override
+    public List<Map.Entry<UUID, Integer>> getTopWins(String regionName, int limit) throws IOException {
+        List<Map.Entry<UUID, Integer>> top = new ArrayList<>();
+        synchronized (connectionLock) {
+            try (PreparedStatement statement = connection.prepareStatement(
+                    "SELECT uuid, wins FROM basketball_wins WHERE region = ? ORDER BY wins DESC LIMIT ?")) {
+                statement.setString(1, regionName);
+                statement.setInt(2, limit);
+                try (ResultSet result = statement.executeQuery()) {
+                    while (result.next()) {
+                        top.add(new AbstractMap.SimpleImmutableEntry<>(UUID.fromString(result.getString(1)), result.getInt(2)));
+                    }
+                }
+            } catch (SQLException e) {
+                throw new IOException(e);
+            }
+        }
+        return top;
+    }
+
+    @Override
+    public void saveWins(String regionName, UUID uuid, int wins) {
+        WinsKey key = new WinsKey(regionName, uuid);
+        synchronized (pendingLock) {
+            pending.put(key, wins);
+            // The value in memory was loaded with queued increments merged in
+            pendingDeltas.remove(key);
+        }
+    }
+
+    @Override
+    public void addWins(String regionName, UUID uuid, int delta) {
+        WinsKey key = new WinsKey(regionName, uuid);
+        synchronized (pendingLock) {
+            Integer wins = pending.get(key);
+            if (wins != null) {
+                pending.put(key, Math.max(0, wins + delta));
+            } else {
+                pendingDeltas.merge(key, delta, Integer::sum);
+            }
+        }
+    }
+
+    @Override
+    public int getQueueDepth() {
+        synchronized (pendingLock) {
+            return pending.size() + pendingDeltas.size();
+        }
+    }
+
+    @Override
+    public void close() {
+        if (executor != null) {
+            executor.shutdown();
+            try {
+                executor.awaitTermination(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            executor = null;
+        }
+
+        // The executor is gone, so it is safe to flush from this thread
+        flush();
+
+        synchronized (connectionLock) {
+            if (connection != null) {
+                try {
+                    connection.close();
+                } catch (SQLException e) {
+                    logger.log(Level.WARNING, "Could not close " + databaseFile.getName(), e);
+                }
+                connection = null;
+            }
+        }
+    }
+
+    /**
+     * Write all queued updates in one transaction
+     */
+    private void flush() {
+        // Swap under the connection lock so readers never see a batch that is neither queued nor committed
+        synchronized (connectionLock) {
+            if (connection == null) {
+                return;
+            }
+
+            Map<WinsKey, Integer> batch;
+            Map<WinsKey, Integer> deltas;
+            synchronized (pendingLock) {
+                if (pending.isEmpty() && pendingDeltas.isEmpty()) {
+                    return;
+                }
+                batch = pending;
+                deltas = pendingDeltas;
+                pending = new LinkedHashMap<>();
+                pendingDeltas = new LinkedHashMap<>();
+            }
+
+            Object jfrEvent = flightRecorder.start(FlightRecorderBridge.Kind.STORAGE_FLUSH);
+            try {
+                connection.setAutoCommit(false);
+                try (PreparedStatement upsert = connection.prepareStatement(
+                        "INSERT OR REPLACE INTO basketball_wins (region, uuid, wins) VALUES (?, ?, ?)");
+                     PreparedStatement delete = connection.prepareStatement(
+                        "DELETE FROM basketball_wins WHERE region = ? AND uuid = ?");
+                     PreparedStatement insert = connection.prepareStatement(
+                        "INSERT OR IGNORE INTO basketball_wins (region, uuid, wins) VALUES (?, ?, 0)");
+                     PreparedStatement increment = connection.prepareStatement(
+                        "UPDATE basketball_wins SET wins = MAX(0, wins + ?) WHERE region = ? AND uuid = ?")) {
+
+                    for (Map.Entry<WinsKey, Integer> entry : batch.entrySet()) {
+                        WinsKey key = entry.getKey();
+                        if (entry.getValue() > 0) {
+                            upsert.setString(1, key.regionName);
+                            upsert.setString(2, key.uuid.toString());
+                            upsert.setInt(3, entry.getValue());
+                            upsert.addBatch();
+                        } else {
+                            delete.setString(1, key.regionName);
+                            delete.setString(2, key.uuid.toString());
+                            delete.addBatch();
+                        }
+                    }
+                    upsert.executeBatch();
+                    delete.executeBatch();
+
+                    for (Map.Entry<WinsKey, Integer> entry : deltas.entrySet()) {
+                        WinsKey key = entry.getKey();
+                        insert.setString(1, key.regionName);
+                        insert.setString(2, key.uuid.toString());
+                        insert.addBatch();
+                        increment.setInt(1, entry.getValue());
+                        increment.setString(2, key.regionName);
+                        increment.setString(3, key.uuid.toString());
+                        increment.addBatch();
+                    }
+                    insert.executeBatch();
+                    increment.executeBatch();
+                    connection.commit();
+                } catch (SQLException e) {
+                    connection.rollback();
+                    throw e;
+                } finally {
+                    connection.setAutoCommit(true);
+                }
+                flightRecorder.commit(FlightRecorderBridge.Kind.STORAGE_FLUSH, jfrEvent, null, null,
+                    batch.size() + deltas.size(), "sqlite");
+            } catch (SQLException e) {
+                logger.log(Level.SEVERE, "Could not write " + (batch.size() + deltas.size()) + " wins updates, retrying next flush", e);
+                requeue(batch, deltas);
+            }
+        }
+    }
+
+    /**
+     * Put a failed batch back without overwriting newer updates
+     */
+    private void requeue(Map<WinsKey, Integer> batch, Map<WinsKey, Integer> deltas) {
+        synchronized (pendingLock) {
+            for (Map.Entry<WinsKey, Integer> entry : batch.entrySet()) {
+                if (!pending.containsKey(entry.getKey())) {
+                    pending.put(entry.getKey(), entry.getValue());
+                }
+            }
+            for (Map.Entry<WinsKey, Integer> entry : deltas.entrySet()) {
+                // A newer absolute value already includes the increment
+                if (!pending.containsKey(entry.getKey())) {
+                    pendingDeltas.merge(entry.getKey(), entry.getValue(), Integer::sum);
+                }
+            }
+        }
+    }
+
+    /**
+     * Region and player pair
+     */
+    private static final class WinsKey {
+        private final String regionName;
+        private final UUID uuid;
+
+        private WinsKey(String regionName, UUID uuid) {
+            this.regionName = regionName;
+            this.uuid = uuid;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (this == other) return true;
+            if (!(other instanceof WinsKey)) return false;
+            WinsKey key = (WinsKey) other;
+            return regionName.equals(key.regionName) && uuid.equals(key.uuid);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * regionName.hashCode() + uuid.hashCode();
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package nl.djorr.basketball.storage;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Message bus that carries wins deltas between servers. Implementations are
+ * only called from the sync thread, never from the main thread, and must
+ * deliver the deltas of one origin in order.
+ *
+ * @author Djorr
+ */
+public interface StatsBus {
+
+    /**
+     * Connect to the bus
+     *
+     * @throws IOException If the bus could not be opened
+     */
+    void open() throws IOException;
+
+    /**
+     * Get the highest sequence number this server published that is still on
+     * the bus, so numbering can continue after a lost state file
+     *
+     * @return The sequence number, 0 if unknown
+     * @throws IOException If the bus could not be read
+     */
+    default long getPublishedSequence() throws IOException {
+        return 0;
+    }
+
+    /**
+     * Publish a batch of deltas of this server
+     *
+     * @param deltas The deltas
+     * @throws IOException If the batch could not be published, it is retried then
+     */
+    void publish(List<WinsDelta> deltas) throws IOException;
+
+    /**
+     * Receive deltas published by other servers
+     *
+     * @param max The maximum number of deltas to return
+     * @return The deltas, empty if there are none
+     * @throws IOException If the bus could not be read
+     */
+    List<WinsDelta> poll(int max) throws IOException;
+
+    /**
+     * Mark every delta returned by {@link #poll(int)} so far as applied. Until
+     * then they are delivered again after a restart.
+     *
+     * @throws IOException If the position could not be stored, it is retried then
+     */
+    void commit() throws IOException;
+
+    /**
+     * Drop deltas of this server that every other server has applied
+     *
+     * @throws IOException If the bus could not be compacted
+     */
+    default void compact() throws IOException {
+    }
+
+    /**
+     * Disconnect from the bus
+     */
+    void close();
+}
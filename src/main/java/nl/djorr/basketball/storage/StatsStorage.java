@@ -0,0 +1,126 @@
+package nl.djorr.basketball.storage;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Storage backend for player wins. Reads are blocking and must not be done on
+ * the main thread; writes are queued and flushed by the backend itself.
+ *
+ * @author Djorr
+ */
+public interface StatsStorage {
+
+    /**
+     * Open the backend
+     *
+     * @throws IOException If the backend could not be opened
+     */
+    void open() throws IOException;
+
+    /**
+     * Check if the one-time import from regions.yml still has to run
+     *
+     * @return True if nothing was migrated yet
+     * @throws IOException If the backend could not be read
+     */
+    boolean needsMigration() throws IOException;
+
+    /**
+     * Import wins from the old YAML layout and mark the migration as done
+     *
+     * @param wins Map of region names to player UUIDs to wins
+     * @throws IOException If the import failed, nothing is marked as migrated then
+     */
+    void migrate(Map<String, Map<UUID, Integer>> wins) throws IOException;
+
+    /**
+     * Load all wins of a region
+     *
+     * @param regionName The region name
+     * @return Map of player UUIDs to wins
+     * @throws IOException If the backend could not be read
+     */
+    Map<UUID, Integer> loadWins(String regionName) throws IOException;
+
+    /**
+     * Load the wins of a single player in every region
+     *
+     * @param uuid The player UUID
+     * @return Map of region names to wins
+     * @throws IOException If the backend could not be read
+     */
+    Map<String, Integer> loadPlayerWins(UUID uuid) throws IOException;
+
+    /**
+     * Get the players with the most wins in a region, best first
+     *
+     * @param regionName The region name
+     * @param limit The maximum number of entries
+     * @return List of UUID to wins entries
+     * @throws IOException If the backend could not be read
+     */
+    List<Map.Entry<UUID, Integer>> getTopWins(String regionName, int limit) throws IOException;
+
+    /**
+     * Queue a wins update. Safe to call from the main thread.
+     *
+     * @param regionName The region name
+     * @param uuid The player UUID
+     * @param wins The new absolute number of wins
+     */
+    void saveWins(String regionName, UUID uuid, int wins);
+
+    /**
+     * Queue a wins increment for a player whose wins are not in memory.
+     * Safe to call from the main thread.
+     *
+     * @param regionName The region name
+     * @param uuid The player UUID
+     * @param delta The number of wins to add
+     */
+    void addWins(String regionName, UUID uuid, int delta);
+
+    /**
+     * Count a throw. Backends without shot counters ignore this.
+     *
+     * @param regionName The region name
+     * @param uuid The player UUID
+     */
+    default void recordThrow(String regionName, UUID uuid) {
+    }
+
+    /**
+     * Count a made basket. Backends without shot counters ignore this.
+     *
+     * @param regionName The region name
+     * @param uuid The player UUID
+     */
+    default void recordMake(String regionName, UUID uuid) {
+    }
+
+    /**
+     * Count a finished game. Backends without game counters ignore this.
+     *
+     * @param regionName The region name
+     * @param uuid The player UUID
+     */
+    default void recordGame(String regionName, UUID uuid) {
+    }
+
+    /**
+     * Get the number of writes waiting for the next flush
+     *
+     * @return The queue depth, 0 for backends that write in place
+     */
+    default int getQueueDepth() {
+        return 0;
+    }
+
+    /**
+     * Flush queued writes and close the backend
+     */
+    void close();
+}
@@ -0,0 +1,56 @@
+package nl.djorr.basketball.storage;
+
+import java.util.UUID;
+
+/**
+ * A wins increment published by one server to the others. The origin and
+ * sequence number identify the delta, so a delta that is delivered twice is
+ * only applied once.
+ *
+ * @author Djorr
+ */
+public class WinsDelta {
+
+    private final String origin;
+    private final long sequence;
+    private final String regionName;
+    private final UUID uuid;
+    private final int delta;
+
+    /**
+     * Constructor for WinsDelta
+     *
+     * @param origin The id of the server that published the delta
+     * @param sequence Sequence number, increasing per origin
+     * @param regionName The region name
+     * @param uuid The player UUID
+     * @param delta The number of wins to add
+     */
+    public WinsDelta(String origin, long sequence, String regionName, UUID uuid, int delta) {
+        this.origin = origin;
+        this.sequence = sequence;
+        this.regionName = regionName;
+        this.uuid = uuid;
+        this.delta = delta;
+    }
+
+    public String getOrigin() {
+        return origin;
+    }
+
+    public long getSequence() {
+        return sequence;
+    }
+
+    public String getRegionName() {
+        return regionName;
+    }
+
+    public UUID getUuid() {
+        return uuid;
+    }
+
+    public int getDelta() {
+        return delta;
+    }
+}
@@ -0,0 +1,508 @@
+package nl.djorr.basketball.storage;
+
+import nl.djorr.basketball.utils.FlightRecorderBridge;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only binary journal of wins mutations.
+ * <p>
+ * The main thread only enqueues records. A background thread group-commits
+ * everything queued since the last commit and fsyncs once per interval.
+ * Records leave the writer only once they are on disk: when a write, fsync or
+ * segment open fails they stay pending, the torn tail is cut off and the next
+ * commit writes them again.
+ * The journal is split in numbered segments: a compaction rotates to a new
+ * segment, writes a snapshot and then releases the sealed segments.
+ * <p>
+ * Record layout: {@code int length | byte type | short regionLength | region (UTF-8) |
+ * long uuidMost | long uuidLeast | int wins | int crc32}. Wins are stored as
+ * absolute values so replaying a record twice is harmless.
+ *
+ * @author Djorr
+ */
+public class WinsJournal {
+
+    private static final String SEGMENT_PREFIX = "wins-";
+    private static final String SEGMENT_SUFFIX = ".journal";
+    private static final byte RECORD_WINS = 1;
+    private static final int MAX_RECORD_LENGTH = 1024;
+
+    private final File directory;
+    private final Logger logger;
+    private final FlightRecorderBridge flightRecorder;
+    private final long commitIntervalMillis;
+    private final ConcurrentLinkedQueue<Object> queue;
+    private final AtomicInteger queuedRecords = new AtomicInteger(); // Size of the queue is O(n)
+    private ScheduledExecutorService executor;
+
+    // Owned by the main thread
+    private long currentSegment;
+
+    // Owned by the writer thread
+    private final ByteBuffer buffer;
+    private final CRC32 crc;
+    private final List<Object> pending = new ArrayList<>(); // Taken from the queue, not on disk yet
+    private FileChannel channel;
+    private long writerSegment;
+    private long writtenSize; // Bytes of the writer segment that hold whole records
+    private boolean failing;
+
+    /**
+     * Constructor for WinsJournal
+     *
+     * @param directory The directory that holds the journal segments
+     * @param logger The logger to report errors to
+     * @param flightRecorder The bridge that group commits are reported to
+     * @param commitIntervalMillis Milliseconds between group commits
+     */
+    public WinsJournal(File directory, Logger logger, FlightRecorderBridge flightRecorder, long commitIntervalMillis) {
+        this.directory = directory;
+        this.logger = logger;
+        this.flightRecorder = flightRecorder;
+        this.commitIntervalMillis = Math.max(1, commitIntervalMillis);
+        this.queue = new ConcurrentLinkedQueue<>();
+        this.buffer = ByteBuffer.allocate(64 * 1024);
+        this.crc = new CRC32();
+    }
+
+    /**
+     * Replay every segment on disk in order
+     *
+     * @param consumer Receives every valid record
+     * @return The number of records replayed
+     */
+    public int replay(RecordConsumer consumer) {
+        int replayed = 0;
+        for (File segment : listSegments()) {
+            replayed += replaySegment(segment, consumer);
+        }
+        return replayed;
+    }
+
+    /**
+     * Check if there are journal segments on disk
+     *
+     * @return True if at least one segment exists
+     */
+    public boolean hasSegments() {
+        return !listSegments().isEmpty();
+    }
+
+    /**
+     * Open a fresh segment and start the commit thread
+     *
+     * @throws IOException If the segment could not be opened
+     */
+    public void open() throws IOException {
+        if (!directory.exists() && !directory.mkdirs()) {
+            throw new IOException("Could not create journal directory " + directory);
+        }
+
+        List<File> segments = listSegments();
+        currentSegment = segments.isEmpty() ? 1 : segmentIndex(segments.get(segments.size() - 1)) + 1;
+        writerSegment = currentSegment;
+        writtenSize = 0;
+        channel = openSegment(writerSegment);
+
+        executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "Basketball-Journal");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.scheduleWithFixedDelay(this::commit, commitIntervalMillis, commitIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Queue a wins record. Called from the main thread.
+     *
+     * @param regionName The region name
+     * @param uuid The player UUID
+     * @param wins The new absolute number of wins
+     */
+    public void appendWins(String regionName, UUID uuid, int wins) {
+        queue.add(new WinsRecord(regionName, uuid, wins));
+        queuedRecords.incrementAndGet();
+    }
+
+    /**
+     * Get the number of wins records that are not on disk yet
+     *
+     * @return The queue depth
+     */
+    public int getQueueDepth() {
+        return queuedRecords.get();
+    }
+
+    /**
+     * Seal the current segment; records queued after this call go to a new segment.
+     * Called from the main thread right before a snapshot is captured.
+     *
+     * @return The index of the sealed segment
+     */
+    public long rotate() {
+        long sealed = currentSegment;
+        currentSegment++;
+        queue.add(new Rotate(currentSegment));
+        return sealed;
+    }
+
+    /**
+     * Delete all segments up to and including the given index, once a snapshot
+     * containing their records is safely on disk
+     *
+     * @param sealed The last segment covered by the snapshot
+     */
+    public void release(long sealed) {
+        queue.add(new Release(sealed));
+    }
+
+    /**
+     * Stop the commit thread and commit whatever is still queued
+     */
+    public void close() {
+        if (executor != null) {
+            executor.shutdown();
+            try {
+                executor.awaitTermination(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            executor = null;
+        }
+
+        // The executor is gone, so it is safe to commit from this thread
+        commit();
+        if (!pending.isEmpty()) {
+            logger.severe("Closing the wins journal with " + queuedRecords.get() + " records that could not be written");
+        }
+        closeChannel();
+    }
+
+    /**
+     * Write and fsync everything queued since the last commit, and whatever a
+     * failed commit left pending
+     */
+    private void commit() {
+        Object jfrEvent = flightRecorder.start(FlightRecorderBridge.Kind.STORAGE_FLUSH);
+        for (Object entry; (entry = queue.poll()) != null; ) {
+            pending.add(entry);
+        }
+        if (pending.isEmpty() && channel != null) {
+            return;
+        }
+
+        try {
+            int records = writePending();
+            if (failing) {
+                failing = false;
+                logger.info("Wins journal is writing again, " + records + " records caught up");
+            }
+            if (records > 0) {
+                flightRecorder.commit(FlightRecorderBridge.Kind.STORAGE_FLUSH, jfrEvent, null, null, records, "journal");
+            }
+        } catch (Throwable e) {
+            // Keep the records and the thread: the next commit reopens the segment, cuts off what this
+            // one tore and writes them again
+            buffer.clear();
+            abandonChannel();
+            if (!failing) {
+                failing = true;
+                logger.log(Level.SEVERE, "Could not commit wins journal, keeping " + queuedRecords.get()
+                    + " records for the next commit", e);
+            }
+        }
+    }
+
+    /**
+     * Write the pending entries in order. An entry is only removed once its
+     * effect is on disk.
+     *
+     * @return The number of records written
+     */
+    private int writePending() throws IOException {
+        if (channel == null) {
+            channel = openSegment(writerSegment);
+            channel.truncate(writtenSize);
+        }
+
+        int records = 0;
+        int buffered = 0; // Pending entries at the head that are in the buffer
+        while (buffered < pending.size()) {
+            Object entry = pending.get(buffered);
+            if (entry instanceof WinsRecord) {
+                WinsRecord record = (WinsRecord) entry;
+                int length = record.length();
+                if (length > MAX_RECORD_LENGTH) {
+                    logger.warning("Skipping journal record for region with oversized name: " + record.regionName);
+                    pending.remove(buffered);
+                    queuedRecords.decrementAndGet();
+                    continue;
+                }
+                if (buffer.remaining() < 4 + length + 4) {
+                    writeBuffer(false);
+                    records += removeWritten(buffered);
+                    buffered = 0;
+                }
+                encode(record, length);
+                buffered++;
+            } else if (entry instanceof Rotate) {
+                writeBuffer(true);
+                records += removeWritten(buffered);
+                buffered = 0;
+                closeChannel();
+                writerSegment = ((Rotate) entry).segment;
+                writtenSize = 0;
+                channel = openSegment(writerSegment);
+                pending.remove(0);
+            } else if (entry instanceof Release) {
+                // The released segments are sealed, the buffered records belong to a later one
+                deleteSegments(((Release) entry).sealed);
+                pending.remove(buffered);
+            }
+        }
+        writeBuffer(buffered > 0);
+        records += removeWritten(buffered);
+        return records;
+    }
+
+    /**
+     * Remove the entries at the head of the pending list once they are written
+     *
+     * @return The number of records among them
+     */
+    private int removeWritten(int count) {
+        List<Object> written = pending.subList(0, count);
+        int records = written.size();
+        written.clear();
+        queuedRecords.addAndGet(-records);
+        return records;
+    }
+
+    /**
+     * Encode a wins record into the write buffer
+     */
+    private void encode(WinsRecord record, int length) {
+        byte[] name = record.regionName.getBytes(StandardCharsets.UTF_8);
+        buffer.putInt(length);
+        int start = buffer.position();
+        buffer.put(RECORD_WINS);
+        buffer.putShort((short) name.length);
+        buffer.put(name);
+        buffer.putLong(record.uuid.getMostSignificantBits());
+        buffer.putLong(record.uuid.getLeastSignificantBits());
+        buffer.putInt(record.wins);
+
+        crc.reset();
+        crc.update(buffer.array(), start, length);
+        buffer.putInt((int) crc.getValue());
+    }
+
+    /**
+     * Write the buffer to the current segment, optionally followed by an fsync
+     */
+    private void writeBuffer(boolean sync) throws IOException {
+        int length = buffer.position();
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+
+        if (sync) {
+            channel.force(false);
+        }
+        writtenSize += length;
+    }
+
+    /**
+     * Replay a single segment, stopping at the first torn or corrupt record
+     */
+    private int replaySegment(File segment, RecordConsumer consumer) {
+        int replayed = 0;
+        CRC32 checksum = new CRC32();
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(segment)))) {
+            while (true) {
+                int length;
+                try {
+                    length = in.readInt();
+                } catch (EOFException e) {
+                    break;
+                }
+
+                if (length <= 0 || length > MAX_RECORD_LENGTH) {
+                    logger.warning("Corrupt record in " + segment.getName() + ", ignoring the rest of the segment");
+                    break;
+                }
+
+                byte[] payload = new byte[length];
+                int storedCrc;
+                try {
+                    in.readFully(payload);
+                    storedCrc = in.readInt();
+                } catch (EOFException e) {
+                    logger.warning("Torn record at the end of " + segment.getName() + ", ignoring it");
+                    break;
+                }
+
+                checksum.reset();
+                checksum.update(payload, 0, length);
+                if ((int) checksum.getValue() != storedCrc) {
+                    logger.warning("Checksum mismatch in " + segment.getName() + ", ignoring the rest of the segment");
+                    break;
+                }
+
+                ByteBuffer record = ByteBuffer.wrap(payload);
+                if (record.get() != RECORD_WINS) {
+                    continue;
+                }
+                byte[] name = new byte[record.getShort()];
+                record.get(name);
+                UUID uuid = new UUID(record.getLong(), record.getLong());
+                int wins = record.getInt();
+
+                consumer.accept(new String(name, StandardCharsets.UTF_8), uuid, wins);
+                replayed++;
+            }
+        } catch (IOException e) {
+            logger.log(Level.SEVERE, "Could not replay journal segment " + segment.getName(), e);
+        }
+        return replayed;
+    }
+
+    /**
+     * Delete all segments up to and including the given index
+     */
+    private void deleteSegments(long sealed) {
+        for (File segment : listSegments()) {
+            if (segmentIndex(segment) <= sealed && !segment.delete()) {
+                logger.warning("Could not delete journal segment " + segment.getName());
+            }
+        }
+    }
+
+    private FileChannel openSegment(long index) throws IOException {
+        File file = new File(directory, SEGMENT_PREFIX + index + SEGMENT_SUFFIX);
+        return FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    private void closeChannel() {
+        if (channel == null) {
+            return;
+        }
+        try {
+            channel.force(false);
+            channel.close();
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "Could not close journal segment", e);
+        }
+        channel = null;
+    }
+
+    /**
+     * Drop the channel after a failed write without syncing it
+     */
+    private void abandonChannel() {
+        if (channel == null) {
+            return;
+        }
+        try {
+            channel.close();
+        } catch (IOException e) {
+            // Already failing, the commit error is logged
+        }
+        channel = null;
+    }
+
+    /**
+     * List all segments ordered by index
+     */
+    private List<File> listSegments() {
+        File[] files = directory.listFiles((dir, name) -> name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX));
+        List<File> segments = new ArrayList<>();
+        if (files == null) {
+            return segments;
+        }
+
+        for (File file : files) {
+            if (segmentIndex(file) > 0) {
+                segments.add(file);
+            }
+        }
+        Collections.sort(segments, (a, b) -> Long.compare(segmentIndex(a), segmentIndex(b)));
+        return segments;
+    }
+
+    private static long segmentIndex(File file) {
+        String name = file.getName();
+        try {
+            return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Receives replayed records
+     */
+    public interface RecordConsumer {
+        void accept(String regionName, UUID uuid, int wins);
+    }
+
+    private static final class WinsRecord {
+        private final String regionName;
+        private final UUID uuid;
+        private final int wins;
+
+        private WinsRecord(String regionName, UUID uuid, int wins) {
+            this.regionName = regionName;
+            this.uuid = uuid;
+            this.wins = wins;
+        }
+
+        /**
+         * Get the length of the encoded record without its length and checksum
+         */
+        private int length() {
+            return 1 + 2 + regionName.getBytes(StandardCharsets.UTF_8).length + 8 + 8 + 4;
+        }
+    }
+
+    private static final class Rotate {
+        private final long segment;
+
+        private Rotate(long segment) {
+            this.segment = segment;
+        }
+    }
+
+    private static final class Release {
+        private final long sealed;
+
+        private Release(long sealed) {
+            this.sealed = sealed;
+        }
+    }
+}
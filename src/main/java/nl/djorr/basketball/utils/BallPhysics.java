@@ -0,0 +1,293 @@
+package nl.djorr.basketball.utils;
+
+/**
+ * The physics of a thrown basketball, free of Bukkit types so they can be
+ * stepped without a server.
+ * <p>
+ * {@code BasketballManager} runs {@link #update(State, BlockProbe, Court, int)}
+ * on the live entity every physics tick, with the blocks read from its world
+ * and the court it belongs to. {@link #step(State, BlockProbe, Court, int)}
+ * runs the same update on a plain {@link State} and then moves it by its
+ * velocity, which is what the entity does between ticks.
+ *
+ * @author Djorr
+ */
+public final class BallPhysics {
+
+    public static final double GRAVITY = 0.08;
+    public static final double AIR_RESISTANCE = 0.995; // Velocity kept per tick in the air
+    public static final double REST_SPEED = 0.05; // Below this on every axis the ball stops
+
+    public static final double BOUNCE_MULTIPLIER = 0.75; // Basketball bounces well
+    public static final double BOUNCE_ENERGY_LOSS = 0.15; // Energy lost per earlier bounce
+    public static final double MIN_BOUNCE_HEIGHT = 0.3;
+    public static final double MIN_BOUNCE_IMPACT = 0.5; // Impact speed that always gets the minimum bounce
+    public static final double BOUNCE_FRICTION = 0.85; // Horizontal speed kept on a bounce
+
+    public static final double STUCK_SPEED = 0.01; // Below this on every axis a ball on the ground is stuck
+    public static final int BOUNDARY_MARGIN = 2; // Blocks from the court edge that count as hitting the boundary
+
+    /**
+     * Result of an {@link #update(State, BlockProbe, Court, int)}
+     */
+    public enum StepResult {
+        FLYING, BOUNCED, WALL, BOUNDARY, AT_REST, MAX_BOUNCES, OUT_OF_BOUNDS;
+
+        /**
+         * Check if the ball stops flying with this result
+         */
+        public boolean isFinal() {
+            return this == AT_REST || this == MAX_BOUNCES || this == OUT_OF_BOUNDS;
+        }
+    }
+
+    private BallPhysics() {
+    }
+
+    /**
+     * Apply one tick of gravity
+     *
+     * @param velocityY The vertical velocity
+     * @return The new vertical velocity
+     */
+    public static double applyGravity(double velocityY) {
+        return velocityY - GRAVITY;
+    }
+
+    /**
+     * Get the vertical velocity after bouncing on the ground
+     *
+     * @param impactSpeed The absolute vertical speed when hitting the ground
+     * @param bounces The number of earlier bounces
+     * @return The upward velocity
+     */
+    public static double bounceVelocity(double impactSpeed, int bounces) {
+        double velocityY = impactSpeed * BOUNCE_MULTIPLIER;
+
+        // Progressive energy loss (more realistic than exponential decay)
+        for (int i = 0; i < bounces; i++) {
+            velocityY *= (1.0 - BOUNCE_ENERGY_LOSS);
+        }
+
+        if (velocityY < MIN_BOUNCE_HEIGHT && impactSpeed > MIN_BOUNCE_IMPACT) {
+            velocityY = MIN_BOUNCE_HEIGHT;
+        }
+        return velocityY;
+    }
+
+    /**
+     * Check if a ball has come to rest
+     *
+     * @param velocityX The X velocity
+     * @param velocityY The Y velocity
+     * @param velocityZ The Z velocity
+     * @return True if every axis is below {@link #REST_SPEED}
+     */
+    public static boolean isAtRest(double velocityX, double velocityY, double velocityZ) {
+        return Math.abs(velocityX) < REST_SPEED && Math.abs(velocityZ) < REST_SPEED && Math.abs(velocityY) < REST_SPEED;
+    }
+
+    /**
+     * Run one physics tick on a ball, in the same order for the live entity
+     * and a headless ball: bounds check, gravity, ground bounce, court
+     * boundary or wall contact, air resistance and rest check. Only the
+     * velocity and bounce count change, the position is left to the caller.
+     * <p>
+     * A boundary or wall contact is only reported, for the effects; it does
+     * not change the velocity. The plugin has always computed its pushback
+     * on a copy of the velocity that the end of the tick overwrote, so the
+     * live ball never got it.
+     *
+     * @param ball The ball, updated in place
+     * @param blocks Tells which blocks are solid
+     * @param court The court the ball is played in, null for no boundary
+     * @param maxBounces The bounce at which the ball is stopped
+     * @return What happened this tick
+     */
+    public static StepResult update(State ball, BlockProbe blocks, Court court, int maxBounces) {
+        int blockX = floor(ball.x);
+        int blockY = floor(ball.y);
+        int blockZ = floor(ball.z);
+        int[] bounds = court != null ? court.getBounds() : null;
+
+        if (bounds != null && (isOutside(bounds, blockX, blockY, blockZ, 1) || isStuck(ball, blocks, blockX, blockY, blockZ))) {
+            return StepResult.OUT_OF_BOUNDS;
+        }
+
+        double impactSpeed = Math.abs(ball.velocityY);
+        ball.velocityY = applyGravity(ball.velocityY);
+
+        if (ball.velocityY < 0 && blocks.isSolid(blockX, blockY - 1, blockZ)) {
+            if (ball.bounces >= maxBounces) {
+                ball.stop();
+                return StepResult.MAX_BOUNCES;
+            }
+
+            ball.velocityY = bounceVelocity(impactSpeed, ball.bounces);
+            ball.velocityX *= BOUNCE_FRICTION;
+            ball.velocityZ *= BOUNCE_FRICTION;
+            ball.bounces++;
+            return StepResult.BOUNCED;
+        }
+
+        StepResult result = StepResult.FLYING;
+        if (bounds != null && isAtBoundary(bounds, blockX, blockY, blockZ)) {
+            result = StepResult.BOUNDARY;
+        } else if (blocks.isSolid(floor(ball.x + ball.velocityX * 0.5), blockY, floor(ball.z + ball.velocityZ * 0.5))) {
+            result = StepResult.WALL;
+        }
+
+        ball.velocityX *= AIR_RESISTANCE;
+        ball.velocityY *= AIR_RESISTANCE;
+        ball.velocityZ *= AIR_RESISTANCE;
+
+        if (isAtRest(ball.velocityX, ball.velocityY, ball.velocityZ)) {
+            ball.stop();
+            return StepResult.AT_REST;
+        }
+        return result;
+    }
+
+    /**
+     * Run one physics tick on a headless ball and move it by its velocity,
+     * unless it stopped
+     *
+     * @param ball The ball, updated in place
+     * @param blocks Tells which blocks are solid
+     * @param court The court the ball is played in, null for no boundary
+     * @param maxBounces The bounce at which the ball is stopped
+     * @return What happened this tick
+     */
+    public static StepResult step(State ball, BlockProbe blocks, Court court, int maxBounces) {
+        StepResult result = update(ball, blocks, court, maxBounces);
+        if (!result.isFinal()) {
+            ball.move();
+        }
+        return result;
+    }
+
+    private static boolean isOutside(int[] bounds, int x, int y, int z, int slack) {
+        return x < bounds[0] - slack || x > bounds[1] + slack || y < bounds[2] - slack || y > bounds[3] + slack
+            || z < bounds[4] - slack || z > bounds[5] + slack;
+    }
+
+    private static boolean isStuck(State ball, BlockProbe blocks, int x, int y, int z) {
+        return Math.abs(ball.velocityX) < STUCK_SPEED && Math.abs(ball.velocityZ) < STUCK_SPEED
+            && Math.abs(ball.velocityY) < STUCK_SPEED && blocks.isSolid(x, y - 1, z);
+    }
+
+    /**
+     * Check if a ball is outside the court, within {@link #BOUNDARY_MARGIN}
+     * of a side or at the court floor or ceiling
+     */
+    private static boolean isAtBoundary(int[] bounds, int x, int y, int z) {
+        return x <= bounds[0] + BOUNDARY_MARGIN || x >= bounds[1] - BOUNDARY_MARGIN
+            || z <= bounds[4] + BOUNDARY_MARGIN || z >= bounds[5] - BOUNDARY_MARGIN
+            || y <= bounds[2] || y >= bounds[3];
+    }
+
+    private static int floor(double value) {
+        int floor = (int) value;
+        return value < floor ? floor - 1 : floor;
+    }
+
+    /**
+     * Tells the physics which blocks are solid
+     */
+    @FunctionalInterface
+    public interface BlockProbe {
+        boolean isSolid(int x, int y, int z);
+    }
+
+    /**
+     * The court a ball is played in, for the bounds check and the boundary
+     * contact
+     */
+    @FunctionalInterface
+    public interface Court {
+
+        /**
+         * Get the court bounds
+         *
+         * @return Array with [minX, maxX, minY, maxY, minZ, maxZ] or null
+         */
+        int[] getBounds();
+    }
+
+    /**
+     * Position, velocity and bounce count of a ball
+     */
+    public static final class State {
+        private double x;
+        private double y;
+        private double z;
+        private double velocityX;
+        private double velocityY;
+        private double velocityZ;
+        private int bounces;
+
+        public State(double x, double y, double z, double velocityX, double velocityY, double velocityZ) {
+            set(x, y, z, velocityX, velocityY, velocityZ);
+        }
+
+        /**
+         * Reset the ball to a new throw
+         */
+        public void set(double x, double y, double z, double velocityX, double velocityY, double velocityZ) {
+            this.x = x;
+            this.y = y;
+            this.z = z;
+            this.velocityX = velocityX;
+            this.velocityY = velocityY;
+            this.velocityZ = velocityZ;
+            this.bounces = 0;
+        }
+
+        /**
+         * Set the bounces made since the throw
+         */
+        public void setBounces(int bounces) {
+            this.bounces = bounces;
+        }
+
+        private void move() {
+            x += velocityX;
+            y += velocityY;
+            z += velocityZ;
+        }
+
+        private void stop() {
+            velocityX = 0;
+            velocityY = 0;
+            velocityZ = 0;
+        }
+
+        public double getX() {
+            return x;
+        }
+
+        public double getY() {
+            return y;
+        }
+
+        public double getZ() {
+            return z;
+        }
+
+        public double getVelocityX() {
+            return velocityX;
+        }
+
+        public double getVelocityY() {
+            return velocityY;
+        }
+
+        public double getVelocityZ() {
+            return velocityZ;
+        }
+
+        public int getBounces() {
+            return bounces;
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package nl.djorr.basketball.utils;
 
 import nl.djorr.basketball.BasketballPlugin;
+import nl.djorr.basketball.managers.TimingsManager;
 import nl.djorr.basketball.objects.Basketball;
 import nl.djorr.basketball.objects.BasketballRegion;
 import org.bukkit.Location;
@@ -11,7 +12,6 @@ import org.bukkit.entity.Player;
 import org.bukkit.inventory.ItemStack;
 import org.bukkit.inventory.meta.SkullMeta;
 import nl.djorr.basketball.utils.ItemBuilder;
-import org.bukkit.scheduler.BukkitRunnable;
 import org.bukkit.util.Vector;
 
 import java.util.ArrayList;
@@ -61,14 +61,14 @@ public class BasketballAnimation {
         final int totalTicks = 40; // 2 seconds
         final double bounceHeight = 0.8;
         
-        new BukkitRunnable() {
+        new TimedRunnable(TimingsManager.EFFECTS, region.getRegionName()) {
             private int ticks = 0;
             private boolean hasBounced = false;
             private double currentY = startLocation.getY();
             private double velocityY = 0;
             
             @Override
-            public void run() {
+            protected void tick() {
                 ticks++;
                 
                 // Calculate falling physics
@@ -233,11 +233,11 @@ public class BasketballAnimation {
         spawnHologramEffect(location, region, "§6§lSCORE!");
         
         // Additional effects
-        new BukkitRunnable() {
+        new TimedRunnable(TimingsManager.EFFECTS, region.getRegionName()) {
             private int ticks = 0;
             
             @Override
-            public void run() {
+            protected void tick() {
                 ticks++;
                 
                 // Spawn particles in a circle
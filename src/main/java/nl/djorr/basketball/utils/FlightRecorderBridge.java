@@ -0,0 +1,267 @@
+package nl.djorr.basketball.utils;
+
+import nl.djorr.basketball.BasketballPlugin;
+
+import java.lang.annotation.Annotation;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Bridge to Java Flight Recorder custom events, so plugin activity shows up
+ * in the recordings ops already make of the server.
+ * <p>
+ * The plugin targets Java 8, where {@code jdk.jfr} only exists on 8u262 and
+ * later, so the event types are defined at runtime through
+ * {@code jdk.jfr.EventFactory} instead of compiled subclasses. The types and
+ * the reflection are resolved once per class loader, in {@link EventTypes},
+ * so enabling the plugin again does not define them a second time. Every
+ * event type is enabled and disabled by the JFR settings of the running
+ * recording ({@code nl.djorr.basketball.Throw#enabled=false} and so on);
+ * while a type is off, {@link #start(Kind)} costs one cached
+ * {@code isEnabled} call and returns null, and {@link #commit} returns
+ * immediately. Durations are the events' own, from {@code begin()} to
+ * {@code end()}.
+ *
+ * @author Djorr
+ */
+public class FlightRecorderBridge {
+
+    /**
+     * Event types, each with a court and ball id field, an optional count
+     * and an optional detail
+     */
+    public enum Kind {
+        THROW("Throw", "Basketball Throw", "A basketball was thrown", null, null),
+        PHYSICS_STEP("PhysicsStep", "Basketball Physics Step", "A sampled physics tick of a ball in flight", "Bounces", null),
+        SCORE("Score", "Basketball Score", "A ball went through a hoop", "Points", null),
+        GAME_RESET("GameReset", "Basketball Game Reset", "The scores of a court were reset", "Players", null),
+        HOLOGRAM_REBUILD("HologramRebuild", "Basketball Hologram Rebuild", "A leaderboard hologram was built or updated", "Lines Changed", null),
+        STORAGE_FLUSH("StorageFlush", "Basketball Storage Flush", "Buffered regions or wins were written to disk", "Records", "Store");
+
+        private final String name;
+        private final String label;
+        private final String description;
+        private final String countLabel;
+        private final String detailLabel;
+        private final int detailField;
+
+        Kind(String name, String label, String description, String countLabel, String detailLabel) {
+            this.name = "nl.djorr.basketball." + name;
+            this.label = label;
+            this.description = description;
+            this.countLabel = countLabel;
+            this.detailLabel = detailLabel;
+            this.detailField = countLabel != null ? FIELD_COUNT + 1 : FIELD_COUNT;
+        }
+    }
+
+    private static final int FIELD_COURT = 0;
+    private static final int FIELD_BALL = 1;
+    private static final int FIELD_COUNT = 2;
+
+    private final EventTypes types;
+    private final int physicsSampleRate;
+    private int physicsCounter;
+
+    /**
+     * Constructor for FlightRecorderBridge
+     *
+     * @param plugin The plugin instance
+     */
+    public FlightRecorderBridge(BasketballPlugin plugin) {
+        this.types = EventTypes.INSTANCE;
+        this.physicsSampleRate = Math.max(1, plugin.getConfigManager().getFlightRecorderPhysicsSample());
+
+        if (types.available) {
+            plugin.getLogger().info("Using " + Kind.values().length + " Java Flight Recorder event types");
+        } else if (types.failure != null) {
+            plugin.getLogger().warning("Could not register Java Flight Recorder events: " + types.failure);
+        } else if (plugin.getConfigManager().isDebugEnabled()) {
+            plugin.getLogger().info("Java Flight Recorder is not available on this JVM, no JFR events");
+        }
+    }
+
+    /**
+     * Check if JFR events can be emitted on this JVM
+     *
+     * @return True if the event types were registered
+     */
+    public boolean isAvailable() {
+        return types.available;
+    }
+
+    /**
+     * Begin an event
+     *
+     * @param kind The event type
+     * @return The begun event to pass to {@link #commit}, null when the event
+     *         type is off, not sampled or JFR is not available
+     */
+    public Object start(Kind kind) {
+        if (!types.available) {
+            return null;
+        }
+        try {
+            if (!(boolean) types.isEnabled[kind.ordinal()].invokeExact()) {
+                return null;
+            }
+            // Physics steps run for every ball in flight, so only one in N is recorded
+            if (kind == Kind.PHYSICS_STEP && physicsSampleRate > 1 && ++physicsCounter % physicsSampleRate != 0) {
+                return null;
+            }
+            Object event = types.newEvent[kind.ordinal()].invokeExact();
+            types.begin.invokeExact(event);
+            return event;
+        } catch (Throwable e) {
+            return null;
+        }
+    }
+
+    /**
+     * End and emit an event begun with {@link #start(Kind)}
+     *
+     * @param kind The event type
+     * @param event The begun event, nothing is emitted when null
+     * @param court The court name, or null
+     * @param ballId The entity id of the ball, or null
+     * @param count The count of the event type, ignored if it has none
+     */
+    public void commit(Kind kind, Object event, String court, UUID ballId, int count) {
+        commit(kind, event, court, ballId, count, null);
+    }
+
+    /**
+     * End and emit an event begun with {@link #start(Kind)}
+     *
+     * @param kind The event type
+     * @param event The begun event, nothing is emitted when null
+     * @param court The court name, or null
+     * @param ballId The entity id of the ball, or null
+     * @param count The count of the event type, ignored if it has none
+     * @param detail The detail of the event type, ignored if it has none
+     */
+    public void commit(Kind kind, Object event, String court, UUID ballId, int count, String detail) {
+        if (event == null) {
+            return;
+        }
+        try {
+            types.end.invokeExact(event);
+            types.set.invokeExact(event, FIELD_COURT, (Object) court);
+            types.set.invokeExact(event, FIELD_BALL, (Object) (ballId != null ? ballId.toString() : null));
+            if (kind.countLabel != null) {
+                types.set.invokeExact(event, FIELD_COUNT, (Object) count);
+            }
+            if (kind.detailLabel != null) {
+                types.set.invokeExact(event, kind.detailField, (Object) detail);
+            }
+            types.commit.invokeExact(event);
+        } catch (Throwable e) {
+            // A failed event must never break the game
+        }
+    }
+
+    /**
+     * The event types and cached handles, defined once when first used
+     */
+    private static final class EventTypes {
+        private static final EventTypes INSTANCE = new EventTypes();
+
+        // Per kind where they are bound to a factory or event type
+        private final MethodHandle[] isEnabled = new MethodHandle[Kind.values().length]; // () -> boolean
+        private final MethodHandle[] newEvent = new MethodHandle[Kind.values().length];  // () -> Object event
+        private MethodHandle set;    // (Object event, int index, Object value) -> void
+        private MethodHandle begin;  // (Object event) -> void
+        private MethodHandle end;    // (Object event) -> void
+        private MethodHandle commit; // (Object event) -> void
+
+        private final boolean available;
+        private String failure;
+
+        private EventTypes() {
+            this.available = resolve();
+        }
+
+        /**
+         * Define the event types through the EventFactory
+         *
+         * @return True if JFR events can be emitted on this JVM
+         */
+        @SuppressWarnings("unchecked")
+        private boolean resolve() {
+            Class<?> eventFactoryClass;
+            try {
+                eventFactoryClass = Class.forName("jdk.jfr.EventFactory");
+            } catch (ClassNotFoundException e) {
+                return false;
+            }
+
+            try {
+                MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+
+                Class<?> annotationElementClass = Class.forName("jdk.jfr.AnnotationElement");
+                Class<?> valueDescriptorClass = Class.forName("jdk.jfr.ValueDescriptor");
+                Class<?> eventClass = Class.forName("jdk.jfr.Event");
+                Class<?> eventTypeClass = Class.forName("jdk.jfr.EventType");
+                Class<? extends Annotation> nameClass = (Class<? extends Annotation>) Class.forName("jdk.jfr.Name");
+                Class<? extends Annotation> labelClass = (Class<? extends Annotation>) Class.forName("jdk.jfr.Label");
+                Class<? extends Annotation> descriptionClass = (Class<? extends Annotation>) Class.forName("jdk.jfr.Description");
+                Class<? extends Annotation> categoryClass = (Class<? extends Annotation>) Class.forName("jdk.jfr.Category");
+                Class<? extends Annotation> stackTraceClass = (Class<? extends Annotation>) Class.forName("jdk.jfr.StackTrace");
+
+                Constructor<?> newAnnotation = annotationElementClass.getConstructor(Class.class, Object.class);
+                Constructor<?> newField = valueDescriptorClass.getConstructor(Class.class, String.class, List.class);
+                Method create = eventFactoryClass.getMethod("create", List.class, List.class);
+                Method getEventType = eventFactoryClass.getMethod("getEventType");
+
+                MethodType eventAction = MethodType.methodType(void.class, Object.class);
+                this.set = lookup.findVirtual(eventClass, "set", MethodType.methodType(void.class, int.class, Object.class))
+                    .asType(MethodType.methodType(void.class, Object.class, int.class, Object.class));
+                this.begin = lookup.findVirtual(eventClass, "begin", MethodType.methodType(void.class)).asType(eventAction);
+                this.end = lookup.findVirtual(eventClass, "end", MethodType.methodType(void.class)).asType(eventAction);
+                this.commit = lookup.findVirtual(eventClass, "commit", MethodType.methodType(void.class)).asType(eventAction);
+                MethodHandle eventTypeEnabled = lookup.findVirtual(eventTypeClass, "isEnabled", MethodType.methodType(boolean.class));
+                MethodHandle factoryNewEvent = lookup.findVirtual(eventFactoryClass, "newEvent", MethodType.methodType(eventClass));
+
+                for (Kind kind : Kind.values()) {
+                    List<Object> annotations = new ArrayList<>();
+                    annotations.add(newAnnotation.newInstance(nameClass, kind.name));
+                    annotations.add(newAnnotation.newInstance(labelClass, kind.label));
+                    annotations.add(newAnnotation.newInstance(descriptionClass, kind.description));
+                    annotations.add(newAnnotation.newInstance(categoryClass, new String[] {"Basketball"}));
+                    annotations.add(newAnnotation.newInstance(stackTraceClass, false));
+
+                    // Field order matches the FIELD_ indexes and the kind's detail field
+                    List<Object> fields = new ArrayList<>();
+                    fields.add(newField.newInstance(String.class, "court",
+                        Collections.singletonList(newAnnotation.newInstance(labelClass, "Court"))));
+                    fields.add(newField.newInstance(String.class, "ballId",
+                        Collections.singletonList(newAnnotation.newInstance(labelClass, "Ball Id"))));
+                    if (kind.countLabel != null) {
+                        fields.add(newField.newInstance(int.class, "count",
+                            Collections.singletonList(newAnnotation.newInstance(labelClass, kind.countLabel))));
+                    }
+                    if (kind.detailLabel != null) {
+                        fields.add(newField.newInstance(String.class, "detail",
+                            Collections.singletonList(newAnnotation.newInstance(labelClass, kind.detailLabel))));
+                    }
+
+                    Object factory = create.invoke(null, annotations, fields);
+                    isEnabled[kind.ordinal()] = eventTypeEnabled.bindTo(getEventType.invoke(factory));
+                    newEvent[kind.ordinal()] = factoryNewEvent.bindTo(factory)
+                        .asType(MethodType.methodType(Object.class));
+                }
+                return true;
+            } catch (Throwable e) {
+                failure = e.toString();
+                return false;
+            }
+        }
+    }
+}
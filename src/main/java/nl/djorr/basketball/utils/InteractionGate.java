@@ -0,0 +1,77 @@
+package nl.djorr.basketball.utils;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Per-player token bucket for clicks. A player can click a burst of times,
+ * after which clicks are let through at a steady rate and the rest is
+ * rejected before any work is done for them. Only used on the main thread.
+ *
+ * @author Djorr
+ */
+public class InteractionGate {
+
+    private final double capacity;
+    private final double tokensPerNano;
+    private final Map<UUID, Bucket> buckets = new HashMap<>();
+
+    /**
+     * Constructor for InteractionGate
+     *
+     * @param burst The number of clicks a player can make at once, 0 to let every click through
+     * @param perSecond The number of clicks refilled per second
+     */
+    public InteractionGate(int burst, double perSecond) {
+        this.capacity = Math.max(0, burst);
+        this.tokensPerNano = Math.max(0, perSecond) / 1_000_000_000.0;
+    }
+
+    /**
+     * Take a click from a player's bucket
+     *
+     * @param player The player UUID
+     * @param now The current {@link System#nanoTime()}
+     * @return True if the click may be handled
+     */
+    public boolean tryAcquire(UUID player, long now) {
+        if (capacity == 0) {
+            return true;
+        }
+
+        Bucket bucket = buckets.get(player);
+        if (bucket == null) {
+            bucket = new Bucket(capacity, now);
+            buckets.put(player, bucket);
+        }
+
+        double tokens = Math.min(capacity, bucket.tokens + (now - bucket.updated) * tokensPerNano);
+        bucket.updated = now;
+        if (tokens < 1) {
+            bucket.tokens = tokens;
+            return false;
+        }
+        bucket.tokens = tokens - 1;
+        return true;
+    }
+
+    /**
+     * Forget a player's bucket
+     *
+     * @param player The player UUID
+     */
+    public void remove(UUID player) {
+        buckets.remove(player);
+    }
+
+    private static final class Bucket {
+        private double tokens;
+        private long updated;
+
+        private Bucket(double tokens, long updated) {
+            this.tokens = tokens;
+            this.updated = updated;
+        }
+    }
+}
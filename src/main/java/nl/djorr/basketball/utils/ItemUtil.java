@@ -2,6 +2,7 @@ package nl.djorr.basketball.utils;
 
 import io.github.bananapuncher714.nbteditor.NBTEditor;
 import nl.djorr.basketball.BasketballPlugin;
+import nl.djorr.basketball.managers.TraceManager;
 import org.bukkit.Material;
 import org.bukkit.inventory.ItemStack;
 import org.bukkit.inventory.meta.ItemMeta;
@@ -19,6 +20,7 @@ public class ItemUtil {
     private static final String BASKETBALL_NBT_KEY = "basketball";
     private static final String BASKETBALL_NBT_VALUE = "true";
     private static final boolean BASKETBALL_NBT_BOOL_VALUE = true;
+    private static volatile boolean nbtAvailable = true; // False once NBTEditor could not load on this server
     
     /**
      * Create a basketball item with NBT
@@ -40,7 +42,7 @@ public class ItemUtil {
         
         // Add NBT tag as boolean true
         ItemStack item = builder.toItemStack();
-        item = NBTEditor.set(item, true, BASKETBALL_NBT_KEY);
+        item = tagBasketballItem(item);
         
         // Debug logging
         if (plugin.getConfigManager().isDebugEnabled()) {
@@ -61,48 +63,89 @@ public class ItemUtil {
             return false;
         }
         
-        // Debug logging
         BasketballPlugin plugin = BasketballPlugin.getInstance();
-        if (plugin != null && plugin.getConfigManager().isDebugEnabled()) {
-            plugin.getLogger().info("Checking basketball item: " + item.getType() + ":" + item.getData().getData());
-        }
         
-        // Check NBT first using contains method
-        try {
-            if (NBTEditor.contains(item, BASKETBALL_NBT_KEY)) {
-                // Get as boolean (since we set it as boolean)
-                boolean boolValue = NBTEditor.getBoolean(item, BASKETBALL_NBT_KEY);
-                if (plugin != null && plugin.getConfigManager().isDebugEnabled()) {
-                    plugin.getLogger().info("NBT contains basketball key, boolean value: " + boolValue);
-                }
-                if (boolValue == BASKETBALL_NBT_BOOL_VALUE) {
-                    return true;
+        // Check NBT first using contains method; traced as 1 for the tag, 0 without it, -1 if the check failed
+        int nbt = -1;
+        if (nbtAvailable) {
+            try {
+                if (NBTEditor.contains(item, BASKETBALL_NBT_KEY)) {
+                    // Get as boolean (since we set it as boolean)
+                    boolean boolValue = NBTEditor.getBoolean(item, BASKETBALL_NBT_KEY);
+                    if (boolValue == BASKETBALL_NBT_BOOL_VALUE) {
+                        trace(plugin, item, 1, -1);
+                        return true;
+                    }
                 }
-            } else if (plugin != null && plugin.getConfigManager().isDebugEnabled()) {
-                plugin.getLogger().info("NBT does not contain basketball key");
-            }
-        } catch (Exception e) {
-            // NBT check failed, fallback to material check
-            if (plugin != null && plugin.getConfigManager().isDebugEnabled()) {
-                plugin.getLogger().info("NBT check failed: " + e.getMessage());
+                nbt = 0;
+            } catch (Exception e) {
+                // NBT check failed, fallback to material check
+            } catch (LinkageError e) {
+                disableNbt(plugin, e);
             }
         }
         
         // Fallback to material check
         if (plugin != null) {
-            boolean isMaterialMatch = item.getType() == plugin.getConfigManager().getBasketballMaterial() &&
-                   item.getData().getData() == plugin.getConfigManager().getBasketballData();
-            
-            if (plugin.getConfigManager().isDebugEnabled()) {
-                plugin.getLogger().info("Material check result: " + isMaterialMatch);
-            }
-            
+            boolean isMaterialMatch = matchesBasketballMaterial(item, plugin.getConfigManager().getBasketballMaterial(),
+                plugin.getConfigManager().getBasketballData());
+            trace(plugin, item, nbt, isMaterialMatch ? 1 : 0);
             return isMaterialMatch;
         }
         
         return false;
     }
     
+    /**
+     * Tag an item as a basketball with NBT
+     * 
+     * @param item The item to tag
+     * @return The tagged item, or the item itself if NBT is not available on this server
+     */
+    public static ItemStack tagBasketballItem(ItemStack item) {
+        if (!nbtAvailable) {
+            return item;
+        }
+        
+        try {
+            return NBTEditor.set(item, BASKETBALL_NBT_BOOL_VALUE, BASKETBALL_NBT_KEY);
+        } catch (LinkageError e) {
+            disableNbt(BasketballPlugin.getInstance(), e);
+            return item;
+        }
+    }
+    
+    /**
+     * Stop using NBTEditor after it failed to load, items are then only
+     * recognised by their material
+     */
+    private static void disableNbt(BasketballPlugin plugin, LinkageError e) {
+        nbtAvailable = false;
+        if (plugin != null) {
+            plugin.getLogger().warning("NBTEditor does not support this server, basketballs are recognised by material only: " + e);
+        }
+    }
+    
+    private static void trace(BasketballPlugin plugin, ItemStack item, int nbt, int materialMatch) {
+        if (plugin != null && plugin.getTraceManager().isEnabled()) {
+            plugin.getTraceManager().trace(TraceManager.Event.ITEM_CHECK, null, null,
+                item.getDurability(), nbt, materialMatch, item.getType());
+        }
+    }
+    
+    /**
+     * Check if an item has the configured basketball material and data value,
+     * the fallback for items without the NBT tag
+     * 
+     * @param item The item to check
+     * @param material The basketball material
+     * @param data The basketball data value
+     * @return True if material and data match
+     */
+    public static boolean matchesBasketballMaterial(ItemStack item, Material material, byte data) {
+        return item.getType() == material && item.getData().getData() == data;
+    }
+    
     /**
      * Translate color codes in a string
      * 
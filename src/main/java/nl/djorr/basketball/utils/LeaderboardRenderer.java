@@ -0,0 +1,97 @@
+package nl.djorr.basketball.utils;
+
+import org.bukkit.ChatColor;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Renders the lines of a court leaderboard hologram. Pure string work, so it
+ * runs off the main thread and without a server.
+ * 
+ * @author Djorr
+ */
+public final class LeaderboardRenderer {
+    
+    private LeaderboardRenderer() {
+    }
+    
+    /**
+     * Render leaderboard lines. Safe to call off the main thread.
+     * 
+     * @param live True to show live scores, false to show top winners
+     * @param entries Player names and scores, or player names and wins already ordered best first
+     * @return List of formatted lines
+     */
+    public static List<String> render(boolean live, List<Map.Entry<String, Integer>> entries) {
+        List<String> lines = new ArrayList<>();
+        
+        // Header
+        lines.add(ChatColor.GOLD + "╔══════════════════════════════════════╗");
+        lines.add(ChatColor.GOLD + "║" + ChatColor.YELLOW + "        [Basketbal Leaderboard]        " + ChatColor.GOLD + "║");
+        lines.add(ChatColor.GOLD + "║" + ChatColor.GREEN + "    Behaal de 10 punten en win!    " + ChatColor.GOLD + "║");
+        lines.add(ChatColor.GOLD + "╠══════════════════════════════════════╣");
+        
+        if (!live) {
+            // No players in region - show top 10 winners
+            lines.add(ChatColor.GOLD + "║" + ChatColor.GRAY + "                                    " + ChatColor.GOLD + "║");
+            lines.add(ChatColor.GOLD + "║" + ChatColor.YELLOW + "           Top Winners            " + ChatColor.GOLD + "║");
+            lines.add(ChatColor.GOLD + "╠══════════════════════════════════════╣");
+            
+            // Already ordered and limited by the wins leaderboard
+            List<Map.Entry<String, Integer>> sortedWins = entries;
+            
+            if (sortedWins.isEmpty()) {
+                lines.add(ChatColor.GOLD + "║" + ChatColor.GRAY + "         Nog geen wins!          " + ChatColor.GOLD + "║");
+            } else {
+                for (int i = 0; i < sortedWins.size(); i++) {
+                    Map.Entry<String, Integer> entry = sortedWins.get(i);
+                    lines.add(formatEntryLine(i, entry.getKey() + ": " + entry.getValue() + " wins"));
+                }
+            }
+        } else {
+            // Players in region - show live scores
+            lines.add(ChatColor.GOLD + "║" + ChatColor.YELLOW + "           Live Scores            " + ChatColor.GOLD + "║");
+            lines.add(ChatColor.GOLD + "╠══════════════════════════════════════╣");
+            
+            List<Map.Entry<String, Integer>> sortedScores = entries.stream()
+                .sorted(Map.Entry.<String, Integer>comparingByValue().reversed())
+                .collect(Collectors.toList());
+            
+            for (int i = 0; i < sortedScores.size(); i++) {
+                Map.Entry<String, Integer> entry = sortedScores.get(i);
+                lines.add(formatEntryLine(i, entry.getKey() + ": " + entry.getValue()));
+            }
+        }
+        
+        // Footer
+        lines.add(ChatColor.GOLD + "╚══════════════════════════════════════╝");
+        
+        return lines;
+    }
+    
+    /**
+     * Format a ranked leaderboard line
+     * 
+     * @param rank The zero based rank
+     * @param text The text to show
+     * @return The formatted line
+     */
+    private static String formatEntryLine(int rank, String text) {
+        ChatColor color;
+        if (rank == 0) color = ChatColor.GOLD;      // 1st place
+        else if (rank == 1) color = ChatColor.GRAY;  // 2nd place
+        else if (rank == 2) color = ChatColor.RED;   // 3rd place
+        else color = ChatColor.WHITE;                // 4th+ place
+        
+        StringBuilder line = new StringBuilder().append(ChatColor.GOLD).append("║").append(color).append(" ").append(text);
+        // Pad to 36 characters
+        while (line.length() < 36) {
+            line.append(' ');
+        }
+        line.append(ChatColor.GOLD).append("║");
+        return line.toString();
+    }
+}
@@ -0,0 +1,270 @@
+package nl.djorr.basketball.utils;
+
+import nl.djorr.basketball.BasketballPlugin;
+import org.bukkit.entity.Player;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+
+/**
+ * Bridge to the NMS packet layer for titles and action bars.
+ * All reflection is resolved once when the plugin enables; sending a packet
+ * afterwards only goes through the cached method handles.
+ *
+ * @author Djorr
+ */
+public class NMSBridge {
+
+    private final BasketballPlugin plugin;
+    private final String serverVersion;
+
+    // Cached handles, all adapted to Object signatures so they can be invoked exactly
+    private MethodHandle getHandle;          // (Object craftPlayer) -> Object entityPlayer
+    private MethodHandle getConnection;      // (Object entityPlayer) -> Object playerConnection
+    private MethodHandle sendPacket;         // (Object playerConnection, Object packet) -> void
+    private MethodHandle newChatComponent;   // (String text) -> Object component
+    private MethodHandle newTitlePacket;     // (Object action, Object component, int, int, int) -> Object packet
+    private MethodHandle newActionBarPacket; // (Object component) -> Object packet
+
+    private Object titleAction;
+    private Object subtitleAction;
+    private Object timesAction;
+
+    private boolean available;
+
+    /**
+     * Constructor for NMSBridge
+     *
+     * @param plugin The plugin instance
+     */
+    public NMSBridge(BasketballPlugin plugin) {
+        this.plugin = plugin;
+        this.serverVersion = parseServerVersion(plugin.getServer().getClass().getPackage().getName());
+        this.available = serverVersion != null && resolve();
+        if (serverVersion == null) {
+            plugin.getLogger().warning("Not a CraftBukkit server, falling back to chat for titles and action bars");
+        }
+    }
+
+    /**
+     * Read the NMS version from the CraftBukkit server package
+     *
+     * @param serverPackage The package of the server class, e.g. org.bukkit.craftbukkit.v1_12_R1
+     * @return The version, or null if the server is not CraftBukkit
+     */
+    private static String parseServerVersion(String serverPackage) {
+        String[] parts = serverPackage.split("\\.");
+        return parts.length > 3 && serverPackage.startsWith("org.bukkit.craftbukkit.") ? parts[3] : null;
+    }
+
+    /**
+     * Resolve all NMS classes, constructors and methods
+     *
+     * @return True if the packet layer is usable on this server
+     */
+    private boolean resolve() {
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+
+            Class<?> craftPlayerClass = Class.forName("org.bukkit.craftbukkit." + serverVersion + ".entity.CraftPlayer");
+            Class<?> entityPlayerClass = getNMSClass("EntityPlayer");
+            Class<?> playerConnectionClass = getNMSClass("PlayerConnection");
+            Class<?> packetClass = getNMSClass("Packet");
+            Class<?> chatComponentClass = getNMSClass("IChatBaseComponent");
+            Class<?> chatComponentTextClass = getNMSClass("ChatComponentText");
+            Class<?> titlePacketClass = getNMSClass("PacketPlayOutTitle");
+            Class<?> titleActionClass = getNMSClass("PacketPlayOutTitle$EnumTitleAction");
+            Class<?> chatPacketClass = getNMSClass("PacketPlayOutChat");
+
+            this.getHandle = lookup.findVirtual(craftPlayerClass, "getHandle", MethodType.methodType(entityPlayerClass))
+                .asType(MethodType.methodType(Object.class, Object.class));
+            this.getConnection = lookup.unreflectGetter(entityPlayerClass.getField("playerConnection"))
+                .asType(MethodType.methodType(Object.class, Object.class));
+            this.sendPacket = lookup.findVirtual(playerConnectionClass, "sendPacket", MethodType.methodType(void.class, packetClass))
+                .asType(MethodType.methodType(void.class, Object.class, Object.class));
+            this.newChatComponent = lookup.findConstructor(chatComponentTextClass, MethodType.methodType(void.class, String.class))
+                .asType(MethodType.methodType(Object.class, String.class));
+            this.newTitlePacket = lookup.findConstructor(titlePacketClass,
+                    MethodType.methodType(void.class, titleActionClass, chatComponentClass, int.class, int.class, int.class))
+                .asType(MethodType.methodType(Object.class, Object.class, Object.class, int.class, int.class, int.class));
+
+            this.titleAction = titleActionClass.getField("TITLE").get(null);
+            this.subtitleAction = titleActionClass.getField("SUBTITLE").get(null);
+            this.timesAction = titleActionClass.getField("TIMES").get(null);
+
+            this.newActionBarPacket = resolveActionBarPacket(lookup, chatPacketClass, chatComponentClass);
+
+            if (plugin.getConfigManager().isDebugEnabled()) {
+                plugin.getLogger().info("NMS packet bridge resolved for " + serverVersion);
+            }
+            return true;
+        } catch (Throwable e) {
+            plugin.getLogger().warning("Could not resolve NMS packet layer for " + serverVersion + ", falling back to chat: " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Resolve the action bar packet constructor. 1.12 uses a ChatMessageType,
+     * older builds still use the byte position constructor.
+     */
+    private MethodHandle resolveActionBarPacket(MethodHandles.Lookup lookup, Class<?> chatPacketClass, Class<?> chatComponentClass) throws Exception {
+        try {
+            Class<?> messageTypeClass = getNMSClass("ChatMessageType");
+            Object gameInfo = messageTypeClass.getField("GAME_INFO").get(null);
+            MethodHandle constructor = lookup.findConstructor(chatPacketClass,
+                MethodType.methodType(void.class, chatComponentClass, messageTypeClass));
+            return MethodHandles.insertArguments(constructor, 1, gameInfo)
+                .asType(MethodType.methodType(Object.class, Object.class));
+        } catch (ClassNotFoundException | NoSuchMethodException e) {
+            MethodHandle constructor = lookup.findConstructor(chatPacketClass,
+                MethodType.methodType(void.class, chatComponentClass, byte.class));
+            return MethodHandles.insertArguments(constructor, 1, (byte) 2)
+                .asType(MethodType.methodType(Object.class, Object.class));
+        }
+    }
+
+    /**
+     * Check if the packet layer was resolved
+     *
+     * @return True if packets can be sent
+     */
+    public boolean isAvailable() {
+        return available;
+    }
+
+    /**
+     * Send a title and subtitle with explicit timings
+     *
+     * @param player The player
+     * @param title The title text
+     * @param subtitle The subtitle text
+     * @param fadeIn Fade in ticks
+     * @param stay Stay ticks
+     * @param fadeOut Fade out ticks
+     * @return The number of packets sent, 0 if the title could not be sent
+     */
+    public int sendTitle(Player player, String title, String subtitle, int fadeIn, int stay, int fadeOut) {
+        if (!available) {
+            return 0;
+        }
+
+        int sent = 0;
+        try {
+            Object connection = getConnection(player);
+            sendPacket.invokeExact(connection, (Object) newTitlePacket.invokeExact(timesAction, (Object) null, fadeIn, stay, fadeOut));
+            sent++;
+            sendPacket.invokeExact(connection, createTitlePacket(titleAction, title));
+            sent++;
+            sendPacket.invokeExact(connection, createTitlePacket(subtitleAction, subtitle));
+            sent++;
+        } catch (Throwable e) {
+            // Report what did go out
+        }
+        return sent;
+    }
+
+    /**
+     * Send a title and subtitle using the client's current timings
+     *
+     * @param player The player
+     * @param title The title text
+     * @param subtitle The subtitle text
+     * @return The number of packets sent, 0 if the title could not be sent
+     */
+    public int sendTitle(Player player, String title, String subtitle) {
+        if (!available) {
+            return 0;
+        }
+
+        int sent = 0;
+        try {
+            Object connection = getConnection(player);
+            sendPacket.invokeExact(connection, createTitlePacket(titleAction, title));
+            sent++;
+            sendPacket.invokeExact(connection, createTitlePacket(subtitleAction, subtitle));
+            sent++;
+        } catch (Throwable e) {
+            // Report what did go out
+        }
+        return sent;
+    }
+
+    /**
+     * Send an action bar message
+     *
+     * @param player The player
+     * @param message The message
+     * @return True if the packet was sent
+     */
+    public boolean sendActionBar(Player player, String message) {
+        if (!available) {
+            return false;
+        }
+
+        try {
+            Object component = newChatComponent.invokeExact(message);
+            sendPacket.invokeExact(getConnection(player), (Object) newActionBarPacket.invokeExact(component));
+            return true;
+        } catch (Throwable e) {
+            return false;
+        }
+    }
+
+    /**
+     * Send an already constructed NMS packet
+     *
+     * @param player The player
+     * @param packet The NMS packet
+     * @return True if the packet was sent
+     */
+    public boolean sendRaw(Player player, Object packet) {
+        if (!available || packet == null) {
+            return false;
+        }
+
+        try {
+            sendPacket.invokeExact(getConnection(player), packet);
+            return true;
+        } catch (Throwable e) {
+            return false;
+        }
+    }
+
+    /**
+     * Get the NMS player connection of a player
+     */
+    private Object getConnection(Player player) throws Throwable {
+        Object entityPlayer = getHandle.invokeExact((Object) player);
+        return (Object) getConnection.invokeExact(entityPlayer);
+    }
+
+    /**
+     * Create a title or subtitle packet
+     */
+    private Object createTitlePacket(Object action, String text) throws Throwable {
+        Object component = newChatComponent.invokeExact(text == null ? "" : text);
+        return (Object) newTitlePacket.invokeExact(action, component, -1, -1, -1);
+    }
+
+    /**
+     * Get NMS class for the running server version
+     *
+     * @param className The class name
+     * @return The class
+     * @throws ClassNotFoundException If the class does not exist
+     */
+    private Class<?> getNMSClass(String className) throws ClassNotFoundException {
+        return Class.forName("net.minecraft.server." + serverVersion + "." + className);
+    }
+
+    /**
+     * Get the server version
+     *
+     * @return The server version, e.g. v1_12_R1
+     */
+    public String getServerVersion() {
+        return serverVersion;
+    }
+}
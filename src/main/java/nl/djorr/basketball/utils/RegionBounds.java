@@ -0,0 +1,47 @@
+package nl.djorr.basketball.utils;
+
+/**
+ * Checks against court bounds in the layout returned by
+ * {@code BasketballRegion.getRegionBounds()}: minX, maxX, minY, maxY, minZ, maxZ,
+ * all inclusive block coordinates.
+ *
+ * @author Djorr
+ */
+public final class RegionBounds {
+
+    private RegionBounds() {
+    }
+
+    /**
+     * Check if a block position lies within bounds
+     *
+     * @param bounds The court bounds
+     * @param x The block X
+     * @param y The block Y
+     * @param z The block Z
+     * @return True if inside
+     */
+    public static boolean contains(int[] bounds, int x, int y, int z) {
+        return x >= bounds[0] && x <= bounds[1] &&
+               y >= bounds[2] && y <= bounds[3] &&
+               z >= bounds[4] && z <= bounds[5];
+    }
+
+    /**
+     * Find the first bounds that contain a block position
+     *
+     * @param courts The bounds of every court, null entries are skipped
+     * @param x The block X
+     * @param y The block Y
+     * @param z The block Z
+     * @return The index of the court, or -1 if none contains the position
+     */
+    public static int find(int[][] courts, int x, int y, int z) {
+        for (int i = 0; i < courts.length; i++) {
+            if (courts[i] != null && contains(courts[i], x, y, z)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,389 @@
+package nl.djorr.basketball.utils;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Uniform grid of square columns on X and Z for the players or balls of one
+ * court. Each item is kept in the column of its last known position, so
+ * nearest and within-radius queries only look at the columns around the
+ * query point and compare squared distances, without {@code Location}
+ * objects or square roots.
+ * <p>
+ * Columns are found through an open-addressing table on the packed column
+ * coordinates and are kept once created, so updates and queries allocate
+ * nothing once a court's columns exist. Not thread-safe.
+ *
+ * @param <T> The item type
+ * @author Djorr
+ */
+public class SpatialHash<T> {
+
+    private static final int MIN_CAPACITY = 16;
+
+    private final double cellSize;
+    private final double inverseCellSize;
+    private final Map<T, Entry<T>> entries = new HashMap<>();
+
+    // Column table, linear probing; keys are packed column coordinates
+    private long[] keys;
+    private Cell<T>[] cells;
+    private int mask;
+    private int cellCount;
+
+    // Columns that held an item since the hash was last empty
+    private int minCellX;
+    private int maxCellX;
+    private int minCellZ;
+    private int maxCellZ;
+
+    // Scratch for nearest-K queries
+    private double[] bestDistances = new double[4];
+    private Object[] bestItems = new Object[4];
+
+    /**
+     * Constructor for SpatialHash
+     *
+     * @param cellSize The width of a column in blocks
+     */
+    public SpatialHash(double cellSize) {
+        if (!(cellSize > 0)) {
+            throw new IllegalArgumentException("Cell size must be positive: " + cellSize);
+        }
+        this.cellSize = cellSize;
+        this.inverseCellSize = 1.0 / cellSize;
+        allocate(MIN_CAPACITY);
+    }
+
+    /**
+     * Add an item or move it to a new position
+     *
+     * @param item The item
+     * @param x The X coordinate
+     * @param y The Y coordinate
+     * @param z The Z coordinate
+     */
+    public void update(T item, double x, double y, double z) {
+        int cellX = cell(x);
+        int cellZ = cell(z);
+        Entry<T> entry = entries.get(item);
+        if (entry == null) {
+            entry = new Entry<>(item);
+            entries.put(item, entry);
+        } else if (entry.cell.x == cellX && entry.cell.z == cellZ) {
+            entry.x = x;
+            entry.y = y;
+            entry.z = z;
+            return;
+        } else {
+            entry.cell.remove(entry);
+        }
+
+        entry.x = x;
+        entry.y = y;
+        entry.z = z;
+        cellFor(cellX, cellZ).add(entry);
+
+        if (entries.size() == 1) {
+            minCellX = maxCellX = cellX;
+            minCellZ = maxCellZ = cellZ;
+        } else {
+            minCellX = Math.min(minCellX, cellX);
+            maxCellX = Math.max(maxCellX, cellX);
+            minCellZ = Math.min(minCellZ, cellZ);
+            maxCellZ = Math.max(maxCellZ, cellZ);
+        }
+    }
+
+    /**
+     * Remove an item
+     *
+     * @param item The item
+     * @return True if it was present
+     */
+    public boolean remove(T item) {
+        Entry<T> entry = entries.remove(item);
+        if (entry == null) {
+            return false;
+        }
+        entry.cell.remove(entry);
+        return true;
+    }
+
+    /**
+     * Check if an item is present
+     */
+    public boolean contains(T item) {
+        return entries.containsKey(item);
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Remove every item
+     */
+    public void clear() {
+        entries.clear();
+        allocate(MIN_CAPACITY);
+    }
+
+    /**
+     * Find the nearest item
+     *
+     * @param x The X coordinate
+     * @param y The Y coordinate
+     * @param z The Z coordinate
+     * @param maxDistance The maximum distance, {@link Double#MAX_VALUE} for any
+     * @return The nearest item, or null if none is within the distance
+     */
+    @SuppressWarnings("unchecked")
+    public T nearest(double x, double y, double z, double maxDistance) {
+        return search(x, y, z, 1, maxDistance) > 0 ? (T) bestItems[0] : null;
+    }
+
+    /**
+     * Find the nearest items, nearest first
+     *
+     * @param x The X coordinate
+     * @param y The Y coordinate
+     * @param z The Z coordinate
+     * @param k The maximum number of items
+     * @param maxDistance The maximum distance, {@link Double#MAX_VALUE} for any
+     * @param out The list the items are added to
+     * @return The list
+     */
+    @SuppressWarnings("unchecked")
+    public List<T> nearest(double x, double y, double z, int k, double maxDistance, List<T> out) {
+        int found = search(x, y, z, k, maxDistance);
+        for (int i = 0; i < found; i++) {
+            out.add((T) bestItems[i]);
+        }
+        return out;
+    }
+
+    /**
+     * Find the items within a distance, in no particular order
+     *
+     * @param x The X coordinate
+     * @param y The Y coordinate
+     * @param z The Z coordinate
+     * @param radius The distance
+     * @param out The list the items are added to
+     * @return The list
+     */
+    public List<T> within(double x, double y, double z, double radius, List<T> out) {
+        if (entries.isEmpty()) {
+            return out;
+        }
+
+        double radiusSquared = radius * radius;
+        int fromX = Math.max(cell(x - radius), minCellX);
+        int toX = Math.min(cell(x + radius), maxCellX);
+        int fromZ = Math.max(cell(z - radius), minCellZ);
+        int toZ = Math.min(cell(z + radius), maxCellZ);
+        for (int cellX = fromX; cellX <= toX; cellX++) {
+            for (int cellZ = fromZ; cellZ <= toZ; cellZ++) {
+                Cell<T> cell = findCell(cellX, cellZ);
+                if (cell == null) {
+                    continue;
+                }
+                for (int i = 0; i < cell.size; i++) {
+                    Entry<T> entry = cell.entries[i];
+                    if (distanceSquared(entry, x, y, z) <= radiusSquared) {
+                        out.add(entry.item);
+                    }
+                }
+            }
+        }
+        return out;
+    }
+
+    /**
+     * Collect the k nearest items into the scratch arrays, searching rings of
+     * columns outwards until no unvisited column can hold a nearer item
+     *
+     * @return The number of items found
+     */
+    private int search(double x, double y, double z, int k, double maxDistance) {
+        if (entries.isEmpty() || k <= 0) {
+            return 0;
+        }
+        if (bestDistances.length < k) {
+            bestDistances = new double[k];
+            bestItems = new Object[k];
+        }
+
+        int centerX = cell(x);
+        int centerZ = cell(z);
+        double maxDistanceSquared = maxDistance == Double.MAX_VALUE ? Double.MAX_VALUE : maxDistance * maxDistance;
+        int lastRing = Math.max(Math.max(centerX - minCellX, maxCellX - centerX), Math.max(centerZ - minCellZ, maxCellZ - centerZ));
+        if (maxDistance != Double.MAX_VALUE) {
+            lastRing = Math.min(lastRing, (int) Math.ceil(maxDistance * inverseCellSize));
+        }
+
+        int found = 0;
+        for (int ring = 0; ring <= lastRing; ring++) {
+            // Everything in this ring is at least (ring - 1) columns away
+            double ringDistance = Math.max(0, ring - 1) * cellSize;
+            double ringDistanceSquared = ringDistance * ringDistance;
+            if (ringDistanceSquared > maxDistanceSquared || (found == k && ringDistanceSquared > bestDistances[k - 1])) {
+                break;
+            }
+
+            for (int cellX = centerX - ring; cellX <= centerX + ring; cellX++) {
+                // Only the edge of the ring, the inside was searched before
+                int step = cellX == centerX - ring || cellX == centerX + ring ? 1 : Math.max(1, ring * 2);
+                for (int cellZ = centerZ - ring; cellZ <= centerZ + ring; cellZ += step) {
+                    Cell<T> cell = findCell(cellX, cellZ);
+                    if (cell == null) {
+                        continue;
+                    }
+                    for (int i = 0; i < cell.size; i++) {
+                        Entry<T> entry = cell.entries[i];
+                        double distanceSquared = distanceSquared(entry, x, y, z);
+                        if (distanceSquared > maxDistanceSquared || (found == k && distanceSquared >= bestDistances[k - 1])) {
+                            continue;
+                        }
+
+                        // Insert into the sorted scratch arrays
+                        int position = found < k ? found++ : k - 1;
+                        while (position > 0 && bestDistances[position - 1] > distanceSquared) {
+                            bestDistances[position] = bestDistances[position - 1];
+                            bestItems[position] = bestItems[position - 1];
+                            position--;
+                        }
+                        bestDistances[position] = distanceSquared;
+                        bestItems[position] = entry.item;
+                    }
+                }
+            }
+        }
+
+        // Do not keep references to items that may leave the court
+        Arrays.fill(bestItems, found, bestItems.length, null);
+        return found;
+    }
+
+    private static double distanceSquared(Entry<?> entry, double x, double y, double z) {
+        double dx = entry.x - x;
+        double dy = entry.y - y;
+        double dz = entry.z - z;
+        return dx * dx + dy * dy + dz * dz;
+    }
+
+    private int cell(double coordinate) {
+        return (int) Math.floor(coordinate * inverseCellSize);
+    }
+
+    private static long pack(int cellX, int cellZ) {
+        return ((long) cellX << 32) | (cellZ & 0xFFFFFFFFL);
+    }
+
+    private static int hash(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    private Cell<T> findCell(int cellX, int cellZ) {
+        long key = pack(cellX, cellZ);
+        for (int slot = hash(key) & mask; cells[slot] != null; slot = (slot + 1) & mask) {
+            if (keys[slot] == key) {
+                return cells[slot];
+            }
+        }
+        return null;
+    }
+
+    private Cell<T> cellFor(int cellX, int cellZ) {
+        Cell<T> cell = findCell(cellX, cellZ);
+        if (cell != null) {
+            return cell;
+        }
+
+        if ((cellCount + 1) * 4 > cells.length * 3) {
+            Cell<T>[] oldCells = cells;
+            allocate(cells.length * 2);
+            for (Cell<T> old : oldCells) {
+                if (old != null) {
+                    insert(old);
+                }
+            }
+        }
+
+        cell = new Cell<>(cellX, cellZ);
+        insert(cell);
+        return cell;
+    }
+
+    private void insert(Cell<T> cell) {
+        long key = pack(cell.x, cell.z);
+        int slot = hash(key) & mask;
+        while (cells[slot] != null) {
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = key;
+        cells[slot] = cell;
+        cellCount++;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        cells = (Cell<T>[]) new Cell[capacity];
+        mask = capacity - 1;
+        cellCount = 0;
+    }
+
+    /**
+     * An item and its last known position
+     */
+    private static final class Entry<T> {
+        private final T item;
+        private double x;
+        private double y;
+        private double z;
+        private Cell<T> cell;
+        private int index; // Position in the cell
+
+        private Entry(T item) {
+            this.item = item;
+        }
+    }
+
+    /**
+     * The items of one column
+     */
+    private static final class Cell<T> {
+        private final int x;
+        private final int z;
+        @SuppressWarnings("unchecked")
+        private Entry<T>[] entries = (Entry<T>[]) new Entry[4];
+        private int size;
+
+        private Cell(int x, int z) {
+            this.x = x;
+            this.z = z;
+        }
+
+        private void add(Entry<T> entry) {
+            if (size == entries.length) {
+                entries = Arrays.copyOf(entries, size * 2);
+            }
+            entry.cell = this;
+            entry.index = size;
+            entries[size++] = entry;
+        }
+
+        private void remove(Entry<T> entry) {
+            // Move the last entry into the gap
+            Entry<T> last = entries[--size];
+            entries[entry.index] = last;
+            last.index = entry.index;
+            entries[size] = null;
+        }
+    }
+}
@@ -0,0 +1,442 @@
+package nl.djorr.basketball.utils;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+
+/**
+ * One recorded throw: the solid blocks around the court, the court bounds,
+ * the physics profile it was thrown with and every physics tick of the live
+ * ball. A tick holds what {@link BallPhysics#update} got from the entity
+ * (position, velocity and bounces) and what it returned. Free of Bukkit
+ * types, so a throw recorded on a server can be replayed through
+ * {@link BallPhysics} anywhere.
+ * <p>
+ * The golden hash is taken over the live results, so it is the trajectory
+ * the server really computed. The replay feeds the recorded inputs of every
+ * tick through the physics core again and hashes its results the same way;
+ * any change to the core that alters a tick of the flight changes the hash.
+ * The inputs come from the entity rather than from the previous replayed
+ * tick, because the live entity also moves by vanilla motion between the
+ * physics ticks.
+ *
+ * @author Djorr
+ */
+public final class ThrowRecording {
+
+    private static final int MAGIC = 0x42425452; // "BBTR"
+    private static final short VERSION = 3;
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    /**
+     * Doubles per tick: x, y, z, velocityX, velocityY, velocityZ in and
+     * velocityX, velocityY, velocityZ out
+     */
+    public static final int TICK_DOUBLES = 9;
+    /**
+     * Ints per tick: bounces in, bounces out and the result ordinal
+     */
+    public static final int TICK_INTS = 3;
+
+    private final String court;
+    private final long recordedAt;
+    private final int maxBounces;
+    private final double[] profile;
+    private final int[] origin; // Lowest corner of the snapshot
+    private final int[] size;
+    private final long[] solid; // One bit per block of the snapshot
+    private final long snapshotHash;
+    private final int[] bounds; // Court bounds, null when the ball had no court
+    private double[] tickValues;
+    private int[] tickCounts;
+    private long goldenHash;
+    private int goldenTicks;
+
+    /**
+     * Create a recording sealed with the live trajectory
+     *
+     * @param court The court name, may be empty
+     * @param recordedAt The time of the throw in milliseconds
+     * @param maxBounces The max bounces the throw was made with
+     * @param origin The lowest corner of the snapshot
+     * @param size The size of the snapshot on each axis
+     * @param solid The solid blocks of the snapshot, see {@link #index(int[], int, int, int)}
+     * @param bounds The court bounds, or null
+     * @param tickValues The live ticks, {@link #TICK_DOUBLES} per tick
+     * @param tickCounts The live ticks, {@link #TICK_INTS} per tick
+     */
+    public ThrowRecording(String court, long recordedAt, int maxBounces, int[] origin, int[] size, long[] solid,
+                          int[] bounds, double[] tickValues, int[] tickCounts) {
+        this(court, recordedAt, maxBounces, currentProfile(), origin, size, solid, hash(solid, size), bounds,
+            tickValues, tickCounts);
+        int ticks = getLiveTicks();
+        long hash = FNV_OFFSET;
+        for (int tick = 0; tick < ticks; tick++) {
+            int values = tick * TICK_DOUBLES;
+            int counts = tick * TICK_INTS;
+            hash = mixTick(hash, tickValues[values + 6], tickValues[values + 7], tickValues[values + 8],
+                tickCounts[counts + 1], tickCounts[counts + 2]);
+        }
+        this.goldenHash = hash;
+        this.goldenTicks = ticks;
+    }
+
+    private ThrowRecording(String court, long recordedAt, int maxBounces, double[] profile, int[] origin, int[] size,
+                           long[] solid, long snapshotHash, int[] bounds, double[] tickValues, int[] tickCounts) {
+        this.court = court;
+        this.recordedAt = recordedAt;
+        this.maxBounces = maxBounces;
+        this.profile = profile;
+        this.origin = origin;
+        this.size = size;
+        this.solid = solid;
+        this.snapshotHash = snapshotHash;
+        this.bounds = bounds;
+        this.tickValues = tickValues;
+        this.tickCounts = tickCounts;
+    }
+
+    /**
+     * Get the number of words needed for the solid bits of a snapshot
+     */
+    public static int words(int sizeX, int sizeY, int sizeZ) {
+        return (sizeX * sizeY * sizeZ + 63) >>> 6;
+    }
+
+    /**
+     * Get the bit index of a block inside a snapshot
+     */
+    public static int index(int[] size, int x, int y, int z) {
+        return (y * size[2] + z) * size[0] + x;
+    }
+
+    /**
+     * The physics profile: the constants of {@link BallPhysics} that shape a
+     * flight
+     */
+    private static double[] currentProfile() {
+        return new double[] {
+            BallPhysics.GRAVITY, BallPhysics.AIR_RESISTANCE, BallPhysics.REST_SPEED,
+            BallPhysics.BOUNCE_MULTIPLIER, BallPhysics.BOUNCE_ENERGY_LOSS, BallPhysics.MIN_BOUNCE_HEIGHT,
+            BallPhysics.MIN_BOUNCE_IMPACT, BallPhysics.BOUNCE_FRICTION, BallPhysics.STUCK_SPEED,
+            BallPhysics.BOUNDARY_MARGIN
+        };
+    }
+
+    private static long hash(long[] solid, int[] size) {
+        CRC32 crc = new CRC32();
+        for (int value : size) {
+            crc.update(value);
+        }
+        for (long word : solid) {
+            for (int shift = 0; shift < 64; shift += 8) {
+                crc.update((int) (word >>> shift));
+            }
+        }
+        return crc.getValue();
+    }
+
+    /**
+     * Replay the throw once and store its trajectory as the golden result,
+     * after a physics change that is meant to alter the flight. The results
+     * of the replay replace the live ones.
+     *
+     * @return This recording
+     */
+    public ThrowRecording seal() {
+        Replay replay = replay(true);
+        this.tickValues = Arrays.copyOf(tickValues, replay.getTicks() * TICK_DOUBLES);
+        this.tickCounts = Arrays.copyOf(tickCounts, replay.getTicks() * TICK_INTS);
+        this.goldenHash = replay.getTrajectoryHash();
+        this.goldenTicks = replay.getTicks();
+        return this;
+    }
+
+    /**
+     * Re-run every recorded tick through the physics core
+     *
+     * @return The replay result
+     */
+    public Replay replay() {
+        return replay(false);
+    }
+
+    private Replay replay(boolean store) {
+        BallPhysics.State ball = new BallPhysics.State(0, 0, 0, 0, 0, 0);
+        BallPhysics.BlockProbe blocks = (x, y, z) -> {
+            int localX = x - origin[0];
+            int localY = y - origin[1];
+            int localZ = z - origin[2];
+            if (localX < 0 || localY < 0 || localZ < 0 || localX >= size[0] || localY >= size[1] || localZ >= size[2]) {
+                return false;
+            }
+            int bit = index(size, localX, localY, localZ);
+            return (solid[bit >>> 6] & (1L << bit)) != 0;
+        };
+        BallPhysics.Court recordedCourt = bounds != null ? () -> bounds : null;
+
+        long hash = FNV_OFFSET;
+        int firstDifference = -1;
+        BallPhysics.StepResult result = BallPhysics.StepResult.FLYING;
+        int liveTicks = getLiveTicks();
+        int ticks = 0;
+        while (ticks < liveTicks) {
+            int values = ticks * TICK_DOUBLES;
+            int counts = ticks * TICK_INTS;
+            ball.set(tickValues[values], tickValues[values + 1], tickValues[values + 2],
+                tickValues[values + 3], tickValues[values + 4], tickValues[values + 5]);
+            ball.setBounces(tickCounts[counts]);
+            result = BallPhysics.update(ball, blocks, recordedCourt, maxBounces);
+            ticks++;
+
+            hash = mixTick(hash, ball.getVelocityX(), ball.getVelocityY(), ball.getVelocityZ(), ball.getBounces(), result.ordinal());
+            if (firstDifference < 0 && (!same(ball.getVelocityX(), tickValues[values + 6])
+                || !same(ball.getVelocityY(), tickValues[values + 7]) || !same(ball.getVelocityZ(), tickValues[values + 8])
+                || ball.getBounces() != tickCounts[counts + 1] || result.ordinal() != tickCounts[counts + 2])) {
+                firstDifference = ticks;
+            }
+            if (store) {
+                tickValues[values + 6] = ball.getVelocityX();
+                tickValues[values + 7] = ball.getVelocityY();
+                tickValues[values + 8] = ball.getVelocityZ();
+                tickCounts[counts + 1] = ball.getBounces();
+                tickCounts[counts + 2] = result.ordinal();
+            }
+
+            if (result.isFinal()) {
+                break;
+            }
+        }
+        if (firstDifference < 0 && ticks != liveTicks) {
+            firstDifference = ticks;
+        }
+
+        return new Replay(ticks, result, hash, firstDifference);
+    }
+
+    private static boolean same(double first, double second) {
+        return Double.doubleToLongBits(first) == Double.doubleToLongBits(second);
+    }
+
+    private static long mixTick(long hash, double velocityX, double velocityY, double velocityZ, int bounces, int result) {
+        hash = mix(hash, Double.doubleToLongBits(velocityX));
+        hash = mix(hash, Double.doubleToLongBits(velocityY));
+        hash = mix(hash, Double.doubleToLongBits(velocityZ));
+        hash = mix(hash, bounces);
+        return mix(hash, result);
+    }
+
+    private static long mix(long hash, long value) {
+        for (int shift = 0; shift < 64; shift += 8) {
+            hash ^= (value >>> shift) & 0xff;
+            hash *= FNV_PRIME;
+        }
+        return hash;
+    }
+
+    /**
+     * Check if a replay gives exactly the golden trajectory
+     */
+    public boolean matchesGolden(Replay replay) {
+        return replay.getTrajectoryHash() == goldenHash && replay.getTicks() == goldenTicks;
+    }
+
+    /**
+     * Check if the snapshot still matches the hash it was recorded with
+     */
+    public boolean isSnapshotIntact() {
+        return hash(solid, size) == snapshotHash;
+    }
+
+    /**
+     * Check if the physics constants are the same as when recorded
+     */
+    public boolean isProfileCurrent() {
+        double[] current = currentProfile();
+        if (current.length != profile.length) {
+            return false;
+        }
+        for (int i = 0; i < current.length; i++) {
+            if (Double.doubleToLongBits(current[i]) != Double.doubleToLongBits(profile[i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Write the recording
+     *
+     * @param out The stream, not closed
+     */
+    public void write(OutputStream out) throws IOException {
+        DataOutputStream data = new DataOutputStream(out);
+        data.writeInt(MAGIC);
+        data.writeShort(VERSION);
+        data.writeUTF(court);
+        data.writeLong(recordedAt);
+        data.writeInt(maxBounces);
+        data.writeByte(profile.length);
+        for (double value : profile) {
+            data.writeDouble(value);
+        }
+        for (int i = 0; i < 3; i++) {
+            data.writeInt(origin[i]);
+            data.writeInt(size[i]);
+        }
+        data.writeInt(solid.length);
+        for (long word : solid) {
+            data.writeLong(word);
+        }
+        data.writeLong(snapshotHash);
+        data.writeBoolean(bounds != null);
+        if (bounds != null) {
+            for (int value : bounds) {
+                data.writeInt(value);
+            }
+        }
+        data.writeInt(goldenTicks);
+        data.writeLong(goldenHash);
+        data.writeInt(getLiveTicks());
+        for (double value : tickValues) {
+            data.writeDouble(value);
+        }
+        for (int value : tickCounts) {
+            data.writeInt(value);
+        }
+        data.flush();
+    }
+
+    /**
+     * Read a recording
+     *
+     * @param in The stream, not closed
+     * @return The recording
+     * @throws IOException If the stream is not a recording of a known version
+     */
+    public static ThrowRecording read(InputStream in) throws IOException {
+        DataInputStream data = new DataInputStream(in);
+        if (data.readInt() != MAGIC) {
+            throw new IOException("Not a throw recording");
+        }
+        short version = data.readShort();
+        if (version != VERSION) {
+            throw new IOException("Unsupported throw recording version " + version);
+        }
+
+        String court = data.readUTF();
+        long recordedAt = data.readLong();
+        int maxBounces = data.readInt();
+        double[] profile = new double[data.readUnsignedByte()];
+        for (int i = 0; i < profile.length; i++) {
+            profile[i] = data.readDouble();
+        }
+        int[] origin = new int[3];
+        int[] size = new int[3];
+        for (int i = 0; i < 3; i++) {
+            origin[i] = data.readInt();
+            size[i] = data.readInt();
+        }
+        int words = data.readInt();
+        if (words != words(size[0], size[1], size[2])) {
+            throw new IOException("Snapshot size does not match its bits");
+        }
+        long[] solid = new long[words];
+        for (int i = 0; i < words; i++) {
+            solid[i] = data.readLong();
+        }
+        long snapshotHash = data.readLong();
+        int[] bounds = null;
+        if (data.readBoolean()) {
+            bounds = new int[6];
+            for (int i = 0; i < bounds.length; i++) {
+                bounds[i] = data.readInt();
+            }
+        }
+        int goldenTicks = data.readInt();
+        long goldenHash = data.readLong();
+        int ticks = data.readInt();
+        double[] tickValues = new double[ticks * TICK_DOUBLES];
+        for (int i = 0; i < tickValues.length; i++) {
+            tickValues[i] = data.readDouble();
+        }
+        int[] tickCounts = new int[ticks * TICK_INTS];
+        for (int i = 0; i < tickCounts.length; i++) {
+            tickCounts[i] = data.readInt();
+        }
+
+        ThrowRecording recording = new ThrowRecording(court, recordedAt, maxBounces, profile, origin, size, solid,
+            snapshotHash, bounds, tickValues, tickCounts);
+        recording.goldenHash = goldenHash;
+        recording.goldenTicks = goldenTicks;
+        return recording;
+    }
+
+    public String getCourt() {
+        return court;
+    }
+
+    public long getRecordedAt() {
+        return recordedAt;
+    }
+
+    public int getMaxBounces() {
+        return maxBounces;
+    }
+
+    public long getGoldenHash() {
+        return goldenHash;
+    }
+
+    public int getGoldenTicks() {
+        return goldenTicks;
+    }
+
+    public int getLiveTicks() {
+        return tickCounts.length / TICK_INTS;
+    }
+
+    /**
+     * Result of a replay
+     */
+    public static final class Replay {
+        private final int ticks;
+        private final BallPhysics.StepResult end;
+        private final long trajectoryHash;
+        private final int firstLiveDifference;
+
+        private Replay(int ticks, BallPhysics.StepResult end, long trajectoryHash, int firstLiveDifference) {
+            this.ticks = ticks;
+            this.end = end;
+            this.trajectoryHash = trajectoryHash;
+            this.firstLiveDifference = firstLiveDifference;
+        }
+
+        public int getTicks() {
+            return ticks;
+        }
+
+        public BallPhysics.StepResult getEnd() {
+            return end;
+        }
+
+        public long getTrajectoryHash() {
+            return trajectoryHash;
+        }
+
+        /**
+         * Get the first physics tick, counted from 1, where the replay gave
+         * another result than the live ball
+         *
+         * @return The tick, or -1 if every tick matched
+         */
+        public int getFirstLiveDifference() {
+            return firstLiveDifference;
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package nl.djorr.basketball.utils;
+
+import nl.djorr.basketball.BasketballPlugin;
+import nl.djorr.basketball.managers.TaskManager;
+import nl.djorr.basketball.managers.TimingsManager;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.scheduler.BukkitRunnable;
+import org.bukkit.scheduler.BukkitTask;
+
+/**
+ * BukkitRunnable whose runs are timed in a {@link TimingsManager} section and
+ * which is tracked by the {@link TaskManager} watchdog from the moment it is
+ * scheduled: a repeating task that is still running after its maximum
+ * lifetime is cancelled through {@link #cancel()}, so subclasses that keep
+ * their own bookkeeping can override it.
+ *
+ * @author Djorr
+ */
+public abstract class TimedRunnable extends BukkitRunnable {
+
+    private final TimingsManager timings;
+    private final TimingsManager.Section section;
+    private final String sectionName;
+    private final String court;
+    private final TaskManager tasks;
+    private final long maxLifetime;
+    private long runs;
+
+    /**
+     * Constructor for TimedRunnable, with the configured maximum lifetime
+     *
+     * @param sectionName The timings section
+     * @param court The region name, or null if the work is not tied to a court
+     */
+    protected TimedRunnable(String sectionName, String court) {
+        this(sectionName, court, BasketballPlugin.getInstance().getTaskManager().getDefaultMaxLifetime());
+    }
+
+    /**
+     * Constructor for TimedRunnable
+     *
+     * @param sectionName The timings section
+     * @param court The region name, or null if the work is not tied to a court
+     * @param maxLifetime The maximum lifetime in ticks, 0 for no limit
+     */
+    protected TimedRunnable(String sectionName, String court, long maxLifetime) {
+        BasketballPlugin plugin = BasketballPlugin.getInstance();
+        this.timings = plugin.getTimingsManager();
+        this.section = timings.section(sectionName);
+        this.sectionName = sectionName;
+        this.court = court;
+        this.tasks = plugin.getTaskManager();
+        this.maxLifetime = maxLifetime;
+    }
+
+    @Override
+    public synchronized BukkitTask runTaskTimer(Plugin plugin, long delay, long period) {
+        BukkitTask task = super.runTaskTimer(plugin, delay, period);
+        register();
+        return task;
+    }
+
+    @Override
+    public synchronized BukkitTask runTaskTimerAsynchronously(Plugin plugin, long delay, long period) {
+        BukkitTask task = super.runTaskTimerAsynchronously(plugin, delay, period);
+        register();
+        return task;
+    }
+
+    private void register() {
+        // Anonymous runnables are named after the class that scheduled them
+        Class<?> owner = getClass().getEnclosingClass() != null ? getClass().getEnclosingClass() : getClass();
+        tasks.register(this, owner.getSimpleName(), sectionName, court, maxLifetime);
+    }
+
+    @Override
+    public final void run() {
+        runs++;
+        long start = timings.start();
+        try {
+            tick();
+        } finally {
+            section.stop(start, court);
+        }
+    }
+
+    @Override
+    public synchronized void cancel() throws IllegalStateException {
+        super.cancel();
+        tasks.unregister(getTaskId());
+    }
+
+    /**
+     * Get the number of times this task has run
+     */
+    public long getRuns() {
+        return runs;
+    }
+
+    /**
+     * The work of one run
+     */
+    protected abstract void tick();
+}
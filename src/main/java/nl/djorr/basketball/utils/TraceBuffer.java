@@ -0,0 +1,163 @@
+package nl.djorr.basketball.utils;
+
+import java.util.Arrays;
+
+/**
+ * Fixed-size ring of trace events, preallocated as parallel arrays so that
+ * recording an event only stores references and numbers that already exist.
+ * Old events are overwritten once the ring is full.
+ * <p>
+ * Writes and reads of a slot hold the buffer's monitor for a few stores, which
+ * is uncontended on the main thread except while a dump or drain copies an
+ * event out, so a reader never sees half of an overwritten event.
+ *
+ * @author Djorr
+ */
+public class TraceBuffer {
+
+    private final int mask;
+    private final long[] sequences;
+    private volatile long next;
+    private final long[] times;
+    private final Object[] types;
+    private final String[] players;
+    private final String[] courts;
+    private final double[] firstValues;
+    private final double[] secondValues;
+    private final double[] thirdValues;
+    private final Object[] details;
+
+    /**
+     * Constructor for TraceBuffer
+     *
+     * @param capacity The number of events kept, rounded up to a power of two
+     */
+    public TraceBuffer(int capacity) {
+        int size = Integer.highestOneBit(Math.max(16, capacity - 1)) << 1;
+        this.mask = size - 1;
+        this.sequences = new long[size];
+        Arrays.fill(sequences, -1);
+        this.times = new long[size];
+        this.types = new Object[size];
+        this.players = new String[size];
+        this.courts = new String[size];
+        this.firstValues = new double[size];
+        this.secondValues = new double[size];
+        this.thirdValues = new double[size];
+        this.details = new Object[size];
+    }
+
+    /**
+     * Record an event
+     *
+     * @param time The time in milliseconds
+     * @param type The event type
+     * @param player The player name, or null
+     * @param court The court name, or null
+     * @param first The first value
+     * @param second The second value
+     * @param third The third value
+     * @param detail An immutable detail such as an enum constant, or null
+     */
+    public synchronized void record(long time, Object type, String player, String court, double first, double second, double third, Object detail) {
+        long sequence = next;
+        int slot = (int) sequence & mask;
+        sequences[slot] = sequence;
+        times[slot] = time;
+        types[slot] = type;
+        players[slot] = player;
+        courts[slot] = court;
+        firstValues[slot] = first;
+        secondValues[slot] = second;
+        thirdValues[slot] = third;
+        details[slot] = detail;
+        next = sequence + 1;
+    }
+
+    /**
+     * Copy an event out of the ring
+     *
+     * @param sequence The sequence number of the event
+     * @param entry The entry to copy into
+     * @return False if the event was not written yet or has been overwritten
+     */
+    public synchronized boolean read(long sequence, Entry entry) {
+        int slot = (int) sequence & mask;
+        if (sequences[slot] != sequence) {
+            return false;
+        }
+        entry.sequence = sequence;
+        entry.time = times[slot];
+        entry.type = types[slot];
+        entry.player = players[slot];
+        entry.court = courts[slot];
+        entry.first = firstValues[slot];
+        entry.second = secondValues[slot];
+        entry.third = thirdValues[slot];
+        entry.detail = details[slot];
+        return true;
+    }
+
+    /**
+     * Get the sequence number the next event will get, which is also the
+     * number of events recorded so far
+     */
+    public long getHead() {
+        return next;
+    }
+
+    public int getCapacity() {
+        return mask + 1;
+    }
+
+    /**
+     * A copy of one event, reused by readers
+     */
+    public static final class Entry {
+        private long sequence;
+        private long time;
+        private Object type;
+        private String player;
+        private String court;
+        private double first;
+        private double second;
+        private double third;
+        private Object detail;
+
+        public long getSequence() {
+            return sequence;
+        }
+
+        public long getTime() {
+            return time;
+        }
+
+        public Object getType() {
+            return type;
+        }
+
+        public String getPlayer() {
+            return player;
+        }
+
+        public String getCourt() {
+            return court;
+        }
+
+        public double getFirst() {
+            return first;
+        }
+
+        public double getSecond() {
+            return second;
+        }
+
+        public double getThird() {
+            return third;
+        }
+
+        public Object getDetail() {
+            return detail;
+        }
+    }
+}
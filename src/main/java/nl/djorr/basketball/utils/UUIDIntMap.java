@@ -0,0 +1,339 @@
+package nl.djorr.basketball.utils;
+
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.UUID;
+
+/**
+ * UUID to int map with open addressing (linear probing, backward shift
+ * deletion). Keys are stored as two longs and values as ints, so entries
+ * cost no objects and values are never boxed.
+ *
+ * @author Djorr
+ */
+public class UUIDIntMap implements UUIDIntView {
+
+    private static final int MIN_CAPACITY = 8;
+
+    private long[] most;
+    private long[] least;
+    private int[] values;
+    private boolean[] used;
+    private int mask;
+    private int size;
+    private int modCount;
+    private UUIDIntView readOnlyView;
+
+    /**
+     * Constructor for UUIDIntMap
+     */
+    public UUIDIntMap() {
+        this(MIN_CAPACITY);
+    }
+
+    /**
+     * Constructor for UUIDIntMap
+     *
+     * @param expectedSize The number of entries to size the table for
+     */
+    public UUIDIntMap(int expectedSize) {
+        allocate(tableSizeFor(expectedSize));
+    }
+
+    @Override
+    public int get(UUID key, int defaultValue) {
+        int slot = find(key.getMostSignificantBits(), key.getLeastSignificantBits());
+        return slot >= 0 ? values[slot] : defaultValue;
+    }
+
+    @Override
+    public boolean containsKey(UUID key) {
+        return find(key.getMostSignificantBits(), key.getLeastSignificantBits()) >= 0;
+    }
+
+    /**
+     * Set the value of a key
+     *
+     * @param key The key
+     * @param value The value
+     */
+    public void put(UUID key, int value) {
+        long msb = key.getMostSignificantBits();
+        long lsb = key.getLeastSignificantBits();
+        int slot = find(msb, lsb);
+        if (slot >= 0) {
+            values[slot] = value;
+            return;
+        }
+        insert(msb, lsb, value);
+    }
+
+    /**
+     * Add to the value of a key, starting from 0 when absent
+     *
+     * @param key The key
+     * @param delta The amount to add
+     * @return The new value
+     */
+    public int add(UUID key, int delta) {
+        long msb = key.getMostSignificantBits();
+        long lsb = key.getLeastSignificantBits();
+        int slot = find(msb, lsb);
+        if (slot >= 0) {
+            values[slot] += delta;
+            return values[slot];
+        }
+        insert(msb, lsb, delta);
+        return delta;
+    }
+
+    /**
+     * Remove a key
+     *
+     * @param key The key
+     * @return True if the key was present
+     */
+    public boolean remove(UUID key) {
+        int slot = find(key.getMostSignificantBits(), key.getLeastSignificantBits());
+        if (slot < 0) {
+            return false;
+        }
+
+        // Shift following entries of the probe chain back into the hole
+        int hole = slot;
+        int next = (hole + 1) & mask;
+        while (used[next]) {
+            int home = hash(most[next], least[next]) & mask;
+            if (((next - home) & mask) >= ((next - hole) & mask)) {
+                most[hole] = most[next];
+                least[hole] = least[next];
+                values[hole] = values[next];
+                hole = next;
+            }
+            next = (next + 1) & mask;
+        }
+        used[hole] = false;
+        size--;
+        modCount++;
+        return true;
+    }
+
+    /**
+     * Set every value to the given value, keeping the keys
+     *
+     * @param value The value
+     */
+    public void fill(int value) {
+        for (int i = 0; i < used.length; i++) {
+            if (used[i]) {
+                values[i] = value;
+            }
+        }
+    }
+
+    /**
+     * Remove all entries
+     */
+    public void clear() {
+        if (size == 0) {
+            return;
+        }
+        Arrays.fill(used, false);
+        size = 0;
+        modCount++;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    @Override
+    public void forEach(EntryConsumer consumer) {
+        int expected = modCount;
+        for (int i = 0; i < used.length; i++) {
+            if (used[i]) {
+                consumer.accept(new UUID(most[i], least[i]), values[i]);
+                if (modCount != expected) {
+                    throw new ConcurrentModificationException();
+                }
+            }
+        }
+    }
+
+    @Override
+    public Map<UUID, Integer> toMap() {
+        Map<UUID, Integer> copy = new HashMap<>(size * 2);
+        for (int i = 0; i < used.length; i++) {
+            if (used[i]) {
+                copy.put(new UUID(most[i], least[i]), values[i]);
+            }
+        }
+        return copy;
+    }
+
+    /**
+     * Get a view that reads through to this map but cannot be cast back to it
+     *
+     * @return Read-only view
+     */
+    public UUIDIntView readOnlyView() {
+        if (readOnlyView == null) {
+            readOnlyView = new UUIDIntView() {
+                @Override
+                public int get(UUID key, int defaultValue) {
+                    return UUIDIntMap.this.get(key, defaultValue);
+                }
+
+                @Override
+                public boolean containsKey(UUID key) {
+                    return UUIDIntMap.this.containsKey(key);
+                }
+
+                @Override
+                public int size() {
+                    return size;
+                }
+
+                @Override
+                public boolean isEmpty() {
+                    return size == 0;
+                }
+
+                @Override
+                public void forEach(EntryConsumer consumer) {
+                    UUIDIntMap.this.forEach(consumer);
+                }
+
+                @Override
+                public Map<UUID, Integer> toMap() {
+                    return UUIDIntMap.this.toMap();
+                }
+            };
+        }
+        return readOnlyView;
+    }
+
+    /**
+     * Iterate over the keys. The map must not be changed while iterating.
+     *
+     * @return Key iterator
+     */
+    public Iterator<UUID> keyIterator() {
+        return new Iterator<UUID>() {
+            private final int expected = modCount;
+            private int slot = advance(0);
+
+            private int advance(int from) {
+                while (from < used.length && !used[from]) {
+                    from++;
+                }
+                return from;
+            }
+
+            @Override
+            public boolean hasNext() {
+                return slot < used.length;
+            }
+
+            @Override
+            public UUID next() {
+                if (modCount != expected) {
+                    throw new ConcurrentModificationException();
+                }
+                if (slot >= used.length) {
+                    throw new NoSuchElementException();
+                }
+                UUID key = new UUID(most[slot], least[slot]);
+                slot = advance(slot + 1);
+                return key;
+            }
+        };
+    }
+
+    private int find(long msb, long lsb) {
+        int slot = hash(msb, lsb) & mask;
+        while (used[slot]) {
+            if (most[slot] == msb && least[slot] == lsb) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    private void insert(long msb, long lsb, int value) {
+        // Keep the load factor at or below 0.5 so probe chains stay short
+        if ((size + 1) * 2 > used.length) {
+            rehash(used.length * 2);
+        }
+
+        int slot = hash(msb, lsb) & mask;
+        while (used[slot]) {
+            slot = (slot + 1) & mask;
+        }
+        most[slot] = msb;
+        least[slot] = lsb;
+        values[slot] = value;
+        used[slot] = true;
+        size++;
+        modCount++;
+    }
+
+    private void rehash(int capacity) {
+        long[] oldMost = most;
+        long[] oldLeast = least;
+        int[] oldValues = values;
+        boolean[] oldUsed = used;
+
+        allocate(capacity);
+        for (int i = 0; i < oldUsed.length; i++) {
+            if (oldUsed[i]) {
+                int slot = hash(oldMost[i], oldLeast[i]) & mask;
+                while (used[slot]) {
+                    slot = (slot + 1) & mask;
+                }
+                most[slot] = oldMost[i];
+                least[slot] = oldLeast[i];
+                values[slot] = oldValues[i];
+                used[slot] = true;
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        most = new long[capacity];
+        least = new long[capacity];
+        values = new int[capacity];
+        used = new boolean[capacity];
+        mask = capacity - 1;
+    }
+
+    private static int tableSizeFor(int expectedSize) {
+        int capacity = MIN_CAPACITY;
+        while (capacity < expectedSize * 2) {
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+
+    /**
+     * Mix both halves of the UUID (murmur3 finalizer)
+     */
+    private static int hash(long msb, long lsb) {
+        long h = msb ^ lsb;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        return (int) h;
+    }
+}
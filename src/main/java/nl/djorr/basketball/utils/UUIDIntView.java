@@ -0,0 +1,64 @@
+package nl.djorr.basketball.utils;
+
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Read-only view of a UUID to int map
+ *
+ * @author Djorr
+ */
+public interface UUIDIntView {
+
+    /**
+     * Get the value of a key
+     *
+     * @param key The key
+     * @param defaultValue Value returned when the key is absent
+     * @return The value
+     */
+    int get(UUID key, int defaultValue);
+
+    /**
+     * Check if a key is present
+     *
+     * @param key The key
+     * @return True if present
+     */
+    boolean containsKey(UUID key);
+
+    /**
+     * Get the number of entries
+     *
+     * @return The number of entries
+     */
+    int size();
+
+    /**
+     * Check if the map is empty
+     *
+     * @return True if there are no entries
+     */
+    boolean isEmpty();
+
+    /**
+     * Visit every entry without boxing the values
+     *
+     * @param consumer The entry consumer
+     */
+    void forEach(EntryConsumer consumer);
+
+    /**
+     * Copy the entries into a regular map
+     *
+     * @return A new map
+     */
+    Map<UUID, Integer> toMap();
+
+    /**
+     * Consumer of UUID to int entries
+     */
+    interface EntryConsumer {
+        void accept(UUID key, int value);
+    }
+}
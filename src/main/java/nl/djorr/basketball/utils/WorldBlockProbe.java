@@ -0,0 +1,30 @@
+package nl.djorr.basketball.utils;
+
+import org.bukkit.World;
+
+/**
+ * {@link BallPhysics.BlockProbe} over the blocks of a live world. One probe
+ * is reused for every ball; point it at the ball's world before each update.
+ *
+ * @author Djorr
+ */
+public final class WorldBlockProbe implements BallPhysics.BlockProbe {
+
+    private World world;
+
+    /**
+     * Read the blocks of a world from now on
+     *
+     * @param world The world
+     * @return This probe
+     */
+    public WorldBlockProbe in(World world) {
+        this.world = world;
+        return this;
+    }
+
+    @Override
+    public boolean isSolid(int x, int y, int z) {
+        return world.getBlockAt(x, y, z).getType().isSolid();
+    }
+}